@@ -43,6 +43,44 @@ public class ParserOptions {
 	private Set<String> myDontStripVersionsFromReferencesAtPaths = Collections.emptySet();
 	private boolean myOverrideResourceIdWithBundleEntryFullUrl = true;
 	private boolean myAutoContainReferenceTargetsWithNoId = true;
+	private boolean myUseStreamingJsonParser = false;
+
+	/**
+	 * If set to {@literal true} (default is {@literal false}), the JSON parser builds the
+	 * resource model directly from the stream of JSON tokens, instead of first loading the
+	 * entire document into an intermediate tree. This avoids holding a second copy of large
+	 * documents such as Bundles in memory while they are being parsed.
+	 * <p>
+	 * The resulting resources are the same as those produced by the default parser, except
+	 * that an <code>_element</code> property is ignored if it appears after a complex (non-primitive)
+	 * element of the same name (such properties are not valid FHIR), and that problems may be
+	 * reported to the {@link ca.uhn.fhir.parser.IParserErrorHandler} in a different order.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isUseStreamingJsonParser() {
+		return myUseStreamingJsonParser;
+	}
+
+	/**
+	 * If set to {@literal true} (default is {@literal false}), the JSON parser builds the
+	 * resource model directly from the stream of JSON tokens, instead of first loading the
+	 * entire document into an intermediate tree. This avoids holding a second copy of large
+	 * documents such as Bundles in memory while they are being parsed.
+	 * <p>
+	 * The resulting resources are the same as those produced by the default parser, except
+	 * that an <code>_element</code> property is ignored if it appears after a complex (non-primitive)
+	 * element of the same name (such properties are not valid FHIR), and that problems may be
+	 * reported to the {@link ca.uhn.fhir.parser.IParserErrorHandler} in a different order.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public ParserOptions setUseStreamingJsonParser(boolean theUseStreamingJsonParser) {
+		myUseStreamingJsonParser = theUseStreamingJsonParser;
+		return this;
+	}
 
 	/**
 	 * If set to {@literal true} (which is the default), contained resources may be specified by
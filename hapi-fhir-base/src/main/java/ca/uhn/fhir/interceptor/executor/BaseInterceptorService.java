@@ -32,6 +32,7 @@ import ca.uhn.fhir.util.ReflectionUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -43,13 +44,17 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -63,12 +68,19 @@ import java.util.stream.Collectors;
 
 public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & IPointcut> implements IBaseInterceptorService<POINTCUT>, IBaseInterceptorBroadcaster<POINTCUT> {
 	private static final Logger ourLog = LoggerFactory.getLogger(BaseInterceptorService.class);
+	private static final BaseInvoker[] EMPTY_INVOKER_ARRAY = new BaseInvoker[0];
 	private final List<Object> myInterceptors = new ArrayList<>();
 	private final ListMultimap<POINTCUT, BaseInvoker> myGlobalInvokers = ArrayListMultimap.create();
 	private final ListMultimap<POINTCUT, BaseInvoker> myAnonymousInvokers = ArrayListMultimap.create();
 	private final Object myRegistryMutex = new Object();
 	private final Class<POINTCUT> myPointcutType;
 	private volatile EnumSet<POINTCUT> myRegisteredPointcuts;
+	/**
+	 * Immutable snapshot of the ordered invokers for each pointcut. This is rebuilt whenever
+	 * an interceptor is registered or unregistered so that dispatch never needs to lock
+	 * or merge the invoker lists. The arrays must never be modified after being published.
+	 */
+	private volatile EnumMap<POINTCUT, BaseInvoker[]> myInvokersSnapshot;
 	private String myName;
 	private boolean myWarnOnInterceptorWithNoHooks = true;
 
@@ -207,10 +219,25 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 		}
 	}
 
+	/**
+	 * Must be called (while holding {@link #myRegistryMutex}) after any change to the
+	 * registered invokers
+	 */
 	private void rebuildRegisteredPointcutSet() {
 		EnumSet<POINTCUT> registeredPointcuts = EnumSet.noneOf(myPointcutType);
 		registeredPointcuts.addAll(myAnonymousInvokers.keySet());
 		registeredPointcuts.addAll(myGlobalInvokers.keySet());
+
+		EnumMap<POINTCUT, BaseInvoker[]> invokersSnapshot = new EnumMap<>(myPointcutType);
+		for (POINTCUT next : registeredPointcuts) {
+			List<BaseInvoker> globalInvokers = myGlobalInvokers.get(next);
+			List<BaseInvoker> anonymousInvokers = myAnonymousInvokers.get(next);
+			List<BaseInvoker> threadLocalInvokers = null;
+			List<BaseInvoker> invokers = union(globalInvokers, anonymousInvokers, threadLocalInvokers);
+			invokersSnapshot.put(next, invokers.toArray(EMPTY_INVOKER_ARRAY));
+		}
+
+		myInvokersSnapshot = invokersSnapshot;
 		myRegisteredPointcuts = registeredPointcuts;
 	}
 
@@ -272,8 +299,8 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	}
 
 	private Object doCallHooks(POINTCUT thePointcut, HookParams theParams, Object theRetVal) {
-		// use new list for loop to avoid ConcurrentModificationException in case invoker gets added while looping
-		List<BaseInvoker> invokers = new ArrayList<>(getInvokersForPointcut(thePointcut));
+		// The snapshot is never modified, so invokers added or removed while looping don't affect this call
+		BaseInvoker[] invokers = getInvokerSnapshotForPointcut(thePointcut);
 
 		/*
 		 * Call each hook in order
@@ -312,16 +339,19 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	 * a new and stable list is returned to.. do whatever you want with it.
 	 */
 	private List<BaseInvoker> getInvokersForPointcut(POINTCUT thePointcut) {
-		List<BaseInvoker> invokers;
+		return new ArrayList<>(Arrays.asList(getInvokerSnapshotForPointcut(thePointcut)));
+	}
 
-		synchronized (myRegistryMutex) {
-			List<BaseInvoker> globalInvokers = myGlobalInvokers.get(thePointcut);
-			List<BaseInvoker> anonymousInvokers = myAnonymousInvokers.get(thePointcut);
-			List<BaseInvoker> threadLocalInvokers = null;
-			invokers = union(globalInvokers, anonymousInvokers, threadLocalInvokers);
+	/**
+	 * Returns the ordered invokers for the given pointcut. The returned array is shared and
+	 * must not be modified.
+	 */
+	private BaseInvoker[] getInvokerSnapshotForPointcut(POINTCUT thePointcut) {
+		BaseInvoker[] retVal = myInvokersSnapshot.get(thePointcut);
+		if (retVal == null) {
+			retVal = EMPTY_INVOKER_ARRAY;
 		}
-
-		return invokers;
+		return retVal;
 	}
 
 	/**
@@ -452,6 +482,14 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private class HookInvoker extends BaseInvoker {
 
 		private final Method myMethod;
+		/**
+		 * Handle for {@link #myMethod}, bound to the interceptor instance and adapted to
+		 * the shape <code>(Object[])Object</code> so that it can be called with
+		 * {@link MethodHandle#invokeExact(Object...)}, which avoids the access checks and
+		 * argument boxing/unwrapping that reflective {@link Method#invoke(Object, Object...)}
+		 * performs on every call.
+		 */
+		private final MethodHandle myMethodHandle;
 		private final Class<?>[] myParameterTypes;
 		private final int[] myParameterIndexes;
 		private final POINTCUT myPointcut;
@@ -482,6 +520,39 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			}
 
 			myMethod.setAccessible(true);
+			myMethodHandle = createMethodHandle(theInterceptor, theHookMethod);
+		}
+
+		private MethodHandle createMethodHandle(Object theInterceptor, Method theHookMethod) {
+			MethodHandle retVal;
+			try {
+				retVal = MethodHandles.lookup().unreflect(theHookMethod);
+			} catch (IllegalAccessException e) {
+				throw new InternalErrorException(Msg.code(2275) + "Unable to access hook method " + theHookMethod, e);
+			}
+			if (!Modifier.isStatic(theHookMethod.getModifiers())) {
+				retVal = retVal.bindTo(theInterceptor);
+			}
+			return retVal
+				.asType(MethodType.genericMethodType(myParameterTypes.length))
+				.asSpreader(Object[].class, myParameterTypes.length);
+		}
+
+		/**
+		 * The method handle would otherwise reject a mismatched argument with a ClassCastException or
+		 * NullPointerException that can't be told apart from one thrown by the hook itself, so
+		 * this is checked before the hook is invoked
+		 */
+		private void validateArgument(Class<?> theParameterType, Object theArgument) {
+			boolean valid;
+			if (theArgument == null) {
+				valid = !theParameterType.isPrimitive();
+			} else {
+				valid = ClassUtils.isAssignable(theArgument.getClass(), theParameterType, true);
+			}
+			if (!valid) {
+				throw new InternalErrorException(Msg.code(1911) + "Argument " + theArgument + " can not be passed as " + theParameterType.getName() + " to hook method " + myMethod);
+			}
 		}
 
 		@Override
@@ -511,13 +582,13 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 					Object nextParamValue = theParams.get(nextParamType, nextParamIndex);
 					args[i] = nextParamValue;
 				}
+				validateArgument(nextParamType, args[i]);
 			}
 
 			// Invoke the method
 			try {
-				return myMethod.invoke(getInterceptor(), args);
-			} catch (InvocationTargetException e) {
-				Throwable targetException = e.getTargetException();
+				return (Object) myMethodHandle.invokeExact(args);
+			} catch (Throwable targetException) {
 				if (myPointcut.isShouldLogAndSwallowException(targetException)) {
 					ourLog.error("Exception thrown by interceptor: " + targetException.toString(), targetException);
 					return null;
@@ -528,8 +599,6 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 				} else {
 					throw new InternalErrorException(Msg.code(1910) + "Failure invoking interceptor for pointcut(s) " + getPointcut(), targetException);
 				}
-			} catch (Exception e) {
-				throw new InternalErrorException(Msg.code(1911) + e);
 			}
 
 		}
@@ -0,0 +1,368 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.json.BaseJsonLikeObject;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ValueType;
+import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Parses JSON content by driving a {@link ParserState} directly from the Jackson token stream,
+ * instead of first loading the whole document into a tree as {@link JacksonStructure} does.
+ * This is used by {@link JsonParser} when {@link ca.uhn.fhir.context.ParserOptions#setUseStreamingJsonParser(boolean)}
+ * is enabled.
+ * <p>
+ * Complex elements are streamed. Primitive values can't be, since a primitive's
+ * <code>_element</code> sibling (containing its id and extensions) may appear after it, so
+ * primitives and <code>_element</code> values are buffered until the end of the object that
+ * contains them and are then handled by the tree based parsing code in {@link JsonParser}.
+ * Resources and extensions are streamed if <code>resourceType</code> or <code>url</code> respectively
+ * is the first property in the object (which is how HAPI FHIR and most other tools write them),
+ * and are otherwise read into a tree before being parsed.
+ * </p>
+ * <p>
+ * The resulting model is the same as the one produced by the tree based parser, except that
+ * an <code>_element</code> value which follows a complex (non-primitive) element of the same name
+ * is ignored (such values are not valid FHIR), and that since primitives are handled after the
+ * complex elements around them, problems may be reported to the error handler in a different order.
+ * </p>
+ */
+class JsonTokenStreamReader {
+
+	private final JsonParser myJsonParser;
+	private final com.fasterxml.jackson.core.JsonParser myTokens;
+
+	JsonTokenStreamReader(JsonParser theJsonParser, Reader theReader) {
+		myJsonParser = theJsonParser;
+		try {
+			myTokens = JacksonStructure.createStreamingParser(theReader);
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	<T extends IBaseResource> T parseResource(Class<T> theResourceType) {
+		try {
+			JsonToken token = myTokens.nextToken();
+			if (token == null) {
+				throw new DataFormatException(Msg.code(2298) + "Did not find any content to parse");
+			}
+			if (token != JsonToken.START_OBJECT) {
+				throw new DataFormatException(Msg.code(2299) + "Content does not appear to be FHIR JSON, first token was: " + token + " (must be '{')");
+			}
+
+			T retVal;
+			String resourceType = null;
+			String consumedFieldName = readLeadingField("resourceType");
+			if (consumedFieldName != null && myTokens.getCurrentToken() == JsonToken.VALUE_STRING) {
+				resourceType = myTokens.getText();
+			}
+
+			if (isBlank(resourceType)) {
+				ObjectNode object = readObjectRemainder(consumedFieldName);
+				JacksonStructure structure = new JacksonStructure();
+				structure.setNativeObject(object);
+				retVal = myJsonParser.doParseResource(theResourceType, structure);
+			} else {
+				ParserState<? extends IBaseResource> state = ParserState.getPreResourceInstance(myJsonParser, theResourceType, myJsonParser.getContext(), true, myJsonParser.getErrorHandler());
+				state.enteringNewElement(null, resourceType);
+				myTokens.nextToken();
+				parseObjectBody(state, false);
+				state.endingElement();
+				state.endingElement();
+
+				@SuppressWarnings("unchecked")
+				T object = (T) state.getObject();
+				retVal = object;
+			}
+
+			if (myTokens.nextToken() != null) {
+				throw new DataFormatException(Msg.code(2300) + "Failed to parse JSON encoded FHIR content: Unexpected content found after the end of the resource");
+			}
+
+			return retVal;
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Parses the properties of an object whose opening brace (and <code>resourceType</code> or
+	 * extension <code>url</code> property, if any) has already been consumed. On entry the
+	 * current token is the next {@link JsonToken#FIELD_NAME} or the closing {@link JsonToken#END_OBJECT},
+	 * and on exit the current token is the closing {@link JsonToken#END_OBJECT}.
+	 */
+	private void parseObjectBody(ParserState<?> theState, boolean theExtension) throws IOException {
+		ObjectNode buffered = null;
+		Set<String> streamedNames = null;
+
+		while (myTokens.getCurrentToken() == JsonToken.FIELD_NAME) {
+			String name = myTokens.getCurrentName();
+			JsonToken valueToken = myTokens.nextToken();
+
+			if ("extension".equals(name) || "modifierExtension".equals(name)) {
+				parseExtensions(theState, name, "modifierExtension".equals(name));
+			} else if (theExtension ? "url".equals(name) : "resourceType".equals(name)) {
+				myTokens.skipChildren();
+			} else if (name.charAt(0) == '_') {
+				if (streamedNames == null || !streamedNames.contains(name.substring(1))) {
+					buffered = buffer(buffered, name, myTokens.readValueAsTree());
+				} else {
+					myTokens.skipChildren();
+				}
+			} else if (valueToken == JsonToken.START_OBJECT && !"id".equals(name)) {
+				JsonNode alternate = buffered != null ? buffered.remove('_' + name) : null;
+				parseComplexElement(theState, name, alternate, false);
+				streamedNames = addStreamedName(streamedNames, name);
+			} else if (valueToken == JsonToken.START_ARRAY && !"id".equals(name)) {
+				if (myTokens.nextToken() == JsonToken.START_OBJECT) {
+					JsonNode alternate = buffered != null ? buffered.remove('_' + name) : null;
+					parseComplexArray(theState, name, alternate);
+					streamedNames = addStreamedName(streamedNames, name);
+				} else {
+					buffered = buffer(buffered, name, readArrayRemainder());
+				}
+			} else {
+				buffered = buffer(buffered, name, myTokens.readValueAsTree());
+			}
+
+			myTokens.nextToken();
+		}
+
+		if (buffered != null) {
+			myJsonParser.parseChildren(toJsonLikeObject(buffered), theState);
+		}
+	}
+
+	/**
+	 * Parses a complex element. On entry the current token is the {@link JsonToken#START_OBJECT}
+	 * of the element and on exit it is the matching {@link JsonToken#END_OBJECT}.
+	 */
+	private void parseComplexElement(ParserState<?> theState, String theName, JsonNode theAlternate, boolean theInArray) throws IOException {
+		if (!theInArray && theState.elementIsRepeating(theName)) {
+			myJsonParser.getErrorHandler().incorrectJsonType(null, theName, ValueType.ARRAY, null, ValueType.OBJECT, null);
+		}
+
+		String alternateName = '_' + theName;
+		theState.enteringNewElement(null, theName);
+		if (theAlternate != null) {
+			myJsonParser.parseAlternates(toJsonLikeValue(theAlternate), theState, alternateName, alternateName);
+		}
+
+		if (theState.isPreResource()) {
+			String resourceType = null;
+			String consumedFieldName = readLeadingField("resourceType");
+			if (consumedFieldName != null && myTokens.getCurrentToken() == JsonToken.VALUE_STRING) {
+				resourceType = myTokens.getText();
+			}
+
+			if (resourceType != null) {
+				theState.enteringNewElement(null, resourceType);
+				myTokens.nextToken();
+				parseObjectBody(theState, false);
+			} else {
+				ObjectNode object = readObjectRemainder(consumedFieldName);
+				JsonNode resourceTypeNode = object.get("resourceType");
+				if (resourceTypeNode == null || !resourceTypeNode.isTextual()) {
+					throw new DataFormatException(Msg.code(2301) + "Missing required element 'resourceType' from JSON resource object, unable to parse");
+				}
+				theState.enteringNewElement(null, resourceTypeNode.asText());
+				myJsonParser.parseChildren(toJsonLikeObject(object), theState);
+			}
+			theState.endingElement();
+		} else {
+			myTokens.nextToken();
+			parseObjectBody(theState, false);
+		}
+
+		theState.endingElement();
+	}
+
+	/**
+	 * Parses a repeating complex element. On entry the current token is the first
+	 * {@link JsonToken#START_OBJECT} in the array, and on exit it is the closing
+	 * {@link JsonToken#END_ARRAY}.
+	 */
+	private void parseComplexArray(ParserState<?> theState, String theName, JsonNode theAlternate) throws IOException {
+		String alternateName = '_' + theName;
+		JsonNode alternates = theAlternate;
+		if (alternates != null && !alternates.isArray()) {
+			myJsonParser.getErrorHandler().incorrectJsonType(null, alternateName, ValueType.ARRAY, null, toJsonLikeValue(alternates).getJsonType(), null);
+			alternates = null;
+		}
+
+		for (int i = 0; myTokens.getCurrentToken() != JsonToken.END_ARRAY; i++) {
+			JsonNode alternate = alternates != null && alternates.size() > i ? alternates.get(i) : null;
+			if (myTokens.getCurrentToken() == JsonToken.START_OBJECT) {
+				parseComplexElement(theState, theName, alternate, true);
+			} else {
+				JsonNode value = myTokens.readValueAsTree();
+				myJsonParser.parseChildren(theState, theName, toJsonLikeValue(value), alternate != null ? toJsonLikeValue(alternate) : null, alternateName, true);
+			}
+			myTokens.nextToken();
+		}
+	}
+
+	/**
+	 * Parses an <code>extension</code> or <code>modifierExtension</code> property. On entry the current
+	 * token is the first token of the property value and on exit it is the last one.
+	 */
+	private void parseExtensions(ParserState<?> theState, String theName, boolean theIsModifier) throws IOException {
+		JsonToken token = myTokens.getCurrentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return;
+		}
+		if (token != JsonToken.START_ARRAY) {
+			ValueType foundType = toJsonLikeValue(myTokens.readValueAsTree()).getJsonType();
+			throw new DataFormatException(Msg.code(2302) + "Syntax error parsing JSON FHIR structure: Expected ARRAY at element '" + theName + "', found '" + foundType + "'");
+		}
+
+		while (myTokens.nextToken() != JsonToken.END_ARRAY) {
+			if (myTokens.getCurrentToken() != JsonToken.START_OBJECT) {
+				ValueType foundType = toJsonLikeValue(myTokens.readValueAsTree()).getJsonType();
+				myJsonParser.getErrorHandler().incorrectJsonType(null, theName, ValueType.OBJECT, null, foundType, null);
+				continue;
+			}
+
+			String url = null;
+			String consumedFieldName = readLeadingField("url");
+			if (consumedFieldName != null && myTokens.getCurrentToken().isScalarValue() && myTokens.getCurrentToken() != JsonToken.VALUE_NULL) {
+				url = myTokens.getText();
+			}
+
+			if (url != null) {
+				theState.enteringNewElementExtension(null, myJsonParser.getExtensionUrl(url), theIsModifier, myJsonParser.getServerBaseUrl());
+				myTokens.nextToken();
+				parseObjectBody(theState, true);
+				theState.endingElement();
+			} else {
+				ObjectNode extension = readObjectRemainder(consumedFieldName);
+				ArrayNode extensions = JsonNodeFactory.instance.arrayNode();
+				extensions.add(extension);
+				myJsonParser.parseExtension(theState, toJsonLikeValue(extensions).getAsArray(), theIsModifier);
+			}
+		}
+	}
+
+	/**
+	 * Advances past the opening brace of an object and, if the first property has the given name,
+	 * to the value of that property. Returns the name if the value was reached and null otherwise
+	 * (in which case the current token is the first {@link JsonToken#FIELD_NAME} or the closing
+	 * {@link JsonToken#END_OBJECT}).
+	 */
+	private String readLeadingField(String theFieldName) throws IOException {
+		if (myTokens.nextToken() == JsonToken.FIELD_NAME && theFieldName.equals(myTokens.getCurrentName())) {
+			myTokens.nextToken();
+			return theFieldName;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the remaining properties of an object into a tree. If <code>theCurrentFieldName</code>
+	 * is not null, the current token is the value of that property, otherwise it is the next
+	 * {@link JsonToken#FIELD_NAME} or the closing {@link JsonToken#END_OBJECT}. On exit the current
+	 * token is the closing {@link JsonToken#END_OBJECT}.
+	 */
+	private ObjectNode readObjectRemainder(String theCurrentFieldName) throws IOException {
+		ObjectNode retVal = JsonNodeFactory.instance.objectNode();
+		if (theCurrentFieldName != null) {
+			retVal.set(theCurrentFieldName, myTokens.readValueAsTree());
+			myTokens.nextToken();
+		}
+		while (myTokens.getCurrentToken() == JsonToken.FIELD_NAME) {
+			String name = myTokens.getCurrentName();
+			myTokens.nextToken();
+			retVal.set(name, myTokens.readValueAsTree());
+			myTokens.nextToken();
+		}
+		return retVal;
+	}
+
+	/**
+	 * Reads the remaining values in an array into a tree. On entry the current token is the first
+	 * token of the first value (or the closing {@link JsonToken#END_ARRAY}) and on exit it is the
+	 * closing {@link JsonToken#END_ARRAY}.
+	 */
+	private ArrayNode readArrayRemainder() throws IOException {
+		ArrayNode retVal = JsonNodeFactory.instance.arrayNode();
+		while (myTokens.getCurrentToken() != JsonToken.END_ARRAY) {
+			retVal.add((JsonNode) myTokens.readValueAsTree());
+			myTokens.nextToken();
+		}
+		return retVal;
+	}
+
+	private static ObjectNode buffer(ObjectNode theBuffer, String theName, JsonNode theValue) {
+		ObjectNode retVal = theBuffer;
+		if (retVal == null) {
+			retVal = JsonNodeFactory.instance.objectNode();
+		}
+		retVal.set(theName, theValue);
+		return retVal;
+	}
+
+	private static Set<String> addStreamedName(Set<String> theStreamedNames, String theName) {
+		Set<String> retVal = theStreamedNames;
+		if (retVal == null) {
+			retVal = new HashSet<>();
+		}
+		retVal.add(theName);
+		return retVal;
+	}
+
+	private static BaseJsonLikeObject toJsonLikeObject(ObjectNode theObject) {
+		JacksonStructure structure = new JacksonStructure();
+		structure.setNativeObject(theObject);
+		return structure.getRootObject();
+	}
+
+	private static BaseJsonLikeValue toJsonLikeValue(JsonNode theValue) {
+		ObjectNode holder = JsonNodeFactory.instance.objectNode();
+		holder.set("value", theValue);
+		return toJsonLikeObject(holder).get("value");
+	}
+
+	private static DataFormatException newParseException(IOException theException) {
+		String message = theException.getMessage();
+		if (message != null && message.startsWith("Unexpected char 39")) {
+			return new DataFormatException(Msg.code(2303) + "Failed to parse JSON encoded FHIR content: " + message + " - " +
+				"This may indicate that single quotes are being used as JSON escapes where double quotes are required", theException);
+		}
+		return new DataFormatException(Msg.code(2304) + "Failed to parse JSON encoded FHIR content: " + message, theException);
+	}
+
+}
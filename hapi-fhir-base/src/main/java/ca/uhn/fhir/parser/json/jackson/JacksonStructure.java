@@ -32,6 +32,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.DecimalNode;
@@ -52,6 +53,7 @@ import java.util.Map;
 public class JacksonStructure implements JsonLikeStructure {
 
 	private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+	private static final ObjectReader STREAMING_TREE_READER = OBJECT_MAPPER.reader().without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
 	private JacksonWriter jacksonWriter;
 	private ROOT_TYPE rootType = null;
 	private JsonNode nativeRoot = null;
@@ -118,6 +120,20 @@ public class JacksonStructure implements JsonLikeStructure {
 		}
 	}
 
+	/**
+	 * Creates a streaming parser for the given content, configured in the same way as the parser
+	 * used by {@link #load(Reader)}. Trees read from the returned parser using
+	 * {@link JsonParser#readValueAsTree()} are identical to the ones that {@link #load(Reader)}
+	 * would produce for the same content.
+	 *
+	 * @since 6.6.0
+	 */
+	public static JsonParser createStreamingParser(Reader theReader) throws IOException {
+		JsonParser retVal = OBJECT_MAPPER.getFactory().createParser(theReader);
+		retVal.setCodec(STREAMING_TREE_READER);
+		return retVal;
+	}
+
 	@Override
 	public BaseJsonLikeWriter getJsonLikeWriter(Writer writer) throws IOException {
 		if (null == jacksonWriter) {
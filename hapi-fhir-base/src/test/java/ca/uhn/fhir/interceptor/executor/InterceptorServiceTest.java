@@ -432,6 +432,38 @@ public class InterceptorServiceTest {
 	}
 
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCallHooksWithArgumentOfWrongTypeFailsBeforeInvokingHook() {
+		InterceptorService svc = new InterceptorService();
+
+		class MyInterceptor {
+			private boolean myHit;
+
+			@Hook(Pointcut.TEST_RB)
+			public void hook(String theValue0, String theValue1) {
+				myHit = true;
+			}
+		}
+		MyInterceptor interceptor = new MyInterceptor();
+		svc.registerInterceptor(interceptor);
+
+		HookParams params = new HookParams("A", "B") {
+			@Override
+			public <T> T get(Class<T> theParamType, int theIndex) {
+				return theIndex == 0 ? (T) (Object) 123 : super.get(theParamType, theIndex);
+			}
+		};
+
+		try {
+			svc.callHooks(Pointcut.TEST_RB, params);
+			fail();
+		} catch (InternalErrorException e) {
+			assertThat(e.getMessage(), containsString(Msg.code(1911) + "Argument 123 can not be passed as java.lang.String to hook method"));
+		}
+		assertFalse(interceptor.myHit);
+	}
+
 	@Test
 	public void testCallHooksInvokedWithWrongParameters() {
 		InterceptorService svc = new InterceptorService();
@@ -0,0 +1,127 @@
+package ca.uhn.fhir.benchmark;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Builds the resources used by the benchmarks. The content is modelled on typical
+ * clinical data (a US Core style patient and vital sign observations) so that the
+ * measurements reflect realistic element counts and nesting depth, and it is generated
+ * deterministically so that results are comparable between runs.
+ */
+public class BenchmarkData {
+
+	private static final long BASE_TIME = 1577836800000L; // 2020-01-01T00:00:00Z
+
+	/**
+	 * Non instantiable
+	 */
+	private BenchmarkData() {
+		super();
+	}
+
+	public static Patient newPatient(int theIndex) {
+		Patient patient = new Patient();
+		patient.setId("Patient/P" + theIndex);
+		patient.getMeta().addProfile("http://hl7.org/fhir/us/core/StructureDefinition/us-core-patient");
+		patient.getText().setStatus(Narrative.NarrativeStatus.GENERATED).setDivAsString("<div xmlns=\"http://www.w3.org/1999/xhtml\">Patient " + theIndex + "</div>");
+		patient.addExtension("http://hl7.org/fhir/us/core/StructureDefinition/us-core-birthsex", new StringType(theIndex % 2 == 0 ? "F" : "M"));
+		patient.addIdentifier().setSystem("http://hospital.example.org/mrn").setValue("MRN" + (100000 + theIndex));
+		patient.addIdentifier().setSystem("http://hl7.org/fhir/sid/us-ssn").setValue(String.format("999-%02d-%04d", theIndex % 100, theIndex));
+		patient.setActive(true);
+		patient.addName().setFamily("Family" + theIndex).addGiven("Given" + theIndex).addGiven("Middle").addPrefix("Ms.");
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-01" + (theIndex % 100)).setUse(ContactPoint.ContactPointUse.HOME);
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.EMAIL).setValue("patient" + theIndex + "@example.org");
+		patient.setGender(theIndex % 2 == 0 ? Enumerations.AdministrativeGender.FEMALE : Enumerations.AdministrativeGender.MALE);
+		patient.setBirthDate(new Date(BASE_TIME - (20L + theIndex % 60) * 365 * 24 * 3600 * 1000));
+		patient.addAddress().addLine(theIndex + " Main Street").addLine("Unit 4").setCity("Toronto").setState("ON").setPostalCode("M5V 2T6").setCountry("CA");
+		patient.getMaritalStatus().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/v3-MaritalStatus").setCode("M").setDisplay("Married");
+		patient.addCommunication().getLanguage().addCoding().setSystem("urn:ietf:bcp:47").setCode("en-CA").setDisplay("English (Canada)");
+		return patient;
+	}
+
+	public static Observation newObservation(int theIndex, String thePatientId) {
+		Observation obs = new Observation();
+		obs.setId("Observation/O" + theIndex);
+		obs.getMeta().addProfile("http://hl7.org/fhir/us/core/StructureDefinition/us-core-blood-pressure");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.addCategory().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/observation-category").setCode("vital-signs").setDisplay("Vital Signs");
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("85354-9").setDisplay("Blood pressure panel with all children optional");
+		obs.getCode().setText("Blood pressure systolic & diastolic");
+		obs.setSubject(new Reference(thePatientId));
+		obs.setEffective(new DateTimeType(new Date(BASE_TIME + theIndex * 3600_000L)));
+		obs.setIssued(new Date(BASE_TIME + theIndex * 3600_000L + 60_000L));
+		obs.addPerformer(new Reference("Practitioner/PR" + (theIndex % 10)));
+		addComponent(obs, "8480-6", "Systolic blood pressure", new BigDecimal(110 + theIndex % 40));
+		addComponent(obs, "8462-4", "Diastolic blood pressure", new BigDecimal(70 + theIndex % 20));
+		CodeableConcept interpretation = obs.addInterpretation();
+		interpretation.addCoding().setSystem("http://terminology.hl7.org/CodeSystem/v3-ObservationInterpretation").setCode("N").setDisplay("Normal");
+		return obs;
+	}
+
+	private static void addComponent(Observation theObservation, String theCode, String theDisplay, BigDecimal theValue) {
+		Observation.ObservationComponentComponent component = theObservation.addComponent();
+		component.getCode().addCoding().setSystem("http://loinc.org").setCode(theCode).setDisplay(theDisplay);
+		component.setValue(new Quantity().setValue(theValue).setUnit("mmHg").setSystem("http://unitsofmeasure.org").setCode("mm[Hg]"));
+	}
+
+	/**
+	 * Creates a searchset bundle containing the given number of patients, each followed by
+	 * four observations about that patient
+	 */
+	public static Bundle newSearchSetBundle(int thePatientCount) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		bundle.setTotal(thePatientCount * 5);
+		bundle.addLink().setRelation("self").setUrl("http://example.org/fhir/Patient?_revinclude=Observation:subject");
+		int observationIndex = 0;
+		for (int i = 0; i < thePatientCount; i++) {
+			Patient patient = newPatient(i);
+			bundle.addEntry()
+				.setFullUrl("http://example.org/fhir/" + patient.getId())
+				.setResource(patient)
+				.getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+			for (int j = 0; j < 4; j++) {
+				Observation obs = newObservation(observationIndex++, patient.getId());
+				bundle.addEntry()
+					.setFullUrl("http://example.org/fhir/" + obs.getId())
+					.setResource(obs)
+					.getSearch().setMode(Bundle.SearchEntryMode.INCLUDE);
+			}
+		}
+		return bundle;
+	}
+
+}
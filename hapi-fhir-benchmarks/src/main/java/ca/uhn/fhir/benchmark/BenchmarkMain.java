@@ -0,0 +1,91 @@
+package ca.uhn.fhir.benchmark;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point for the benchmarks jar. This accepts the same arguments as the standard
+ * JMH launcher, but unless a result format and file are given explicitly, results are
+ * written as JSON to {@value #DEFAULT_RESULT_FILE} so that they can be archived and
+ * compared across releases (e.g. using <a href="https://jmh.morethan.io">JMH Visualizer</a>).
+ */
+public class BenchmarkMain {
+
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	/**
+	 * Non instantiable
+	 */
+	private BenchmarkMain() {
+		super();
+	}
+
+	public static void main(String[] theArgs) throws IOException, RunnerException {
+		CommandLineOptions commandLineOptions;
+		try {
+			commandLineOptions = new CommandLineOptions(theArgs);
+		} catch (CommandLineOptionException e) {
+			System.err.println("Error parsing command line: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		if (commandLineOptions.shouldListProfilers()) {
+			commandLineOptions.listProfilers();
+			return;
+		}
+		if (commandLineOptions.shouldListResultFormats()) {
+			commandLineOptions.listResultFormats();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.result(DEFAULT_RESULT_FILE);
+		}
+
+		Runner runner = new Runner(options.build());
+		if (commandLineOptions.shouldList()) {
+			runner.list();
+		} else if (commandLineOptions.shouldListWithParams()) {
+			runner.listWithParams(commandLineOptions);
+		} else {
+			runner.run();
+		}
+	}
+
+}
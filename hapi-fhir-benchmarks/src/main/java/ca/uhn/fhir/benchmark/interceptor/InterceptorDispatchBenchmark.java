@@ -0,0 +1,103 @@
+package ca.uhn.fhir.benchmark.interceptor;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.HookParams;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of dispatching a pointcut through {@link InterceptorService}
+ * to a number of registered hooks which do no work of their own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterceptorDispatchBenchmark {
+
+	@Param({"1", "5", "20"})
+	private int myInterceptorCount;
+
+	private InterceptorService myInterceptorService;
+	private HookParams myParams;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		myInterceptorService = new InterceptorService();
+		for (int i = 0; i < myInterceptorCount; i++) {
+			myInterceptorService.registerInterceptor(new NoOpInterceptor());
+		}
+		myParams = new HookParams("A", "B");
+	}
+
+	/**
+	 * Pointcut with registered hooks
+	 */
+	@Benchmark
+	public boolean callHooks() {
+		return myInterceptorService.callHooks(Pointcut.TEST_RB, myParams);
+	}
+
+	/**
+	 * Pointcut with no registered hooks - Callers usually check {@link InterceptorService#hasHooks(Pointcut)}
+	 * first, but not always
+	 */
+	@Benchmark
+	public Object callHooksNoneRegistered() {
+		return myInterceptorService.callHooksAndReturnObject(Pointcut.TEST_RO, myParams);
+	}
+
+	@Benchmark
+	public boolean hasHooks() {
+		return myInterceptorService.hasHooks(Pointcut.TEST_RB);
+	}
+
+	@Interceptor
+	public static class NoOpInterceptor {
+
+		@Hook(Pointcut.TEST_RB)
+		public boolean testRb(String theString0, String theString1) {
+			return theString0 != theString1;
+		}
+
+	}
+
+}
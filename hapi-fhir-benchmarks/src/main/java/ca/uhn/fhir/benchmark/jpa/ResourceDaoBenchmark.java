@@ -0,0 +1,139 @@
+package ca.uhn.fhir.benchmark.jpa;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.benchmark.BenchmarkData;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@literal create}, {@literal read} and {@literal search} through the JPA server
+ * resource DAOs against an in-memory H2 database (see {@link BenchmarkJpaR4Config}). The
+ * database is populated with a fixed number of patients, each having four observations,
+ * before measurement begins. Note that the {@literal create} benchmark adds resources
+ * to the database as it runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ResourceDaoBenchmark {
+
+	@Param({"100"})
+	private int myPatientCount;
+
+	private AnnotationConfigApplicationContext myAppCtx;
+	private IFhirResourceDao<Patient> myPatientDao;
+	private IFhirResourceDao<Observation> myObservationDao;
+	private SystemRequestDetails myRequestDetails;
+	private IIdType myPatientId;
+	private int myCreateIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		myAppCtx = new AnnotationConfigApplicationContext(BenchmarkJpaR4Config.class);
+		DaoRegistry daoRegistry = myAppCtx.getBean(DaoRegistry.class);
+		myPatientDao = daoRegistry.getResourceDao(Patient.class);
+		myObservationDao = daoRegistry.getResourceDao(Observation.class);
+		myRequestDetails = new SystemRequestDetails();
+
+		int observationIndex = 0;
+		for (int i = 0; i < myPatientCount; i++) {
+			Patient patient = BenchmarkData.newPatient(i);
+			patient.setId((String) null);
+			IIdType patientId = myPatientDao.create(patient, myRequestDetails).getId().toUnqualifiedVersionless();
+			for (int j = 0; j < 4; j++) {
+				Observation obs = BenchmarkData.newObservation(observationIndex++, patientId.getValue());
+				obs.setId((String) null);
+				obs.getPerformer().clear();
+				myObservationDao.create(obs, myRequestDetails);
+			}
+			if (myPatientId == null) {
+				myPatientId = patientId;
+			}
+		}
+		myCreateIndex = observationIndex;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		myAppCtx.close();
+	}
+
+	@Benchmark
+	public DaoMethodOutcome create() {
+		Observation obs = BenchmarkData.newObservation(myCreateIndex++, myPatientId.getValue());
+		obs.setId((String) null);
+		obs.getPerformer().clear();
+		return myObservationDao.create(obs, myRequestDetails);
+	}
+
+	@Benchmark
+	public Patient read() {
+		return myPatientDao.read(myPatientId, myRequestDetails);
+	}
+
+	@Benchmark
+	public List<IBaseResource> searchByToken() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.setCount(10);
+		map.add(Patient.SP_IDENTIFIER, new TokenParam("http://hospital.example.org/mrn", "MRN100000"));
+		return myPatientDao.search(map, myRequestDetails).getResources(0, 10);
+	}
+
+	@Benchmark
+	public List<IBaseResource> searchByReferenceAndToken() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.setCount(10);
+		map.add(Observation.SP_SUBJECT, new ReferenceParam(myPatientId.getValue()));
+		map.add(Observation.SP_CODE, new TokenParam("http://loinc.org", "85354-9"));
+		return myObservationDao.search(map, myRequestDetails).getResources(0, 10);
+	}
+
+}
@@ -0,0 +1,89 @@
+package ca.uhn.fhir.benchmark.parser;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.benchmark.BenchmarkData;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ca.uhn.fhir.parser.JsonParser} and {@link ca.uhn.fhir.parser.XmlParser}
+ * encoding and parsing of a searchset bundle containing patients and observations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@Param({"JSON", "XML"})
+	private EncodingEnum myEncoding;
+
+	/**
+	 * Number of patients in the bundle (each patient is followed by four observations)
+	 */
+	@Param({"1", "20"})
+	private int myPatientCount;
+
+	private Bundle myBundle;
+	private String myEncodedBundle;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		myBundle = BenchmarkData.newSearchSetBundle(myPatientCount);
+		myEncodedBundle = newParser().encodeResourceToString(myBundle);
+	}
+
+	private IParser newParser() {
+		return myEncoding.newParser(ourCtx);
+	}
+
+	@Benchmark
+	public String encodeBundle() {
+		return newParser().encodeResourceToString(myBundle);
+	}
+
+	@Benchmark
+	public Bundle parseBundle() {
+		return newParser().parseResource(Bundle.class, myEncodedBundle);
+	}
+
+}
@@ -0,0 +1,157 @@
+package ca.uhn.fhir.benchmark.searchparam;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.benchmark.BenchmarkData;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InMemoryResourceMatcher#match(String, org.hl7.fhir.instance.model.api.IBaseResource, ResourceIndexedSearchParams)}
+ * as used by subscription matching, using search parameter values which have been extracted
+ * ahead of time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryResourceMatcherBenchmark {
+
+	@Param({
+		"Observation?code=http://loinc.org|85354-9",
+		"Observation?status=final&category=vital-signs",
+		"Observation?date=ge2020-01-01&date=lt2021-01-01",
+		"Observation?code=http://loinc.org|85354-9&component-code=http://loinc.org|8480-6&status=final"
+	})
+	private String myCriteria;
+
+	private AnnotationConfigApplicationContext myAppCtx;
+	private InMemoryResourceMatcher myInMemoryResourceMatcher;
+	private Observation myObservation;
+	private ResourceIndexedSearchParams mySearchParams;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		myAppCtx = new AnnotationConfigApplicationContext(MatcherConfig.class);
+		myInMemoryResourceMatcher = myAppCtx.getBean(InMemoryResourceMatcher.class);
+
+		myObservation = BenchmarkData.newObservation(0, "Patient/P0");
+
+		ISearchParamExtractor extractor = myAppCtx.getBean(ISearchParamExtractor.class);
+		mySearchParams = new ResourceIndexedSearchParams();
+		mySearchParams.myStringParams.addAll(extractor.extractSearchParamStrings(myObservation));
+		mySearchParams.myDateParams.addAll(extractor.extractSearchParamDates(myObservation));
+		mySearchParams.myQuantityParams.addAll(extractor.extractSearchParamQuantity(myObservation));
+		for (BaseResourceIndexedSearchParam next : extractor.extractSearchParamTokens(myObservation)) {
+			if (next instanceof ResourceIndexedSearchParamToken) {
+				mySearchParams.myTokenParams.add((ResourceIndexedSearchParamToken) next);
+			}
+		}
+
+		InMemoryMatchResult result = myInMemoryResourceMatcher.match(myCriteria, myObservation, mySearchParams);
+		if (!result.supported() || !result.matched()) {
+			throw new IllegalStateException("Criteria \"" + myCriteria + "\" did not match: " + result.getUnsupportedReason());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		myAppCtx.close();
+	}
+
+	@Benchmark
+	public InMemoryMatchResult match() {
+		return myInMemoryResourceMatcher.match(myCriteria, myObservation, mySearchParams);
+	}
+
+	@Configuration
+	public static class MatcherConfig {
+
+		@Bean
+		public FhirContext fhirContext() {
+			return FhirContext.forR4Cached();
+		}
+
+		@Bean
+		public StorageSettings storageSettings() {
+			return new StorageSettings();
+		}
+
+		@Bean
+		public PartitionSettings partitionSettings() {
+			return new PartitionSettings();
+		}
+
+		@Bean
+		public ISearchParamRegistry searchParamRegistry(FhirContext theFhirContext) {
+			return new FhirContextSearchParamRegistry(theFhirContext);
+		}
+
+		@Bean
+		public ISearchParamExtractor searchParamExtractor(StorageSettings theStorageSettings, PartitionSettings thePartitionSettings, FhirContext theFhirContext, ISearchParamRegistry theSearchParamRegistry) {
+			return new SearchParamExtractorR4(theStorageSettings, thePartitionSettings, theFhirContext, theSearchParamRegistry);
+		}
+
+		@Bean
+		public MatchUrlService matchUrlService() {
+			return new MatchUrlService();
+		}
+
+		@Bean
+		public InMemoryResourceMatcher inMemoryResourceMatcher() {
+			return new InMemoryResourceMatcher();
+		}
+
+	}
+
+}
@@ -0,0 +1,111 @@
+package ca.uhn.fhir.benchmark.searchparam;
+
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.benchmark.BenchmarkData;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamDate;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamQuantity;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.PathAndRef;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the individual {@literal extractSearchParam*} methods of
+ * {@link ca.uhn.fhir.jpa.searchparam.extractor.BaseSearchParamExtractor}, as well as
+ * the extraction of all index types with a shared path cache, using the built-in R4 search parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchParamExtractorBenchmark {
+
+	@Param({"Patient", "Observation"})
+	private String myResourceType;
+
+	private ISearchParamExtractor mySearchParamExtractor;
+	private IBaseResource myResource;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		FhirContext ctx = FhirContext.forR4Cached();
+		mySearchParamExtractor = new SearchParamExtractorR4(new StorageSettings(), new PartitionSettings(), ctx, new FhirContextSearchParamRegistry(ctx));
+		if ("Patient".equals(myResourceType)) {
+			myResource = BenchmarkData.newPatient(0);
+		} else {
+			myResource = BenchmarkData.newObservation(0, "Patient/P0");
+		}
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamString> extractSearchParamStrings() {
+		return mySearchParamExtractor.extractSearchParamStrings(myResource);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<BaseResourceIndexedSearchParam> extractSearchParamTokens() {
+		return mySearchParamExtractor.extractSearchParamTokens(myResource);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamDate> extractSearchParamDates() {
+		return mySearchParamExtractor.extractSearchParamDates(myResource);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantity> extractSearchParamQuantity() {
+		return mySearchParamExtractor.extractSearchParamQuantity(myResource);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.ExtractedSearchParams extractSearchParamsWithPathCache() {
+		return mySearchParamExtractor.extractSearchParamsWithPathCache(myResource);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<PathAndRef> extractResourceLinks() {
+		return mySearchParamExtractor.extractResourceLinks(myResource, false);
+	}
+
+}
@@ -28,6 +28,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.MarkWorkChunkAsErrorRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import ca.uhn.fhir.jpa.dao.data.IBatch2JobInstanceRepository;
 import ca.uhn.fhir.jpa.dao.data.IBatch2WorkChunkRepository;
@@ -358,6 +359,35 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 		return new PagingIterator<>((thePageIndex, theBatchSize, theConsumer) -> fetchChunks(theInstanceId, theWithData, theBatchSize, thePageIndex, theConsumer));
 	}
 
+	/**
+	 * Counts are aggregated by the database so that the cost of this method depends on the number of
+	 * steps in the job rather than on the number of work chunks.
+	 */
+	@Override
+	public List<WorkChunkStatusCount> fetchWorkChunkStatusCounts(String theInstanceId) {
+		return myTxTemplate.execute(tx -> {
+			List<WorkChunkStatusCount> retVal = new ArrayList<>();
+			for (Object[] next : myWorkChunkRepository.fetchChunkStatusCounts(theInstanceId)) {
+				String stepId = (String) next[0];
+				StatusEnum status = (StatusEnum) next[1];
+				int chunkCount = ((Number) next[2]).intValue();
+				long recordsProcessed = next[3] != null ? ((Number) next[3]).longValue() : 0;
+				long errorCount = next[4] != null ? ((Number) next[4]).longValue() : 0;
+				WorkChunkStatusCount statusCount = new WorkChunkStatusCount(stepId, status, chunkCount, recordsProcessed, errorCount, (Date) next[5], (Date) next[6]);
+
+				if (status == StatusEnum.ERRORED || status == StatusEnum.FAILED) {
+					List<String> errorMessages = myWorkChunkRepository.fetchChunkErrorMessages(PageRequest.of(0, 1), theInstanceId, stepId, status);
+					if (!errorMessages.isEmpty()) {
+						statusCount.setErrorMessage(errorMessages.get(0));
+					}
+				}
+
+				retVal.add(statusCount);
+			}
+			return retVal;
+		});
+	}
+
 	/**
 	 * Deprecated, use {@link ca.uhn.fhir.jpa.batch2.JpaJobPersistenceImpl#fetchAllWorkChunksForStepStream(String, String)}
 	 * Note: Not @Transactional because the transaction happens in a lambda that's called outside of this method's scope
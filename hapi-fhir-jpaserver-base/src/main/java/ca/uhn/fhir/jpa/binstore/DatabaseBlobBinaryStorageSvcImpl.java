@@ -23,38 +23,110 @@ package ca.uhn.fhir.jpa.binstore;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.jpa.binary.svc.BaseBinaryStorageSvcImpl;
+import ca.uhn.fhir.jpa.dao.data.IBinaryStorageChunkEntityDao;
 import ca.uhn.fhir.jpa.dao.data.IBinaryStorageEntityDao;
+import ca.uhn.fhir.jpa.model.entity.BinaryStorageChunkEntity;
 import ca.uhn.fhir.jpa.model.entity.BinaryStorageEntity;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteStreams;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang3.Validate;
 import org.hibernate.LobHelper;
 import org.hibernate.Session;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Transactional
 public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	private EntityManager myEntityManager;
 	@Autowired
 	private IBinaryStorageEntityDao myBinaryStorageEntityDao;
+	@Autowired
+	private IBinaryStorageChunkEntityDao myBinaryStorageChunkEntityDao;
+	private boolean myChunkedStorageEnabled;
+	private int myChunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * If enabled (default is <code>false</code>), new blobs are stored as a series of fixed-size
+	 * chunk rows (see {@link #setChunkSize(int)}) instead of as a single database BLOB. Chunked blobs
+	 * are read one chunk at a time, so the size of a blob does not affect the amount of memory
+	 * needed to serve it, and byte ranges can be served without reading the rest of the blob.
+	 * Each chunk of a new blob is flushed to the database and evicted from the persistence context
+	 * as soon as it has been read, so at most one chunk of an upload is held in memory. Blobs
+	 * with identical contents share a single set of chunks.
+	 * <p>
+	 * Blobs which were stored before this setting was enabled can still be read.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isChunkedStorageEnabled() {
+		return myChunkedStorageEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), new blobs are stored as a series of fixed-size
+	 * chunk rows (see {@link #setChunkSize(int)}) instead of as a single database BLOB. Chunked blobs
+	 * are read one chunk at a time, so the size of a blob does not affect the amount of memory
+	 * needed to serve it, and byte ranges can be served without reading the rest of the blob.
+	 * Each chunk of a new blob is flushed to the database and evicted from the persistence context
+	 * as soon as it has been read, so at most one chunk of an upload is held in memory. Blobs
+	 * with identical contents share a single set of chunks.
+	 * <p>
+	 * Blobs which were stored before this setting was enabled can still be read.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setChunkedStorageEnabled(boolean theChunkedStorageEnabled) {
+		myChunkedStorageEnabled = theChunkedStorageEnabled;
+	}
+
+	/**
+	 * The number of bytes in each chunk when {@link #setChunkedStorageEnabled(boolean) chunked storage}
+	 * is enabled. Default is {@link #DEFAULT_CHUNK_SIZE} (1 MB).
+	 *
+	 * @since 6.6.0
+	 */
+	public int getChunkSize() {
+		return myChunkSize;
+	}
+
+	/**
+	 * The number of bytes in each chunk when {@link #setChunkedStorageEnabled(boolean) chunked storage}
+	 * is enabled. Default is {@link #DEFAULT_CHUNK_SIZE} (1 MB).
+	 *
+	 * @since 6.6.0
+	 */
+	public void setChunkSize(int theChunkSize) {
+		Validate.isTrue(theChunkSize > 0, "theChunkSize must be greater than 0");
+		myChunkSize = theChunkSize;
+	}
 
 	@Override
 	@Transactional(propagation = Propagation.REQUIRED)
@@ -79,15 +151,26 @@ public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		entity.setBlobContentType(theContentType);
 		entity.setPublished(publishedDate);
 
-		Session session = (Session) myEntityManager.getDelegate();
-		LobHelper lobHelper = session.getLobHelper();
-		byte[] loadedStream = IOUtils.toByteArray(countingInputStream);
-		Blob dataBlob = lobHelper.createBlob(loadedStream);
-		entity.setBlob(dataBlob);
+		long bytes;
+		String hash;
+		if (myChunkedStorageEnabled) {
+			String chunkSetId = storeChunks(countingInputStream);
+
+			bytes = countingInputStream.getByteCount();
+			hash = hashingInputStream.hash().toString();
+			entity.setChunkSetId(deduplicateChunks(chunkSetId, hash, bytes));
+		} else {
+			Session session = (Session) myEntityManager.getDelegate();
+			LobHelper lobHelper = session.getLobHelper();
+			byte[] loadedStream = IOUtils.toByteArray(countingInputStream);
+			Blob dataBlob = lobHelper.createBlob(loadedStream);
+			entity.setBlob(dataBlob);
+
+			bytes = countingInputStream.getByteCount();
+			hash = hashingInputStream.hash().toString();
+		}
 
 		// Update the entity with the final byte count and hash
-		long bytes = countingInputStream.getByteCount();
-		String hash = hashingInputStream.hash().toString();
 		entity.setSize(bytes);
 		entity.setHash(hash);
 
@@ -102,6 +185,72 @@ public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 			.setContentType(theContentType);
 	}
 
+	/**
+	 * Writes the contents of the stream as a new chunk set. Each chunk is flushed and
+	 * detached as soon as it has been written, so that the blob is never held in memory
+	 * as a whole.
+	 *
+	 * @return Returns the new chunk set ID
+	 */
+	private String storeChunks(CountingInputStream theInputStream) throws IOException {
+		String chunkSetId = UUID.randomUUID().toString();
+		byte[] buffer = new byte[myChunkSize];
+		for (int index = 0; ; index++) {
+			int count = IOUtils.read(theInputStream, buffer);
+			if (count == 0) {
+				break;
+			}
+
+			// getByteCount() throws if the blob exceeds the maximum size, so this also fails fast
+			long offset = theInputStream.getByteCount() - count;
+
+			BinaryStorageChunkEntity chunk = new BinaryStorageChunkEntity();
+			chunk.setChunkSetId(chunkSetId);
+			chunk.setChunkIndex(index);
+			chunk.setOffset(offset);
+			chunk.setData(Arrays.copyOf(buffer, count));
+			myEntityManager.persist(chunk);
+			myEntityManager.flush();
+			myEntityManager.detach(chunk);
+
+			if (count < buffer.length) {
+				break;
+			}
+		}
+
+		return chunkSetId;
+	}
+
+	/**
+	 * If another blob with the same contents has already been stored, the chunks we just
+	 * wrote are discarded and the existing chunk set is shared instead. The hash can only
+	 * be known after the whole stream has been read, and buffering the stream to check for
+	 * a duplicate first would defeat the purpose of chunking, so duplicate contents are
+	 * written once and then deleted. This costs extra writes only for duplicate uploads.
+	 * <p>
+	 * The existing blob row is locked until this transaction commits, so that
+	 * {@link #expungeBlob(IIdType, String)} can not delete it and then remove the shared
+	 * chunks before the new blob which uses them is visible. If that blob is being expunged
+	 * concurrently, the lock waits for the expunge and the new chunks are kept instead.
+	 * </p>
+	 *
+	 * @return Returns the chunk set ID the new blob should use
+	 */
+	private String deduplicateChunks(String theChunkSetId, String theHash, long theSize) {
+		List<String> existing = myBinaryStorageEntityDao.findChunkedBlobIdsByHashAndSize(theHash, theSize, PageRequest.of(0, 1));
+		if (existing.isEmpty()) {
+			return theChunkSetId;
+		}
+
+		BinaryStorageEntity existingEntity = myEntityManager.find(BinaryStorageEntity.class, existing.get(0), LockModeType.PESSIMISTIC_WRITE);
+		if (existingEntity == null || existingEntity.getChunkSetId() == null) {
+			return theChunkSetId;
+		}
+
+		myBinaryStorageChunkEntityDao.deleteByChunkSetId(theChunkSetId);
+		return existingEntity.getChunkSetId();
+	}
+
 	@Override
 	public StoredDetails fetchBlobDetails(IIdType theResourceId, String theBlobId) {
 
@@ -131,10 +280,33 @@ public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		return true;
 	}
 
+	@Override
+	public boolean writeBlob(IIdType theResourceId, String theBlobId, long theOffset, long theLength, OutputStream theOutputStream) throws IOException {
+		Validate.isTrue(theOffset >= 0, "theOffset must not be negative");
+		Validate.isTrue(theLength >= 0, "theLength must not be negative");
+
+		Optional<BinaryStorageEntity> entityOpt = myBinaryStorageEntityDao.findByIdAndResourceId(theBlobId, theResourceId.toUnqualifiedVersionless().getValue());
+		if (entityOpt.isPresent() == false) {
+			return false;
+		}
+
+		copyBlobRangeToOutputStream(theOutputStream, entityOpt.get(), theOffset, theLength);
+
+		return true;
+	}
+
 	@Override
 	public void expungeBlob(IIdType theResourceId, String theBlobId) {
 		Optional<BinaryStorageEntity> entityOpt = myBinaryStorageEntityDao.findByIdAndResourceId(theBlobId, theResourceId.toUnqualifiedVersionless().getValue());
-		entityOpt.ifPresent(theBinaryStorageEntity -> myBinaryStorageEntityDao.deleteByPid(theBinaryStorageEntity.getBlobId()));
+		entityOpt.ifPresent(theBinaryStorageEntity -> {
+			myBinaryStorageEntityDao.deleteByPid(theBinaryStorageEntity.getBlobId());
+
+			// Chunks may be shared with other blobs that have the same contents
+			String chunkSetId = theBinaryStorageEntity.getChunkSetId();
+			if (chunkSetId != null && myBinaryStorageEntityDao.countByChunkSetId(chunkSetId) == 0) {
+				myBinaryStorageChunkEntityDao.deleteByChunkSetId(chunkSetId);
+			}
+		});
 	}
 
 	@Override
@@ -147,6 +319,11 @@ public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 	}
 
 	void copyBlobToOutputStream(OutputStream theOutputStream, BinaryStorageEntity theEntity) throws IOException {
+		if (theEntity.getChunkSetId() != null) {
+			copyChunksToOutputStream(theOutputStream, theEntity.getChunkSetId(), 0, Long.MAX_VALUE);
+			return;
+		}
+
 		try (InputStream inputStream = theEntity.getBlob().getBinaryStream()) {
 			IOUtils.copy(inputStream, theOutputStream);
 		} catch (SQLException e) {
@@ -154,7 +331,44 @@ public class DatabaseBlobBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		}
 	}
 
+	void copyBlobRangeToOutputStream(OutputStream theOutputStream, BinaryStorageEntity theEntity, long theOffset, long theLength) throws IOException {
+		if (theEntity.getChunkSetId() != null) {
+			long end = theLength > Long.MAX_VALUE - theOffset ? Long.MAX_VALUE : theOffset + theLength;
+			copyChunksToOutputStream(theOutputStream, theEntity.getChunkSetId(), theOffset, end);
+			return;
+		}
+
+		try (InputStream inputStream = theEntity.getBlob().getBinaryStream()) {
+			IOUtils.copyLarge(inputStream, theOutputStream, theOffset, theLength);
+		} catch (SQLException e) {
+			throw new IOException(Msg.code(2308) + e);
+		}
+	}
+
+	/**
+	 * Copies the bytes between <code>theStart</code> (inclusive) and <code>theEnd</code> (exclusive)
+	 * of a chunked blob, loading only the chunks which overlap that range and only one at a time.
+	 */
+	private void copyChunksToOutputStream(OutputStream theOutputStream, String theChunkSetId, long theStart, long theEnd) throws IOException {
+		List<Object[]> chunks = myBinaryStorageChunkEntityDao.findChunkPidsAndOffsetsInRange(theChunkSetId, theStart, theEnd);
+		for (Object[] next : chunks) {
+			Long pid = (Long) next[0];
+			long chunkOffset = (Long) next[1];
+			byte[] data = myBinaryStorageChunkEntityDao.findDataByPid(pid);
+
+			int from = (int) Math.max(0, theStart - chunkOffset);
+			int to = (int) Math.min(data.length, theEnd - chunkOffset);
+			theOutputStream.write(data, from, to - from);
+		}
+	}
+
 	byte[] copyBlobToByteArray(BinaryStorageEntity theEntity) throws IOException {
+		if (theEntity.getChunkSetId() != null) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.min(theEntity.getSize(), Integer.MAX_VALUE - 8));
+			copyChunksToOutputStream(outputStream, theEntity.getChunkSetId(), 0, Long.MAX_VALUE);
+			return outputStream.toByteArray();
+		}
+
 		try {
 			return ByteStreams.toByteArray(theEntity.getBlob().getBinaryStream());
 		} catch (SQLException e) {
@@ -448,8 +448,9 @@ public class JpaBulkExportProcessor implements IBulkExportProcessor<JpaPid> {
 			}
 
 			//Execute query and all found pids to our local iterator.
+			SearchRuntimeDetails searchRuntimeDetails = new SearchRuntimeDetails(null, theParams.getJobId());
 			IResultIterator<JpaPid> resultIterator = searchBuilder.createQuery(expandedSpMap,
-				new SearchRuntimeDetails(null, theParams.getJobId()),
+				searchRuntimeDetails,
 				null,
 				RequestPartitionId.allPartitions());
 			while (resultIterator.hasNext()) {
@@ -459,7 +460,7 @@ public class JpaBulkExportProcessor implements IBulkExportProcessor<JpaPid> {
 			// add _include to results to support ONC
 			Set<Include> includes = Collections.singleton(new Include("*", true));
 			SystemRequestDetails requestDetails = SystemRequestDetails.newSystemRequestAllPartitions();
-			Set<JpaPid> includeIds = searchBuilder.loadIncludes(myContext, myEntityManager, theReadPids, includes, false, expandedSpMap.getLastUpdated(), theParams.getJobId(), requestDetails, null);
+			Set<JpaPid> includeIds = searchBuilder.loadIncludes(myContext, myEntityManager, theReadPids, includes, false, expandedSpMap.getLastUpdated(), theParams.getJobId(), requestDetails, null, searchRuntimeDetails);
 			// gets rid of the Patient duplicates
 			theReadPids.addAll(includeIds.stream().filter((id) -> !id.getResourceType().equals("Patient")).collect(Collectors.toSet()));
 		}
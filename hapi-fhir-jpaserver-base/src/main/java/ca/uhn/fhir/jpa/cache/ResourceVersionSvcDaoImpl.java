@@ -30,6 +30,7 @@ import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.util.QueryChunker;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,11 +38,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -85,6 +89,43 @@ public class ResourceVersionSvcDaoImpl implements IResourceVersionSvc {
 		return ResourceVersionMap.fromResourceTableEntities(allById);
 	}
 
+	@Override
+	@Nullable
+	@Transactional
+	public ResourceVersionDelta getVersionMapDelta(RequestPartitionId theRequestPartitionId, String theResourceName, SearchParameterMap theSearchParamMap, Date theUpdatedSince) {
+		if (!theRequestPartitionId.isAllPartitions() || theSearchParamMap.getLastUpdated() != null) {
+			return null;
+		}
+
+		IFhirResourceDao<?> dao = myDaoRegistry.getResourceDao(theResourceName);
+
+		if (ourLog.isDebugEnabled()) {
+			ourLog.debug("About to retrieve version map delta for resource type {} since {}", theResourceName, theUpdatedSince);
+		}
+
+		// The changed rows must be read before the search. A resource that changes between the two
+		// queries is then either missing from the changed rows, and picked up by the next refresh, or
+		// classified according to its newer state. Reading them the other way around would report a
+		// resource which was created or updated in between as deleted.
+		List<ResourceTable> changed = myResourceTableDao.findAllByResourceTypeUpdatedSince(theResourceName, theUpdatedSince);
+
+		SearchParameterMap searchParamMap = theSearchParamMap.clone();
+		searchParamMap.setLastUpdated(new DateRangeParam(theUpdatedSince, null));
+		List<JpaPid> jpaPids = dao.searchForIds(searchParamMap, new SystemRequestDetails().setRequestPartitionId(theRequestPartitionId));
+		Set<Long> matchingIds = jpaPids
+			.stream()
+			.map(JpaPid::getId)
+			.collect(Collectors.toSet());
+
+		// Only rows seen by both queries are classified, search results that are not in the changed rows are left for the next refresh
+		List<ResourceTable> matching = changed
+			.stream()
+			.filter(t -> matchingIds.contains(t.getId()))
+			.collect(Collectors.toList());
+
+		return new ResourceVersionDelta(ResourceVersionMap.fromResourceTableEntities(changed), ResourceVersionMap.fromResourceTableEntities(matching));
+	}
+
 	@Override
 	/**
 	 * Retrieves the latest versions for any resourceid that are found.
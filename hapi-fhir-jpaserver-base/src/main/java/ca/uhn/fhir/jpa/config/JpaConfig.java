@@ -46,6 +46,7 @@ import ca.uhn.fhir.jpa.dao.index.DaoSearchParamSynchronizer;
 import ca.uhn.fhir.jpa.dao.index.IdHelperService;
 import ca.uhn.fhir.jpa.dao.index.SearchParamWithInlineReferencesExtractor;
 import ca.uhn.fhir.jpa.dao.mdm.JpaMdmLinkImplFactory;
+import ca.uhn.fhir.jpa.dao.mdm.MdmBlockingKeyDaoJpaImpl;
 import ca.uhn.fhir.jpa.dao.mdm.MdmLinkDaoJpaImpl;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.dao.validation.SearchParameterDaoValidator;
@@ -82,6 +83,8 @@ import ca.uhn.fhir.jpa.provider.ValueSetOperationProviderDstu2;
 import ca.uhn.fhir.jpa.sched.AutowiringSpringBeanJobFactory;
 import ca.uhn.fhir.jpa.sched.HapiSchedulerServiceImpl;
 import ca.uhn.fhir.jpa.search.ISynchronousSearchSvc;
+import ca.uhn.fhir.jpa.search.KeysetPagingBundleProvider;
+import ca.uhn.fhir.jpa.search.KeysetPagingCursor;
 import ca.uhn.fhir.jpa.search.PersistedJpaBundleProvider;
 import ca.uhn.fhir.jpa.search.PersistedJpaBundleProviderFactory;
 import ca.uhn.fhir.jpa.search.PersistedJpaSearchFirstPageBundleProvider;
@@ -126,19 +129,24 @@ import ca.uhn.fhir.jpa.searchparam.nickname.NicknameInterceptor;
 import ca.uhn.fhir.jpa.searchparam.registry.ISearchParamProvider;
 import ca.uhn.fhir.jpa.sp.ISearchParamPresenceSvc;
 import ca.uhn.fhir.jpa.sp.SearchParamPresenceSvcImpl;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelFactory;
 import ca.uhn.fhir.jpa.term.TermCodeSystemStorageSvcImpl;
 import ca.uhn.fhir.jpa.term.TermConceptMappingSvcImpl;
+import ca.uhn.fhir.jpa.term.TermLoaderStagingSvcImpl;
 import ca.uhn.fhir.jpa.term.TermReadSvcImpl;
 import ca.uhn.fhir.jpa.term.TermReindexingSvcImpl;
 import ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermConceptMappingSvc;
+import ca.uhn.fhir.jpa.term.api.ITermLoaderStagingSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReindexingSvc;
 import ca.uhn.fhir.jpa.term.config.TermCodeSystemConfig;
 import ca.uhn.fhir.jpa.util.JpaHapiTransactionService;
+import ca.uhn.fhir.jpa.util.MemoryCacheInvalidationBroadcaster;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.validation.ResourceLoaderImpl;
 import ca.uhn.fhir.jpa.validation.ValidationSettings;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
 import ca.uhn.fhir.mdm.dao.IMdmLinkDao;
 import ca.uhn.fhir.mdm.dao.IMdmLinkImplFactory;
 import ca.uhn.fhir.mdm.svc.MdmLinkExpandSvc;
@@ -154,6 +162,7 @@ import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import ca.uhn.hapi.converters.canonical.VersionCanonicalizer;
 import org.hl7.fhir.common.hapi.validation.support.UnknownCodeSystemWarningValidationSupport;
 import org.hl7.fhir.utilities.graphql.IGraphQLStorageServices;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -212,6 +221,7 @@ public class JpaConfig {
 	public static final String PERSISTED_JPA_BUNDLE_PROVIDER = "PersistedJpaBundleProvider";
 	public static final String PERSISTED_JPA_BUNDLE_PROVIDER_BY_SEARCH = "PersistedJpaBundleProvider_BySearch";
 	public static final String PERSISTED_JPA_SEARCH_FIRST_PAGE_BUNDLE_PROVIDER = "PersistedJpaSearchFirstPageBundleProvider";
+	public static final String KEYSET_PAGING_BUNDLE_PROVIDER = "KeysetPagingBundleProvider";
 	public static final String SEARCH_BUILDER = "SearchBuilder";
 	public static final String HISTORY_BUILDER = "HistoryBuilder";
 	private static final String HAPI_DEFAULT_SCHEDULER_GROUP = "HAPI";
@@ -311,6 +321,19 @@ public class JpaConfig {
 		return new MemoryCacheService(theStorageSettings);
 	}
 
+	/**
+	 * The channel factory is only defined when subscriptions are configured, and invalidations
+	 * are only worth publishing if it can reach other nodes
+	 */
+	@Bean
+	public MemoryCacheInvalidationBroadcaster memoryCacheInvalidationBroadcaster(ObjectProvider<IChannelFactory> theChannelFactory, MemoryCacheService theMemoryCacheService) {
+		IChannelFactory channelFactory = theChannelFactory.getIfAvailable();
+		if (!MemoryCacheInvalidationBroadcaster.isRemoteChannelFactory(channelFactory)) {
+			channelFactory = null;
+		}
+		return new MemoryCacheInvalidationBroadcaster(channelFactory, theMemoryCacheService);
+	}
+
 	@Bean
 	@Primary
 	public IResourceLinkResolver daoResourceLinkResolver() {
@@ -530,6 +553,12 @@ public class JpaConfig {
 		return new PersistedJpaBundleProvider(theRequest, theSearch);
 	}
 
+	@Bean(name = KEYSET_PAGING_BUNDLE_PROVIDER)
+	@Scope("prototype")
+	public KeysetPagingBundleProvider newKeysetPagingBundleProvider(RequestDetails theRequest, KeysetPagingCursor theCursor) {
+		return new KeysetPagingBundleProvider(theRequest, theCursor);
+	}
+
 	@Bean(name = PERSISTED_JPA_SEARCH_FIRST_PAGE_BUNDLE_PROVIDER)
 	@Scope("prototype")
 	public PersistedJpaSearchFirstPageBundleProvider newPersistedJpaSearchFirstPageBundleProvider(RequestDetails theRequest, Search theSearch, SearchTask theSearchTask, ISearchBuilder theSearchBuilder, RequestPartitionId theRequestPartitionId) {
@@ -787,6 +816,11 @@ public class JpaConfig {
 		return new TermReindexingSvcImpl();
 	}
 
+	@Bean
+	public ITermLoaderStagingSvc termLoaderStagingSvc() {
+		return new TermLoaderStagingSvcImpl();
+	}
+
 	@Bean
 	public ObservationLastNIndexPersistSvc baseObservationLastNIndexpersistSvc() {
 		return new ObservationLastNIndexPersistSvc();
@@ -797,6 +831,11 @@ public class JpaConfig {
 		return new MdmLinkDaoJpaImpl();
 	}
 
+	@Bean
+	public IMdmBlockingKeyDao<JpaPid> mdmBlockingKeyDao() {
+		return new MdmBlockingKeyDaoJpaImpl();
+	}
+
 	@Bean
 	IMdmLinkImplFactory<MdmLink> mdmLinkImplFactory() {
 		return new JpaMdmLinkImplFactory();
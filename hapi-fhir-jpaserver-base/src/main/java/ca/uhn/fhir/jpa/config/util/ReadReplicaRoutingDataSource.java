@@ -0,0 +1,202 @@
+package ca.uhn.fhir.jpa.config.util;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.apache.commons.lang3.Validate;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DataSource} which sends the transactions for executions of the {@link HapiTransactionService}
+ * that explicitly {@link ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService.IExecutionBuilder#allowReadReplica() allow a read replica}
+ * to the replica, and everything else to the primary database. Use this as the DataSource for the JPA
+ * EntityManagerFactory. Client searches (see {@link #isReadReplicaAllowed(RequestDetails)}) opt in,
+ * while other read-only work, such as resolving conditional URLs, always reads from the primary
+ * database since it decides what gets written. See
+ * {@link JpaStorageSettings#setAsyncSearchReadOnlyQueryEnabled(boolean)} to also send the queries
+ * for asynchronous searches to the replica.
+ * <p>
+ * Replicas are typically updated asynchronously, so a client could fail to see its own
+ * write if it reads immediately afterwards. If a
+ * {@link #setReplicaStalenessWindowMillis(long) staleness window} is set, replica transactions
+ * are sent to the primary database until that amount of time has passed since the last
+ * commit of a read-write transaction on the primary database. This window should be at least
+ * as large as the expected replication lag.
+ * </p>
+ * <p>
+ * The time of the last commit is only tracked within this JVM. In a clustered deployment, a write
+ * committed by one server does not affect routing on the others, so a client whose requests are
+ * balanced across servers is not guaranteed to read its own writes.
+ * </p>
+ *
+ * @since 6.6.0
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	private final DataSource myPrimaryDataSource;
+	private final AtomicLong myLastPrimaryCommitMillis = new AtomicLong(0);
+	private long myReplicaStalenessWindowMillis = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param thePrimaryDataSource The primary database, used for everything except read-only transactions
+	 * @param theReplicaDataSource The read replica
+	 */
+	public ReadReplicaRoutingDataSource(DataSource thePrimaryDataSource, DataSource theReplicaDataSource) {
+		Validate.notNull(thePrimaryDataSource, "thePrimaryDataSource must not be null");
+		Validate.notNull(theReplicaDataSource, "theReplicaDataSource must not be null");
+		myPrimaryDataSource = thePrimaryDataSource;
+
+		Map<Object, Object> targetDataSources = new HashMap<>();
+		targetDataSources.put(TargetEnum.PRIMARY, thePrimaryDataSource);
+		targetDataSources.put(TargetEnum.REPLICA, theReplicaDataSource);
+		setTargetDataSources(targetDataSources);
+		setDefaultTargetDataSource(thePrimaryDataSource);
+		afterPropertiesSet();
+	}
+
+	/**
+	 * If greater than zero, replica transactions are sent to the primary database instead
+	 * of the replica until this many milliseconds have passed since the last commit of a
+	 * read-write transaction on the primary database by this JVM. Default is <code>0</code>, meaning
+	 * that replica transactions are always sent to the replica.
+	 */
+	public long getReplicaStalenessWindowMillis() {
+		return myReplicaStalenessWindowMillis;
+	}
+
+	/**
+	 * If greater than zero, replica transactions are sent to the primary database instead
+	 * of the replica until this many milliseconds have passed since the last commit of a
+	 * read-write transaction on the primary database by this JVM. Default is <code>0</code>, meaning
+	 * that replica transactions are always sent to the replica.
+	 */
+	public void setReplicaStalenessWindowMillis(long theReplicaStalenessWindowMillis) {
+		Validate.isTrue(theReplicaStalenessWindowMillis >= 0, "theReplicaStalenessWindowMillis must not be negative");
+		myReplicaStalenessWindowMillis = theReplicaStalenessWindowMillis;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (HapiTransactionService.isStartingReadReplicaTransaction() && !isWithinStalenessWindow()) {
+			return TargetEnum.REPLICA;
+		}
+		return TargetEnum.PRIMARY;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given request is a client search, whose results may be read
+	 * from a replica. Searches issued internally (e.g. with a {@link SystemRequestDetails}, or while
+	 * processing a create, update or transaction) may decide what gets written, so they always
+	 * read from the primary database.
+	 */
+	public static boolean isReadReplicaAllowed(@Nullable RequestDetails theRequestDetails) {
+		if (theRequestDetails == null || theRequestDetails instanceof SystemRequestDetails) {
+			return false;
+		}
+		RestOperationTypeEnum operationType = theRequestDetails.getRestOperationType();
+		return operationType == RestOperationTypeEnum.SEARCH_TYPE
+			|| operationType == RestOperationTypeEnum.SEARCH_SYSTEM
+			|| operationType == RestOperationTypeEnum.GET_PAGE;
+	}
+
+	private boolean isWithinStalenessWindow() {
+		if (myReplicaStalenessWindowMillis <= 0) {
+			return false;
+		}
+		return System.currentTimeMillis() - myLastPrimaryCommitMillis.get() < myReplicaStalenessWindowMillis;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		DataSource target = determineTargetDataSource();
+		return trackCommitsIfNeeded(target, target.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String theUsername, String thePassword) throws SQLException {
+		DataSource target = determineTargetDataSource();
+		return trackCommitsIfNeeded(target, target.getConnection(theUsername, thePassword));
+	}
+
+	/**
+	 * Connections to the primary database are wrapped so that commits of read-write
+	 * transactions can be timestamped for the staleness window. The read-only flag is
+	 * tracked here because some drivers (e.g. H2) ignore {@link Connection#setReadOnly(boolean)}
+	 * and always report the read-only state of the database instead.
+	 */
+	private Connection trackCommitsIfNeeded(DataSource theTarget, Connection theConnection) {
+		if (myReplicaStalenessWindowMillis <= 0 || theTarget != myPrimaryDataSource) {
+			return theConnection;
+		}
+
+		AtomicBoolean readOnly = new AtomicBoolean(false);
+		return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getTargetConnection":
+					return theConnection;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+					break;
+			}
+
+			Object retVal;
+			try {
+				retVal = method.invoke(theConnection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+
+			if ("setReadOnly".equals(method.getName())) {
+				readOnly.set((Boolean) args[0]);
+			} else if ("commit".equals(method.getName()) && !readOnly.get()) {
+				myLastPrimaryCommitMillis.accumulateAndGet(System.currentTimeMillis(), Math::max);
+			}
+			return retVal;
+		});
+	}
+
+	private enum TargetEnum {
+		PRIMARY,
+		REPLICA
+	}
+
+}
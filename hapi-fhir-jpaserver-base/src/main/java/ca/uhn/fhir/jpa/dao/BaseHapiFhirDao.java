@@ -50,6 +50,7 @@ import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
 import ca.uhn.fhir.jpa.model.search.ExtendedHSearchIndexData;
 import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.jpa.model.util.ResourceCborCodec;
 import ca.uhn.fhir.jpa.partition.IPartitionLookupSvc;
 import ca.uhn.fhir.jpa.searchparam.extractor.LogicalReferenceHelper;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
@@ -58,8 +59,10 @@ import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.sp.ISearchParamPresenceSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
+import ca.uhn.fhir.jpa.util.TagDefinitionCacheKey;
 import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
 import ca.uhn.fhir.model.api.Tag;
@@ -388,12 +391,12 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			return null;
 		}
 
-		MemoryCacheService.TagDefinitionCacheKey key = toTagDefinitionMemoryCacheKey(theTagType, theScheme, theTerm);
+		TagDefinitionCacheKey key = toTagDefinitionMemoryCacheKey(theTagType, theScheme, theTerm);
 
-		TagDefinition retVal = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.TAG_DEFINITION, key);
+		TagDefinition retVal = myMemoryCacheService.getIfPresent(MemoryCacheEnum.TAG_DEFINITION, key);
 
 		if (retVal == null) {
-			HashMap<MemoryCacheService.TagDefinitionCacheKey, TagDefinition> resolvedTagDefinitions = theTransactionDetails.getOrCreateUserData(HapiTransactionService.XACT_USERDATA_KEY_RESOLVED_TAG_DEFINITIONS, HashMap::new);
+			HashMap<TagDefinitionCacheKey, TagDefinition> resolvedTagDefinitions = theTransactionDetails.getOrCreateUserData(HapiTransactionService.XACT_USERDATA_KEY_RESOLVED_TAG_DEFINITIONS, HashMap::new);
 			retVal = resolvedTagDefinitions.get(key);
 
 			if (retVal == null) {
@@ -676,7 +679,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 	 * @return byte array of the resource
 	 */
 	@Nonnull
-	private byte[] getResourceBinary(ResourceEncodingEnum encoding, String encodedResource) {
+	protected byte[] getResourceBinary(ResourceEncodingEnum encoding, String encodedResource) {
 		byte[] resourceBinary;
 		switch (encoding) {
 			case JSON:
@@ -685,6 +688,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceBinary = GZipUtil.compress(encodedResource);
 				break;
+			case CBOR:
+				resourceBinary = ResourceCborCodec.encode(encodedResource);
+				break;
 			default:
 			case DEL:
 			case ESR:
@@ -921,6 +927,12 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		myDaoSearchParamSynchronizer = theDaoSearchParamSynchronizer;
 	}
 
+	private void invalidateResourceLookupAfterCommit(ResourceTable theEntity) {
+		if (theEntity.getId() != null) {
+			myIdHelperService.invalidateResourceLookupAfterCommit(JpaPid.fromId(theEntity.getId()), theEntity.getResourceType(), theEntity.getIdDt().getIdPart());
+		}
+	}
+
 	private void verifyMatchUrlForConditionalCreate(IBaseResource theResource, String theIfNoneExist, ResourceTable entity, ResourceIndexedSearchParams theParams) {
 		// Make sure that the match URL was actually appropriate for the supplied resource
 		InMemoryMatchResult outcome = myInMemoryResourceMatcher.match(theIfNoneExist, theResource, theParams);
@@ -969,6 +981,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		if (theDeletedTimestampOrNull != null) {
 			// DELETE
 
+			invalidateResourceLookupAfterCommit(entity);
 			entity.setDeleted(theDeletedTimestampOrNull);
 			entity.setUpdated(theDeletedTimestampOrNull);
 			entity.setNarrativeText(null);
@@ -1002,6 +1015,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 				}
 				existingSearchParams.put(entity, existingParams);
 			}
+			if (entity.getDeleted() != null) {
+				invalidateResourceLookupAfterCommit(entity);
+			}
 			entity.setDeleted(null);
 
 			// TODO: is this IF statement always true? Try removing it
@@ -1071,6 +1087,14 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		if (theUpdateVersion) {
 			long newVersion = entity.getVersion() + 1;
 			entity.setVersion(newVersion);
+
+			/*
+			 * Any node which has cached the current version for a conditional create
+			 * would otherwise keep returning the old version until the entry expires
+			 */
+			if (entity.getId() != null) {
+				myMemoryCacheService.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, entity.getId());
+			}
 		}
 
 		/*
@@ -1614,22 +1638,22 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 	private class AddTagDefinitionToCacheAfterCommitSynchronization implements TransactionSynchronization {
 
 		private final TagDefinition myTagDefinition;
-		private final MemoryCacheService.TagDefinitionCacheKey myKey;
+		private final TagDefinitionCacheKey myKey;
 
-		public AddTagDefinitionToCacheAfterCommitSynchronization(MemoryCacheService.TagDefinitionCacheKey theKey, TagDefinition theTagDefinition) {
+		public AddTagDefinitionToCacheAfterCommitSynchronization(TagDefinitionCacheKey theKey, TagDefinition theTagDefinition) {
 			myTagDefinition = theTagDefinition;
 			myKey = theKey;
 		}
 
 		@Override
 		public void afterCommit() {
-			myMemoryCacheService.put(MemoryCacheService.CacheEnum.TAG_DEFINITION, myKey, myTagDefinition);
+			myMemoryCacheService.put(MemoryCacheEnum.TAG_DEFINITION, myKey, myTagDefinition);
 		}
 	}
 
 	@Nonnull
-	public static MemoryCacheService.TagDefinitionCacheKey toTagDefinitionMemoryCacheKey(TagTypeEnum theTagType, String theScheme, String theTerm) {
-		return new MemoryCacheService.TagDefinitionCacheKey(theTagType, theScheme, theTerm);
+	public static TagDefinitionCacheKey toTagDefinitionMemoryCacheKey(TagTypeEnum theTagType, String theScheme, String theTerm) {
+		return new TagDefinitionCacheKey(theTagType, theScheme, theTerm);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1660,6 +1684,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceText = GZipUtil.decompress(theResourceBytes);
 				break;
+			case CBOR:
+				resourceText = ResourceCborCodec.decodeToJson(theResourceBytes);
+				break;
 			case DEL:
 			case ESR:
 				break;
@@ -51,6 +51,7 @@ import ca.uhn.fhir.jpa.model.entity.BaseHasResource;
 import ca.uhn.fhir.jpa.model.entity.BaseTag;
 import ca.uhn.fhir.jpa.model.entity.ForcedId;
 import ca.uhn.fhir.jpa.model.entity.PartitionablePartitionId;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.entity.TagDefinition;
@@ -64,6 +65,7 @@ import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.ResourceSearch;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.model.api.StorageResponseCodeEnum;
@@ -114,6 +116,7 @@ import ca.uhn.fhir.validation.IValidatorModule;
 import ca.uhn.fhir.validation.ValidationOptions;
 import ca.uhn.fhir.validation.ValidationResult;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBaseCoding;
 import org.hl7.fhir.instance.model.api.IBaseMetaType;
@@ -142,6 +145,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -322,12 +326,12 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 					return myTxTemplate.execute(tx -> {
 						IIdType retVal = myIdHelperService.translatePidIdToForcedId(myFhirContext, myResourceName, pid);
 						if (!retVal.hasVersionIdPart()) {
-							IIdType idWithVersion = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, pid.getId());
+							IIdType idWithVersion = myMemoryCacheService.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, pid.getId());
 							if (idWithVersion == null) {
 								Long version = myResourceTableDao.findCurrentVersionByPid(pid.getId());
 								if (version != null) {
 									retVal = myFhirContext.getVersion().newIdType().setParts(retVal.getBaseUrl(), retVal.getResourceType(), retVal.getIdPart(), Long.toString(version));
-									myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, pid.getId(), retVal);
+									myMemoryCacheService.putAfterCommit(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, pid.getId(), retVal);
 								}
 							} else {
 								retVal = idWithVersion;
@@ -616,6 +620,13 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		return outcome;
 	}
 
+	@Override
+	protected ResourceTable updateEntityForDelete(RequestDetails theRequest, TransactionDetails theTransactionDetails, ResourceTable theEntity) {
+		ResourceTable retVal = super.updateEntityForDelete(theRequest, theTransactionDetails, theEntity);
+		myMatchResourceUrlService.invalidateMatchUrlsAfterCommit(Collections.singletonList(JpaPid.fromId(theEntity.getId())));
+		return retVal;
+	}
+
 	@Override
 	public DeleteMethodOutcome deleteByUrl(String theUrl, RequestDetails theRequest) {
 		validateDeleteEnabled();
@@ -1280,6 +1291,47 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		}
 	}
 
+	@Override
+	public void convertResourceEncoding(IResourcePersistentId thePid) {
+		ResourceEncodingEnum targetEncoding = myStorageSettings.getResourceEncoding();
+		if (!isConvertibleEncoding(targetEncoding)) {
+			return;
+		}
+
+		JpaPid jpaPid = (JpaPid) thePid;
+		ResourceTable entity = myEntityManager.find(ResourceTable.class, jpaPid.getId());
+		if (entity == null) {
+			ourLog.warn("Unable to find entity with PID: {}", jpaPid.getId());
+			return;
+		}
+
+		int converted = 0;
+		for (ResourceHistoryTable next : myResourceHistoryTableDao.findAllVersionsForResourceIdInOrder(jpaPid.getId())) {
+			ResourceEncodingEnum encoding = next.getEncoding();
+			if (encoding == targetEncoding || !isConvertibleEncoding(encoding) || next.getResourceTextVc() != null || next.getResource() == null) {
+				continue;
+			}
+
+			String resourceText = decodeResource(next.getResource(), encoding);
+			byte[] resourceBinary = getResourceBinary(targetEncoding, resourceText);
+			next.setEncoding(targetEncoding);
+			next.setResource(resourceBinary);
+			myResourceHistoryTableDao.save(next);
+			converted++;
+
+			// Keep the hash in sync with the stored bytes so that the next no-op update is still detected as one
+			if (next.getVersion() == entity.getVersion()) {
+				entity.setHashSha256(Hashing.sha256().hashBytes(resourceBinary).toString());
+			}
+		}
+
+		ourLog.debug("Converted {} version(s) of resource PID {} to encoding {}", converted, jpaPid.getId(), targetEncoding);
+	}
+
+	private static boolean isConvertibleEncoding(ResourceEncodingEnum theEncoding) {
+		return theEncoding == ResourceEncodingEnum.JSON || theEncoding == ResourceEncodingEnum.JSONC || theEncoding == ResourceEncodingEnum.CBOR;
+	}
+
 	private BaseHasResource readEntity(IIdType theId, boolean theCheckForForcedId, RequestDetails theRequest, RequestPartitionId requestPartitionId) {
 		validateResourceTypeAndThrowInvalidRequestException(theId);
 
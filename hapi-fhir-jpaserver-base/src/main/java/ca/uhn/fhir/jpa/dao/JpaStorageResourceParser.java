@@ -41,6 +41,7 @@ import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTag;
 import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import ca.uhn.fhir.jpa.model.util.ResourceCborCodec;
 import ca.uhn.fhir.jpa.partition.IPartitionLookupSvc;
 import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
@@ -51,8 +52,8 @@ import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.model.primitive.InstantDt;
 import ca.uhn.fhir.model.valueset.BundleEntryTransactionMethodEnum;
 import ca.uhn.fhir.parser.DataFormatException;
-import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.LenientErrorHandler;
+import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.util.MetaUtil;
 import org.apache.commons.lang3.Validate;
@@ -201,14 +202,17 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			return null;
 		}
 
-		// 2. get The text
-		String decodedResourceText = decodedResourceText(resourceBytes, resourceText, resourceEncoding);
+		// 2. get The text (CBOR is parsed straight from the bytes, so there is no text to decode)
+		String decodedResourceText = null;
+		if (resourceEncoding != ResourceEncodingEnum.CBOR || resourceText != null) {
+			decodedResourceText = decodedResourceText(resourceBytes, resourceText, resourceEncoding);
+		}
 
 		// 3. Use the appropriate custom type if one is specified in the context
 		Class<R> resourceType = determineTypeToParse(theResourceType, tagList);
 
 		// 4. parse the text to FHIR
-		R retVal = parseResource(theEntity, resourceEncoding, decodedResourceText, resourceType);
+		R retVal = parseResource(theEntity, resourceEncoding, decodedResourceText, resourceBytes, resourceType);
 
 		// 5. fill MetaData
 		retVal = populateResourceMetadata(theEntity, theForHistoryOperation, tagList, version, retVal);
@@ -235,7 +239,7 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 	}
 
 	@SuppressWarnings("unchecked")
-	private <R extends IBaseResource> R parseResource(IBaseResourceEntity theEntity, ResourceEncodingEnum theResourceEncoding, String theDecodedResourceText, Class<R> theResourceType) {
+	private <R extends IBaseResource> R parseResource(IBaseResourceEntity theEntity, ResourceEncodingEnum theResourceEncoding, String theDecodedResourceText, byte[] theResourceBytes, Class<R> theResourceType) {
 		R retVal;
 		if (theResourceEncoding == ResourceEncodingEnum.ESR) {
 
@@ -250,10 +254,16 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 
 		} else if (theResourceEncoding != ResourceEncodingEnum.DEL) {
 
-			IParser parser = new TolerantJsonParser(getContext(theEntity.getFhirVersion()), LENIENT_ERROR_HANDLER, theEntity.getId());
+			TolerantJsonParser parser = new TolerantJsonParser(getContext(theEntity.getFhirVersion()), LENIENT_ERROR_HANDLER, theEntity.getId());
 
 			try {
-				retVal = parser.parseResource(theResourceType, theDecodedResourceText);
+				if (theDecodedResourceText == null && theResourceEncoding == ResourceEncodingEnum.CBOR) {
+					JacksonStructure structure = new JacksonStructure();
+					structure.setNativeObject(ResourceCborCodec.decodeToTree(theResourceBytes));
+					retVal = parser.parseResource(theResourceType, structure);
+				} else {
+					retVal = parser.parseResource(theResourceType, theDecodedResourceText);
+				}
 			} catch (Exception e) {
 				StringBuilder b = new StringBuilder();
 				b.append("Failed to parse database resource[");
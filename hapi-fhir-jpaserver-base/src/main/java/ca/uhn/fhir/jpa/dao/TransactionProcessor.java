@@ -34,10 +34,13 @@ import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.util.AsyncUtil;
 import ca.uhn.fhir.util.StopWatch;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.Validate;
@@ -51,25 +54,29 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
-import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -212,67 +219,15 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 
 				}
 			}
-			if (searchParameterMapsToResolve.size() > 0) {
-				CriteriaBuilder cb = myEntityManager.getCriteriaBuilder();
-				CriteriaQuery<ResourceIndexedSearchParamToken> cq = cb.createQuery(ResourceIndexedSearchParamToken.class);
-				Root<ResourceIndexedSearchParamToken> from = cq.from(ResourceIndexedSearchParamToken.class);
-				List<Predicate> orPredicates = new ArrayList<>();
-
-				for (MatchUrlToResolve next : searchParameterMapsToResolve) {
-					Collection<List<List<IQueryParameterType>>> values = next.myMatchUrlSearchMap.values();
-					if (values.size() == 1) {
-						List<List<IQueryParameterType>> andList = values.iterator().next();
-						IQueryParameterType param = andList.get(0).get(0);
-
-						if (param instanceof TokenParam) {
-							Predicate hashPredicate = buildHashPredicateFromTokenParam((TokenParam)param, requestPartitionId, cb, from, next);
-
-							if (hashPredicate != null) {
-								if (myPartitionSettings.isPartitioningEnabled() && !myPartitionSettings.isIncludePartitionInSearchHashes()) {
-									if (requestPartitionId.isDefaultPartition()) {
-										Predicate partitionIdCriteria = cb.isNull(from.get("myPartitionIdValue").as(Integer.class));
-										hashPredicate = cb.and(hashPredicate, partitionIdCriteria);
-									} else if (!requestPartitionId.isAllPartitions()) {
-										Predicate partitionIdCriteria = from.get("myPartitionIdValue").as(Integer.class).in(requestPartitionId.getPartitionIds());
-										hashPredicate = cb.and(hashPredicate, partitionIdCriteria);
-									}
-								}
-
-								orPredicates.add(hashPredicate);
-							}
-						}
-					}
-
-				}
-
-				if (orPredicates.size() > 1) {
-					cq.where(cb.or(orPredicates.toArray(EMPTY_PREDICATE_ARRAY)));
-
-					Map<Long, List<MatchUrlToResolve>> hashToSearchMap = buildHashToSearchMap(searchParameterMapsToResolve);
-
-					TypedQuery<ResourceIndexedSearchParamToken> query = myEntityManager.createQuery(cq);
-					List<ResourceIndexedSearchParamToken> results = query.getResultList();
+			if (searchParameterMapsToResolve.size() > 1) {
+				resolveMatchUrlsUsingTokenHashes(theTransactionDetails, requestPartitionId, searchParameterMapsToResolve, idsToPreFetch);
+			}
 
-					for (ResourceIndexedSearchParamToken nextResult : results) {
-						Optional<List<MatchUrlToResolve>> matchedSearch = Optional.ofNullable(hashToSearchMap.get(nextResult.getHashSystemAndValue()));
-						if (!matchedSearch.isPresent()) {
-							matchedSearch =  Optional.ofNullable(hashToSearchMap.get(nextResult.getHashValue()));
-						}
-						matchedSearch.ifPresent(matchUrlsToResolve -> {
-							matchUrlsToResolve.forEach(matchUrl -> {
-								setSearchToResolvedAndPrefetchFoundResourcePid(theTransactionDetails, idsToPreFetch, nextResult, matchUrl);
-							});
-						});
-					}
-					//For each SP Map which did not return a result, tag it as not found.
-					searchParameterMapsToResolve.stream()
-						// No matches
-						.filter(match -> !match.myResolved)
-						.forEach(match -> {
-							ourLog.debug("Was unable to match url {} from database", match.myRequestUrl);
-							theTransactionDetails.addResolvedMatchUrl(match.myRequestUrl, TransactionDetails.NOT_FOUND);
-						});
-				}
+			/*
+			 * Resolve any remaining conditional URLs in parallel
+			 */
+			if (myStorageSettings.isBundleTransactionParallelMatchUrlResolutionEnabled()) {
+				resolveMatchUrlsInParallel(theRequest, theTransactionDetails, theEntries, idsToPreFetch);
 			}
 
 			IFhirSystemDao<?,?> systemDao = myApplicationContext.getBean(IFhirSystemDao.class);
@@ -284,46 +239,191 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 	}
 
 	/**
-	 * Given a token parameter, build the query predicate based on its hash. Uses system and value if both are available, otherwise just value.
-	 * If neither are available, it returns null.
+	 * Resolves the conditional URLs of any conditional creates and conditional updates in the transaction which
+	 * haven't already been resolved, using the bundle batch thread pool. Each URL is resolved in its own read-only
+	 * database transaction, and the outcomes are recorded in the transaction details so that the entries don't
+	 * need to resolve them again as they are written. Any URL which can't be resolved here (e.g. because it matches
+	 * more than one resource or fails) is simply left for the entry to resolve, which reports any error.
 	 */
-	@Nullable
-	private Predicate buildHashPredicateFromTokenParam(TokenParam theTokenParam, RequestPartitionId theRequestPartitionId, CriteriaBuilder cb, Root<ResourceIndexedSearchParamToken> from, MatchUrlToResolve theMatchUrl) {
-		Predicate hashPredicate = null;
-		if (isNotBlank(theTokenParam.getValue()) && isNotBlank(theTokenParam.getSystem())) {
-			theMatchUrl.myHashSystemAndValue = ResourceIndexedSearchParamToken.calculateHashSystemAndValue(myPartitionSettings, theRequestPartitionId, theMatchUrl.myResourceDefinition.getName(), theMatchUrl.myMatchUrlSearchMap.keySet().iterator().next(), theTokenParam.getSystem(), theTokenParam.getValue());
-			hashPredicate = cb.equal(from.get("myHashSystemAndValue").as(Long.class), theMatchUrl.myHashSystemAndValue);
-		} else if (isNotBlank(theTokenParam.getValue())) {
-			theMatchUrl.myHashValue = ResourceIndexedSearchParamToken.calculateHashValue(myPartitionSettings, theRequestPartitionId, theMatchUrl.myResourceDefinition.getName(), theMatchUrl.myMatchUrlSearchMap.keySet().iterator().next(), theTokenParam.getValue());
-			hashPredicate = cb.equal(from.get("myHashValue").as(Long.class), theMatchUrl.myHashValue);
+	private void resolveMatchUrlsInParallel(RequestDetails theRequest, TransactionDetails theTransactionDetails, List<IBase> theEntries, List<Long> theIdsToPreFetch) {
+		ITransactionProcessorVersionAdapter versionAdapter = getVersionAdapter();
+		Map<String, Class<? extends IBaseResource>> matchUrlsToResolve = new LinkedHashMap<>();
+		for (IBase nextEntry : theEntries) {
+			IBaseResource resource = versionAdapter.getResource(nextEntry);
+			if (resource == null) {
+				continue;
+			}
+
+			String verb = versionAdapter.getEntryRequestVerb(myFhirContext, nextEntry);
+			String matchUrl = null;
+			if ("PUT".equals(verb)) {
+				matchUrl = versionAdapter.getEntryRequestUrl(nextEntry);
+			} else if ("POST".equals(verb)) {
+				matchUrl = versionAdapter.getEntryIfNoneExist(nextEntry);
+			}
+			if (matchUrl == null || !matchUrl.contains("?")) {
+				continue;
+			}
+
+			// A URL which refers to a placeholder ID depends on the entry with that placeholder
+			if (matchUrl.contains(URN_PREFIX) || matchUrl.contains(URN_PREFIX_ESCAPED)) {
+				continue;
+			}
+
+			String resourceType = myFhirContext.getResourceType(resource);
+			String storedMatchUrl = matchUrl.startsWith("?") ? resourceType + matchUrl : matchUrl;
+			if (theTransactionDetails.getResolvedMatchUrls().containsKey(storedMatchUrl) || theTransactionDetails.getResolvedMatchUrls().containsKey(matchUrl)) {
+				continue;
+			}
+			if (myMatchResourceUrlService.processMatchUrlUsingCacheOnly(resourceType, matchUrl) != null) {
+				continue;
+			}
+
+			matchUrlsToResolve.put(storedMatchUrl, resource.getClass());
+		}
+
+		if (matchUrlsToResolve.size() < 2 || myStorageSettings.getBundleBatchPoolSize() == 1) {
+			return;
+		}
+
+		ourLog.debug("Resolving {} conditional URLs in parallel", matchUrlsToResolve.size());
+		Map<String, TransactionDetails> resolvedMatchUrls = new ConcurrentHashMap<>();
+		CountDownLatch completionLatch = new CountDownLatch(matchUrlsToResolve.size());
+		for (Map.Entry<String, Class<? extends IBaseResource>> nextMatchUrl : matchUrlsToResolve.entrySet()) {
+			getTaskExecutor().execute(() -> {
+				try {
+					TransactionDetails transactionDetails = new TransactionDetails(theTransactionDetails.getTransactionDate());
+					Set<JpaPid> matches = getHapiTransactionService()
+						.withRequest(theRequest)
+						.readOnly()
+						.execute(() -> myMatchResourceUrlService.processMatchUrl(nextMatchUrl.getKey(), nextMatchUrl.getValue(), transactionDetails, theRequest));
+					if (matches.isEmpty()) {
+						transactionDetails.addResolvedMatchUrl(nextMatchUrl.getKey(), TransactionDetails.NOT_FOUND);
+					}
+					resolvedMatchUrls.put(nextMatchUrl.getKey(), transactionDetails);
+				} catch (Exception e) {
+					ourLog.debug("Failed to resolve conditional URL {} in parallel, it will be resolved in order", nextMatchUrl.getKey(), e);
+				} finally {
+					completionLatch.countDown();
+				}
+			});
+		}
+		AsyncUtil.awaitLatchAndIgnoreInterrupt(completionLatch, 300L, TimeUnit.SECONDS);
+
+		for (TransactionDetails nextTransactionDetails : resolvedMatchUrls.values()) {
+			for (Map.Entry<String, IResourcePersistentId> nextResolved : nextTransactionDetails.getResolvedMatchUrls().entrySet()) {
+				IResourcePersistentId pid = nextResolved.getValue();
+				theTransactionDetails.addResolvedMatchUrl(nextResolved.getKey(), pid);
+				if (pid != TransactionDetails.NOT_FOUND) {
+					theIdsToPreFetch.add(((JpaPid) pid).getId());
+				}
+			}
 		}
-		return hashPredicate;
 	}
 
-	private Map<Long, List<MatchUrlToResolve>> buildHashToSearchMap(List<MatchUrlToResolve> searchParameterMapsToResolve) {
-		Map<Long, List<MatchUrlToResolve>> hashToSearch = new HashMap<>();
-		//Build a lookup map so we don't have to iterate over the searches repeatedly.
-		for (MatchUrlToResolve nextSearchParameterMap : searchParameterMapsToResolve) {
-			if (nextSearchParameterMap.myHashSystemAndValue != null) {
-				List<MatchUrlToResolve> matchUrlsToResolve = hashToSearch.getOrDefault(nextSearchParameterMap.myHashSystemAndValue, new ArrayList<>());
-				matchUrlsToResolve.add(nextSearchParameterMap);
-				hashToSearch.put(nextSearchParameterMap.myHashSystemAndValue,  matchUrlsToResolve);
+	/**
+	 * Resolves single parameter token match URLs (e.g. <code>Patient?identifier=http://foo|bar</code>) using the
+	 * token index hashes. Rather than each entry searching for its own match URL, the hashes for all of the match URLs
+	 * are looked up together using IN-list queries. A match URL which matches exactly one resource is resolved to that
+	 * resource and one which matches no resources is marked as not found. A match URL which matches more than one
+	 * resource is left for the entry to resolve, so that the usual error is reported.
+	 */
+	private void resolveMatchUrlsUsingTokenHashes(TransactionDetails theTransactionDetails, RequestPartitionId theRequestPartitionId, List<MatchUrlToResolve> theMatchUrlsToResolve, List<Long> theIdsToPreFetch) {
+		Map<Long, List<MatchUrlToResolve>> hashSystemAndValueToMatchUrls = new HashMap<>();
+		Map<Long, List<MatchUrlToResolve>> hashValueToMatchUrls = new HashMap<>();
+		List<MatchUrlToResolve> hashedMatchUrls = new ArrayList<>();
+		for (MatchUrlToResolve next : theMatchUrlsToResolve) {
+			Collection<List<List<IQueryParameterType>>> values = next.myMatchUrlSearchMap.values();
+			if (values.size() == 1) {
+				IQueryParameterType param = values.iterator().next().get(0).get(0);
+				if (param instanceof TokenParam && calculateHashesFromTokenParam((TokenParam) param, theRequestPartitionId, next)) {
+					hashedMatchUrls.add(next);
+					if (next.myHashSystemAndValue != null) {
+						hashSystemAndValueToMatchUrls.computeIfAbsent(next.myHashSystemAndValue, t -> new ArrayList<>()).add(next);
+					} else {
+						hashValueToMatchUrls.computeIfAbsent(next.myHashValue, t -> new ArrayList<>()).add(next);
+					}
+				}
+			}
+		}
+
+		if (hashedMatchUrls.size() < 2) {
+			return;
+		}
+
+		new QueryChunker<MatchUrlToResolve>().chunk(hashedMatchUrls, chunk -> {
+			Set<Long> hashSystemAndValues = new HashSet<>();
+			Set<Long> hashValues = new HashSet<>();
+			for (MatchUrlToResolve next : chunk) {
+				if (next.myHashSystemAndValue != null) {
+					hashSystemAndValues.add(next.myHashSystemAndValue);
+				} else {
+					hashValues.add(next.myHashValue);
+				}
+			}
+
+			CriteriaBuilder cb = myEntityManager.getCriteriaBuilder();
+			CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+			Root<ResourceIndexedSearchParamToken> from = cq.from(ResourceIndexedSearchParamToken.class);
+			Path<Long> hashSystemAndValuePath = from.get("myHashSystemAndValue");
+			Path<Long> hashValuePath = from.get("myHashValue");
+			cq.multiselect(hashSystemAndValuePath, hashValuePath, from.get("myResourcePid"));
+
+			List<Predicate> hashPredicates = new ArrayList<>();
+			if (!hashSystemAndValues.isEmpty()) {
+				hashPredicates.add(hashSystemAndValuePath.in(hashSystemAndValues));
+			}
+			if (!hashValues.isEmpty()) {
+				hashPredicates.add(hashValuePath.in(hashValues));
 			}
-			if (nextSearchParameterMap.myHashValue!= null) {
-				List<MatchUrlToResolve> matchUrlsToResolve = hashToSearch.getOrDefault(nextSearchParameterMap.myHashValue, new ArrayList<>());
-				matchUrlsToResolve.add(nextSearchParameterMap);
-				hashToSearch.put(nextSearchParameterMap.myHashValue,  matchUrlsToResolve);
+			Predicate predicate = hashPredicates.size() == 1 ? hashPredicates.get(0) : cb.or(hashPredicates.toArray(EMPTY_PREDICATE_ARRAY));
+			if (myPartitionSettings.isPartitioningEnabled() && !myPartitionSettings.isIncludePartitionInSearchHashes()) {
+				if (theRequestPartitionId.isDefaultPartition()) {
+					predicate = cb.and(predicate, cb.isNull(from.get("myPartitionIdValue").as(Integer.class)));
+				} else if (!theRequestPartitionId.isAllPartitions()) {
+					predicate = cb.and(predicate, from.get("myPartitionIdValue").as(Integer.class).in(theRequestPartitionId.getPartitionIds()));
+				}
+			}
+			cq.where(predicate);
+
+			for (Tuple nextResult : myEntityManager.createQuery(cq).getResultList()) {
+				Long resourcePid = nextResult.get(2, Long.class);
+				hashSystemAndValueToMatchUrls.getOrDefault(nextResult.get(0, Long.class), Collections.emptyList()).forEach(t -> t.myMatchingResourcePids.add(resourcePid));
+				hashValueToMatchUrls.getOrDefault(nextResult.get(1, Long.class), Collections.emptyList()).forEach(t -> t.myMatchingResourcePids.add(resourcePid));
+			}
+		});
+
+		for (MatchUrlToResolve next : hashedMatchUrls) {
+			if (next.myMatchingResourcePids.isEmpty()) {
+				ourLog.debug("Was unable to match url {} from database", next.myRequestUrl);
+				theTransactionDetails.addResolvedMatchUrl(next.myRequestUrl, TransactionDetails.NOT_FOUND);
+			} else if (next.myMatchingResourcePids.size() == 1) {
+				ourLog.debug("Matched url {} from database", next.myRequestUrl);
+				JpaPid resourcePid = JpaPid.fromId(next.myMatchingResourcePids.iterator().next());
+				theIdsToPreFetch.add(resourcePid.getId());
+				myMatchResourceUrlService.matchUrlResolved(theTransactionDetails, next.myResourceDefinition.getName(), next.myRequestUrl, resourcePid);
+				theTransactionDetails.addResolvedMatchUrl(next.myRequestUrl, resourcePid);
+			} else {
+				ourLog.debug("Url {} matched {} resources from database", next.myRequestUrl, next.myMatchingResourcePids.size());
 			}
 		}
-		return hashToSearch;
 	}
 
-	private void setSearchToResolvedAndPrefetchFoundResourcePid(TransactionDetails theTransactionDetails, List<Long> idsToPreFetch, ResourceIndexedSearchParamToken nextResult, MatchUrlToResolve nextSearchParameterMap) {
-		ourLog.debug("Matched url {} from database", nextSearchParameterMap.myRequestUrl);
-		idsToPreFetch.add(nextResult.getResourcePid());
-		myMatchResourceUrlService.matchUrlResolved(theTransactionDetails, nextSearchParameterMap.myResourceDefinition.getName(), nextSearchParameterMap.myRequestUrl, JpaPid.fromId(nextResult.getResourcePid()));
-		theTransactionDetails.addResolvedMatchUrl(nextSearchParameterMap.myRequestUrl, JpaPid.fromId(nextResult.getResourcePid()));
-		nextSearchParameterMap.setResolved(true);
+	/**
+	 * Given a token parameter, calculate the hash to search for. Uses system and value if both are available, otherwise just value.
+	 * If neither are available, returns <code>false</code>.
+	 */
+	private boolean calculateHashesFromTokenParam(TokenParam theTokenParam, RequestPartitionId theRequestPartitionId, MatchUrlToResolve theMatchUrl) {
+		String resourceType = theMatchUrl.myResourceDefinition.getName();
+		String paramName = theMatchUrl.myMatchUrlSearchMap.keySet().iterator().next();
+		if (isNotBlank(theTokenParam.getValue()) && isNotBlank(theTokenParam.getSystem())) {
+			theMatchUrl.myHashSystemAndValue = ResourceIndexedSearchParamToken.calculateHashSystemAndValue(myPartitionSettings, theRequestPartitionId, resourceType, paramName, theTokenParam.getSystem(), theTokenParam.getValue());
+			return true;
+		} else if (isNotBlank(theTokenParam.getValue())) {
+			theMatchUrl.myHashValue = ResourceIndexedSearchParamToken.calculateHashValue(myPartitionSettings, theRequestPartitionId, resourceType, paramName, theTokenParam.getValue());
+			return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -373,7 +473,7 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		private final String myRequestUrl;
 		private final SearchParameterMap myMatchUrlSearchMap;
 		private final RuntimeResourceDefinition myResourceDefinition;
-		public boolean myResolved;
+		private final Set<Long> myMatchingResourcePids = new HashSet<>();
 		private Long myHashValue;
 		private Long myHashSystemAndValue;
 
@@ -382,8 +482,5 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 			myMatchUrlSearchMap = theMatchUrlSearchMap;
 			myResourceDefinition = theResourceDefinition;
 		}
-		public void setResolved(boolean theResolved) {
-			myResolved = theResolved;
-		}
 	}
 }
@@ -37,6 +37,12 @@ public interface IBatch2WorkChunkRepository extends JpaRepository<Batch2WorkChun
 	@Query("SELECT e FROM Batch2WorkChunkEntity e WHERE e.myInstanceId = :instanceId ORDER BY e.mySequence ASC")
 	List<Batch2WorkChunkEntity> fetchChunks(Pageable thePageRequest, @Param("instanceId") String theInstanceId);
 
+	@Query("SELECT e.myTargetStepId, e.myStatus, COUNT(e), SUM(e.myRecordsProcessed), SUM(e.myErrorCount), MIN(e.myStartTime), MAX(e.myEndTime) FROM Batch2WorkChunkEntity e WHERE e.myInstanceId = :instanceId GROUP BY e.myTargetStepId, e.myStatus")
+	List<Object[]> fetchChunkStatusCounts(@Param("instanceId") String theInstanceId);
+
+	@Query("SELECT e.myErrorMessage FROM Batch2WorkChunkEntity e WHERE e.myInstanceId = :instanceId AND e.myTargetStepId = :stepId AND e.myStatus = :status AND e.myErrorMessage IS NOT NULL ORDER BY e.mySequence ASC")
+	List<String> fetchChunkErrorMessages(Pageable thePageRequest, @Param("instanceId") String theInstanceId, @Param("stepId") String theStepId, @Param("status") StatusEnum theStatus);
+
 	@Query("SELECT DISTINCT e.myStatus from Batch2WorkChunkEntity e where e.myInstanceId = :instanceId AND e.myTargetStepId = :stepId")
 	List<StatusEnum> getDistinctStatusesForStep(@Param("instanceId") String theInstanceId, @Param("stepId") String theStepId);
 
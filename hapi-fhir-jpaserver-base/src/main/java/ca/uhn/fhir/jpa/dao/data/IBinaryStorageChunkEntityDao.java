@@ -0,0 +1,47 @@
+package ca.uhn.fhir.jpa.dao.data;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.model.entity.BinaryStorageChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface IBinaryStorageChunkEntityDao extends JpaRepository<BinaryStorageChunkEntity, Long>, IHapiFhirJpaRepository {
+
+	/**
+	 * Returns the PID and offset of every chunk in the given chunk set which overlaps
+	 * the byte range starting at <code>theStart</code> (inclusive) and ending at <code>theEnd</code> (exclusive),
+	 * in chunk order
+	 */
+	@Query("SELECT c.myId, c.myOffset FROM BinaryStorageChunkEntity c WHERE c.myChunkSetId = :chunk_set_id AND c.myOffset < :end AND c.myOffset + c.mySize > :start ORDER BY c.myChunkIndex")
+	List<Object[]> findChunkPidsAndOffsetsInRange(@Param("chunk_set_id") String theChunkSetId, @Param("start") long theStart, @Param("end") long theEnd);
+
+	@Query("SELECT c.myData FROM BinaryStorageChunkEntity c WHERE c.myId = :pid")
+	byte[] findDataByPid(@Param("pid") Long thePid);
+
+	@Modifying
+	@Query("DELETE FROM BinaryStorageChunkEntity c WHERE c.myChunkSetId = :chunk_set_id")
+	void deleteByChunkSetId(@Param("chunk_set_id") String theChunkSetId);
+}
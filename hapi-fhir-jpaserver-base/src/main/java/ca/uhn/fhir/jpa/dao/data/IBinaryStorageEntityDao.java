@@ -21,11 +21,13 @@ package ca.uhn.fhir.jpa.dao.data;
  */
 
 import ca.uhn.fhir.jpa.model.entity.BinaryStorageEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface IBinaryStorageEntityDao extends JpaRepository<BinaryStorageEntity, String>, IHapiFhirJpaRepository {
@@ -36,4 +38,10 @@ public interface IBinaryStorageEntityDao extends JpaRepository<BinaryStorageEnti
 	@Modifying
 	@Query("DELETE FROM BinaryStorageEntity t WHERE t.myBlobId = :pid")
 	void deleteByPid(@Param("pid") String theId);
+
+	@Query("SELECT e.myBlobId FROM BinaryStorageEntity e WHERE e.myHash = :hash AND e.mySize = :size AND e.myChunkSetId IS NOT NULL")
+	List<String> findChunkedBlobIdsByHashAndSize(@Param("hash") String theHash, @Param("size") long theSize, Pageable thePage);
+
+	@Query("SELECT COUNT(e) FROM BinaryStorageEntity e WHERE e.myChunkSetId = :chunk_set_id")
+	long countByChunkSetId(@Param("chunk_set_id") String theChunkSetId);
 }
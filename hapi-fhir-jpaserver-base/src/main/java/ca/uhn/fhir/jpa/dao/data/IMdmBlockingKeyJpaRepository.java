@@ -0,0 +1,46 @@
+package ca.uhn.fhir.jpa.dao.data;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.entity.MdmBlockingKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IMdmBlockingKeyJpaRepository extends JpaRepository<MdmBlockingKeyEntity, Long>, IHapiFhirJpaRepository {
+
+	@Query("SELECT k FROM MdmBlockingKeyEntity k WHERE k.myResourcePid = :resourcePid")
+	List<MdmBlockingKeyEntity> findByResourcePid(@Param("resourcePid") Long theResourcePid);
+
+	@Modifying
+	@Query("DELETE FROM MdmBlockingKeyEntity k WHERE k.myResourcePid = :resourcePid")
+	int deleteByResourcePid(@Param("resourcePid") Long theResourcePid);
+
+	@Modifying
+	@Query("DELETE FROM MdmBlockingKeyEntity k WHERE k.myResourcePid IN (:resourcePids)")
+	int deleteByResourcePids(@Param("resourcePids") List<Long> theResourcePids);
+
+}
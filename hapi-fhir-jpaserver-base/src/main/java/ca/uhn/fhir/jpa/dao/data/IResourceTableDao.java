@@ -75,6 +75,12 @@ public interface IResourceTableDao extends JpaRepository<ResourceTable, Long>, I
 	@Query("SELECT t.myId, t.myResourceType, t.myUpdated FROM ResourceTable t WHERE t.myUpdated >= :low AND t.myUpdated <= :high ORDER BY t.myUpdated ASC")
 	Slice<Object[]> findIdsTypesAndUpdateTimesOfResourcesWithinUpdatedRangeOrderedFromOldestForDefaultPartition(Pageable thePage, @Param("low") Date theLow, @Param("high") Date theHigh);
 
+	/**
+	 * Returns all resources of the given type (including deleted ones) updated on or after the given date
+	 */
+	@Query("SELECT t FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myUpdated >= :low")
+	List<ResourceTable> findAllByResourceTypeUpdatedSince(@Param("restype") String theResourceType, @Param("low") Date theLow);
+
 	// TODO in the future, consider sorting by pid as well so batch jobs process in the same order across restarts
 	@Query("SELECT t.myId FROM ResourceTable t WHERE t.myUpdated >= :low AND t.myUpdated <= :high AND t.myPartitionIdValue = :partition_id ORDER BY t.myUpdated ASC")
 	Slice<Long> findIdsOfPartitionedResourcesWithinUpdatedRangeOrderedFromOldest(Pageable thePage, @Param("low") Date theLow, @Param("high") Date theHigh, @Param("partition_id") Integer theRequestPartitionId);
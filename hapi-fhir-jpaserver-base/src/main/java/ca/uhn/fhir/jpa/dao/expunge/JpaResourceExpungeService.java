@@ -50,6 +50,8 @@ import ca.uhn.fhir.jpa.model.entity.ForcedId;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.mdm.api.IMdmSettings;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
@@ -125,6 +127,10 @@ public class JpaResourceExpungeService implements IResourceExpungeService<JpaPid
 	private MemoryCacheService myMemoryCacheService;
 	@Autowired
 	private IJpaStorageResourceParser myJpaStorageResourceParser;
+	@Autowired
+	private IMdmBlockingKeyDao<JpaPid> myMdmBlockingKeyDao;
+	@Autowired(required = false)
+	private IMdmSettings myMdmSettings;
 
 	@Override
 	@Transactional
@@ -270,6 +276,10 @@ public class JpaResourceExpungeService implements IResourceExpungeService<JpaPid
 
 		myResourceTagDao.deleteByResourceId(resource.getId());
 
+		if (myMdmSettings != null && myMdmSettings.isEnabled()) {
+			myMdmBlockingKeyDao.deleteBlockingKeys(JpaPid.fromId(resource.getId()));
+		}
+
 		if (resource.getForcedId() != null) {
 			ForcedId forcedId = resource.getForcedId();
 			resource.setForcedId(null);
@@ -66,6 +66,7 @@ public class ResourceTableFKProvider {
 		retval.add(new ResourceForeignKey("MPI_LINK", "GOLDEN_RESOURCE_PID"));
 		retval.add(new ResourceForeignKey("MPI_LINK", "TARGET_PID"));
 		retval.add(new ResourceForeignKey("MPI_LINK", "PERSON_PID"));
+		retval.add(new ResourceForeignKey("MPI_BLOCKING_KEY", "RES_ID"));
 
 		//These only touch certain resource types.
 		retval.add(new ResourceForeignKey("TRM_CODESYSTEM_VER", "RES_ID"));
@@ -106,6 +107,7 @@ public class ResourceTableFKProvider {
 			retval.add(new ResourceForeignKey("MPI_LINK", "GOLDEN_RESOURCE_PID"));//NOT covered by index.
 			retval.add(new ResourceForeignKey("MPI_LINK", "TARGET_PID"));//Possibly covered, partial index
 			retval.add(new ResourceForeignKey("MPI_LINK", "PERSON_PID"));//TODO GGG: I don't even think we need this... this field is deprecated, and the deletion is covered by GOLDEN_RESOURCE_PID
+			retval.add(new ResourceForeignKey("MPI_BLOCKING_KEY", "RES_ID"));//Covered by index.
 		}
 
 		switch (theResourceType.toLowerCase()) {
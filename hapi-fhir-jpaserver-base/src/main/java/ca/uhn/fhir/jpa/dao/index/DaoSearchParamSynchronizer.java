@@ -20,11 +20,15 @@ package ca.uhn.fhir.jpa.dao.index;
  * #L%
  */
 
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import ca.uhn.fhir.jpa.util.QueryChunker;
 import com.google.common.annotations.VisibleForTesting;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
@@ -33,12 +37,17 @@ import javax.persistence.PersistenceContextType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class DaoSearchParamSynchronizer {
+
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	protected EntityManager myEntityManager;
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
 
 	public AddRemoveCount synchronizeSearchParamsToDatabase(ResourceIndexedSearchParams theParams, ResourceTable theEntity, ResourceIndexedSearchParams existingParams) {
 		AddRemoveCount retVal = new AddRemoveCount();
@@ -65,6 +74,11 @@ public class DaoSearchParamSynchronizer {
 		myEntityManager = theEntityManager;
 	}
 
+	@VisibleForTesting
+	public void setStorageSettings(JpaStorageSettings theStorageSettings) {
+		myStorageSettings = theStorageSettings;
+	}
+
 	private <T extends BaseResourceIndex> void synchronize(ResourceTable theEntity, AddRemoveCount theAddRemoveCount, Collection<T> theNewParams, Collection<T> theExistingParams) {
 		Collection<T> newParams = theNewParams;
 		for (T next : newParams) {
@@ -80,6 +94,14 @@ public class DaoSearchParamSynchronizer {
 
 		List<T> paramsToRemove = subtract(theExistingParams, newParams);
 		List<T> paramsToAdd = subtract(newParams, theExistingParams);
+
+		if (myStorageSettings.isIndexSynchronizationBatchModeEnabled()) {
+			synchronizeInBatchMode(theEntity, paramsToRemove, paramsToAdd);
+			theAddRemoveCount.addToAddCount(paramsToAdd.size());
+			theAddRemoveCount.addToRemoveCount(paramsToRemove.size());
+			return;
+		}
+
 		tryToReuseIndexEntities(paramsToRemove, paramsToAdd);
 
 		for (T next : paramsToRemove) {
@@ -96,6 +118,43 @@ public class DaoSearchParamSynchronizer {
 		theAddRemoveCount.addToRemoveCount(paramsToRemove.size());
 	}
 
+	/**
+	 * Applies the difference between the existing and new index rows without going through
+	 * Hibernate dirty checking for each row: rows which are no longer needed are deleted with
+	 * one statement per index table (chunked by ID), and new rows are persisted so that they
+	 * can be written using JDBC batch inserts when the session is flushed. Rows are never
+	 * reused, since that would require an individual UPDATE for each one.
+	 *
+	 * @see JpaStorageSettings#setIndexSynchronizationBatchModeEnabled(boolean)
+	 */
+	private <T extends BaseResourceIndex> void synchronizeInBatchMode(ResourceTable theEntity, List<T> theParamsToRemove, List<T> theParamsToAdd) {
+		Map<Class<?>, List<Long>> idsToRemoveByType = new LinkedHashMap<>();
+		for (T next : theParamsToRemove) {
+			theEntity.getParamsQuantity().remove(next);
+			theEntity.getParamsQuantityNormalized().remove(next);
+			if (next.getId() != null) {
+				myEntityManager.detach(next);
+				idsToRemoveByType.computeIfAbsent(Hibernate.getClass(next), t -> new ArrayList<>()).add(next.getId());
+			}
+		}
+
+		for (Map.Entry<Class<?>, List<Long>> nextEntry : idsToRemoveByType.entrySet()) {
+			String sql = "DELETE FROM " + nextEntry.getKey().getSimpleName() + " t WHERE t.myId IN (:ids)";
+			new QueryChunker<Long>().chunk(nextEntry.getValue(), ids -> myEntityManager
+				.createQuery(sql)
+				.setParameter("ids", ids)
+				.executeUpdate());
+		}
+
+		for (T next : theParamsToAdd) {
+			if (next.getId() == null) {
+				myEntityManager.persist(next);
+			} else {
+				myEntityManager.merge(next);
+			}
+		}
+	}
+
 	/**
 	 * The logic here is that often times when we update a resource we are dropping
 	 * one index row and adding another. This method tries to reuse rows that would otherwise
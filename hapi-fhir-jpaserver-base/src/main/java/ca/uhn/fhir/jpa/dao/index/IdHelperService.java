@@ -35,6 +35,7 @@ import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ForcedId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.primitive.IdDt;
@@ -219,7 +220,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				} else {
 					// fetch from cache... adding to cache if not available
 					String key = toForcedIdToPidKey(theRequestPartitionId, theResourceType, id);
-					retVal = myMemoryCacheService.getThenPutAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key, t -> {
+					retVal = myMemoryCacheService.getThenPutAfterCommit(MemoryCacheEnum.FORCED_ID_TO_PID, key, t -> {
 						List<IIdType> ids = Collections.singletonList(new IdType(theResourceType, id));
 						// fetches from cache using a function that checks cache first...
 						List<JpaPid> resolvedIds = resolveResourcePersistentIdsWithCache(theRequestPartitionId, ids);
@@ -330,7 +331,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				}
 
 				String key = toForcedIdToPidKey(theRequestPartitionId, nextId.getResourceType(), nextId.getIdPart());
-				JpaPid cachedId = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key);
+				JpaPid cachedId = myMemoryCacheService.getIfPresent(MemoryCacheEnum.FORCED_ID_TO_PID, key);
 				if (cachedId != null) {
 					retVal.add(cachedId);
 					continue;
@@ -377,7 +378,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				theOutputListToPopulate.add(jpaPid);
 
 				String key = toForcedIdToPidKey(theRequestPartitionId, nextId.getResourceType(), nextId.getForcedId());
-				myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key, jpaPid);
+				myMemoryCacheService.putAfterCommit(MemoryCacheEnum.FORCED_ID_TO_PID, key, jpaPid);
 			}
 		}
 	}
@@ -438,7 +439,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 
 	@Override
 	public Optional<String> translatePidIdToForcedIdWithCache(JpaPid theId) {
-		return myMemoryCacheService.get(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, theId.getId(), pid -> myForcedIdDao.findByResourcePid(pid).map(ForcedId::asTypedFhirResourceId));
+		return myMemoryCacheService.get(MemoryCacheEnum.PID_TO_FORCED_ID, theId.getId(), pid -> myForcedIdDao.findByResourcePid(pid).map(ForcedId::asTypedFhirResourceId));
 	}
 
 	private ListMultimap<String, String> organizeIdsByResourceType(Collection<IIdType> theIds) {
@@ -488,7 +489,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				for (Iterator<String> forcedIdIterator = nextIds.iterator(); forcedIdIterator.hasNext(); ) {
 					String nextForcedId = forcedIdIterator.next();
 					String nextKey = nextResourceType + "/" + nextForcedId;
-					IResourceLookup cachedLookup = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, nextKey);
+					IResourceLookup cachedLookup = myMemoryCacheService.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, nextKey);
 					if (cachedLookup != null) {
 						forcedIdIterator.remove();
 						if (!retVal.containsKey(nextForcedId)) {
@@ -529,7 +530,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 
 					if (!myStorageSettings.isDeleteEnabled()) {
 						String key = resourceType + "/" + forcedId;
-						myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, key, lookup);
+						myMemoryCacheService.putAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, key, lookup);
 					}
 				}
 			}
@@ -558,7 +559,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 			for (Iterator<Long> forcedIdIterator = thePidsToResolve.iterator(); forcedIdIterator.hasNext(); ) {
 				Long nextPid = forcedIdIterator.next();
 				String nextKey = Long.toString(nextPid);
-				IResourceLookup cachedLookup = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, nextKey);
+				IResourceLookup cachedLookup = myMemoryCacheService.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, nextKey);
 				if (cachedLookup != null) {
 					forcedIdIterator.remove();
 					if (!theTargets.containsKey(nextKey)) {
@@ -593,7 +594,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 					theTargets.get(id).add(t);
 					if (!myStorageSettings.isDeleteEnabled()) {
 						String nextKey = t.getPersistentId().toString();
-						myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, nextKey, t);
+						myMemoryCacheService.putAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, nextKey, t);
 					}
 				});
 
@@ -604,7 +605,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 	public PersistentIdToForcedIdMap translatePidsToForcedIds(Set<JpaPid> theResourceIds) {
 		assert myDontCheckActiveTransactionForUnitTest || TransactionSynchronizationManager.isSynchronizationActive();
 		Set<Long> thePids = theResourceIds.stream().map(JpaPid::getId).collect(Collectors.toSet());
-		Map<Long, Optional<String>> retVal = new HashMap<>(myMemoryCacheService.getAllPresent(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, thePids));
+		Map<Long, Optional<String>> retVal = new HashMap<>(myMemoryCacheService.getAllPresent(MemoryCacheEnum.PID_TO_FORCED_ID, thePids));
 
 		List<Long> remainingPids = thePids
 			.stream()
@@ -618,7 +619,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				Long nextResourcePid = forcedId.getResourceId();
 				Optional<String> nextForcedId = Optional.of(forcedId.asTypedFhirResourceId());
 				retVal.put(nextResourcePid, nextForcedId);
-				myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, nextResourcePid, nextForcedId);
+				myMemoryCacheService.putAfterCommit(MemoryCacheEnum.PID_TO_FORCED_ID, nextResourcePid, nextForcedId);
 			}
 		});
 
@@ -628,7 +629,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 			.collect(Collectors.toList());
 		for (Long nextResourcePid : remainingPids) {
 			retVal.put(nextResourcePid, Optional.empty());
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, nextResourcePid, Optional.empty());
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.PID_TO_FORCED_ID, nextResourcePid, Optional.empty());
 		}
 		Map<IResourcePersistentId, Optional<String>> convertRetVal = new HashMap<>();
 		retVal.forEach(
@@ -649,21 +650,40 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				populateAssociatedResourceId(theResourceType, theForcedId, theJpaPid);
 			}
 
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.of(theResourceType + "/" + theForcedId));
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.of(theResourceType + "/" + theForcedId));
 			String key = toForcedIdToPidKey(theRequestPartitionId, theResourceType, theForcedId);
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key, theJpaPid);
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.FORCED_ID_TO_PID, key, theJpaPid);
 		} else {
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.empty());
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.empty());
 		}
 
 		if (!myStorageSettings.isDeleteEnabled()) {
 			JpaResourceLookup lookup = new JpaResourceLookup(theResourceType, theJpaPid.getId(), theDeletedAt);
 			String nextKey = theJpaPid.toString();
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, nextKey, lookup);
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, nextKey, lookup);
 		}
 
 	}
 
+	@Override
+	public void invalidateResourceLookupAfterCommit(JpaPid theJpaPid, String theResourceType, String theResourceId) {
+		myMemoryCacheService.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, theJpaPid.toString());
+		myMemoryCacheService.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, theResourceType + "/" + theResourceId);
+	}
+
+	@Override
+	public void invalidateExpungedIdsAfterCommit(Collection<JpaPid> theJpaPids) {
+		List<Long> pids = JpaPid.toLongList(theJpaPids);
+		for (Long next : pids) {
+			myMemoryCacheService.invalidateAfterCommit(MemoryCacheEnum.PID_TO_FORCED_ID, next);
+			myMemoryCacheService.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, next);
+		}
+
+		// These are keyed by forced ID (and partition), which we don't know for the expunged PIDs
+		myMemoryCacheService.invalidateResourcePidsAfterCommit(MemoryCacheEnum.FORCED_ID_TO_PID, pids);
+		myMemoryCacheService.invalidateResourcePidsAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, pids);
+	}
+
 	@VisibleForTesting
 	void setPartitionSettingsForUnitTest(PartitionSettings thePartitionSettings) {
 		myPartitionSettings = thePartitionSettings;
@@ -0,0 +1,122 @@
+package ca.uhn.fhir.jpa.dao.mdm;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.IMdmBlockingKeyJpaRepository;
+import ca.uhn.fhir.jpa.entity.MdmBlockingKeyEntity;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.model.MdmBlockingKey;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MdmBlockingKeyDaoJpaImpl implements IMdmBlockingKeyDao<JpaPid> {
+	@Autowired
+	private IMdmBlockingKeyJpaRepository myMdmBlockingKeyRepository;
+	@Autowired
+	private EntityManager myEntityManager;
+
+	@Override
+	public void updateBlockingKeys(JpaPid theResourcePid, Collection<MdmBlockingKey> theBlockingKeys) {
+		Long resourcePid = theResourcePid.getId();
+		Set<MdmBlockingKey> keysToAdd = new HashSet<>(theBlockingKeys);
+
+		// Only touch the rows that actually changed, since most updates leave the keys alone
+		List<MdmBlockingKeyEntity> rowsToDelete = new ArrayList<>();
+		for (MdmBlockingKeyEntity next : myMdmBlockingKeyRepository.findByResourcePid(resourcePid)) {
+			if (!keysToAdd.remove(new MdmBlockingKey(next.getParamHash(), next.getKeyHash()))) {
+				rowsToDelete.add(next);
+			}
+		}
+		myMdmBlockingKeyRepository.deleteAll(rowsToDelete);
+
+		List<MdmBlockingKeyEntity> rowsToAdd = keysToAdd
+			.stream()
+			.map(t -> new MdmBlockingKeyEntity().setResourcePid(resourcePid).setParamHash(t.getParamHash()).setKeyHash(t.getKeyHash()))
+			.collect(Collectors.toList());
+		myMdmBlockingKeyRepository.saveAll(rowsToAdd);
+	}
+
+	@Override
+	public void deleteBlockingKeys(JpaPid theResourcePid) {
+		myMdmBlockingKeyRepository.deleteByResourcePid(theResourcePid.getId());
+	}
+
+	@Override
+	public void deleteBlockingKeysForPids(List<JpaPid> theResourcePids) {
+		List<Long> resourcePids = JpaPid.toLongList(theResourcePids);
+		for (List<Long> chunk : ListUtils.partition(resourcePids, 1000)) {
+			myMdmBlockingKeyRepository.deleteByResourcePids(chunk);
+		}
+	}
+
+	@Override
+	public List<JpaPid> findResourcePidsMatchingAllParams(Collection<MdmBlockingKey> theBlockingKeys, RequestPartitionId theRequestPartitionId, int theMaxResults) {
+		Validate.notEmpty(theBlockingKeys, "theBlockingKeys must not be empty");
+
+		Set<Long> keyHashes = theBlockingKeys.stream().map(MdmBlockingKey::getKeyHash).collect(Collectors.toSet());
+		long paramCount = theBlockingKeys.stream().map(MdmBlockingKey::getParamHash).distinct().count();
+
+		StringBuilder jpql = new StringBuilder();
+		jpql.append("SELECT k.myResourcePid FROM MdmBlockingKeyEntity k, ResourceTable r ");
+		jpql.append("WHERE r.myId = k.myResourcePid AND r.myDeleted IS NULL AND k.myKeyHash IN (:keyHashes) ");
+
+		List<Integer> partitionIds = null;
+		boolean filterOnPartition = theRequestPartitionId != null && !theRequestPartitionId.isAllPartitions() && theRequestPartitionId.hasPartitionIds();
+		if (filterOnPartition) {
+			partitionIds = theRequestPartitionId.getPartitionIdsWithoutDefault();
+			if (partitionIds.isEmpty()) {
+				jpql.append("AND r.myPartitionIdValue IS NULL ");
+			} else if (theRequestPartitionId.hasDefaultPartitionId()) {
+				jpql.append("AND (r.myPartitionIdValue IS NULL OR r.myPartitionIdValue IN (:partitionIds)) ");
+			} else {
+				jpql.append("AND r.myPartitionIdValue IN (:partitionIds) ");
+			}
+		}
+
+		jpql.append("GROUP BY k.myResourcePid HAVING COUNT(DISTINCT k.myParamHash) = :paramCount");
+
+		TypedQuery<Long> query = myEntityManager.createQuery(jpql.toString(), Long.class);
+		query.setParameter("keyHashes", keyHashes);
+		query.setParameter("paramCount", paramCount);
+		if (partitionIds != null && !partitionIds.isEmpty()) {
+			query.setParameter("partitionIds", partitionIds);
+		}
+		query.setMaxResults(theMaxResults);
+
+		return query
+			.getResultList()
+			.stream()
+			.map(JpaPid::fromId)
+			.collect(Collectors.toList());
+	}
+}
@@ -21,7 +21,9 @@ package ca.uhn.fhir.jpa.delete.batch2;
  */
 
 import ca.uhn.fhir.jpa.api.svc.IDeleteExpungeSvc;
+import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
+import ca.uhn.fhir.jpa.dao.MatchResourceUrlService;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import org.slf4j.Logger;
@@ -40,11 +42,15 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 
 	private final EntityManager myEntityManager;
 	private final DeleteExpungeSqlBuilder myDeleteExpungeSqlBuilder;
+	private final IIdHelperService<JpaPid> myIdHelperService;
+	private final MatchResourceUrlService<JpaPid> myMatchResourceUrlService;
 	private final IFulltextSearchSvc myFullTextSearchSvc;
 
-	public DeleteExpungeSvcImpl(EntityManager theEntityManager, DeleteExpungeSqlBuilder theDeleteExpungeSqlBuilder, @Autowired(required = false) IFulltextSearchSvc theFullTextSearchSvc) {
+	public DeleteExpungeSvcImpl(EntityManager theEntityManager, DeleteExpungeSqlBuilder theDeleteExpungeSqlBuilder, IIdHelperService<JpaPid> theIdHelperService, MatchResourceUrlService<JpaPid> theMatchResourceUrlService, @Autowired(required = false) IFulltextSearchSvc theFullTextSearchSvc) {
 		myEntityManager = theEntityManager;
 		myDeleteExpungeSqlBuilder = theDeleteExpungeSqlBuilder;
+		myIdHelperService = theIdHelperService;
+		myMatchResourceUrlService = theMatchResourceUrlService;
 		myFullTextSearchSvc = theFullTextSearchSvc;
 	}
 
@@ -61,6 +67,10 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 
 		ourLog.info("{} records deleted", totalDeleted);
 		clearHibernateSearchIndex(theJpaPids);
+
+		// The SQL above bypasses the DAOs, so drop any cached IDs and match URLs for the deleted resources
+		myIdHelperService.invalidateExpungedIdsAfterCommit(theJpaPids);
+		myMatchResourceUrlService.invalidateMatchUrlsAfterCommit(theJpaPids);
 		
 		// TODO KHS instead of logging progress, produce result chunks that get aggregated into a delete expunge report
 	}
@@ -0,0 +1,109 @@
+package ca.uhn.fhir.jpa.entity;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * A normalized MDM blocking key for a source resource. See {@link ca.uhn.fhir.mdm.model.MdmBlockingKey}.
+ * <p>
+ * There is deliberately no foreign key to the resource table: deleted resources are excluded when
+ * querying, and keys are replaced whenever the resource is processed by MDM.
+ * </p>
+ *
+ * @since 6.6.0
+ */
+@Entity
+@Table(name = "MPI_BLOCKING_KEY", indexes = {
+	@Index(name = "IDX_MPI_BLOCKKEY_KEY", columnList = "HASH_KEY, RES_ID"),
+	@Index(name = "IDX_MPI_BLOCKKEY_RES", columnList = "RES_ID")
+})
+public class MdmBlockingKeyEntity implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@SequenceGenerator(name = "SEQ_MPI_BLOCKKEY_ID", sequenceName = "SEQ_MPI_BLOCKKEY_ID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_MPI_BLOCKKEY_ID")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "RES_ID", nullable = false, updatable = false)
+	private Long myResourcePid;
+
+	@Column(name = "HASH_PARAM", nullable = false, updatable = false)
+	private Long myParamHash;
+
+	@Column(name = "HASH_KEY", nullable = false, updatable = false)
+	private Long myKeyHash;
+
+	public Long getId() {
+		return myId;
+	}
+
+	public Long getResourcePid() {
+		return myResourcePid;
+	}
+
+	public MdmBlockingKeyEntity setResourcePid(Long theResourcePid) {
+		myResourcePid = theResourcePid;
+		return this;
+	}
+
+	public Long getParamHash() {
+		return myParamHash;
+	}
+
+	public MdmBlockingKeyEntity setParamHash(Long theParamHash) {
+		myParamHash = theParamHash;
+		return this;
+	}
+
+	public Long getKeyHash() {
+		return myKeyHash;
+	}
+
+	public MdmBlockingKeyEntity setKeyHash(Long theKeyHash) {
+		myKeyHash = theKeyHash;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("id", myId)
+			.append("resourcePid", myResourcePid)
+			.append("paramHash", myParamHash)
+			.append("keyHash", myKeyHash)
+			.toString();
+	}
+}
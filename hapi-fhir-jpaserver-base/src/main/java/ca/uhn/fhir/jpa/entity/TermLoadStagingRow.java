@@ -0,0 +1,179 @@
+package ca.uhn.fhir.jpa.entity;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+import static ca.uhn.fhir.jpa.entity.TermConcept.MAX_CODE_LENGTH;
+import static ca.uhn.fhir.jpa.entity.TermConcept.MAX_DESC_LENGTH;
+
+/**
+ * A single row read from a terminology distribution file during a streaming
+ * terminology load. Rows are written to this table using JDBC batch inserts
+ * and are resolved into {@link TermConcept} and {@link TermConceptParentChildLink}
+ * rows using set-based queries once all files have been read. Rows are deleted
+ * once the load has completed.
+ *
+ * @since 6.6.0
+ */
+@Entity
+@Table(name = TermLoadStagingRow.TRM_LOAD_STAGE, indexes = {
+	@Index(name = "IDX_TRM_LOADSTAGE_CODE", columnList = "LOAD_ID, ROW_TYPE, CODEVAL")
+})
+public class TermLoadStagingRow implements Serializable {
+
+	public static final String TRM_LOAD_STAGE = "TRM_LOAD_STAGE";
+	public static final int LOAD_ID_LENGTH = 40;
+	public static final int ROW_TYPE_LENGTH = 20;
+	public static final int EFFECTIVE_TIME_LENGTH = 20;
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@SequenceGenerator(name = "SEQ_TRM_LOADSTAGE_PID", sequenceName = "SEQ_TRM_LOADSTAGE_PID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_TRM_LOADSTAGE_PID")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "LOAD_ID", nullable = false, length = LOAD_ID_LENGTH)
+	private String myLoadId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "ROW_TYPE", nullable = false, length = ROW_TYPE_LENGTH)
+	private RowTypeEnum myRowType;
+
+	@Column(name = "CODEVAL", nullable = false, length = MAX_CODE_LENGTH)
+	private String myCode;
+
+	@Column(name = "TARGET_CODEVAL", nullable = true, length = MAX_CODE_LENGTH)
+	private String myTargetCode;
+
+	@Column(name = "DISPLAY", nullable = true, length = MAX_DESC_LENGTH)
+	private String myDisplay;
+
+	@Column(name = "IS_ACTIVE", nullable = false)
+	private boolean myActive;
+
+	@Column(name = "EFFECTIVE_TIME", nullable = true, length = EFFECTIVE_TIME_LENGTH)
+	private String myEffectiveTime;
+
+	public Long getId() {
+		return myId;
+	}
+
+	public String getLoadId() {
+		return myLoadId;
+	}
+
+	public void setLoadId(String theLoadId) {
+		myLoadId = theLoadId;
+	}
+
+	public RowTypeEnum getRowType() {
+		return myRowType;
+	}
+
+	public void setRowType(RowTypeEnum theRowType) {
+		myRowType = theRowType;
+	}
+
+	public String getCode() {
+		return myCode;
+	}
+
+	public void setCode(String theCode) {
+		myCode = theCode;
+	}
+
+	public String getTargetCode() {
+		return myTargetCode;
+	}
+
+	public void setTargetCode(String theTargetCode) {
+		myTargetCode = theTargetCode;
+	}
+
+	public String getDisplay() {
+		return myDisplay;
+	}
+
+	public void setDisplay(String theDisplay) {
+		myDisplay = theDisplay;
+	}
+
+	public boolean isActive() {
+		return myActive;
+	}
+
+	public void setActive(boolean theActive) {
+		myActive = theActive;
+	}
+
+	public String getEffectiveTime() {
+		return myEffectiveTime;
+	}
+
+	public void setEffectiveTime(String theEffectiveTime) {
+		myEffectiveTime = theEffectiveTime;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("id", myId)
+			.append("loadId", myLoadId)
+			.append("rowType", myRowType)
+			.append("code", myCode)
+			.append("targetCode", myTargetCode)
+			.append("active", myActive)
+			.append("effectiveTime", myEffectiveTime)
+			.toString();
+	}
+
+	public enum RowTypeEnum {
+		/**
+		 * The status (active or inactive) of a concept as of a given effective time
+		 */
+		CONCEPT,
+		/**
+		 * An active description (display) for a concept
+		 */
+		DESCRIPTION,
+		/**
+		 * An "is-a" relationship where {@link #getCode()} is the child and
+		 * {@link #getTargetCode()} is the parent
+		 */
+		ISA_RELATIONSHIP
+	}
+
+}
@@ -25,6 +25,7 @@ import ca.uhn.fhir.interceptor.api.Hook;
 import ca.uhn.fhir.interceptor.api.Interceptor;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.interceptor.model.TransactionWriteOperationsDetails;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.sl.cache.Cache;
@@ -125,7 +126,7 @@ public class TransactionConcurrencySemaphoreInterceptor {
 		for (String nextUrl : urls) {
 
 			if (isConditionalCreates) {
-				if (myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, nextUrl) != null) {
+				if (myMemoryCacheService.getIfPresent(MemoryCacheEnum.MATCH_URL, nextUrl) != null) {
 					continue;
 				}
 			}
@@ -123,6 +123,69 @@ public class HapiFhirJpaMigrationTasks extends BaseMigrationTasks<VersionEnum> {
 			.addColumn("20230215.3", BulkExportJobEntity.JOB_ID)
 			.nullable()
 			.type(ColumnTypeEnum.STRING, UUID_LENGTH);
+
+		// Staging table for streaming terminology loads
+		version.addIdGenerator("20230301.1", "SEQ_TRM_LOADSTAGE_PID");
+		Builder.BuilderAddTableByColumns loadStage = version.addTableByColumns("20230301.2", "TRM_LOAD_STAGE", "PID");
+		loadStage.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+		loadStage.addColumn("LOAD_ID").nonNullable().type(ColumnTypeEnum.STRING, 40);
+		loadStage.addColumn("ROW_TYPE").nonNullable().type(ColumnTypeEnum.STRING, 20);
+		loadStage.addColumn("CODEVAL").nonNullable().type(ColumnTypeEnum.STRING, 500);
+		loadStage.addColumn("TARGET_CODEVAL").nullable().type(ColumnTypeEnum.STRING, 500);
+		loadStage.addColumn("DISPLAY").nullable().type(ColumnTypeEnum.STRING, 400);
+		loadStage.addColumn("IS_ACTIVE").nonNullable().type(ColumnTypeEnum.BOOLEAN);
+		loadStage.addColumn("EFFECTIVE_TIME").nullable().type(ColumnTypeEnum.STRING, 20);
+		loadStage
+			.addIndex("20230301.3", "IDX_TRM_LOADSTAGE_CODE")
+			.unique(false)
+			.withColumns("LOAD_ID", "ROW_TYPE", "CODEVAL");
+
+		// MDM blocking key index
+		version.addIdGenerator("20230301.4", "SEQ_MPI_BLOCKKEY_ID");
+		Builder.BuilderAddTableByColumns blockingKey = version.addTableByColumns("20230301.5", "MPI_BLOCKING_KEY", "PID");
+		blockingKey.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKey.addColumn("RES_ID").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKey.addColumn("HASH_PARAM").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKey.addColumn("HASH_KEY").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKey
+			.addIndex("20230301.6", "IDX_MPI_BLOCKKEY_KEY")
+			.unique(false)
+			.withColumns("HASH_KEY", "RES_ID");
+		blockingKey
+			.addIndex("20230301.7", "IDX_MPI_BLOCKKEY_RES")
+			.unique(false)
+			.withColumns("RES_ID");
+
+		// Chunked binary storage
+		Builder.BuilderWithTableName binaryBlob = version.onTable("HFJ_BINARY_STORAGE_BLOB");
+		binaryBlob
+			.modifyColumn("20230310.1", "BLOB_DATA")
+			.nullable()
+			.withType(ColumnTypeEnum.BLOB);
+		binaryBlob
+			.addColumn("20230310.2", "CHUNK_SET_ID")
+			.nullable()
+			.type(ColumnTypeEnum.STRING, 40);
+		binaryBlob
+			.addIndex("20230310.3", "IDX_BINSTORE_HASH")
+			.unique(false)
+			.withColumns("BLOB_HASH");
+		binaryBlob
+			.addIndex("20230310.4", "IDX_BINSTORE_CHUNKSET")
+			.unique(false)
+			.withColumns("CHUNK_SET_ID");
+		version.addIdGenerator("20230310.5", "SEQ_BINSTORE_CHUNK_PID");
+		Builder.BuilderAddTableByColumns binaryChunk = version.addTableByColumns("20230310.6", "HFJ_BINARY_STORAGE_CHUNK", "PID");
+		binaryChunk.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+		binaryChunk.addColumn("CHUNK_SET_ID").nonNullable().type(ColumnTypeEnum.STRING, 40);
+		binaryChunk.addColumn("CHUNK_IDX").nonNullable().type(ColumnTypeEnum.INT);
+		binaryChunk.addColumn("CHUNK_OFFSET").nonNullable().type(ColumnTypeEnum.LONG);
+		binaryChunk.addColumn("CHUNK_SIZE").nonNullable().type(ColumnTypeEnum.INT);
+		binaryChunk.addColumn("CHUNK_DATA").nonNullable().type(ColumnTypeEnum.BLOB);
+		binaryChunk
+			.addIndex("20230310.7", "IDX_BINSTORE_CHUNK_SETIDX")
+			.unique(true)
+			.withColumns("CHUNK_SET_ID", "CHUNK_IDX");
 	}
 
 	protected void init640() {
@@ -23,6 +23,8 @@ package ca.uhn.fhir.jpa.provider;
 import ca.uhn.fhir.batch2.jobs.reindex.ReindexProvider;
 import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.model.api.annotation.Description;
 import ca.uhn.fhir.rest.annotation.Operation;
 import ca.uhn.fhir.rest.annotation.OperationParam;
@@ -32,11 +34,14 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.util.ParametersUtil;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +52,8 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public final class JpaSystemProvider<T, MT> extends BaseJpaSystemProvider<T, MT> {
 
+	@Autowired(required = false)
+	private MemoryCacheService myMemoryCacheService;
 
 	@Description("Marks all currently existing resources of a given type, or all resources of all types, for reindexing.")
 	@Operation(name = MARK_ALL_RESOURCES_FOR_REINDEXING, idempotent = false, returnParameters = {
@@ -115,6 +122,42 @@ public final class JpaSystemProvider<T, MT> extends BaseJpaSystemProvider<T, MT>
 		return retVal;
 	}
 
+	@Operation(name = JpaConstants.OPERATION_CACHE_STATS, idempotent = true, returnParameters = {
+		@OperationParam(name = "cache", typeName = "BackboneElement", min = 0, max = OperationParam.MAX_UNLIMITED)
+	})
+	@Description(shortDefinition = "Provides the hit, miss and eviction counts, size and expiry of each of the server's in-memory caches")
+	public IBaseParameters getCacheStatistics() {
+		IBaseParameters retVal = ParametersUtil.newInstance(getContext());
+		if (myMemoryCacheService == null) {
+			return retVal;
+		}
+
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+			MemoryCacheService.CacheStatistics statistics = myMemoryCacheService.getStatistics(next);
+			IBase cache = ParametersUtil.addParameterToParameters(getContext(), retVal, "cache");
+			ParametersUtil.addPartCode(getContext(), cache, "name", next.name());
+			addPartDecimal(cache, "hits", BigDecimal.valueOf(statistics.getHitCount()));
+			addPartDecimal(cache, "misses", BigDecimal.valueOf(statistics.getMissCount()));
+			addPartDecimal(cache, "evictions", BigDecimal.valueOf(statistics.getEvictionCount()));
+			addPartDecimal(cache, "hitRatio", BigDecimal.valueOf(statistics.getHitRatio()));
+			addPartDecimal(cache, "estimatedSize", BigDecimal.valueOf(statistics.getEstimatedSize()));
+			addPartDecimal(cache, "maximumSize", BigDecimal.valueOf(statistics.getMaximumSize()));
+			addPartDecimal(cache, "expireAfterWriteSeconds", BigDecimal.valueOf(statistics.getExpireAfterWriteSeconds()));
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Counts are reported as decimals since they can exceed the range of the FHIR integer type
+	 */
+	@SuppressWarnings("unchecked")
+	private void addPartDecimal(IBase theParameter, String theName, BigDecimal theValue) {
+		IPrimitiveType<BigDecimal> value = (IPrimitiveType<BigDecimal>) getContext().getElementDefinition("decimal").newInstance();
+		value.setValue(theValue);
+		ParametersUtil.addPart(getContext(), theParameter, theName, value);
+	}
+
 	@Operation(name = ProviderConstants.OPERATION_META, idempotent = true, returnParameters = {
 		@OperationParam(name = "return", typeName = "Meta")
 	})
@@ -20,6 +20,7 @@ package ca.uhn.fhir.jpa.search;
  * #L%
  */
 
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
@@ -28,6 +29,7 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.BasePagingProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 // Note: this class is not annotated with @Service because we want to
@@ -43,6 +45,8 @@ public class DatabaseBackedPagingProvider extends BasePagingProvider {
 	private PersistedJpaBundleProviderFactory myPersistedJpaBundleProviderFactory;
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
 
 	/**
 	 * Constructor
@@ -67,6 +71,28 @@ public class DatabaseBackedPagingProvider extends BasePagingProvider {
 		return validateAndReturnBundleProvider(provider);
 	}
 
+	/**
+	 * Retrieves a page of a keyset paginated search, where the page ID is a {@link KeysetPagingCursor}.
+	 * Page IDs are rejected unless keyset paging is enabled.
+	 *
+	 * @see JpaStorageSettings#setKeysetPagingEnabled(boolean)
+	 */
+	@Override
+	public IBundleProvider retrieveResultList(@Nullable RequestDetails theRequestDetails, @Nonnull String theSearchId, String thePageId) {
+		if (!myStorageSettings.isKeysetPagingEnabled()) {
+			return null;
+		}
+		KeysetPagingCursor cursor = KeysetPagingCursor.decode(thePageId);
+		if (!cursor.getSearchUuid().equals(theSearchId)) {
+			return null;
+		}
+		KeysetPagingBundleProvider provider = myPersistedJpaBundleProviderFactory.newInstanceKeysetPaging(theRequestDetails, cursor);
+		if (!provider.ensureSearchEntityLoaded()) {
+			return null;
+		}
+		return provider;
+	}
+
 	/**
 	 * Subclasses may override in order to modify the bundle provider being returned
 	 */
@@ -0,0 +1,316 @@
+package ca.uhn.fhir.jpa.search;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.api.HookParams;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.ReadPartitionIdRequestDetails;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.config.util.ReadReplicaRoutingDataSource;
+import ca.uhn.fhir.jpa.dao.IResultIterator;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
+import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.IPreResourceAccessDetails;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.interceptor.ServerInterceptorUtil;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bundle provider for keyset (seek) paginated searches. Each page is loaded by a fresh query which
+ * only returns results sorting after the position carried in the {@link KeysetPagingCursor page ID}.
+ * The search parameters are loaded from the {@link Search} entity stored when the search was first
+ * run, but unlike {@link PersistedJpaBundleProvider} no search results are ever stored.
+ *
+ * @see JpaStorageSettings#setKeysetPagingEnabled(boolean)
+ * @since 6.6.0
+ */
+public class KeysetPagingBundleProvider implements IBundleProvider {
+
+	/*
+	 * Autowired fields
+	 */
+	@Autowired
+	private HapiTransactionService myTxService;
+	@PersistenceContext
+	private EntityManager myEntityManager;
+	@Autowired
+	private IInterceptorBroadcaster myInterceptorBroadcaster;
+	@Autowired
+	private SearchBuilderFactory<JpaPid> mySearchBuilderFactory;
+	@Autowired
+	private DaoRegistry myDaoRegistry;
+	@Autowired
+	private FhirContext myContext;
+	@Autowired
+	private ISearchCacheSvc mySearchCacheSvc;
+	@Autowired
+	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	/*
+	 * Non autowired fields (will be different for every instance
+	 * of this class, since it's a prototype
+	 */
+	private final RequestDetails myRequest;
+	private final KeysetPagingCursor myCursor;
+	private Search mySearchEntity;
+	private RequestPartitionId myRequestPartitionId;
+	private KeysetPagingCursor myNextCursor;
+
+	/**
+	 * Constructor
+	 */
+	public KeysetPagingBundleProvider(RequestDetails theRequest, KeysetPagingCursor theCursor) {
+		myRequest = theRequest;
+		myCursor = theCursor;
+	}
+
+	/**
+	 * Supplies the search entity for the first page of a search, so that it doesn't need to be
+	 * loaded from the search cache
+	 */
+	public void setSearchEntity(Search theSearchEntity) {
+		mySearchEntity = theSearchEntity;
+	}
+
+	/**
+	 * Loads the search entity identified by the cursor from the search cache
+	 *
+	 * @return Returns <code>false</code> if the search does not exist (e.g. because it has expired)
+	 * 	or was not stored as a keyset paginated search
+	 */
+	public boolean ensureSearchEntityLoaded() {
+		if (mySearchEntity == null) {
+			Optional<Search> searchOpt = myTxService
+				.withRequest(myRequest)
+				.execute(() -> mySearchCacheSvc.fetchByUuid(myCursor.getSearchUuid()));
+			if (!searchOpt.isPresent() || searchOpt.get().getSearchType() != SearchTypeEnum.SEARCH) {
+				return false;
+			}
+			Optional<SearchParameterMap> params = searchOpt.get().getSearchParameterMap();
+			if (!params.isPresent() || !isKeysetPagingSupported(params.get())) {
+				return false;
+			}
+			mySearchEntity = searchOpt.get();
+		}
+		return true;
+	}
+
+	public void setRequestPartitionId(RequestPartitionId theRequestPartitionId) {
+		myRequestPartitionId = theRequestPartitionId;
+	}
+
+	@Override
+	public IPrimitiveType<Date> getPublished() {
+		ensureSearchEntityLoaded();
+		return new InstantDt(mySearchEntity.getCreated());
+	}
+
+	@Nonnull
+	@Override
+	public List<IBaseResource> getResources(int theFromIndex, int theToIndex) {
+		if (theToIndex <= theFromIndex) {
+			return Collections.emptyList();
+		}
+
+		SearchParameterMap params = getSearchParameterMap().clone();
+		params.setKeysetPosition(myCursor.toKeysetPosition());
+		RequestPartitionId requestPartitionId = getRequestPartitionId(params);
+
+		IHapiTransactionService.IExecutionBuilder execution = myTxService
+			.withRequest(myRequest)
+			.withRequestPartitionId(requestPartitionId)
+			.readOnly();
+		if (ReadReplicaRoutingDataSource.isReadReplicaAllowed(myRequest)) {
+			execution.allowReadReplica();
+		}
+		return execution.execute(() -> loadPage(params, requestPartitionId, theFromIndex, theToIndex));
+	}
+
+	private List<IBaseResource> loadPage(SearchParameterMap theParams, RequestPartitionId theRequestPartitionId, int theFromIndex, int theToIndex) {
+		String resourceType = mySearchEntity.getResourceType();
+		IFhirResourceDao<?> dao = myDaoRegistry.getResourceDao(resourceType);
+		Class<? extends IBaseResource> resourceTypeClass = myContext.getResourceDefinition(resourceType).getImplementingClass();
+		ISearchBuilder<JpaPid> sb = mySearchBuilderFactory.newSearchBuilder(dao, resourceType, resourceTypeClass);
+
+		// Fetch one extra result so that we know whether there is a next page
+		int wantCount = theToIndex + 1;
+		sb.setFetchSize(wantCount);
+		sb.setMaxResultsToFetch(wantCount);
+
+		List<JpaPid> pids = new ArrayList<>(wantCount);
+		SearchRuntimeDetails searchRuntimeDetails = new SearchRuntimeDetails(myRequest, myCursor.getSearchUuid());
+		searchRuntimeDetails.setQueryString(mySearchEntity.getSearchQueryString());
+		try (IResultIterator<JpaPid> resultIter = sb.createQuery(theParams, searchRuntimeDetails, myRequest, theRequestPartitionId)) {
+			while (resultIter.hasNext() && pids.size() < wantCount) {
+				pids.add(resultIter.next());
+			}
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2282) + e);
+		}
+
+		myNextCursor = null;
+		if (pids.size() > theToIndex) {
+			pids = pids.subList(0, theToIndex);
+			JpaPid last = pids.get(pids.size() - 1);
+			Date lastUpdated = null;
+			if (theParams.getSort() != null) {
+				lastUpdated = myEntityManager.find(ResourceTable.class, last.getId()).getUpdatedDate();
+			}
+			myNextCursor = myCursor.next(lastUpdated, last.getId());
+		}
+		pids = new ArrayList<>(pids.subList(Math.min(theFromIndex, pids.size()), pids.size()));
+
+		// Interceptor call: STORAGE_PREACCESS_RESOURCES
+		JpaPreResourceAccessDetails accessDetails = new JpaPreResourceAccessDetails(pids, () -> sb);
+		HookParams params = new HookParams()
+			.add(IPreResourceAccessDetails.class, accessDetails)
+			.add(RequestDetails.class, myRequest)
+			.addIfMatchesType(ServletRequestDetails.class, myRequest);
+		CompositeInterceptorBroadcaster.doCallHooks(myInterceptorBroadcaster, myRequest, Pointcut.STORAGE_PREACCESS_RESOURCES, params);
+		for (int i = pids.size() - 1; i >= 0; i--) {
+			if (accessDetails.isDontReturnResourceAtIndex(i)) {
+				pids.remove(i);
+			}
+		}
+
+		// _revincludes and _includes
+		Integer maxIncludes = myStorageSettings.getMaximumIncludesToLoadPerPage();
+		Set<JpaPid> includedPids = sb.loadIncludes(myContext, myEntityManager, pids, theParams.getRevIncludes(), true, theParams.getLastUpdated(), myCursor.getSearchUuid(), myRequest, maxIncludes, searchRuntimeDetails);
+		if (maxIncludes != null) {
+			maxIncludes -= includedPids.size();
+		}
+		if (maxIncludes == null || maxIncludes > 0) {
+			includedPids.addAll(sb.loadIncludes(myContext, myEntityManager, pids, theParams.getIncludes(), false, theParams.getLastUpdated(), myCursor.getSearchUuid(), myRequest, maxIncludes, searchRuntimeDetails));
+		}
+		List<JpaPid> includedPidsList = new ArrayList<>(includedPids);
+		pids.addAll(includedPidsList);
+
+		List<IBaseResource> resources = new ArrayList<>();
+		sb.loadResourcesByPid(pids, includedPidsList, resources, false, myRequest);
+
+		// Hook: STORAGE_PRESHOW_RESOURCES
+		return ServerInterceptorUtil.fireStoragePreshowResource(resources, myRequest, myInterceptorBroadcaster);
+	}
+
+	private SearchParameterMap getSearchParameterMap() {
+		boolean entityLoaded = ensureSearchEntityLoaded();
+		assert entityLoaded;
+		return mySearchEntity.getSearchParameterMap().orElseThrow(IllegalStateException::new);
+	}
+
+	private RequestPartitionId getRequestPartitionId(SearchParameterMap theParams) {
+		if (myRequestPartitionId == null) {
+			ReadPartitionIdRequestDetails details = ReadPartitionIdRequestDetails.forSearchType(mySearchEntity.getResourceType(), theParams, null);
+			myRequestPartitionId = myRequestPartitionHelperSvc.determineReadPartitionForRequest(myRequest, details);
+		}
+		return myRequestPartitionId;
+	}
+
+	@Override
+	public String getCurrentPageId() {
+		return myCursor.encode();
+	}
+
+	/**
+	 * Returns the page ID of the next page. This is only known once
+	 * {@link #getResources(int, int)} has been called.
+	 */
+	@Override
+	public String getNextPageId() {
+		return myNextCursor != null ? myNextCursor.encode() : null;
+	}
+
+	@Override
+	public String getUuid() {
+		return myCursor.getSearchUuid();
+	}
+
+	@Override
+	public Integer preferredPageSize() {
+		return getSearchParameterMap().getCount();
+	}
+
+	/**
+	 * Keyset paginated searches never calculate a total
+	 */
+	@Override
+	public Integer size() {
+		return null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given search can be paged using keyset pagination. The
+	 * search must be either unsorted or sorted only by <code>_lastUpdated</code>.
+	 */
+	public static boolean isKeysetPagingSupported(SearchParameterMap theParams) {
+		if (theParams.getEverythingMode() != null || theParams.isLastN() || theParams.getOffset() != null) {
+			return false;
+		}
+		if (theParams.getSearchTotalMode() != null && theParams.getSearchTotalMode() != SearchTotalModeEnum.NONE) {
+			return false;
+		}
+		if (theParams.containsKey(Constants.PARAM_CONTENT) || theParams.containsKey(Constants.PARAM_TEXT) || theParams.getNearDistanceParam() != null) {
+			return false;
+		}
+		SortSpec sort = theParams.getSort();
+		return sort == null || (Constants.PARAM_LASTUPDATED.equals(sort.getParamName()) && sort.getChain() == null);
+	}
+}
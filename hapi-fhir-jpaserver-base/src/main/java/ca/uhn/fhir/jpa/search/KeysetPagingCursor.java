@@ -0,0 +1,111 @@
+package ca.uhn.fhir.jpa.search;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.searchparam.KeysetPosition;
+import ca.uhn.fhir.model.api.IModelJson;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.util.JsonUtil;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * The opaque page ID used by keyset (seek) paginated searches. A cursor only identifies the
+ * search and the sort keys of the last result on the previous page. The search itself (resource
+ * type, parameters and sort) is stored server side in the search cache, so a client editing the
+ * cursor can only move its position within the results of the same search.
+ *
+ * @see ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setKeysetPagingEnabled(boolean)
+ * @since 6.6.0
+ */
+public class KeysetPagingCursor implements IModelJson {
+
+	@JsonProperty("uuid")
+	private String mySearchUuid;
+	@JsonProperty("lastUpdated")
+	private Long myLastUpdated;
+	@JsonProperty("pid")
+	private Long myResourcePid;
+
+	/**
+	 * Constructor
+	 */
+	public KeysetPagingCursor() {
+		super();
+	}
+
+	/**
+	 * Constructor for the first page of a search
+	 */
+	public KeysetPagingCursor(String theSearchUuid) {
+		mySearchUuid = theSearchUuid;
+	}
+
+	/**
+	 * Returns a cursor for the same search positioned after the given result
+	 */
+	public KeysetPagingCursor next(Date theLastUpdated, Long theResourcePid) {
+		KeysetPagingCursor retVal = new KeysetPagingCursor(mySearchUuid);
+		retVal.myLastUpdated = theLastUpdated != null ? theLastUpdated.getTime() : null;
+		retVal.myResourcePid = theResourcePid;
+		return retVal;
+	}
+
+	public String getSearchUuid() {
+		return mySearchUuid;
+	}
+
+	public KeysetPosition toKeysetPosition() {
+		Date lastUpdated = myLastUpdated != null ? new Date(myLastUpdated) : null;
+		return new KeysetPosition(lastUpdated, myResourcePid);
+	}
+
+	/**
+	 * Encodes this cursor as a URL safe page ID
+	 */
+	public String encode() {
+		byte[] json = JsonUtil.serialize(this, false).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+	}
+
+	/**
+	 * Decodes a page ID created by {@link #encode()}
+	 *
+	 * @throws InvalidRequestException If the page ID is not a valid cursor
+	 */
+	public static KeysetPagingCursor decode(String thePageId) {
+		KeysetPagingCursor retVal;
+		try {
+			String json = new String(Base64.getUrlDecoder().decode(thePageId), StandardCharsets.UTF_8);
+			retVal = JsonUtil.deserialize(json, KeysetPagingCursor.class);
+		} catch (RuntimeException e) {
+			throw new InvalidRequestException(Msg.code(2280) + "Invalid page ID: " + e.getMessage());
+		}
+		if (retVal.mySearchUuid == null) {
+			throw new InvalidRequestException(Msg.code(2281) + "Invalid page ID");
+		}
+		return retVal;
+	}
+}
@@ -41,10 +41,13 @@ import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.BaseHasResource;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.util.HistoryCountKey;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryParameterUtils;
 import ca.uhn.fhir.model.primitive.InstantDt;
@@ -278,16 +281,16 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 	 * count operation.
 	 */
 	private void calculateHistoryCount() {
-		MemoryCacheService.HistoryCountKey key;
+		HistoryCountKey key;
 		if (mySearchEntity.getResourceId() != null) {
-			key = MemoryCacheService.HistoryCountKey.forInstance(mySearchEntity.getResourceId());
+			key = HistoryCountKey.forInstance(mySearchEntity.getResourceId());
 		} else if (mySearchEntity.getResourceType() != null) {
-			key = MemoryCacheService.HistoryCountKey.forType(mySearchEntity.getResourceType());
+			key = HistoryCountKey.forType(mySearchEntity.getResourceType());
 		} else {
-			key = MemoryCacheService.HistoryCountKey.forSystem();
+			key = HistoryCountKey.forSystem();
 		}
 
-		Function<MemoryCacheService.HistoryCountKey, Integer> supplier = k -> myTxService
+		Function<HistoryCountKey, Integer> supplier = k -> myTxService
 			.withRequest(myRequest)
 			.withRequestPartitionId(getRequestPartitionId())
 			.execute(() -> {
@@ -306,7 +309,7 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 			}
 			case CACHED_ONLY_WITHOUT_OFFSET: {
 				if (!haveOffset) {
-					int count = myMemoryCacheService.get(MemoryCacheService.CacheEnum.HISTORY_COUNT, key, supplier);
+					int count = myMemoryCacheService.get(MemoryCacheEnum.HISTORY_COUNT, key, supplier);
 					mySearchEntity.setTotalCount(count);
 				}
 				break;
@@ -422,9 +425,10 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 		List<JpaPid> includedPidList = new ArrayList<>();
 		if (mySearchEntity.getSearchType() == SearchTypeEnum.SEARCH) {
 			Integer maxIncludes = myStorageSettings.getMaximumIncludesToLoadPerPage();
+			SearchRuntimeDetails searchRuntimeDetails = new SearchRuntimeDetails(myRequest, myUuid);
 
 			// Load _revincludes
-			Set<JpaPid> includedPids = theSearchBuilder.loadIncludes(myContext, myEntityManager, thePids, mySearchEntity.toRevIncludesList(), true, mySearchEntity.getLastUpdated(), myUuid, myRequest, maxIncludes);
+			Set<JpaPid> includedPids = theSearchBuilder.loadIncludes(myContext, myEntityManager, thePids, mySearchEntity.toRevIncludesList(), true, mySearchEntity.getLastUpdated(), myUuid, myRequest, maxIncludes, searchRuntimeDetails);
 			if (maxIncludes != null) {
 				maxIncludes -= includedPids.size();
 			}
@@ -432,7 +436,7 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 			includedPidList.addAll(includedPids);
 
 			// Load _includes
-			Set<JpaPid> revIncludedPids = theSearchBuilder.loadIncludes(myContext, myEntityManager, thePids, mySearchEntity.toIncludesList(), false, mySearchEntity.getLastUpdated(), myUuid, myRequest, maxIncludes);
+			Set<JpaPid> revIncludedPids = theSearchBuilder.loadIncludes(myContext, myEntityManager, thePids, mySearchEntity.toIncludesList(), false, mySearchEntity.getLastUpdated(), myUuid, myRequest, maxIncludes, searchRuntimeDetails);
 			thePids.addAll(revIncludedPids);
 			includedPidList.addAll(revIncludedPids);
 
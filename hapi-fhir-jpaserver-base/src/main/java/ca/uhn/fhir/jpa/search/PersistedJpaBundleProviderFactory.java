@@ -53,6 +53,10 @@ public class PersistedJpaBundleProviderFactory {
 		return (PersistedJpaBundleProvider) retVal;
 	}
 
+	public KeysetPagingBundleProvider newInstanceKeysetPaging(RequestDetails theRequest, KeysetPagingCursor theCursor) {
+		return (KeysetPagingBundleProvider) myApplicationContext.getBean(JpaConfig.KEYSET_PAGING_BUNDLE_PROVIDER, theRequest, theCursor);
+	}
+
 	public PersistedJpaSearchFirstPageBundleProvider newInstanceFirstPage(RequestDetails theRequestDetails, Search theSearch, SearchTask theTask, ISearchBuilder theSearchBuilder, RequestPartitionId theRequestPartitionId) {
 		return (PersistedJpaSearchFirstPageBundleProvider) myApplicationContext.getBean(JpaConfig.PERSISTED_JPA_SEARCH_FIRST_PAGE_BUNDLE_PROVIDER, theRequestDetails, theSearch, theTask, theSearchBuilder, theRequestPartitionId);
 	}
@@ -364,6 +364,23 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 			return mySynchronousSearchSvc.executeQuery(theParams, theRequestDetails, searchUuid, sb, loadSynchronousUpTo, theRequestPartitionId);
 		}
 
+		if (myStorageSettings.isKeysetPagingEnabled() && KeysetPagingBundleProvider.isKeysetPagingSupported(theParams)) {
+			ourLog.debug("Search {} is using keyset paging", searchUuid);
+			// Only the search is stored (so that later pages can't change it), never its results
+			search.setStatus(SearchStatusEnum.FINISHED);
+			search.setSearchParameterMap(theParams);
+			search.setCannotBeReused();
+			Search savedSearch = myTxService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> mySearchCacheSvc.save(search));
+
+			KeysetPagingBundleProvider retVal = myPersistedJpaBundleProviderFactory.newInstanceKeysetPaging(theRequestDetails, new KeysetPagingCursor(searchUuid));
+			retVal.setSearchEntity(savedSearch);
+			retVal.setRequestPartitionId(theRequestPartitionId);
+			return retVal;
+		}
+
 		/*
 		 * See if there are any cached searches whose results we can return
 		 * instead
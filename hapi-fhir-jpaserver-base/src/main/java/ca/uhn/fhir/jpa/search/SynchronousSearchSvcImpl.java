@@ -29,10 +29,12 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.config.util.ReadReplicaRoutingDataSource;
 import ca.uhn.fhir.jpa.dao.IResultIterator;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
@@ -100,12 +102,16 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 		boolean theParamOrConfigWantCount = nonNull(theParams.getSearchTotalMode()) ? isWantCount(theParams) : isWantCount(myStorageSettings.getDefaultTotalMode());
 		boolean wantCount = theParamWantOnlyCount || theParamOrConfigWantCount;
 
-		// Execute the query and make sure we return distinct results
-		return myTxService
+		IHapiTransactionService.IExecutionBuilder execution = myTxService
 			.withRequest(theRequestDetails)
 			.withRequestPartitionId(theRequestPartitionId)
-			.readOnly()
-			.execute(() -> {
+			.readOnly();
+		if (ReadReplicaRoutingDataSource.isReadReplicaAllowed(theRequestDetails)) {
+			execution.allowReadReplica();
+		}
+
+		// Execute the query and make sure we return distinct results
+		return execution.execute(() -> {
 
 			// Load the results synchronously
 			final List<JpaPid> pids = new ArrayList<>();
@@ -174,7 +180,7 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 
 			// _includes
 			Integer maxIncludes = myStorageSettings.getMaximumIncludesToLoadPerPage();
-			final Set<JpaPid> includedPids = theSb.loadIncludes(myContext, myEntityManager, pids, theParams.getRevIncludes(), true, theParams.getLastUpdated(), "(synchronous)", theRequestDetails, maxIncludes);
+			final Set<JpaPid> includedPids = theSb.loadIncludes(myContext, myEntityManager, pids, theParams.getRevIncludes(), true, theParams.getLastUpdated(), "(synchronous)", theRequestDetails, maxIncludes, searchRuntimeDetails);
 			if (maxIncludes != null) {
 				maxIncludes -= includedPids.size();
 			}
@@ -183,7 +189,7 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 
 			// _revincludes
 			if (theParams.getEverythingMode() == null && (maxIncludes == null || maxIncludes > 0)) {
-				Set<JpaPid> revIncludedPids = theSb.loadIncludes(myContext, myEntityManager, pids, theParams.getIncludes(), false, theParams.getLastUpdated(), "(synchronous)", theRequestDetails, maxIncludes);
+				Set<JpaPid> revIncludedPids = theSb.loadIncludes(myContext, myEntityManager, pids, theParams.getIncludes(), false, theParams.getLastUpdated(), "(synchronous)", theRequestDetails, maxIncludes, searchRuntimeDetails);
 				includedPids.addAll(revIncludedPids);
 				pids.addAll(revIncludedPids);
 				includedPidsList.addAll(revIncludedPids);
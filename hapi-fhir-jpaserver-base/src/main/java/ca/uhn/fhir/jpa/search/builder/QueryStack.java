@@ -75,6 +75,7 @@ import ca.uhn.fhir.rest.param.CompositeParam;
 import ca.uhn.fhir.rest.param.DateParam;
 import ca.uhn.fhir.rest.param.HasParam;
 import ca.uhn.fhir.rest.param.NumberParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
 import ca.uhn.fhir.rest.param.QuantityParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
@@ -101,6 +102,7 @@ import com.healthmarketscience.sqlbuilder.Subquery;
 import com.healthmarketscience.sqlbuilder.UnionQuery;
 import com.healthmarketscience.sqlbuilder.dbspec.basic.DbColumn;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.Triple;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.slf4j.Logger;
@@ -111,6 +113,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -194,6 +197,46 @@ public class QueryStack {
 		mySqlBuilder.addSortDate(resourceTablePredicateBuilder.getColumnLastUpdated(), theAscending, myUseAggregate);
 	}
 
+	/**
+	 * Adds the sort and the seek predicate for a keyset paginated search. Results are ordered by
+	 * the resource PID, preceded by the last updated date if {@literal theSortOnLastUpdated} is set,
+	 * and only results sorting after the given position are returned.
+	 */
+	public void addKeysetPagingSortAndPredicate(boolean theSortOnLastUpdated, boolean theAscending, @Nullable Date theLastUpdated, @Nullable Long theResourcePid) {
+		BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
+		DbColumn resourceIdColumn = firstPredicateBuilder.getResourceIdColumn();
+
+		Condition predicate = null;
+		if (theSortOnLastUpdated) {
+			ResourceTablePredicateBuilder resourceTablePredicateBuilder;
+			if (firstPredicateBuilder instanceof ResourceTablePredicateBuilder) {
+				resourceTablePredicateBuilder = (ResourceTablePredicateBuilder) firstPredicateBuilder;
+			} else {
+				resourceTablePredicateBuilder = mySqlBuilder.addResourceTablePredicateBuilder(resourceIdColumn);
+			}
+			DbColumn lastUpdatedColumn = resourceTablePredicateBuilder.getColumnLastUpdated();
+			mySqlBuilder.addSortDate(lastUpdatedColumn, theAscending, myUseAggregate);
+
+			if (theResourcePid != null) {
+				Validate.notNull(theLastUpdated, "theLastUpdated must not be null when sorting on _lastUpdated");
+				ParamPrefixEnum comparator = theAscending ? ParamPrefixEnum.GREATERTHAN : ParamPrefixEnum.LESSTHAN;
+				predicate = ComboCondition.or(
+					mySqlBuilder.createConditionForValueWithComparator(comparator, lastUpdatedColumn, theLastUpdated),
+					ComboCondition.and(
+						BinaryCondition.equalTo(lastUpdatedColumn, mySqlBuilder.generatePlaceholder(theLastUpdated)),
+						mySqlBuilder.createConditionForValueWithComparator(comparator, resourceIdColumn, theResourcePid)));
+			}
+		} else if (theResourcePid != null) {
+			ParamPrefixEnum comparator = theAscending ? ParamPrefixEnum.GREATERTHAN : ParamPrefixEnum.LESSTHAN;
+			predicate = mySqlBuilder.createConditionForValueWithComparator(comparator, resourceIdColumn, theResourcePid);
+		}
+
+		mySqlBuilder.addSortNumeric(resourceIdColumn, theAscending, myUseAggregate);
+		if (predicate != null) {
+			mySqlBuilder.addPredicate(predicate);
+		}
+	}
+
 	public void addSortOnNumber(String theResourceName, String theParamName, boolean theAscending) {
 		BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
 		NumberPredicateBuilder numberPredicateBuilder = mySqlBuilder.createNumberPredicateBuilder();
@@ -45,6 +45,7 @@ import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.data.IResourceSearchViewDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTagDao;
 import ca.uhn.fhir.jpa.dao.search.ResourceNotFoundInIndexException;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.entity.ResourceSearchView;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
@@ -59,6 +60,7 @@ import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.lastn.IElasticsearchSvc;
+import ca.uhn.fhir.jpa.searchparam.KeysetPosition;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.searchparam.util.Dstu3DistanceHelper;
 import ca.uhn.fhir.jpa.searchparam.util.JpaParamUtil;
@@ -83,6 +85,7 @@ import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
@@ -100,11 +103,13 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
@@ -123,6 +128,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
@@ -185,6 +193,10 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	private IElasticsearchSvc myIElasticsearchSvc;
 	@Autowired
 	private IJpaStorageResourceParser myJpaStorageResourceParser;
+	@Autowired(required = false)
+	private SearchIncludeExecutorSvc myIncludeExecutorSvc;
+	@Autowired(required = false)
+	private IHapiTransactionService myHapiTransactionService;
 
 	/**
 	 * Constructor
@@ -641,7 +653,12 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		 * If we have a sort, we wrap the criteria search (the search that actually
 		 * finds the appropriate resources) in an outer search which is then sorted
 		 */
-		if (sort != null) {
+		KeysetPosition keysetPosition = theParams.getKeysetPosition();
+		if (keysetPosition != null && !theCountOnlyFlag) {
+			boolean sortOnLastUpdated = sort != null;
+			boolean ascending = sort == null || sort.getOrder() == null || sort.getOrder() == SortOrderEnum.ASC;
+			queryStack3.addKeysetPagingSortAndPredicate(sortOnLastUpdated, ascending, keysetPosition.getLastUpdated(), keysetPosition.getResourcePid());
+		} else if (sort != null) {
 			assert !theCountOnlyFlag;
 
 			createSort(queryStack3, sort);
@@ -1025,21 +1042,14 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	 */
 	@Override
 	public Set<JpaPid> loadIncludes(FhirContext theContext, EntityManager theEntityManager, Collection<JpaPid> theMatches, Collection<Include> theIncludes,
-																 boolean theReverseMode, DateRangeParam theLastUpdated, String theSearchIdOrDescription, RequestDetails theRequest, Integer theMaxCount) {
+																 boolean theReverseMode, DateRangeParam theLastUpdated, String theSearchIdOrDescription, RequestDetails theRequest, Integer theMaxCount,
+																 @Nullable SearchRuntimeDetails theSearchRuntimeDetails) {
 		if (theMatches.size() == 0) {
 			return new HashSet<>();
 		}
 		if (theIncludes == null || theIncludes.isEmpty()) {
 			return new HashSet<>();
 		}
-		String searchPidFieldName = theReverseMode ? MY_TARGET_RESOURCE_PID : MY_SOURCE_RESOURCE_PID;
-		String findPidFieldName = theReverseMode ? MY_SOURCE_RESOURCE_PID : MY_TARGET_RESOURCE_PID;
-		String findResourceTypeFieldName = theReverseMode ? MY_SOURCE_RESOURCE_TYPE : MY_TARGET_RESOURCE_TYPE;
-		String findVersionFieldName = null;
-		if (!theReverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()) {
-			findVersionFieldName = MY_TARGET_RESOURCE_VERSION;
-		}
-
 		List<JpaPid> nextRoundMatches = new ArrayList<>(theMatches);
 		HashSet<JpaPid> allAdded = new HashSet<>();
 		HashSet<JpaPid> original = new HashSet<>(theMatches);
@@ -1047,202 +1057,22 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 
 		int roundCounts = 0;
 		StopWatch w = new StopWatch();
+		Map<String, Long> includeMillis = new ConcurrentHashMap<>();
 
 		boolean addedSomeThisRound;
 		do {
 			roundCounts++;
 
-			HashSet<JpaPid> pidsToInclude = new HashSet<>();
-
-			for (Iterator<Include> iter = includes.iterator(); iter.hasNext(); ) {
-				Include nextInclude = iter.next();
-				if (nextInclude.isRecurse() == false) {
-					iter.remove();
-				}
-
-				// Account for _include=*
-				boolean matchAll = "*".equals(nextInclude.getValue());
-
-				// Account for _include=[resourceType]:*
-				String wantResourceType = null;
-				if (!matchAll) {
-					if ("*".equals(nextInclude.getParamName())) {
-						wantResourceType = nextInclude.getParamType();
-						matchAll = true;
-					}
-				}
-
-				if (matchAll) {
-					StringBuilder sqlBuilder = new StringBuilder();
-					sqlBuilder.append("SELECT r.").append(findPidFieldName);
-					sqlBuilder.append(", r.").append(findResourceTypeFieldName);
-					if (findVersionFieldName != null) {
-						sqlBuilder.append(", r." + findVersionFieldName);
-					}
-					sqlBuilder.append(" FROM ResourceLink r WHERE ");
-
-					sqlBuilder.append("r.");
-					sqlBuilder.append(searchPidFieldName);
-					sqlBuilder.append(" IN (:target_pids)");
-
-					// Technically if the request is a qualified star (e.g. _include=Observation:*) we
-					// should always be checking the source resource type on the resource link. We don't
-					// actually index that column though by default, so in order to try and be efficient
-					// we don't actually include it for includes (but we do for revincludes). This is
-					// because for an include it doesn't really make sense to include a different
-					// resource type than the one you are searching on.
-					if (wantResourceType != null && theReverseMode) {
-						sqlBuilder.append(" AND r.mySourceResourceType = :want_resource_type");
-					} else {
-						wantResourceType = null;
-					}
-
-					String sql = sqlBuilder.toString();
-					List<Collection<JpaPid>> partitions = partition(nextRoundMatches, getMaximumPageSize());
-					for (Collection<JpaPid> nextPartition : partitions) {
-						TypedQuery<?> q = theEntityManager.createQuery(sql, Object[].class);
-						q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
-						if (wantResourceType != null) {
-							q.setParameter("want_resource_type", wantResourceType);
-						}
-						if (theMaxCount != null) {
-							q.setMaxResults(theMaxCount);
-						}
-						List<?> results = q.getResultList();
-						for (Object nextRow : results) {
-							if (nextRow == null) {
-								// This can happen if there are outgoing references which are canonical or point to
-								// other servers
-								continue;
-							}
-
-							Long version = null;
-							Long resourceLink = (Long) ((Object[]) nextRow)[0];
-							String resourceType = (String) ((Object[]) nextRow)[1];
-							if (findVersionFieldName != null) {
-								version = (Long) ((Object[]) nextRow)[2];
-							}
-
-							if (resourceLink != null) {
-								JpaPid pid = JpaPid.fromIdAndVersionAndResourceType(resourceLink, version, resourceType);
-								pidsToInclude.add(pid);
-							}
-						}
-					}
-				} else {
-
-					List<String> paths;
-
-					// Start replace
-					RuntimeSearchParam param;
-					String resType = nextInclude.getParamType();
-					if (isBlank(resType)) {
-						continue;
-					}
-					RuntimeResourceDefinition def = theContext.getResourceDefinition(resType);
-					if (def == null) {
-						ourLog.warn("Unknown resource type in include/revinclude=" + nextInclude.getValue());
-						continue;
-					}
+			List<Include> includesThisRound = new ArrayList<>(includes);
+			includes.removeIf(t -> !t.isRecurse());
 
-					String paramName = nextInclude.getParamName();
-					if (isNotBlank(paramName)) {
-						param = mySearchParamRegistry.getActiveSearchParam(resType, paramName);
-					} else {
-						param = null;
-					}
-					if (param == null) {
-						ourLog.warn("Unknown param name in include/revinclude=" + nextInclude.getValue());
-						continue;
-					}
-
-					paths = param.getPathsSplitForResourceType(resType);
-					// end replace
-
-					String targetResourceType = defaultString(nextInclude.getParamTargetType(), null);
-					for (String nextPath : paths) {
-						boolean haveTargetTypesDefinedByParam = param.hasTargets();
-						String findPidFieldSqlColumn = findPidFieldName.equals(MY_SOURCE_RESOURCE_PID) ? "src_resource_id" : "target_resource_id";
-						String fieldsToLoad = "r." + findPidFieldSqlColumn + " AS " + RESOURCE_ID_ALIAS;
-						if (findVersionFieldName != null) {
-							fieldsToLoad += ", r.target_resource_version AS " + RESOURCE_VERSION_ALIAS;
-						}
-
-						// Query for includes lookup has consider 2 cases
-						// Case 1: Where target_resource_id is available in hfj_res_link table for local references
-						// Case 2: Where target_resource_id is null in hfj_res_link table and referred by a canonical url in target_resource_url
-
-						// Case 1:
-						String searchPidFieldSqlColumn = searchPidFieldName.equals(MY_TARGET_RESOURCE_PID) ? "target_resource_id" : "src_resource_id";
-						StringBuilder resourceIdBasedQuery = new StringBuilder("SELECT " + fieldsToLoad +
-							" FROM hfj_res_link r " +
-							" WHERE r.src_path = :src_path AND " +
-							" r.target_resource_id IS NOT NULL AND " +
-							" r." + searchPidFieldSqlColumn + " IN (:target_pids) ");
-						if (targetResourceType != null) {
-							resourceIdBasedQuery.append(" AND r.target_resource_type = :target_resource_type ");
-						} else if (haveTargetTypesDefinedByParam) {
-							resourceIdBasedQuery.append(" AND r.target_resource_type in (:target_resource_types) ");
-						}
-
-						// Case 2:
-						String fieldsToLoadFromSpidxUriTable = "rUri.res_id";
-						// to match the fields loaded in union
-						if (fieldsToLoad.split(",").length > 1) {
-							for (int i = 0; i < fieldsToLoad.split(",").length - 1; i++) {
-								fieldsToLoadFromSpidxUriTable += ", NULL";
-							}
-						}
-						//@formatter:off
-						StringBuilder resourceUrlBasedQuery = new StringBuilder("SELECT " + fieldsToLoadFromSpidxUriTable +
-							" FROM hfj_res_link r " +
-							" JOIN hfj_spidx_uri rUri ON ( " +
-							"   r.target_resource_url = rUri.sp_uri AND " +
-							"   rUri.sp_name = 'url' ");
-
-						if (targetResourceType != null) {
-							resourceUrlBasedQuery.append(" AND rUri.res_type = :target_resource_type ");
-
-						} else if (haveTargetTypesDefinedByParam) {
-							resourceUrlBasedQuery.append(" AND rUri.res_type IN (:target_resource_types) ");
-						}
-
-						resourceUrlBasedQuery.append(" ) ");
-						resourceUrlBasedQuery.append(
-							" WHERE r.src_path = :src_path AND " +
-								" r.target_resource_id IS NULL AND " +
-								" r." + searchPidFieldSqlColumn + " IN (:target_pids) ");
-						//@formatter:on
-
-						String sql = resourceIdBasedQuery + " UNION " + resourceUrlBasedQuery;
-
-						List<Collection<JpaPid>> partitions = partition(nextRoundMatches, getMaximumPageSize());
-						for (Collection<JpaPid> nextPartition : partitions) {
-							Query q = theEntityManager.createNativeQuery(sql, Tuple.class);
-							q.setParameter("src_path", nextPath);
-							q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
-							if (targetResourceType != null) {
-								q.setParameter("target_resource_type", targetResourceType);
-							} else if (haveTargetTypesDefinedByParam) {
-								q.setParameter("target_resource_types", param.getTargets());
-							}
-
-							if (theMaxCount != null) {
-								q.setMaxResults(theMaxCount);
-							}
-							List<Tuple> results = q.getResultList();
-							for (Tuple result : results) {
-								if (result != null) {
-									Long resourceId = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_ID_ALIAS)));
-									Long resourceVersion = null;
-									if (findVersionFieldName != null && result.get(RESOURCE_VERSION_ALIAS) != null) {
-										resourceVersion = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_VERSION_ALIAS)));
-									}
-									pidsToInclude.add(JpaPid.fromIdAndVersion(resourceId, resourceVersion));
-								}
-							}
-						}
-					}
+			HashSet<JpaPid> pidsToInclude;
+			if (myStorageSettings.getSearchIncludeThreadCount() > 1 && includesThisRound.size() > 1 && myIncludeExecutorSvc != null && myHapiTransactionService != null) {
+				pidsToInclude = loadIncludesConcurrently(theContext, nextRoundMatches, includesThisRound, theReverseMode, theRequest, theMaxCount, includeMillis);
+			} else {
+				pidsToInclude = new HashSet<>();
+				for (Include nextInclude : includesThisRound) {
+					pidsToInclude.addAll(loadAndTimeIncludesForSingleInclude(theContext, theEntityManager, nextRoundMatches, nextInclude, theReverseMode, theMaxCount, includeMillis));
 				}
 			}
 
@@ -1270,6 +1100,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		allAdded.removeAll(original);
 
 		ourLog.info("Loaded {} {} in {} rounds and {} ms for search {}", allAdded.size(), theReverseMode ? "_revincludes" : "_includes", roundCounts, w.getMillisAndRestart(), theSearchIdOrDescription);
+		reportIncludeTimings(includeMillis, theSearchIdOrDescription, theRequest, theSearchRuntimeDetails);
 
 		// Interceptor call: STORAGE_PREACCESS_RESOURCES
 		// This can be used to remove results from the search result details before
@@ -1299,6 +1130,289 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return allAdded;
 	}
 
+	/**
+	 * Adds the time spent querying for each include to the search runtime details, and reports it
+	 * through the {@link Pointcut#JPA_PERFTRACE_INFO} pointcut
+	 */
+	private void reportIncludeTimings(Map<String, Long> theIncludeMillis, String theSearchIdOrDescription, RequestDetails theRequest, @Nullable SearchRuntimeDetails theSearchRuntimeDetails) {
+		if (theIncludeMillis.isEmpty()) {
+			return;
+		}
+
+		if (theSearchRuntimeDetails != null) {
+			theIncludeMillis.forEach(theSearchRuntimeDetails::addIncludeQueryMillis);
+		}
+
+		if (ourLog.isDebugEnabled() || CompositeInterceptorBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_INFO, myInterceptorBroadcaster, theRequest)) {
+			String timings = theIncludeMillis
+				.entrySet()
+				.stream()
+				.sorted(Map.Entry.comparingByKey())
+				.map(t -> t.getKey() + " in " + t.getValue() + "ms")
+				.collect(Collectors.joining(", "));
+			String message = "Loaded " + timings + " for search " + theSearchIdOrDescription;
+			ourLog.debug(message);
+
+			// Interceptor broadcast: JPA_PERFTRACE_INFO
+			StorageProcessingMessage msg = new StorageProcessingMessage()
+				.setMessage(message);
+			HookParams params = new HookParams()
+				.add(RequestDetails.class, theRequest)
+				.addIfMatchesType(ServletRequestDetails.class, theRequest)
+				.add(StorageProcessingMessage.class, msg);
+			CompositeInterceptorBroadcaster.doCallHooks(myInterceptorBroadcaster, theRequest, Pointcut.JPA_PERFTRACE_INFO, params);
+		}
+	}
+
+	/**
+	 * Issues the queries for each of the given includes concurrently, each in its own
+	 * read-only transaction (and therefore on its own database connection).
+	 */
+	private HashSet<JpaPid> loadIncludesConcurrently(FhirContext theContext, Collection<JpaPid> theMatches, List<Include> theIncludes, boolean theReverseMode, RequestDetails theRequest, Integer theMaxCount, Map<String, Long> theIncludeMillis) {
+		List<JpaPid> matches = new ArrayList<>(theMatches);
+		AsyncTaskExecutor executor = myIncludeExecutorSvc.getExecutor();
+
+		List<Future<Set<JpaPid>>> futures = new ArrayList<>(theIncludes.size());
+		for (Include nextInclude : theIncludes) {
+			futures.add(executor.submit(() -> myHapiTransactionService
+				.withRequest(theRequest)
+				.withRequestPartitionId(myRequestPartitionId)
+				.readOnly()
+				.execute(() -> loadAndTimeIncludesForSingleInclude(theContext, myEntityManager, matches, nextInclude, theReverseMode, theMaxCount, theIncludeMillis))));
+		}
+
+		HashSet<JpaPid> retVal = new HashSet<>();
+		try {
+			for (Future<Set<JpaPid>> nextFuture : futures) {
+				retVal.addAll(nextFuture.get());
+			}
+		} catch (InterruptedException e) {
+			futures.forEach(t -> t.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(Msg.code(2278) + "Interrupted while loading includes", e);
+		} catch (ExecutionException e) {
+			futures.forEach(t -> t.cancel(true));
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException(Msg.code(2279) + "Failed to load includes: " + e.getCause(), e.getCause());
+		}
+		return retVal;
+	}
+
+	private Set<JpaPid> loadAndTimeIncludesForSingleInclude(FhirContext theContext, EntityManager theEntityManager, Collection<JpaPid> theMatches, Include theInclude, boolean theReverseMode, Integer theMaxCount, Map<String, Long> theIncludeMillis) {
+		StopWatch sw = new StopWatch();
+		Set<JpaPid> retVal = loadIncludesForSingleInclude(theContext, theEntityManager, theMatches, theInclude, theReverseMode, theMaxCount);
+
+		String include = (theReverseMode ? Constants.PARAM_REVINCLUDE : Constants.PARAM_INCLUDE) + "=" + theInclude.getValue();
+		long millis = sw.getMillis();
+		ourLog.debug("Loaded {} PIDs for {} in {}ms", retVal.size(), include, millis);
+		theIncludeMillis.merge(include, millis, Long::sum);
+		return retVal;
+	}
+
+	/**
+	 * Loads the PIDs matched by a single include or revinclude for the given set of matches.
+	 */
+	private Set<JpaPid> loadIncludesForSingleInclude(FhirContext theContext, EntityManager theEntityManager, Collection<JpaPid> theMatches, Include theInclude, boolean theReverseMode, Integer theMaxCount) {
+		String searchPidFieldName = theReverseMode ? MY_TARGET_RESOURCE_PID : MY_SOURCE_RESOURCE_PID;
+		String findPidFieldName = theReverseMode ? MY_SOURCE_RESOURCE_PID : MY_TARGET_RESOURCE_PID;
+		String findResourceTypeFieldName = theReverseMode ? MY_SOURCE_RESOURCE_TYPE : MY_TARGET_RESOURCE_TYPE;
+		String findVersionFieldName = null;
+		if (!theReverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()) {
+			findVersionFieldName = MY_TARGET_RESOURCE_VERSION;
+		}
+
+		HashSet<JpaPid> pidsToInclude = new HashSet<>();
+
+		// Account for _include=*
+		boolean matchAll = "*".equals(theInclude.getValue());
+
+		// Account for _include=[resourceType]:*
+		String wantResourceType = null;
+		if (!matchAll) {
+			if ("*".equals(theInclude.getParamName())) {
+				wantResourceType = theInclude.getParamType();
+				matchAll = true;
+			}
+		}
+
+		if (matchAll) {
+			StringBuilder sqlBuilder = new StringBuilder();
+			sqlBuilder.append("SELECT r.").append(findPidFieldName);
+			sqlBuilder.append(", r.").append(findResourceTypeFieldName);
+			if (findVersionFieldName != null) {
+				sqlBuilder.append(", r." + findVersionFieldName);
+			}
+			sqlBuilder.append(" FROM ResourceLink r WHERE ");
+
+			sqlBuilder.append("r.");
+			sqlBuilder.append(searchPidFieldName);
+			sqlBuilder.append(" IN (:target_pids)");
+
+			// Technically if the request is a qualified star (e.g. _include=Observation:*) we
+			// should always be checking the source resource type on the resource link. We don't
+			// actually index that column though by default, so in order to try and be efficient
+			// we don't actually include it for includes (but we do for revincludes). This is
+			// because for an include it doesn't really make sense to include a different
+			// resource type than the one you are searching on.
+			if (wantResourceType != null && theReverseMode) {
+				sqlBuilder.append(" AND r.mySourceResourceType = :want_resource_type");
+			} else {
+				wantResourceType = null;
+			}
+
+			String sql = sqlBuilder.toString();
+			List<Collection<JpaPid>> partitions = partition(theMatches, getMaximumPageSize());
+			for (Collection<JpaPid> nextPartition : partitions) {
+				TypedQuery<?> q = theEntityManager.createQuery(sql, Object[].class);
+				q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
+				if (wantResourceType != null) {
+					q.setParameter("want_resource_type", wantResourceType);
+				}
+				if (theMaxCount != null) {
+					q.setMaxResults(theMaxCount);
+				}
+				List<?> results = q.getResultList();
+				for (Object nextRow : results) {
+					if (nextRow == null) {
+						// This can happen if there are outgoing references which are canonical or point to
+						// other servers
+						continue;
+					}
+
+					Long version = null;
+					Long resourceLink = (Long) ((Object[]) nextRow)[0];
+					String resourceType = (String) ((Object[]) nextRow)[1];
+					if (findVersionFieldName != null) {
+						version = (Long) ((Object[]) nextRow)[2];
+					}
+
+					if (resourceLink != null) {
+						JpaPid pid = JpaPid.fromIdAndVersionAndResourceType(resourceLink, version, resourceType);
+						pidsToInclude.add(pid);
+					}
+				}
+			}
+		} else {
+
+			List<String> paths;
+
+			// Start replace
+			RuntimeSearchParam param;
+			String resType = theInclude.getParamType();
+			if (isBlank(resType)) {
+				return pidsToInclude;
+			}
+			RuntimeResourceDefinition def = theContext.getResourceDefinition(resType);
+			if (def == null) {
+				ourLog.warn("Unknown resource type in include/revinclude=" + theInclude.getValue());
+				return pidsToInclude;
+			}
+
+			String paramName = theInclude.getParamName();
+			if (isNotBlank(paramName)) {
+				param = mySearchParamRegistry.getActiveSearchParam(resType, paramName);
+			} else {
+				param = null;
+			}
+			if (param == null) {
+				ourLog.warn("Unknown param name in include/revinclude=" + theInclude.getValue());
+				return pidsToInclude;
+			}
+
+			paths = param.getPathsSplitForResourceType(resType);
+			// end replace
+
+			String targetResourceType = defaultString(theInclude.getParamTargetType(), null);
+			for (String nextPath : paths) {
+				boolean haveTargetTypesDefinedByParam = param.hasTargets();
+				String findPidFieldSqlColumn = findPidFieldName.equals(MY_SOURCE_RESOURCE_PID) ? "src_resource_id" : "target_resource_id";
+				String fieldsToLoad = "r." + findPidFieldSqlColumn + " AS " + RESOURCE_ID_ALIAS;
+				if (findVersionFieldName != null) {
+					fieldsToLoad += ", r.target_resource_version AS " + RESOURCE_VERSION_ALIAS;
+				}
+
+				// Query for includes lookup has consider 2 cases
+				// Case 1: Where target_resource_id is available in hfj_res_link table for local references
+				// Case 2: Where target_resource_id is null in hfj_res_link table and referred by a canonical url in target_resource_url
+
+				// Case 1:
+				String searchPidFieldSqlColumn = searchPidFieldName.equals(MY_TARGET_RESOURCE_PID) ? "target_resource_id" : "src_resource_id";
+				StringBuilder resourceIdBasedQuery = new StringBuilder("SELECT " + fieldsToLoad +
+					" FROM hfj_res_link r " +
+					" WHERE r.src_path = :src_path AND " +
+					" r.target_resource_id IS NOT NULL AND " +
+					" r." + searchPidFieldSqlColumn + " IN (:target_pids) ");
+				if (targetResourceType != null) {
+					resourceIdBasedQuery.append(" AND r.target_resource_type = :target_resource_type ");
+				} else if (haveTargetTypesDefinedByParam) {
+					resourceIdBasedQuery.append(" AND r.target_resource_type in (:target_resource_types) ");
+				}
+
+				// Case 2:
+				String fieldsToLoadFromSpidxUriTable = "rUri.res_id";
+				// to match the fields loaded in union
+				if (fieldsToLoad.split(",").length > 1) {
+					for (int i = 0; i < fieldsToLoad.split(",").length - 1; i++) {
+						fieldsToLoadFromSpidxUriTable += ", NULL";
+					}
+				}
+				//@formatter:off
+				StringBuilder resourceUrlBasedQuery = new StringBuilder("SELECT " + fieldsToLoadFromSpidxUriTable +
+					" FROM hfj_res_link r " +
+					" JOIN hfj_spidx_uri rUri ON ( " +
+					"   r.target_resource_url = rUri.sp_uri AND " +
+					"   rUri.sp_name = 'url' ");
+
+				if (targetResourceType != null) {
+					resourceUrlBasedQuery.append(" AND rUri.res_type = :target_resource_type ");
+
+				} else if (haveTargetTypesDefinedByParam) {
+					resourceUrlBasedQuery.append(" AND rUri.res_type IN (:target_resource_types) ");
+				}
+
+				resourceUrlBasedQuery.append(" ) ");
+				resourceUrlBasedQuery.append(
+					" WHERE r.src_path = :src_path AND " +
+						" r.target_resource_id IS NULL AND " +
+						" r." + searchPidFieldSqlColumn + " IN (:target_pids) ");
+				//@formatter:on
+
+				String sql = resourceIdBasedQuery + " UNION " + resourceUrlBasedQuery;
+
+				List<Collection<JpaPid>> partitions = partition(theMatches, getMaximumPageSize());
+				for (Collection<JpaPid> nextPartition : partitions) {
+					Query q = theEntityManager.createNativeQuery(sql, Tuple.class);
+					q.setParameter("src_path", nextPath);
+					q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
+					if (targetResourceType != null) {
+						q.setParameter("target_resource_type", targetResourceType);
+					} else if (haveTargetTypesDefinedByParam) {
+						q.setParameter("target_resource_types", param.getTargets());
+					}
+
+					if (theMaxCount != null) {
+						q.setMaxResults(theMaxCount);
+					}
+					List<Tuple> results = q.getResultList();
+					for (Tuple result : results) {
+						if (result != null) {
+							Long resourceId = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_ID_ALIAS)));
+							Long resourceVersion = null;
+							if (findVersionFieldName != null && result.get(RESOURCE_VERSION_ALIAS) != null) {
+								resourceVersion = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_VERSION_ALIAS)));
+							}
+							pidsToInclude.add(JpaPid.fromIdAndVersion(resourceId, resourceVersion));
+						}
+					}
+				}
+			}
+		}
+
+		return pidsToInclude;
+	}
+
 	private List<Collection<JpaPid>> partition(Collection<JpaPid> theNextRoundMatches, int theMaxLoad) {
 		if (theNextRoundMatches.size() <= theMaxLoad) {
 			return Collections.singletonList(theNextRoundMatches);
@@ -1470,14 +1584,16 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	public class IncludesIterator extends BaseIterator<JpaPid> implements Iterator<JpaPid> {
 
 		private final RequestDetails myRequest;
+		private final SearchRuntimeDetails mySearchRuntimeDetails;
 		private final Set<JpaPid> myCurrentPids;
 		private Iterator<JpaPid> myCurrentIterator;
 		private JpaPid myNext;
 
-		IncludesIterator(Set<JpaPid> thePidSet, RequestDetails theRequest) {
+		IncludesIterator(Set<JpaPid> thePidSet, RequestDetails theRequest, SearchRuntimeDetails theSearchRuntimeDetails) {
 			myCurrentPids = new HashSet<>(thePidSet);
 			myCurrentIterator = null;
 			myRequest = theRequest;
+			mySearchRuntimeDetails = theSearchRuntimeDetails;
 		}
 
 		private void fetchNext() {
@@ -1485,7 +1601,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 
 				if (myCurrentIterator == null) {
 					Set<Include> includes = Collections.singleton(new Include("*", true));
-					Set<JpaPid> newPids = loadIncludes(myContext, myEntityManager, myCurrentPids, includes, false, getParams().getLastUpdated(), mySearchUuid, myRequest, null);
+					Set<JpaPid> newPids = loadIncludes(myContext, myEntityManager, myCurrentPids, includes, false, getParams().getLastUpdated(), mySearchUuid, myRequest, null, mySearchRuntimeDetails);
 					myCurrentIterator = newPids.iterator();
 				}
 
@@ -1635,7 +1751,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 
 					if (myNext == null) {
 						if (myFetchIncludesForEverythingOperation) {
-							myIncludesIterator = new IncludesIterator(myPidSet, myRequest);
+							myIncludesIterator = new IncludesIterator(myPidSet, myRequest, mySearchRuntimeDetails);
 							myFetchIncludesForEverythingOperation = false;
 						}
 						if (myIncludesIterator != null) {
@@ -0,0 +1,69 @@
+package ca.uhn.fhir.jpa.search.builder;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Supplies the bounded thread pool used by {@link SearchBuilder} to issue independent
+ * <code>_include</code> and <code>_revinclude</code> queries concurrently when
+ * {@link JpaStorageSettings#setSearchIncludeThreadCount(int)} is greater than <code>1</code>.
+ * The pool is created on first use and is resized if the setting changes.
+ */
+public class SearchIncludeExecutorSvc {
+
+	private final JpaStorageSettings myStorageSettings;
+	private ThreadPoolTaskExecutor myExecutor;
+
+	/**
+	 * Constructor
+	 */
+	public SearchIncludeExecutorSvc(JpaStorageSettings theStorageSettings) {
+		myStorageSettings = theStorageSettings;
+	}
+
+	public synchronized AsyncTaskExecutor getExecutor() {
+		int threadCount = myStorageSettings.getSearchIncludeThreadCount();
+		if (myExecutor == null) {
+			myExecutor = ThreadPoolUtil.newThreadPool(threadCount, threadCount, "search-include-");
+		} else if (myExecutor.getMaxPoolSize() < threadCount) {
+			myExecutor.setMaxPoolSize(threadCount);
+			myExecutor.setCorePoolSize(threadCount);
+		} else if (myExecutor.getMaxPoolSize() > threadCount) {
+			myExecutor.setCorePoolSize(threadCount);
+			myExecutor.setMaxPoolSize(threadCount);
+		}
+		return myExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (myExecutor != null) {
+			myExecutor.shutdown();
+			myExecutor = null;
+		}
+	}
+}
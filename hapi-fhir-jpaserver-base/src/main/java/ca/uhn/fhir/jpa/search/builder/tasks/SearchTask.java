@@ -28,10 +28,12 @@ import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.IDao;
+import ca.uhn.fhir.jpa.config.util.ReadReplicaRoutingDataSource;
 import ca.uhn.fhir.jpa.dao.IResultIterator;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.entity.Search;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
@@ -273,10 +275,22 @@ public class SearchTask implements Callable<Void> {
 			.execute(() -> doSaveSearch());
 	}
 
-	private void saveUnsynced(final IResultIterator theResultIter) {
-		myTxService
+	/**
+	 * Starts a write to the search cache while the search query is running. If the
+	 * query runs in a read-only transaction, the write needs its own transaction.
+	 */
+	private IHapiTransactionService.IExecutionBuilder withSearchCacheWriteDuringQuery() {
+		IHapiTransactionService.IExecutionBuilder retVal = myTxService
 			.withRequest(myRequest)
-			.withRequestPartitionId(myRequestPartitionId)
+			.withRequestPartitionId(myRequestPartitionId);
+		if (myStorageSettings.isAsyncSearchReadOnlyQueryEnabled()) {
+			retVal.withPropagation(Propagation.REQUIRES_NEW);
+		}
+		return retVal;
+	}
+
+	private void saveUnsynced(final IResultIterator theResultIter) {
+		withSearchCacheWriteDuringQuery()
 			.execute(() -> {
 				if (mySearch.getId() == null) {
 					doSaveSearch();
@@ -393,11 +407,18 @@ public class SearchTask implements Callable<Void> {
 			// Create an initial search in the DB and give it an ID
 			saveSearch();
 
-			myTxService
+			IHapiTransactionService.IExecutionBuilder searchExecution = myTxService
 				.withRequest(myRequest)
 				.withRequestPartitionId(myRequestPartitionId)
-				.withIsolation(Isolation.READ_COMMITTED)
-				.execute(() -> doSearch());
+				.withIsolation(Isolation.READ_COMMITTED);
+			if (myStorageSettings.isAsyncSearchReadOnlyQueryEnabled()) {
+				if (ReadReplicaRoutingDataSource.isReadReplicaAllowed(myRequest)) {
+					searchExecution.allowReadReplica();
+				} else {
+					searchExecution.readOnly();
+				}
+			}
+			searchExecution.execute(() -> doSearch());
 
 			mySearchRuntimeDetails.setSearchStatus(mySearch.getStatus());
 			if (mySearch.getStatus() == SearchStatusEnum.FINISHED) {
@@ -516,9 +537,7 @@ public class SearchTask implements Callable<Void> {
 
 			ourLog.trace("Got count {}", count);
 
-			myTxService
-				.withRequest(myRequest)
-				.withRequestPartitionId(myRequestPartitionId)
+			withSearchCacheWriteDuringQuery()
 				.execute(() -> {
 					mySearch.setTotalCount(count.intValue());
 					if (myParamWantOnlyCount) {
@@ -39,6 +39,7 @@ import ca.uhn.fhir.jpa.entity.TermConceptMapGroupElementTarget;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.term.api.ITermConceptMappingSvc;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.ScrollableResultsIterator;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
@@ -315,7 +316,7 @@ public class TermConceptMappingSvcImpl implements ITermConceptMappingSvc {
 			latestConceptMapVersion = getLatestConceptMapVersion(theTranslationRequest);
 
 		for (TranslationQuery translationQuery : translationQueries) {
-			cachedTargets = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.CONCEPT_TRANSLATION, translationQuery);
+			cachedTargets = myMemoryCacheService.getIfPresent(MemoryCacheEnum.CONCEPT_TRANSLATION, translationQuery);
 			if (cachedTargets == null) {
 				final List<TranslateConceptResult> targets = new ArrayList<>();
 
@@ -404,7 +405,7 @@ public class TermConceptMappingSvcImpl implements ITermConceptMappingSvc {
 				}
 
 				ourLastResultsFromTranslationCache = false; // For testing.
-				myMemoryCacheService.put(MemoryCacheService.CacheEnum.CONCEPT_TRANSLATION, translationQuery, targets);
+				myMemoryCacheService.put(MemoryCacheEnum.CONCEPT_TRANSLATION, translationQuery, targets);
 				retVal.getResults().addAll(targets);
 			} else {
 				ourLastResultsFromTranslationCache = true; // For testing.
@@ -440,7 +441,7 @@ public class TermConceptMappingSvcImpl implements ITermConceptMappingSvc {
 			latestConceptMapVersion = getLatestConceptMapVersion(theTranslationRequest);
 
 		for (TranslationQuery translationQuery : translationQueries) {
-			cachedElements = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.CONCEPT_TRANSLATION_REVERSE, translationQuery);
+			cachedElements = myMemoryCacheService.getIfPresent(MemoryCacheEnum.CONCEPT_TRANSLATION_REVERSE, translationQuery);
 			if (cachedElements == null) {
 				final List<TranslateConceptResult> elements = new ArrayList<>();
 
@@ -554,7 +555,7 @@ public class TermConceptMappingSvcImpl implements ITermConceptMappingSvc {
 				}
 
 				ourLastResultsFromTranslationWithReverseCache = false; // For testing.
-				myMemoryCacheService.put(MemoryCacheService.CacheEnum.CONCEPT_TRANSLATION_REVERSE, translationQuery, elements);
+				myMemoryCacheService.put(MemoryCacheEnum.CONCEPT_TRANSLATION_REVERSE, translationQuery, elements);
 				retVal.getResults().addAll(elements);
 			} else {
 				ourLastResultsFromTranslationWithReverseCache = true; // For testing.
@@ -0,0 +1,94 @@
+package ca.uhn.fhir.jpa.term;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+import ca.uhn.fhir.jpa.term.api.ITermLoaderStagingSvc;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers rows for a streaming terminology load and hands them to the
+ * {@link ITermLoaderStagingSvc} in fixed size batches, so that no more than
+ * one batch of rows is ever held in memory.
+ */
+public class TermLoadStagingWriter {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	private final ITermLoaderStagingSvc myStagingSvc;
+	private final String myLoadId;
+	private final int myBatchSize;
+	private List<TermLoadStagingRow> myBuffer;
+	private long myRowCount;
+
+	public TermLoadStagingWriter(ITermLoaderStagingSvc theStagingSvc, String theLoadId) {
+		this(theStagingSvc, theLoadId, DEFAULT_BATCH_SIZE);
+	}
+
+	public TermLoadStagingWriter(ITermLoaderStagingSvc theStagingSvc, String theLoadId, int theBatchSize) {
+		Validate.isTrue(theBatchSize > 0, "theBatchSize must be positive");
+		myStagingSvc = theStagingSvc;
+		myLoadId = theLoadId;
+		myBatchSize = theBatchSize;
+		myBuffer = new ArrayList<>(theBatchSize);
+	}
+
+	public void addRow(TermLoadStagingRow.RowTypeEnum theRowType, String theCode, String theTargetCode, String theDisplay, boolean theActive, String theEffectiveTime) {
+		TermLoadStagingRow row = new TermLoadStagingRow();
+		row.setRowType(theRowType);
+		row.setCode(theCode);
+		row.setTargetCode(theTargetCode);
+		row.setDisplay(theDisplay);
+		row.setActive(theActive);
+		row.setEffectiveTime(theEffectiveTime);
+		myBuffer.add(row);
+		myRowCount++;
+
+		if (myBuffer.size() >= myBatchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes any buffered rows to the staging table
+	 */
+	public void flush() {
+		if (!myBuffer.isEmpty()) {
+			myStagingSvc.stageRows(myLoadId, myBuffer);
+			myBuffer = new ArrayList<>(myBatchSize);
+		}
+	}
+
+	public String getLoadId() {
+		return myLoadId;
+	}
+
+	/**
+	 * Returns the total number of rows added to this writer
+	 */
+	public long getRowCount() {
+		return myRowCount;
+	}
+
+}
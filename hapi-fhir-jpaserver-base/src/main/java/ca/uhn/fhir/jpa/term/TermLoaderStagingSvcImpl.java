@@ -0,0 +1,427 @@
+package ca.uhn.fhir.jpa.term;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
+import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
+import ca.uhn.fhir.jpa.entity.TermCodeSystem;
+import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
+import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+import ca.uhn.fhir.jpa.term.api.ITermLoaderStagingSvc;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.StopWatch;
+import com.google.common.annotations.VisibleForTesting;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.left;
+
+public class TermLoaderStagingSvcImpl implements ITermLoaderStagingSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(TermLoaderStagingSvcImpl.class);
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private static final String INSERT_STAGED_ROW =
+		"INSERT INTO TRM_LOAD_STAGE (PID, LOAD_ID, ROW_TYPE, CODEVAL, TARGET_CODEVAL, DISPLAY, IS_ACTIVE, EFFECTIVE_TIME) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * Selects the last staged description of every concept whose most recent concept row is active.
+	 * Concept rows with the same effective time are resolved in favour of the first one staged.
+	 */
+	private static final String SELECT_CONCEPTS_TO_CREATE =
+		"SELECT d.PID, d.CODEVAL, d.DISPLAY FROM TRM_LOAD_STAGE d " +
+			"WHERE d.LOAD_ID = ? AND d.ROW_TYPE = ? AND d.PID > ? " +
+			"AND NOT EXISTS (SELECT d2.PID FROM TRM_LOAD_STAGE d2 " +
+			"  WHERE d2.LOAD_ID = d.LOAD_ID AND d2.ROW_TYPE = d.ROW_TYPE AND d2.CODEVAL = d.CODEVAL AND d2.PID > d.PID) " +
+			"AND EXISTS (SELECT c.PID FROM TRM_LOAD_STAGE c " +
+			"  WHERE c.LOAD_ID = d.LOAD_ID AND c.ROW_TYPE = ? AND c.CODEVAL = d.CODEVAL AND c.IS_ACTIVE = ? " +
+			"  AND NOT EXISTS (SELECT c2.PID FROM TRM_LOAD_STAGE c2 " +
+			"    WHERE c2.LOAD_ID = c.LOAD_ID AND c2.ROW_TYPE = c.ROW_TYPE AND c2.CODEVAL = c.CODEVAL " +
+			"    AND (c2.EFFECTIVE_TIME > c.EFFECTIVE_TIME OR (c2.EFFECTIVE_TIME = c.EFFECTIVE_TIME AND c2.PID < c.PID)))) " +
+			"ORDER BY d.PID";
+
+	private static final String INSERT_CONCEPT =
+		"INSERT INTO TRM_CONCEPT (PID, CODESYSTEM_PID, CODEVAL, DISPLAY, CONCEPT_UPDATED) VALUES (?, ?, ?, ?, ?)";
+
+	/**
+	 * Selects every relationship whose most recent staged row is active, along with the
+	 * PIDs of the child and parent concepts.
+	 */
+	private static final String SELECT_LINKS_TO_CREATE =
+		"SELECT r.PID, child.PID, parent.PID FROM TRM_LOAD_STAGE r " +
+			"INNER JOIN TRM_CONCEPT child ON child.CODESYSTEM_PID = ? AND child.CODEVAL = r.CODEVAL " +
+			"INNER JOIN TRM_CONCEPT parent ON parent.CODESYSTEM_PID = ? AND parent.CODEVAL = r.TARGET_CODEVAL " +
+			"WHERE r.LOAD_ID = ? AND r.ROW_TYPE = ? AND r.IS_ACTIVE = ? AND r.PID > ? " +
+			"AND NOT EXISTS (SELECT r2.PID FROM TRM_LOAD_STAGE r2 " +
+			"  WHERE r2.LOAD_ID = r.LOAD_ID AND r2.ROW_TYPE = r.ROW_TYPE AND r2.CODEVAL = r.CODEVAL " +
+			"  AND r2.TARGET_CODEVAL = r.TARGET_CODEVAL AND r2.PID > r.PID) " +
+			"ORDER BY r.PID";
+
+	private static final String INSERT_LINK =
+		"INSERT INTO TRM_CONCEPT_PC_LINK (PID, CHILD_PID, PARENT_PID, CODESYSTEM_PID, REL_TYPE) VALUES (?, ?, ?, ?, ?)";
+
+	private static final String SELECT_ALL_LINKS =
+		"SELECT PID, CHILD_PID, PARENT_PID FROM TRM_CONCEPT_PC_LINK WHERE CODESYSTEM_PID = ?";
+
+	private static final String DELETE_LINK =
+		"DELETE FROM TRM_CONCEPT_PC_LINK WHERE PID = ?";
+
+	private static final String DELETE_STAGED_ROWS =
+		"DELETE FROM TRM_LOAD_STAGE WHERE LOAD_ID = ?";
+
+	@Autowired
+	private PlatformTransactionManager myTransactionManager;
+	@Autowired
+	private HibernatePropertiesProvider myHibernatePropertiesProvider;
+	@Autowired
+	private ITermCodeSystemDao myCodeSystemDao;
+	@Autowired
+	private ITermCodeSystemVersionDao myCodeSystemVersionDao;
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	private int myPageSize = DEFAULT_PAGE_SIZE;
+
+	@Override
+	public void stageRows(String theLoadId, List<TermLoadStagingRow> theRows) {
+		if (theRows.isEmpty()) {
+			return;
+		}
+
+		newTxTemplate().executeWithoutResult(tx -> {
+			IdentifierGenerator generator = getIdentifierGenerator(TermLoadStagingRow.class);
+			List<Object[]> batch = new ArrayList<>(theRows.size());
+			for (TermLoadStagingRow next : theRows) {
+				batch.add(new Object[]{
+					nextId(generator),
+					theLoadId,
+					next.getRowType().name(),
+					next.getCode(),
+					next.getTargetCode(),
+					left(next.getDisplay(), TermConcept.MAX_DESC_LENGTH),
+					next.isActive(),
+					left(next.getEffectiveTime(), TermLoadStagingRow.EFFECTIVE_TIME_LENGTH)
+				});
+			}
+			int[] types = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR};
+			newJdbcTemplate().batchUpdate(INSERT_STAGED_ROW, batch, types);
+		});
+	}
+
+	@Override
+	public int storeStagedConcepts(String theLoadId, String theCodeSystemUri, @Nullable String theCodeSystemVersionId) {
+		Long codeSystemVersionPid = newTxTemplate().execute(tx -> {
+			TermCodeSystem codeSystem = myCodeSystemDao.findByCodeSystemUri(theCodeSystemUri);
+			if (codeSystem == null) {
+				throw new InternalErrorException(Msg.code(2305) + "Unable to find code system: " + theCodeSystemUri);
+			}
+			TermCodeSystemVersion codeSystemVersion;
+			if (theCodeSystemVersionId == null) {
+				codeSystemVersion = myCodeSystemVersionDao.findByCodeSystemPidVersionIsNull(codeSystem.getPid());
+			} else {
+				codeSystemVersion = myCodeSystemVersionDao.findByCodeSystemPidAndVersion(codeSystem.getPid(), theCodeSystemVersionId);
+			}
+			if (codeSystemVersion == null) {
+				throw new InternalErrorException(Msg.code(2306) + "Unable to find version " + theCodeSystemVersionId + " of code system: " + theCodeSystemUri);
+			}
+			return codeSystemVersion.getPid();
+		});
+
+		StopWatch sw = new StopWatch();
+		int conceptCount = storeConcepts(theLoadId, codeSystemVersionPid);
+		ourLog.info("Created {} concepts from staged load {} in {}", conceptCount, theLoadId, sw);
+
+		sw.restart();
+		int linkCount = storeLinks(theLoadId, codeSystemVersionPid);
+		ourLog.info("Created {} parent/child links from staged load {} in {}", linkCount, theLoadId, sw);
+
+		sw.restart();
+		int droppedCount = dropCircularLinks(codeSystemVersionPid);
+		ourLog.info("Removed {} circular parent/child links from staged load {} in {}", droppedCount, theLoadId, sw);
+
+		return conceptCount;
+	}
+
+	private int storeConcepts(String theLoadId, Long theCodeSystemVersionPid) {
+		int count = 0;
+		long lastRowPid = -1;
+		while (true) {
+			long afterRowPid = lastRowPid;
+			Object[] result = newTxTemplate().execute(tx -> {
+				JdbcTemplate jdbcTemplate = newJdbcTemplate();
+				jdbcTemplate.setMaxRows(myPageSize);
+				List<Object[]> rows = jdbcTemplate.query(
+					SELECT_CONCEPTS_TO_CREATE,
+					(rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)},
+					theLoadId, TermLoadStagingRow.RowTypeEnum.DESCRIPTION.name(), afterRowPid, TermLoadStagingRow.RowTypeEnum.CONCEPT.name(), true);
+				if (rows.isEmpty()) {
+					return null;
+				}
+
+				IdentifierGenerator generator = getIdentifierGenerator(TermConcept.class);
+				Timestamp updated = new Timestamp(System.currentTimeMillis());
+				List<Object[]> batch = new ArrayList<>(rows.size());
+				for (Object[] next : rows) {
+					batch.add(new Object[]{nextId(generator), theCodeSystemVersionPid, next[1], next[2], updated});
+				}
+				int[] types = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP};
+				newJdbcTemplate().batchUpdate(INSERT_CONCEPT, batch, types);
+
+				return new Object[]{rows.get(rows.size() - 1)[0], rows.size()};
+			});
+
+			if (result == null) {
+				return count;
+			}
+			count += (Integer) result[1];
+			lastRowPid = (Long) result[0];
+		}
+	}
+
+	private int storeLinks(String theLoadId, Long theCodeSystemVersionPid) {
+		int count = 0;
+		long lastRowPid = -1;
+		while (true) {
+			long afterRowPid = lastRowPid;
+			Object[] result = newTxTemplate().execute(tx -> {
+				JdbcTemplate jdbcTemplate = newJdbcTemplate();
+				jdbcTemplate.setMaxRows(myPageSize);
+				List<long[]> rows = jdbcTemplate.query(
+					SELECT_LINKS_TO_CREATE,
+					(rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)},
+					theCodeSystemVersionPid, theCodeSystemVersionPid, theLoadId, TermLoadStagingRow.RowTypeEnum.ISA_RELATIONSHIP.name(), true, afterRowPid);
+				if (rows.isEmpty()) {
+					return null;
+				}
+
+				IdentifierGenerator generator = getIdentifierGenerator(TermConceptParentChildLink.class);
+				int relType = TermConceptParentChildLink.RelationshipTypeEnum.ISA.ordinal();
+				List<Object[]> batch = new ArrayList<>(rows.size());
+				for (long[] next : rows) {
+					batch.add(new Object[]{nextId(generator), next[1], next[2], theCodeSystemVersionPid, relType});
+				}
+				int[] types = {Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.INTEGER};
+				newJdbcTemplate().batchUpdate(INSERT_LINK, batch, types);
+
+				return new Object[]{rows.get(rows.size() - 1)[0], rows.size()};
+			});
+
+			if (result == null) {
+				return count;
+			}
+			count += (Integer) result[1];
+			lastRowPid = (Long) result[0];
+		}
+	}
+
+	/**
+	 * Removes any links which would make the hierarchy circular, using a depth-first walk from the root
+	 * concepts just like the in-memory loader does. Only the link and concept PIDs are held in memory,
+	 * in primitive arrays, while the walk is performed.
+	 */
+	private int dropCircularLinks(Long theCodeSystemVersionPid) {
+		LinkArrays links = new LinkArrays();
+		newTxTemplate().executeWithoutResult(tx -> {
+			JdbcTemplate jdbcTemplate = newJdbcTemplate();
+			jdbcTemplate.setFetchSize(myPageSize);
+			jdbcTemplate.query(SELECT_ALL_LINKS, rs -> {
+				links.add(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+			}, theCodeSystemVersionPid);
+		});
+
+		List<Object[]> circularLinks = links.findCircularLinks();
+		if (!circularLinks.isEmpty()) {
+			List<Object[]> batch = new ArrayList<>(circularLinks.size());
+			for (Object[] next : circularLinks) {
+				ourLog.info("Removing circular reference from concept PID {} to parent concept PID {}", next[1], next[2]);
+				batch.add(new Object[]{next[0]});
+			}
+			newTxTemplate().executeWithoutResult(tx -> newJdbcTemplate().batchUpdate(DELETE_LINK, batch, new int[]{Types.BIGINT}));
+		}
+		return circularLinks.size();
+	}
+
+	@Override
+	public void deleteStagedRows(String theLoadId) {
+		Integer deleted = newTxTemplate().execute(tx -> newJdbcTemplate().update(DELETE_STAGED_ROWS, theLoadId));
+		ourLog.info("Deleted {} staged rows for load {}", deleted, theLoadId);
+	}
+
+	@VisibleForTesting
+	public void setPageSizeForUnitTest(int thePageSize) {
+		myPageSize = thePageSize;
+	}
+
+	private TransactionTemplate newTxTemplate() {
+		TransactionTemplate retVal = new TransactionTemplate(myTransactionManager);
+		retVal.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return retVal;
+	}
+
+	private JdbcTemplate newJdbcTemplate() {
+		return new JdbcTemplate(myHibernatePropertiesProvider.getDataSource());
+	}
+
+	/**
+	 * Rows are inserted using plain JDBC, but their PIDs are allocated using the same
+	 * generator Hibernate uses for the entity so that they never collide with rows
+	 * inserted through JPA.
+	 */
+	private IdentifierGenerator getIdentifierGenerator(Class<?> theEntityType) {
+		SessionImpl session = myEntityManager.unwrap(SessionImpl.class);
+		return session.getFactory().getMetamodel().entityPersister(theEntityType).getIdentifierGenerator();
+	}
+
+	private long nextId(IdentifierGenerator theGenerator) {
+		SessionImpl session = myEntityManager.unwrap(SessionImpl.class);
+		return ((Number) theGenerator.generate(session, null)).longValue();
+	}
+
+	/**
+	 * The parent/child links of a code system version, stored as parallel primitive arrays
+	 */
+	private static class LinkArrays {
+		private static final byte NOT_VISITED = 0;
+		private static final byte ON_STACK = 1;
+		private static final byte DONE = 2;
+
+		private long[] myLinkPids = new long[1024];
+		private long[] myChildPids = new long[1024];
+		private long[] myParentPids = new long[1024];
+		private int mySize;
+
+		void add(long theLinkPid, long theChildPid, long theParentPid) {
+			if (mySize == myLinkPids.length) {
+				int newLength = myLinkPids.length * 2;
+				myLinkPids = Arrays.copyOf(myLinkPids, newLength);
+				myChildPids = Arrays.copyOf(myChildPids, newLength);
+				myParentPids = Arrays.copyOf(myParentPids, newLength);
+			}
+			myLinkPids[mySize] = theLinkPid;
+			myChildPids[mySize] = theChildPid;
+			myParentPids[mySize] = theParentPid;
+			mySize++;
+		}
+
+		/**
+		 * Returns one <code>{linkPid, childPid, parentPid}</code> array for every link which closes a cycle
+		 */
+		List<Object[]> findCircularLinks() {
+			List<Object[]> retVal = new ArrayList<>();
+			if (mySize == 0) {
+				return retVal;
+			}
+
+			// Assign every concept a dense index
+			long[] nodes = new long[mySize * 2];
+			System.arraycopy(myChildPids, 0, nodes, 0, mySize);
+			System.arraycopy(myParentPids, 0, nodes, mySize, mySize);
+			Arrays.sort(nodes);
+			int nodeCount = 0;
+			for (int i = 0; i < nodes.length; i++) {
+				if (i == 0 || nodes[i] != nodes[i - 1]) {
+					nodes[nodeCount++] = nodes[i];
+				}
+			}
+			int[] childIndexes = new int[mySize];
+			int[] parentIndexes = new int[mySize];
+			boolean[] hasParent = new boolean[nodeCount];
+			for (int i = 0; i < mySize; i++) {
+				childIndexes[i] = Arrays.binarySearch(nodes, 0, nodeCount, myChildPids[i]);
+				parentIndexes[i] = Arrays.binarySearch(nodes, 0, nodeCount, myParentPids[i]);
+				hasParent[childIndexes[i]] = true;
+			}
+
+			// Group the links by parent
+			int[] firstLink = new int[nodeCount + 1];
+			for (int i = 0; i < mySize; i++) {
+				firstLink[parentIndexes[i] + 1]++;
+			}
+			for (int i = 0; i < nodeCount; i++) {
+				firstLink[i + 1] += firstLink[i];
+			}
+			int[] linksByParent = new int[mySize];
+			int[] nextSlot = Arrays.copyOf(firstLink, nodeCount);
+			for (int i = 0; i < mySize; i++) {
+				linksByParent[nextSlot[parentIndexes[i]]++] = i;
+			}
+
+			// Walk from the roots first, and then from anything which is only reachable through a cycle
+			byte[] state = new byte[nodeCount];
+			int[] stack = new int[nodeCount];
+			int[] cursor = new int[nodeCount];
+			for (int pass = 0; pass < 2; pass++) {
+				for (int root = 0; root < nodeCount; root++) {
+					if (state[root] != NOT_VISITED || (pass == 0 && hasParent[root])) {
+						continue;
+					}
+
+					int depth = 0;
+					stack[0] = root;
+					cursor[0] = firstLink[root];
+					state[root] = ON_STACK;
+					while (depth >= 0) {
+						int node = stack[depth];
+						if (cursor[depth] < firstLink[node + 1]) {
+							int link = linksByParent[cursor[depth]++];
+							int child = childIndexes[link];
+							if (state[child] == ON_STACK) {
+								retVal.add(new Object[]{myLinkPids[link], myChildPids[link], myParentPids[link]});
+							} else if (state[child] == NOT_VISITED) {
+								depth++;
+								stack[depth] = child;
+								cursor[depth] = firstLink[child];
+								state[child] = ON_STACK;
+							}
+						} else {
+							state[node] = DONE;
+							depth--;
+						}
+					}
+				}
+			}
+
+			return retVal;
+		}
+	}
+
+}
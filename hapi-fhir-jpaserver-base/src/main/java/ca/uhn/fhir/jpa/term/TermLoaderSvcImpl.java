@@ -2,12 +2,14 @@ package ca.uhn.fhir.jpa.term;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
 import ca.uhn.fhir.jpa.entity.TermConceptProperty;
 import ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
+import ca.uhn.fhir.jpa.term.api.ITermLoaderStagingSvc;
 import ca.uhn.fhir.jpa.term.api.ITermLoaderSvc;
 import ca.uhn.fhir.jpa.term.custom.CustomTerminologySet;
 import ca.uhn.fhir.jpa.term.icd10.Icd10Loader;
@@ -37,8 +39,11 @@ import ca.uhn.fhir.jpa.term.loinc.LoincUniversalOrderSetHandler;
 import ca.uhn.fhir.jpa.term.loinc.LoincXmlFileZipContentsHandler;
 import ca.uhn.fhir.jpa.term.loinc.PartTypeAndPartName;
 import ca.uhn.fhir.jpa.term.snomedct.SctHandlerConcept;
+import ca.uhn.fhir.jpa.term.snomedct.SctHandlerConceptStaging;
 import ca.uhn.fhir.jpa.term.snomedct.SctHandlerDescription;
+import ca.uhn.fhir.jpa.term.snomedct.SctHandlerDescriptionStaging;
 import ca.uhn.fhir.jpa.term.snomedct.SctHandlerRelationship;
+import ca.uhn.fhir.jpa.term.snomedct.SctHandlerRelationshipStaging;
 import ca.uhn.fhir.jpa.util.Counter;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
@@ -84,6 +89,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc.MAKE_LOADING_VERSION_CURRENT;
@@ -178,6 +184,10 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 	private final FhirContext myCtx = FhirContext.forR4();
 	private final ITermDeferredStorageSvc myDeferredStorageSvc;
 	private final ITermCodeSystemStorageSvc myCodeSystemStorageSvc;
+	@Autowired(required = false)
+	private JpaStorageSettings myStorageSettings;
+	@Autowired(required = false)
+	private ITermLoaderStagingSvc myStagingSvc;
 
 	@Autowired
 	public TermLoaderSvcImpl(ITermDeferredStorageSvc theDeferredStorageSvc, ITermCodeSystemStorageSvc theCodeSystemStorageSvc) {
@@ -302,6 +312,9 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 			ourLog.info("Beginning SNOMED CT processing");
 
+			if (myStagingSvc != null && myStorageSettings != null && myStorageSettings.isTerminologyStreamingLoadEnabled()) {
+				return processSnomedCtFilesStreaming(descriptors, theRequestDetails);
+			}
 			return processSnomedCtFiles(descriptors, theRequestDetails);
 		}
 	}
@@ -834,6 +847,41 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		return new UploadStatistics(code2concept.size(), target);
 	}
 
+	/**
+	 * Streams the SNOMED CT rows into the staging table and resolves them into concepts and
+	 * links in the database, instead of building the concept graph in memory. The code system
+	 * version is stored first (without any concepts) so that the staged concepts can be
+	 * attached to it.
+	 */
+	private UploadStatistics processSnomedCtFilesStreaming(LoadedFileDescriptors theDescriptors, RequestDetails theRequestDetails) {
+		TermLoadStagingWriter writer = new TermLoadStagingWriter(myStagingSvc, UUID.randomUUID().toString());
+		try {
+			iterateOverZipFileCsv(theDescriptors, SCT_FILE_CONCEPT, new SctHandlerConceptStaging(writer), '\t', null, true);
+			iterateOverZipFileCsv(theDescriptors, SCT_FILE_DESCRIPTION, new SctHandlerDescriptionStaging(writer), '\t', null, true);
+			iterateOverZipFileCsv(theDescriptors, SCT_FILE_RELATIONSHIP, new SctHandlerRelationshipStaging(writer), '\t', null, true);
+			writer.flush();
+
+			IOUtils.closeQuietly(theDescriptors);
+
+			ourLog.info("Staged {} SNOMED CT rows for load {}", writer.getRowCount(), writer.getLoadId());
+
+			CodeSystem cs = new org.hl7.fhir.r4.model.CodeSystem();
+			cs.setUrl(SCT_URI);
+			cs.setName("SNOMED CT");
+			cs.setContent(CodeSystem.CodeSystemContentMode.NOTPRESENT);
+			cs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+			IIdType target = storeCodeSystem(theRequestDetails, new TermCodeSystemVersion(), cs, null, null);
+
+			int conceptCount = myStagingSvc.storeStagedConcepts(writer.getLoadId(), SCT_URI, null);
+
+			ourLog.info("Done loading SNOMED CT files - {} total codes", conceptCount);
+
+			return new UploadStatistics(conceptCount, target);
+		} finally {
+			myStagingSvc.deleteStagedRows(writer.getLoadId());
+		}
+	}
+
 	private IIdType storeCodeSystem(RequestDetails theRequestDetails, final TermCodeSystemVersion theCodeSystemVersion, CodeSystem theCodeSystem, List<ValueSet> theValueSets, List<ConceptMap> theConceptMaps) {
 		Validate.isTrue(theCodeSystem.getContent() == CodeSystem.CodeSystemContentMode.NOTPRESENT);
 
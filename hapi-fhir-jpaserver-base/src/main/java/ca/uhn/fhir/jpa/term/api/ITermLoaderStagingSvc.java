@@ -0,0 +1,66 @@
+package ca.uhn.fhir.jpa.term.api;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Supports streaming terminology loads, where the rows of a terminology distribution
+ * are written to a staging table as they are read and then resolved into concepts and
+ * parent/child links using set-based queries, instead of being assembled into an
+ * in-memory concept graph.
+ *
+ * @since 6.6.0
+ */
+public interface ITermLoaderStagingSvc {
+
+	/**
+	 * Writes the given rows to the staging table using a JDBC batch insert, in a new transaction.
+	 */
+	void stageRows(String theLoadId, List<TermLoadStagingRow> theRows);
+
+	/**
+	 * Creates a concept in the given code system version for every concept that is active as of its most
+	 * recent {@link TermLoadStagingRow.RowTypeEnum#CONCEPT} row and has at least one
+	 * {@link TermLoadStagingRow.RowTypeEnum#DESCRIPTION} row (the last one staged supplies the display), and then
+	 * creates a parent/child link for every {@link TermLoadStagingRow.RowTypeEnum#ISA_RELATIONSHIP} whose most
+	 * recent row is active and whose endpoints were both created.
+	 * <p>
+	 * Concepts are stored without an index status, so that their ancestors and fulltext index are calculated
+	 * by the {@link ITermReindexingSvc terminology reindexer}.
+	 * </p>
+	 *
+	 * @param theLoadId              The load ID that was passed to {@link #stageRows(String, List)}
+	 * @param theCodeSystemUri       The URI of a code system which has already been stored
+	 * @param theCodeSystemVersionId The version of the code system version to store concepts in, or <code>null</code>
+	 * @return The number of concepts created
+	 */
+	int storeStagedConcepts(String theLoadId, String theCodeSystemUri, @Nullable String theCodeSystemVersionId);
+
+	/**
+	 * Removes all staged rows for the given load
+	 */
+	void deleteStagedRows(String theLoadId);
+
+}
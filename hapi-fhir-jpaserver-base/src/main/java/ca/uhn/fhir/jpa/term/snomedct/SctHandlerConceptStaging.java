@@ -0,0 +1,47 @@
+package ca.uhn.fhir.jpa.term.snomedct;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+import ca.uhn.fhir.jpa.term.IZipContentsHandlerCsv;
+import ca.uhn.fhir.jpa.term.TermLoadStagingWriter;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Streaming equivalent of {@link SctHandlerConcept}, which stages every concept row
+ * instead of tracking the most recent status of each concept in memory.
+ */
+public final class SctHandlerConceptStaging implements IZipContentsHandlerCsv {
+
+   private final TermLoadStagingWriter myWriter;
+
+   public SctHandlerConceptStaging(TermLoadStagingWriter theWriter) {
+      myWriter = theWriter;
+   }
+
+   @Override
+   public void accept(CSVRecord theRecord) {
+      String id = theRecord.get("id");
+      String date = theRecord.get("effectiveTime");
+      boolean active = "1".equals(theRecord.get("active"));
+
+      myWriter.addRow(TermLoadStagingRow.RowTypeEnum.CONCEPT, id, null, null, active, date);
+   }
+}
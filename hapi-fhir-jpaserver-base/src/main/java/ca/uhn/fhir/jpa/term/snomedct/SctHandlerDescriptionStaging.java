@@ -0,0 +1,52 @@
+package ca.uhn.fhir.jpa.term.snomedct;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+import ca.uhn.fhir.jpa.term.IZipContentsHandlerCsv;
+import ca.uhn.fhir.jpa.term.TermLoadStagingWriter;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Streaming equivalent of {@link SctHandlerDescription}, which stages every active
+ * description. Descriptions of concepts which are not active are discarded when
+ * the staged rows are resolved.
+ */
+public final class SctHandlerDescriptionStaging implements IZipContentsHandlerCsv {
+
+   private final TermLoadStagingWriter myWriter;
+
+   public SctHandlerDescriptionStaging(TermLoadStagingWriter theWriter) {
+      myWriter = theWriter;
+   }
+
+   @Override
+   public void accept(CSVRecord theRecord) {
+      boolean active = "1".equals(theRecord.get("active"));
+      if (!active) {
+         return;
+      }
+      String conceptId = theRecord.get("conceptId");
+      String term = theRecord.get("term");
+      String date = theRecord.get("effectiveTime");
+
+      myWriter.addRow(TermLoadStagingRow.RowTypeEnum.DESCRIPTION, conceptId, null, term, true, date);
+   }
+}
@@ -0,0 +1,61 @@
+package ca.uhn.fhir.jpa.term.snomedct;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import ca.uhn.fhir.jpa.entity.TermLoadStagingRow;
+import ca.uhn.fhir.jpa.term.IZipContentsHandlerCsv;
+import ca.uhn.fhir.jpa.term.TermLoadStagingWriter;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Streaming equivalent of {@link SctHandlerRelationship}, which stages every "is a"
+ * relationship row. Since the concept displays are not available while streaming,
+ * "is a" relationships are identified by the well-known SNOMED CT type concept ID
+ * rather than by the display of the type concept.
+ */
+public final class SctHandlerRelationshipStaging implements IZipContentsHandlerCsv {
+
+   public static final String IS_A_TYPE_ID = "116680003";
+
+   private final TermLoadStagingWriter myWriter;
+
+   public SctHandlerRelationshipStaging(TermLoadStagingWriter theWriter) {
+      myWriter = theWriter;
+   }
+
+   @Override
+   public void accept(CSVRecord theRecord) {
+      String typeId = theRecord.get("typeId");
+      if (!IS_A_TYPE_ID.equals(typeId)) {
+         return;
+      }
+
+      String sourceId = theRecord.get("sourceId");
+      String destinationId = theRecord.get("destinationId");
+      if (sourceId.equals(destinationId)) {
+         return;
+      }
+
+      boolean active = "1".equals(theRecord.get("active"));
+      String date = theRecord.get("effectiveTime");
+
+      myWriter.addRow(TermLoadStagingRow.RowTypeEnum.ISA_RELATIONSHIP, sourceId, destinationId, null, active, date);
+   }
+}
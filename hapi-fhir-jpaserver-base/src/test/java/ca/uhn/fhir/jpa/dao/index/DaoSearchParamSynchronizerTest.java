@@ -1,5 +1,6 @@
 package ca.uhn.fhir.jpa.dao.index;
 
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamNumber;
@@ -13,10 +14,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 import java.math.BigDecimal;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -46,6 +49,8 @@ public class DaoSearchParamSynchronizerTest {
 
 	private ResourceIndexedSearchParams existingParams;
 
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+
 	@BeforeEach
 	void setUp() {
 		when(theEntity.isParamsNumberPopulated()).thenReturn(true);
@@ -62,6 +67,7 @@ public class DaoSearchParamSynchronizerTest {
 		THE_SEARCH_PARAM_NUMBER.setResource(resourceTable);
 
 		subject.setEntityManager(entityManager);
+		subject.setStorageSettings(myStorageSettings);
 	}
 
 	@Test
@@ -74,4 +80,41 @@ public class DaoSearchParamSynchronizerTest {
 		verify(entityManager, never()).remove(any(BaseResourceIndex.class));
 		verify(entityManager, times(1)).merge(THE_SEARCH_PARAM_NUMBER);
 	}
+
+	@Test
+	void synchronizeSearchParamsNumberOnlyValuesDifferent_BatchMode() {
+		myStorageSettings.setIndexSynchronizationBatchModeEnabled(true);
+
+		ResourceTable resourceTable = new ResourceTable();
+		resourceTable.setId(1L);
+		ResourceIndexedSearchParamNumber existingParam = new ResourceIndexedSearchParamNumber(new PartitionSettings(), "Patient", GRITTSCORE, BigDecimal.valueOf(10));
+		existingParam.setResource(resourceTable);
+		existingParam.setId(100L);
+		ResourceIndexedSearchParamNumber newParam = new ResourceIndexedSearchParamNumber(new PartitionSettings(), "Patient", GRITTSCORE, BigDecimal.valueOf(12));
+		newParam.setResource(resourceTable);
+
+		ResourceIndexedSearchParams newParams = new ResourceIndexedSearchParams();
+		newParams.myNumberParams.add(newParam);
+		ResourceIndexedSearchParams existingParams = new ResourceIndexedSearchParams();
+		existingParams.myNumberParams.add(existingParam);
+
+		Query query = mock(Query.class);
+		when(entityManager.createQuery(any(String.class))).thenReturn(query);
+		when(query.setParameter(any(String.class), any())).thenReturn(query);
+
+		final AddRemoveCount addRemoveCount = subject.synchronizeSearchParamsToDatabase(newParams, resourceTable, existingParams);
+
+		assertEquals(1, addRemoveCount.getRemoveCount());
+		assertEquals(1, addRemoveCount.getAddCount());
+
+		verify(entityManager).detach(existingParam);
+		verify(entityManager).createQuery("DELETE FROM ResourceIndexedSearchParamNumber t WHERE t.myId IN (:ids)");
+		verify(query).setParameter("ids", List.of(100L));
+		verify(query).executeUpdate();
+		verify(entityManager).persist(newParam);
+		verify(entityManager, never()).remove(any(BaseResourceIndex.class));
+		verify(entityManager, never()).merge(any(BaseResourceIndex.class));
+		assertEquals(100L, existingParam.getId());
+		assertEquals(BigDecimal.valueOf(10), existingParam.getValue());
+	}
 }
@@ -43,6 +43,7 @@ import ca.uhn.fhir.jpa.mdm.svc.MdmResourceDaoSvc;
 import ca.uhn.fhir.jpa.mdm.svc.MdmResourceFilteringSvc;
 import ca.uhn.fhir.jpa.mdm.svc.MdmSurvivorshipSvcImpl;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateSearcher;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmBlockingKeySvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByEidSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByExampleSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByLinkSvc;
@@ -195,6 +196,11 @@ public class MdmConsumerConfig {
 		return new MdmCandidateSearchSvc();
 	}
 
+	@Bean
+	MdmBlockingKeySvc mdmBlockingKeySvc() {
+		return new MdmBlockingKeySvc();
+	}
+
 	@Bean
 	CandidateSearcher candidateSearcher(DaoRegistry theDaoRegistry, IMdmSettings theMdmSettings, MdmSearchParamSvc theMdmSearchParamSvc) {
 		return new CandidateSearcher(theDaoRegistry, theMdmSettings, theMdmSearchParamSvc);
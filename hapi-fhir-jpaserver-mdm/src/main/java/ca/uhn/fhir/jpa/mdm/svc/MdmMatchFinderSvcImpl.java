@@ -21,10 +21,12 @@ package ca.uhn.fhir.jpa.mdm.svc;
  */
 
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.dao.IDao;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchSvc;
 import ca.uhn.fhir.mdm.api.IMdmMatchFinderSvc;
 import ca.uhn.fhir.mdm.api.MatchedTarget;
 import ca.uhn.fhir.mdm.log.Logs;
+import ca.uhn.fhir.mdm.rules.svc.MdmFeatureVector;
 import ca.uhn.fhir.mdm.rules.svc.MdmResourceMatcherSvc;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.slf4j.Logger;
@@ -32,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.Collection;
 import java.util.List;
@@ -55,12 +58,27 @@ public class MdmMatchFinderSvcImpl implements IMdmMatchFinderSvc {
 	public List<MatchedTarget> getMatchedTargets(String theResourceType, IAnyResource theResource, RequestPartitionId theRequestPartitionId) {
 		Collection<IAnyResource> targetCandidates = myMdmCandidateSearchSvc.findCandidates(theResourceType, theResource, theRequestPartitionId);
 
+		MdmFeatureVector featureVector = myMdmResourceMatcherSvc.getFeatureVector(theResource);
 		List<MatchedTarget> matches = targetCandidates.stream()
-			.map(candidate -> new MatchedTarget(candidate, myMdmResourceMatcherSvc.getMatchResult(theResource, candidate)))
+			.map(candidate -> new MatchedTarget(candidate, myMdmResourceMatcherSvc.getMatchResult(featureVector, myMdmResourceMatcherSvc.getFeatureVector(candidate, toFeatureVectorCacheKey(candidate)))))
 			.collect(Collectors.toList());
 
 		ourLog.trace("Found {} matched targets for {}.", matches.size(), idOrType(theResource, theResourceType));
 		return matches;
 	}
 
+	/**
+	 * Candidates are loaded from storage, so they are keyed by persistent ID and version. The incoming
+	 * resource may come from a request body (e.g. <code>$match</code>) and is never cached.
+	 */
+	@Nullable
+	private static String toFeatureVectorCacheKey(IAnyResource theCandidate) {
+		Long pid = IDao.RESOURCE_PID.get(theCandidate);
+		String version = theCandidate.getIdElement().getVersionIdPart();
+		if (pid == null || version == null) {
+			return null;
+		}
+		return pid + "/" + version;
+	}
+
 }
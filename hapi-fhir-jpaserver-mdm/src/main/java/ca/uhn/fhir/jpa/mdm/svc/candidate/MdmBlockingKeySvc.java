@@ -0,0 +1,188 @@
+package ca.uhn.fhir.jpa.mdm.svc.candidate;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.mdm.api.IMdmSettings;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.log.Logs;
+import ca.uhn.fhir.mdm.model.MdmBlockingKey;
+import ca.uhn.fhir.mdm.rules.json.MdmResourceSearchParamJson;
+import ca.uhn.fhir.mdm.svc.MdmSearchParamSvc;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import ca.uhn.fhir.util.PhoneticEncoderUtil;
+import ca.uhn.fhir.util.SearchParameterUtil;
+import ca.uhn.fhir.util.StringUtil;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.trim;
+
+/**
+ * Maintains and queries the MDM blocking key index. For every candidate search parameter of every
+ * {@link MdmResourceSearchParamJson} that applies to a resource, the values the resource has for that
+ * search parameter are normalized and stored as hashed blocking keys. A resource is a candidate for an
+ * incoming resource if, for every search parameter in a {@link MdmResourceSearchParamJson} the incoming
+ * resource has values for, it shares at least one blocking key with the incoming resource.
+ * <p>
+ * Values are normalized as follows:
+ * <ul>
+ *    <li>String values are normalized the same way they are for search indexing. As with a string search,
+ *    they are matched by prefix: a stored resource gets a key for every prefix of its normalized value, and
+ *    the incoming resource is looked up by its whole normalized value. If
+ *    {@link IMdmSettings#getBlockingKeyPhoneticEncoder()} is set, the normalized values are phonetically
+ *    encoded instead, and the codes are matched exactly.</li>
+ *    <li>All other values (e.g. <code>system|value</code> identifier tokens and dates) are used as they are
+ *    extracted.</li>
+ * </ul>
+ * </p>
+ *
+ * @since 6.6.0
+ */
+public class MdmBlockingKeySvc<P extends IResourcePersistentId> {
+	private static final Logger ourLog = Logs.getMdmTroubleshootingLog();
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128(0);
+	private static final byte[] DELIMITER_BYTES = "|".getBytes(StandardCharsets.UTF_8);
+
+	@Autowired
+	private FhirContext myFhirContext;
+	@Autowired
+	private IMdmSettings myMdmSettings;
+	@Autowired
+	private MdmSearchParamSvc myMdmSearchParamSvc;
+	@Autowired
+	private ISearchParamRegistry mySearchParamRegistry;
+	@Autowired
+	private IIdHelperService<P> myIdHelperService;
+	@Autowired
+	private IMdmBlockingKeyDao<P> myMdmBlockingKeyDao;
+
+	/**
+	 * Recalculates the blocking keys for the given (stored) resource and replaces any keys previously
+	 * stored for it.
+	 */
+	public void updateBlockingKeys(IAnyResource theResource) {
+		P pid = myIdHelperService.getPidOrNull(RequestPartitionId.allPartitions(), theResource);
+		if (pid == null) {
+			return;
+		}
+
+		String resourceType = myFhirContext.getResourceType(theResource);
+		Set<MdmBlockingKey> blockingKeys = new HashSet<>();
+		for (MdmResourceSearchParamJson next : myMdmSettings.getMdmRules().getCandidateSearchParams()) {
+			if (myMdmSearchParamSvc.searchParamTypeIsValidForResourceType(next.getResourceType(), resourceType)) {
+				blockingKeys.addAll(extractBlockingKeys(resourceType, theResource, next, true));
+			}
+		}
+
+		ourLog.debug("Storing {} blocking keys for {}", blockingKeys.size(), theResource.getIdElement().toUnqualifiedVersionless());
+		myMdmBlockingKeyDao.updateBlockingKeys(pid, blockingKeys);
+	}
+
+	/**
+	 * Returns the PIDs of the resources which are candidates for the given resource according to a single
+	 * candidate search parameter group. The given resource itself may be included.
+	 *
+	 * @return An empty list if the resource has no values for any of the search parameters in the group
+	 */
+	public List<P> findCandidatePids(String theResourceType, IAnyResource theResource, MdmResourceSearchParamJson theResourceSearchParam, RequestPartitionId theRequestPartitionId, int theMaxResults) {
+		Set<MdmBlockingKey> blockingKeys = extractBlockingKeys(theResourceType, theResource, theResourceSearchParam, false);
+		if (blockingKeys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return myMdmBlockingKeyDao.findResourcePidsMatchingAllParams(blockingKeys, theRequestPartitionId, theMaxResults);
+	}
+
+	/**
+	 * @param theForStorage If <code>true</code>, keys are extracted for storing in the index, which includes a key
+	 *                      for every prefix of the normalized string values. Otherwise, keys are extracted for looking
+	 *                      up candidates, which only uses the whole values.
+	 */
+	Set<MdmBlockingKey> extractBlockingKeys(String theResourceType, IAnyResource theResource, MdmResourceSearchParamJson theResourceSearchParam, boolean theForStorage) {
+		Set<MdmBlockingKey> retVal = new HashSet<>();
+		theResourceSearchParam.iterator().forEachRemaining(searchParam -> {
+			RuntimeSearchParam activeSearchParam = mySearchParamRegistry.getActiveSearchParam(theResourceType, SearchParameterUtil.stripModifier(searchParam));
+			if (activeSearchParam == null) {
+				return;
+			}
+
+			long paramHash = hash(theResourceType, searchParam);
+			for (String nextValue : myMdmSearchParamSvc.getValueFromResourceForSearchParam(theResource, searchParam)) {
+				String normalized = normalize(activeSearchParam.getParamType(), nextValue);
+				if (isBlank(normalized)) {
+					continue;
+				}
+				if (theForStorage && isPrefixMatched(activeSearchParam.getParamType())) {
+					for (int length = 1; length < normalized.length(); length++) {
+						retVal.add(new MdmBlockingKey(paramHash, hash(theResourceType, searchParam, normalized.substring(0, length))));
+					}
+				}
+				retVal.add(new MdmBlockingKey(paramHash, hash(theResourceType, searchParam, normalized)));
+			}
+		});
+		return retVal;
+	}
+
+	private boolean isPrefixMatched(RestSearchParameterTypeEnum theParamType) {
+		return theParamType == RestSearchParameterTypeEnum.STRING && myMdmSettings.getBlockingKeyPhoneticEncoder() == null;
+	}
+
+	private String normalize(RestSearchParameterTypeEnum theParamType, String theValue) {
+		String retVal = trim(theValue);
+		if (theParamType == RestSearchParameterTypeEnum.STRING && retVal != null) {
+			retVal = StringUtil.left(StringUtil.normalizeStringForSearchIndexing(retVal), ResourceIndexedSearchParamString.MAX_LENGTH);
+			PhoneticEncoderEnum phoneticEncoder = myMdmSettings.getBlockingKeyPhoneticEncoder();
+			if (phoneticEncoder != null) {
+				retVal = PhoneticEncoderUtil.getEncoder(phoneticEncoder.name()).encode(retVal);
+			}
+		}
+		return retVal;
+	}
+
+	private static long hash(String... theValues) {
+		Hasher hasher = HASH_FUNCTION.newHasher();
+		for (int i = 0; i < theValues.length; i++) {
+			if (i > 0) {
+				hasher.putBytes(DELIMITER_BYTES);
+			}
+			hasher.putString(theValues[i], StandardCharsets.UTF_8);
+		}
+		return hasher.hash().asLong();
+	}
+}
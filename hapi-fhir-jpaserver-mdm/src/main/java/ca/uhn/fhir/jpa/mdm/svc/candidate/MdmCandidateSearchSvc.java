@@ -23,10 +23,15 @@ package ca.uhn.fhir.jpa.mdm.svc.candidate;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.mdm.api.IMdmSettings;
 import ca.uhn.fhir.mdm.log.Logs;
 import ca.uhn.fhir.mdm.rules.json.MdmFilterSearchParamJson;
 import ca.uhn.fhir.mdm.rules.json.MdmResourceSearchParamJson;
+import ca.uhn.fhir.mdm.svc.MdmSearchParamSvc;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import org.hl7.fhir.instance.model.api.IAnyResource;
@@ -36,12 +41,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateSearcher.idOrType;
@@ -60,6 +68,14 @@ public class MdmCandidateSearchSvc {
 	private MdmCandidateSearchCriteriaBuilderSvc myMdmCandidateSearchCriteriaBuilderSvc;
 	@Autowired
 	private CandidateSearcher myCandidateSearcher;
+	@Autowired
+	private MdmBlockingKeySvc myMdmBlockingKeySvc;
+	@Autowired
+	private MdmSearchParamSvc myMdmSearchParamSvc;
+	@Autowired
+	private InMemoryResourceMatcher myInMemoryResourceMatcher;
+	@Autowired
+	private SearchParamMatcher mySearchParamMatcher;
 
 	public MdmCandidateSearchSvc() {
 	}
@@ -84,6 +100,8 @@ public class MdmCandidateSearchSvc {
 		//must perform one search per MdmResourceSearchParamJson.
 		if (candidateSearchParams.isEmpty()) {
 			searchForIdsAndAddToMap(theResourceType, theResource, matchedPidsToResources, filterCriteria, null, theRequestPartitionId);
+		} else if (canUseBlockingKeyIndex(theResourceType, filterCriteria)) {
+			searchBlockingKeyIndexAndAddToMap(theResourceType, theResource, matchedPidsToResources, filterCriteria, candidateSearchParams, theRequestPartitionId);
 		} else {
 			for (MdmResourceSearchParamJson resourceSearchParam : candidateSearchParams) {
 
@@ -148,6 +166,66 @@ public class MdmCandidateSearchSvc {
 		}
 	}
 
+	/*
+	 * The blocking key index can only be used if the filter criteria can be applied to the candidates in memory
+	 */
+	private boolean canUseBlockingKeyIndex(String theResourceType, List<String> theFilterCriteria) {
+		if (!myMdmSettings.isBlockingKeyIndexEnabled()) {
+			return false;
+		}
+		if (theFilterCriteria.isEmpty()) {
+			return true;
+		}
+		InMemoryMatchResult result = myInMemoryResourceMatcher.canBeEvaluatedInMemory(buildFilterUrl(theResourceType, theFilterCriteria));
+		if (!result.supported()) {
+			ourLog.debug("Not using the MDM blocking key index because the candidate filter can not be evaluated in memory: {}", result.getUnsupportedReason());
+		}
+		return result.supported();
+	}
+
+	/*
+	 * Finds the candidate PIDs for every candidate search param using one query each against the blocking key
+	 * index, and then loads all candidates in a single pass and applies the filter criteria to them in memory.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private void searchBlockingKeyIndexAndAddToMap(String theResourceType, IAnyResource theResource, Map<IResourcePersistentId, IAnyResource> theMatchedPidsToResources, List<String> theFilterCriteria, List<MdmResourceSearchParamJson> theCandidateSearchParams, RequestPartitionId theRequestPartitionId) {
+		int candidateSearchLimit = myMdmSettings.getCandidateSearchLimit();
+		Set<IResourcePersistentId> candidatePids = new HashSet<>();
+		for (MdmResourceSearchParamJson resourceSearchParam : theCandidateSearchParams) {
+			if (!isSearchParamForResource(theResourceType, resourceSearchParam)) {
+				continue;
+			}
+
+			List<IResourcePersistentId> pids = myMdmBlockingKeySvc.findCandidatePids(theResourceType, theResource, resourceSearchParam, theRequestPartitionId, candidateSearchLimit);
+			if (pids.size() >= candidateSearchLimit) {
+				throw new TooManyCandidatesException(Msg.code(2307) + "More than " + candidateSearchLimit + " candidate matches found in the blocking key index for " + idOrType(theResource, theResourceType) + " using " + resourceSearchParam.getSearchParams() + ".  Aborting mdm matching.");
+			}
+			candidatePids.addAll(pids);
+		}
+
+		if (candidatePids.isEmpty()) {
+			return;
+		}
+
+		List<IBaseResource> resources = new ArrayList<>();
+		ISearchBuilder searchBuilder = myMdmSearchParamSvc.generateSearchBuilderForType(theResourceType);
+		searchBuilder.loadResourcesByPid(candidatePids, Collections.emptyList(), resources, false, null);
+
+		String filterUrl = theFilterCriteria.isEmpty() ? null : buildFilterUrl(theResourceType, theFilterCriteria);
+		for (IBaseResource resource : resources) {
+			if (filterUrl != null && !mySearchParamMatcher.match(filterUrl, resource, null).matched()) {
+				continue;
+			}
+			theMatchedPidsToResources.put(myIdHelperService.getPidOrNull(RequestPartitionId.allPartitions(), resource), (IAnyResource) resource);
+		}
+
+		ourLog.debug("Blocking key index search found {} candidate {}s", theMatchedPidsToResources.size(), theResourceType);
+	}
+
+	private static String buildFilterUrl(String theResourceType, List<String> theFilterCriteria) {
+		return theResourceType + "?" + String.join("&", theFilterCriteria);
+	}
+
 	private List<String> buildFilterQuery(List<MdmFilterSearchParamJson> theFilterSearchParams, String theResourceType) {
 		return Collections.unmodifiableList(theFilterSearchParams.stream()
 			.filter(spFilterJson -> paramIsOnCorrectType(theResourceType, spFilterJson))
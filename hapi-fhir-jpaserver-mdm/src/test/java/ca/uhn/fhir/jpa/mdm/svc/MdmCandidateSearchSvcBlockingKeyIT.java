@@ -0,0 +1,174 @@
+package ca.uhn.fhir.jpa.mdm.svc;
+
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.model.ExpungeOptions;
+import ca.uhn.fhir.jpa.mdm.BaseMdmR4Test;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchSvc;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.TooManyCandidatesException;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.model.MdmBlockingKey;
+import ca.uhn.fhir.mdm.rules.config.MdmSettings;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class MdmCandidateSearchSvcBlockingKeyIT extends BaseMdmR4Test {
+
+	@Autowired
+	MdmCandidateSearchSvc myMdmCandidateSearchSvc;
+	@Autowired
+	IMdmBlockingKeyDao<JpaPid> myMdmBlockingKeyDao;
+
+	@BeforeEach
+	public void before() {
+		myMdmSettings.setBlockingKeyIndexEnabled(true);
+	}
+
+	@AfterEach
+	public void resetMdmSettings() {
+		myMdmSettings.setEnabled(false);
+		myMdmSettings.setBlockingKeyIndexEnabled(false);
+		myMdmSettings.setBlockingKeyPhoneticEncoder(null);
+		myMdmSettings.setCandidateSearchLimit(MdmSettings.DEFAULT_CANDIDATE_SEARCH_LIMIT);
+		myStorageSettings.setExpungeEnabled(new JpaStorageSettings().isExpungeEnabled());
+	}
+
+	@Test
+	public void testFindCandidates() {
+		Patient jane = createActivePatientAndUpdateLinks();
+
+		Collection<IAnyResource> result = findCandidates("Patient", buildJanePatient());
+		assertEquals(1, result.size());
+		assertEquals(jane.getIdElement().toUnqualifiedVersionless().getValue(), result.iterator().next().getIdElement().toUnqualifiedVersionless().getValue());
+	}
+
+	@Test
+	public void testFindCandidates_FilterIsApplied() {
+		// Bypass createPatient(), which always makes the patient active
+		Patient jane = buildJanePatient();
+		jane.setActive(false);
+		jane.setId(myPatientDao.create(jane).getId());
+		myMdmMatchLinkSvc.updateMdmLinksForMdmSource(jane, createContextForCreate("Patient"));
+
+		assertEquals(0, findCandidates("Patient", buildJanePatient()).size());
+	}
+
+	@Test
+	public void testFindCandidates_DeletedResourceIsNotCandidate() {
+		Patient jane = createActivePatientAndUpdateLinks();
+		assertEquals(1, findCandidates("Patient", buildJanePatient()).size());
+
+		myPatientDao.delete(jane.getIdElement().toUnqualifiedVersionless());
+		assertEquals(0, findCandidates("Patient", buildJanePatient()).size());
+	}
+
+	@Test
+	public void testFindCandidates_KeysAreReplacedOnUpdate() {
+		Patient jane = createActivePatientAndUpdateLinks();
+		assertEquals(1, findCandidates("Patient", buildJanePatient()).size());
+
+		jane.getIdentifierFirstRep().setValue("ID.JANE.456");
+		jane = (Patient) myPatientDao.update(jane).getResource();
+		myMdmMatchLinkSvc.updateMdmLinksForMdmSource(jane, createContextForUpdate("Patient"));
+
+		assertEquals(0, findCandidates("Patient", buildJanePatient()).size());
+	}
+
+	@Test
+	public void testFindCandidates_PhoneticEncoder() {
+		Practitioner john = new Practitioner();
+		john.getNameFirstRep().addGiven("John");
+		john.getNameFirstRep().setFamily("Shatner");
+		john.setActive(true);
+		createPractitionerAndUpdateLinks(john);
+
+		Practitioner jon = new Practitioner();
+		jon.getNameFirstRep().addGiven("Jon");
+		jon.getNameFirstRep().setFamily("Shatner");
+		assertEquals(0, findCandidates("Practitioner", jon).size());
+
+		myMdmSettings.setBlockingKeyPhoneticEncoder(PhoneticEncoderEnum.SOUNDEX);
+		Practitioner john2 = john.copy();
+		john2.setId((String) null);
+		createPractitionerAndUpdateLinks(john2);
+		assertEquals(1, findCandidates("Practitioner", jon).size());
+	}
+
+	@Test
+	public void testFindCandidates_StringValuesMatchByPrefix() {
+		Practitioner johnathan = new Practitioner();
+		johnathan.getNameFirstRep().addGiven("Johnathan");
+		johnathan.getNameFirstRep().setFamily("Shatner");
+		johnathan.setActive(true);
+		createPractitionerAndUpdateLinks(johnathan);
+
+		Practitioner john = new Practitioner();
+		john.getNameFirstRep().addGiven("John");
+		john.getNameFirstRep().setFamily("Shatner");
+		assertEquals(1, findCandidates("Practitioner", john).size());
+
+		Practitioner johnathanson = new Practitioner();
+		johnathanson.getNameFirstRep().addGiven("Johnathanson");
+		johnathanson.getNameFirstRep().setFamily("Shatner");
+		assertEquals(0, findCandidates("Practitioner", johnathanson).size());
+	}
+
+	@Test
+	public void testExpungeDeletesBlockingKeys() {
+		myStorageSettings.setExpungeEnabled(true);
+		myMdmSettings.setEnabled(true);
+		// No MDM links, so that only the blocking keys reference the resource
+		IIdType janeId = myPatientDao.create(buildJanePatient()).getId().toUnqualifiedVersionless();
+		JpaPid janePid = myIdHelperService.getPidOrThrowException(RequestPartitionId.allPartitions(), janeId);
+		runInTransaction(() -> myMdmBlockingKeyDao.updateBlockingKeys(janePid, Set.of(new MdmBlockingKey(1L, 2L))));
+		assertEquals(1, countBlockingKeys());
+
+		myPatientDao.delete(janeId);
+		myPatientDao.expunge(janeId, new ExpungeOptions().setExpungeDeletedResources(true).setExpungeOldVersions(true), null);
+
+		assertEquals(0, countBlockingKeys());
+	}
+
+	@Test
+	public void testTooManyMatches() {
+		createActivePatientAndUpdateLinks();
+		createActivePatientAndUpdateLinks();
+		assertEquals(2, findCandidates("Patient", buildJanePatient()).size());
+
+		myMdmSettings.setCandidateSearchLimit(2);
+		try {
+			myMdmCandidateSearchSvc.findCandidates("Patient", buildJanePatient(), RequestPartitionId.allPartitions());
+			fail();
+		} catch (TooManyCandidatesException e) {
+			assertEquals("HAPI-2307: More than 2 candidate matches found in the blocking key index for Patient using [identifier].  Aborting mdm matching.", e.getMessage());
+		}
+	}
+
+	private Collection<IAnyResource> findCandidates(String theResourceType, IAnyResource theResource) {
+		return runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates(theResourceType, theResource, RequestPartitionId.allPartitions()));
+	}
+
+	private long countBlockingKeys() {
+		return runInTransaction(() -> myEntityManager.createQuery("SELECT COUNT(k) FROM MdmBlockingKeyEntity k", Long.class).getSingleResult());
+	}
+
+	private Patient createActivePatientAndUpdateLinks() {
+		Patient jane = buildJanePatient();
+		jane.setActive(true);
+		return createPatientAndUpdateLinks(jane);
+	}
+}
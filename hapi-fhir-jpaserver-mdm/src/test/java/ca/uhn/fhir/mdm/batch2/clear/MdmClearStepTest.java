@@ -4,12 +4,15 @@ import ca.uhn.fhir.batch2.api.StepExecutionDetails;
 import ca.uhn.fhir.batch2.jobs.chunk.ResourceIdListWorkChunkJson;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.jpa.entity.MdmLink;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.mdm.BaseMdmR4Test;
 import ca.uhn.fhir.jpa.mdm.helper.MdmHelperR4;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.mdm.api.MdmLinkSourceEnum;
 import ca.uhn.fhir.mdm.api.MdmMatchResultEnum;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.model.MdmBlockingKey;
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
@@ -21,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Nonnull;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -34,6 +38,8 @@ class MdmClearStepTest extends BaseMdmR4Test {
 	MdmClearStep myMdmClearStep;
 	@Autowired
 	MdmHelperR4 myMdmHelperR4;
+	@Autowired
+	IMdmBlockingKeyDao<JpaPid> myMdmBlockingKeyDao;
 
 	private Long mySourcePid;
 	private Long myGoldenPid;
@@ -72,6 +78,20 @@ class MdmClearStepTest extends BaseMdmR4Test {
 		assertPatientExists(mySourceId);
 	}
 
+	@Test
+	public void testBlockingKeysAreDeleted() {
+		runInTransaction(() -> myMdmBlockingKeyDao.updateBlockingKeys(JpaPid.fromId(myGoldenPid), Set.of(new MdmBlockingKey(1L, 2L))));
+		assertEquals(1L, countBlockingKeys());
+
+		mdmClearGoldenResource();
+
+		assertEquals(0L, countBlockingKeys());
+	}
+
+	private long countBlockingKeys() {
+		return runInTransaction(() -> myEntityManager.createQuery("SELECT COUNT(k) FROM MdmBlockingKeyEntity k", Long.class).getSingleResult());
+	}
+
 	@Test
 	public void testWithReferenceToGoldenResource() {
 		Patient husband = new Patient();
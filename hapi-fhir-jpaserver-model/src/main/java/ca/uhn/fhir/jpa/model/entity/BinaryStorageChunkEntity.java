@@ -0,0 +1,110 @@
+package ca.uhn.fhir.jpa.model.entity;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Model
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A single fixed-size segment of a binary blob stored using the chunked layout.
+ * Chunks belong to a chunk set rather than to an individual {@link BinaryStorageEntity},
+ * so that blobs with identical contents can share a single copy of their data.
+ *
+ * @since 6.6.0
+ */
+@Entity
+@Table(name = BinaryStorageChunkEntity.HFJ_BINARY_STORAGE_CHUNK, uniqueConstraints = {
+	@UniqueConstraint(name = "IDX_BINSTORE_CHUNK_SETIDX", columnNames = {"CHUNK_SET_ID", "CHUNK_IDX"})
+})
+public class BinaryStorageChunkEntity {
+
+	public static final String HFJ_BINARY_STORAGE_CHUNK = "HFJ_BINARY_STORAGE_CHUNK";
+	public static final int CHUNK_SET_ID_LENGTH = 40;
+
+	@Id
+	@SequenceGenerator(name = "SEQ_BINSTORE_CHUNK_PID", sequenceName = "SEQ_BINSTORE_CHUNK_PID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_BINSTORE_CHUNK_PID")
+	@Column(name = "PID")
+	private Long myId;
+	@Column(name = "CHUNK_SET_ID", length = CHUNK_SET_ID_LENGTH, nullable = false)
+	private String myChunkSetId;
+	@Column(name = "CHUNK_IDX", nullable = false)
+	private int myChunkIndex;
+	@Column(name = "CHUNK_OFFSET", nullable = false)
+	private long myOffset;
+	@Column(name = "CHUNK_SIZE", nullable = false)
+	private int mySize;
+	@Lob
+	@Column(name = "CHUNK_DATA", nullable = false, updatable = false)
+	private byte[] myData;
+
+	public Long getId() {
+		return myId;
+	}
+
+	public String getChunkSetId() {
+		return myChunkSetId;
+	}
+
+	public void setChunkSetId(String theChunkSetId) {
+		myChunkSetId = theChunkSetId;
+	}
+
+	public int getChunkIndex() {
+		return myChunkIndex;
+	}
+
+	public void setChunkIndex(int theChunkIndex) {
+		myChunkIndex = theChunkIndex;
+	}
+
+	/**
+	 * The position of the first byte of this chunk within the complete blob
+	 */
+	public long getOffset() {
+		return myOffset;
+	}
+
+	public void setOffset(long theOffset) {
+		myOffset = theOffset;
+	}
+
+	public int getSize() {
+		return mySize;
+	}
+
+	public byte[] getData() {
+		return myData;
+	}
+
+	public void setData(byte[] theData) {
+		myData = theData;
+		mySize = theData.length;
+	}
+}
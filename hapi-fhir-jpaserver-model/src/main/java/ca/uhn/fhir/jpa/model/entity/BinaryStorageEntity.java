@@ -23,6 +23,7 @@ package ca.uhn.fhir.jpa.model.entity;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
@@ -31,7 +32,10 @@ import java.sql.Blob;
 import java.util.Date;
 
 @Entity
-@Table(name = "HFJ_BINARY_STORAGE_BLOB")
+@Table(name = "HFJ_BINARY_STORAGE_BLOB", indexes = {
+	@Index(name = "IDX_BINSTORE_HASH", columnList = "BLOB_HASH"),
+	@Index(name = "IDX_BINSTORE_CHUNKSET", columnList = "CHUNK_SET_ID")
+})
 public class BinaryStorageEntity {
 
 	@Id
@@ -45,13 +49,19 @@ public class BinaryStorageEntity {
 	@Column(name = "CONTENT_TYPE", nullable = false, length = 100)
 	private String myBlobContentType;
 	@Lob
-	@Column(name = "BLOB_DATA", nullable = false, insertable = true, updatable = false)
+	@Column(name = "BLOB_DATA", nullable = true, insertable = true, updatable = false)
 	private Blob myBlob;
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(name = "PUBLISHED_DATE", nullable = false)
 	private Date myPublished;
 	@Column(name = "BLOB_HASH", length = 128, nullable = true)
 	private String myHash;
+	/**
+	 * If set, the data for this blob is stored as a set of {@link BinaryStorageChunkEntity}
+	 * rows instead of in {@link #myBlob}
+	 */
+	@Column(name = "CHUNK_SET_ID", length = BinaryStorageChunkEntity.CHUNK_SET_ID_LENGTH, nullable = true)
+	private String myChunkSetId;
 
 	public Date getPublished() {
 		return new Date(myPublished.getTime());
@@ -104,4 +114,12 @@ public class BinaryStorageEntity {
 	public void setHash(String theHash) {
 		myHash = theHash;
 	}
+
+	public String getChunkSetId() {
+		return myChunkSetId;
+	}
+
+	public void setChunkSetId(String theChunkSetId) {
+		myChunkSetId = theChunkSetId;
+	}
 }
@@ -50,7 +50,16 @@ public enum ResourceEncodingEnum {
 	 * Externally stored resource - Resource text is a reference to an external storage location,
 	 * which will be stored in {@link ResourceHistoryTable#getResourceTextVc()}
 	 */
-	ESR;
+	ESR,
+
+	/**
+	 * Binary CBOR encoded JSON - Resources are stored using a compact binary representation
+	 * of their JSON encoding which can be loaded without decompression or JSON tokenization.
+	 *
+	 * @see ca.uhn.fhir.jpa.model.util.ResourceCborCodec
+	 * @since 6.6.0
+	 */
+	CBOR;
 
 	public IParser newParser(FhirContext theContext) {
 		return theContext.newJsonParser();
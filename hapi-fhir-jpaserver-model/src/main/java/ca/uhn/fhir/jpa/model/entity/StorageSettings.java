@@ -27,6 +27,7 @@ import ca.uhn.fhir.model.api.TemporalPrecisionEnum;
 import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
 import ca.uhn.fhir.util.HapiExtensions;
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.dstu2.model.Subscription;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
@@ -64,6 +65,10 @@ public class StorageSettings {
 	 */
 	public static final Set<String> DEFAULT_LOGICAL_BASE_URLS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("http://hl7.org/fhir/ValueSet/*", "http://hl7.org/fhir/CodeSystem/*", "http://hl7.org/fhir/valueset-*", "http://hl7.org/fhir/codesystem-*", "http://hl7.org/fhir/StructureDefinition/*")));
 	public static final String DEFAULT_WEBSOCKET_CONTEXT_PATH = "/websocket";
+	/**
+	 * @since 6.6.0
+	 */
+	public static final long DEFAULT_BULK_EXPORT_MAXIMUM_FILE_BYTES = 100 * FileUtils.ONE_MB;
 	/*
 	 * <p>
 	 * Note the following database documented limitations:
@@ -97,6 +102,18 @@ public class StorageSettings {
 	private boolean myMassIngestionMode;
 	private Integer myMaximumTransactionBundleSize = DEFAULT_MAXIMUM_TRANSACTION_BUNDLE_SIZE;
 	private boolean myNormalizeTerminologyForBulkExportJobs = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myBulkExportStreamToBinaryStorage = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private long myBulkExportMaximumFileBytes = DEFAULT_BULK_EXPORT_MAXIMUM_FILE_BYTES;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myBulkExportGzipFiles = false;
 	private String myEmailFromAddress = "noreply@unknown.com";
 	private String myWebsocketContextPath = DEFAULT_WEBSOCKET_CONTEXT_PATH;
 	/**
@@ -340,6 +357,91 @@ public class StorageSettings {
 		myNormalizeTerminologyForBulkExportJobs = theNormalizeTerminologyForBulkExportJobs;
 	}
 
+	/**
+	 * If set to true, bulk export jobs encode the exported resources directly into the configured
+	 * binary storage service, instead of passing the encoded resources between job steps and then
+	 * saving each file as the content of a Binary resource. Each work chunk stores its resources as
+	 * a temporary part, and the final step of the job concatenates the parts for each resource type
+	 * into files (rolling over to a new file by size) and then expunges the parts. Each file is still
+	 * represented by a Binary resource, but its content is stored externally.
+	 * A binary storage service (e.g. a filesystem or database blob service) must be
+	 * configured in order to use this setting. Default is <code>false</code>.
+	 *
+	 * @see #setBulkExportMaximumFileBytes(long)
+	 * @see #setBulkExportGzipFiles(boolean)
+	 * @since 6.6.0
+	 */
+	public boolean isBulkExportStreamToBinaryStorage() {
+		return myBulkExportStreamToBinaryStorage;
+	}
+
+	/**
+	 * If set to true, bulk export jobs encode the exported resources directly into the configured
+	 * binary storage service, instead of passing the encoded resources between job steps and then
+	 * saving each file as the content of a Binary resource. Each work chunk stores its resources as
+	 * a temporary part, and the final step of the job concatenates the parts for each resource type
+	 * into files (rolling over to a new file by size) and then expunges the parts. Each file is still
+	 * represented by a Binary resource, but its content is stored externally.
+	 * A binary storage service (e.g. a filesystem or database blob service) must be
+	 * configured in order to use this setting. Default is <code>false</code>.
+	 *
+	 * @see #setBulkExportMaximumFileBytes(long)
+	 * @see #setBulkExportGzipFiles(boolean)
+	 * @since 6.6.0
+	 */
+	public void setBulkExportStreamToBinaryStorage(boolean theBulkExportStreamToBinaryStorage) {
+		myBulkExportStreamToBinaryStorage = theBulkExportStreamToBinaryStorage;
+	}
+
+	/**
+	 * When {@link #isBulkExportStreamToBinaryStorage() streaming bulk export to binary storage},
+	 * a new file is started once the (uncompressed) NDJSON written to the current file reaches
+	 * this many bytes. Each file is filled with the output of as many work chunks as it takes to
+	 * reach this size. Default is {@link #DEFAULT_BULK_EXPORT_MAXIMUM_FILE_BYTES} (100 MB).
+	 *
+	 * @since 6.6.0
+	 */
+	public long getBulkExportMaximumFileBytes() {
+		return myBulkExportMaximumFileBytes;
+	}
+
+	/**
+	 * When {@link #isBulkExportStreamToBinaryStorage() streaming bulk export to binary storage},
+	 * a new file is started once the (uncompressed) NDJSON written to the current file reaches
+	 * this many bytes. Each file is filled with the output of as many work chunks as it takes to
+	 * reach this size. Default is {@link #DEFAULT_BULK_EXPORT_MAXIMUM_FILE_BYTES} (100 MB).
+	 *
+	 * @since 6.6.0
+	 */
+	public void setBulkExportMaximumFileBytes(long theBulkExportMaximumFileBytes) {
+		Validate.isTrue(theBulkExportMaximumFileBytes > 0, "theBulkExportMaximumFileBytes must be greater than 0");
+		myBulkExportMaximumFileBytes = theBulkExportMaximumFileBytes;
+	}
+
+	/**
+	 * When {@link #isBulkExportStreamToBinaryStorage() streaming bulk export to binary storage},
+	 * should each file be gzip compressed? If so, the files are stored with a content type of
+	 * <code>application/gzip</code>, and clients must decompress them after downloading.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isBulkExportGzipFiles() {
+		return myBulkExportGzipFiles;
+	}
+
+	/**
+	 * When {@link #isBulkExportStreamToBinaryStorage() streaming bulk export to binary storage},
+	 * should each file be gzip compressed? If so, the files are stored with a content type of
+	 * <code>application/gzip</code>, and clients must decompress them after downloading.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setBulkExportGzipFiles(boolean theBulkExportGzipFiles) {
+		myBulkExportGzipFiles = theBulkExportGzipFiles;
+	}
+
 	/**
 	 * This is an internal API and may change or disappear without notice
 	 *
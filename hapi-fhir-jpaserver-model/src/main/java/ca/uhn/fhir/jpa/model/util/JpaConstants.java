@@ -98,6 +98,12 @@ public class JpaConstants {
 	 * Operation name for the $get-resource-counts operation
 	 */
 	public static final String OPERATION_GET_RESOURCE_COUNTS = "$get-resource-counts";
+	/**
+	 * Operation name for the $cache-stats operation
+	 *
+	 * @since 6.6.0
+	 */
+	public static final String OPERATION_CACHE_STATS = "$cache-stats";
 	/**
 	 * Operation name for the $validate operation
 	 */
@@ -0,0 +1,134 @@
+package ca.uhn.fhir.jpa.model.util;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Model
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts FHIR JSON resource bodies to and from CBOR (RFC 8949) for storage using
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#CBOR}, using the Jackson CBOR data format.
+ * <p>
+ * Decimals are stored as CBOR decimal fractions so that their precision is preserved exactly.
+ * </p>
+ * <p>
+ * Decoding produces a Jackson tree which can be handed directly to the JSON parser, so no
+ * decompression or JSON tokenization is needed when loading a stored resource.
+ * </p>
+ *
+ * @since 6.6.0
+ */
+public class ResourceCborCodec {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+	private static final ObjectMapper CBOR_MAPPER = CBORMapper
+		.builder(CBOR_FACTORY)
+		.nodeFactory(JsonNodeFactory.withExactBigDecimals(true))
+		.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+		.enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+		.build();
+	private static final ObjectMapper JSON_MAPPER = JsonMapper
+		.builder()
+		.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+		.build();
+
+	/**
+	 * Non instantiable
+	 */
+	private ResourceCborCodec() {
+		super();
+	}
+
+	/**
+	 * Converts a JSON document into CBOR
+	 */
+	public static byte[] encode(String theJson) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(theJson.length() / 2, 32));
+		try (JsonParser parser = JSON_FACTORY.createParser(theJson);
+			  JsonGenerator generator = CBOR_FACTORY.createGenerator(output)) {
+			JsonToken token = parser.nextToken();
+			if (token == null) {
+				throw new InternalErrorException(Msg.code(2283) + "No JSON content to encode");
+			}
+			for (; token != null; token = parser.nextToken()) {
+				if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+					// Copying the event would write a double, losing the precision of the decimal
+					generator.writeNumber(parser.getDecimalValue());
+				} else {
+					generator.copyCurrentEvent(parser);
+				}
+			}
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2284) + "Failed to encode resource as CBOR: " + e.getMessage(), e);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decodes CBOR content created by {@link #encode(String)} into a JSON tree
+	 *
+	 * @throws DataFormatException If the content is not valid
+	 */
+	public static ObjectNode decodeToTree(byte[] theCbor) {
+		JsonNode retVal;
+		try {
+			retVal = CBOR_MAPPER.readTree(theCbor);
+		} catch (IOException | RuntimeException e) {
+			// Corrupt content can surface as any of these, but callers only expect a DataFormatException
+			throw new DataFormatException(Msg.code(2285) + "Invalid CBOR content: " + e.getMessage(), e);
+		}
+		if (!(retVal instanceof ObjectNode)) {
+			throw new DataFormatException(Msg.code(2287) + "CBOR content is not an object");
+		}
+		return (ObjectNode) retVal;
+	}
+
+	/**
+	 * Decodes CBOR content created by {@link #encode(String)} back into JSON text
+	 *
+	 * @throws DataFormatException If the content is not valid
+	 */
+	public static String decodeToJson(byte[] theCbor) {
+		try {
+			return JSON_MAPPER.writeValueAsString(decodeToTree(theCbor));
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2288) + e.getMessage(), e);
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package ca.uhn.fhir.jpa.model.util;
+
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResourceCborCodecTest {
+
+	@Test
+	public void testRoundTrip() {
+		String json = "{\"resourceType\":\"Observation\",\"status\":\"final\",\"valueQuantity\":{\"value\":1.50,\"unit\":\"mg\"},"
+			+ "\"component\":[{\"valueInteger\":-12},{\"valueInteger\":3000000000},{\"valueInteger\":123456789012345678901234567890}],"
+			+ "\"extension\":[{\"url\":\"http://foo\",\"valueBoolean\":true},{\"url\":\"http://foo\",\"valueBoolean\":false}],"
+			+ "\"note\":[{\"text\":\"\u00e9t\u00e9 \ud83d\ude00\"}],\"_status\":null}";
+
+		byte[] cbor = ResourceCborCodec.encode(json);
+		assertEquals(json, ResourceCborCodec.decodeToJson(cbor));
+
+		ObjectNode tree = ResourceCborCodec.decodeToTree(cbor);
+		BigDecimal value = tree.get("valueQuantity").get("value").decimalValue();
+		assertEquals(2, value.scale());
+		assertEquals("1.50", value.toPlainString());
+	}
+
+	@Test
+	public void testDecodeInvalid() {
+		assertThrows(DataFormatException.class, () -> ResourceCborCodec.decodeToTree(new byte[]{(byte) 0xBF}));
+		assertThrows(DataFormatException.class, () -> ResourceCborCodec.decodeToTree(new byte[]{(byte) 0x9F, (byte) 0xFF}));
+		assertThrows(DataFormatException.class, () -> ResourceCborCodec.decodeToTree(new byte[]{(byte) 0xA1, (byte) 0x61}));
+
+		byte[] cbor = ResourceCborCodec.encode("{\"resourceType\":\"Patient\",\"active\":true}");
+		assertThrows(DataFormatException.class, () -> ResourceCborCodec.decodeToTree(Arrays.copyOf(cbor, cbor.length - 3)));
+	}
+
+}
@@ -25,6 +25,8 @@ import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import org.hl7.fhir.instance.model.api.IIdType;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -40,5 +42,19 @@ public interface IResourceVersionSvc {
 		return getVersionMap(RequestPartitionId.allPartitions(), theResourceName, theSearchParamMap);
 	}
 
+	/**
+	 * Returns the resources of the given type whose last updated timestamp is on or after <code>theUpdatedSince</code>,
+	 * including deleted resources, along with which of them currently match the search parameter map. This allows
+	 * a cache to be brought up to date without reading the version of every matching resource.
+	 *
+	 * @return The changes, or <code>null</code> if this service can not calculate them for the given arguments, in which
+	 * case {@link #getVersionMap(RequestPartitionId, String, SearchParameterMap)} must be used instead
+	 * @since 6.6.0
+	 */
+	@Nullable
+	default ResourceVersionDelta getVersionMapDelta(RequestPartitionId theRequestPartitionId, String theResourceName, SearchParameterMap theSearchParamMap, Date theUpdatedSince) {
+		return null;
+	}
+
 	ResourcePersistentIdMap getLatestVersionIdsForResourceIds(RequestPartitionId thePartition, List<IIdType> theIds);
 }
@@ -61,6 +61,9 @@ public class ResourceChangeListenerCache implements IResourceChangeListenerCache
 
 	private boolean myInitialized = false;
 	private Instant myNextRefreshTime = Instant.MIN;
+	private Instant myLastRefreshStartTime;
+	private Instant myLastFullRefreshTime;
+	private boolean myFullRefreshRequested = false;
 
 	public ResourceChangeListenerCache(String theResourceName, IResourceChangeListener theResourceChangeListener, SearchParameterMap theSearchParameterMap, long theRemoteRefreshIntervalMs) {
 		myResourceName = theResourceName;
@@ -83,6 +86,7 @@ public class ResourceChangeListenerCache implements IResourceChangeListenerCache
 	@Override
 	public ResourceChangeResult forceRefresh() {
 		requestRefresh();
+		myFullRefreshRequested = true;
 		return refreshCacheWithRetry();
 	}
 
@@ -174,6 +178,50 @@ public class ResourceChangeListenerCache implements IResourceChangeListenerCache
 		return myResourceName;
 	}
 
+	/**
+	 * The time at which the last successful refresh of this cache started, or <code>null</code> if it has never been refreshed
+	 *
+	 * @since 6.6.0
+	 */
+	public Instant getLastRefreshStartTime() {
+		return myLastRefreshStartTime;
+	}
+
+	/**
+	 * The time at which the last successful full (i.e. non-incremental) refresh of this cache started, or
+	 * <code>null</code> if it has never been fully refreshed
+	 *
+	 * @since 6.6.0
+	 */
+	public Instant getLastFullRefreshTime() {
+		return myLastFullRefreshTime;
+	}
+
+	/**
+	 * Returns <code>true</code> if the next refresh of this cache must read the full version map instead of
+	 * only the resources that have changed since the last refresh
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isFullRefreshRequested() {
+		return myFullRefreshRequested;
+	}
+
+	/**
+	 * Records a successful refresh of this cache
+	 *
+	 * @param theRefreshStartTime The time at which the refresh started
+	 * @param theFullRefresh      Was the full version map read
+	 * @since 6.6.0
+	 */
+	public void markRefreshed(Instant theRefreshStartTime, boolean theFullRefresh) {
+		myLastRefreshStartTime = theRefreshStartTime;
+		if (theFullRefresh) {
+			myLastFullRefreshTime = theRefreshStartTime;
+			myFullRefreshRequested = false;
+		}
+	}
+
 	public ResourceVersionCache getResourceVersionCache() {
 		return myResourceVersionCache;
 	}
@@ -204,6 +252,7 @@ public class ResourceChangeListenerCache implements IResourceChangeListenerCache
 	@VisibleForTesting
 	public void clearForUnitTest() {
 		requestRefresh();
+		myFullRefreshRequested = true;
 		myResourceVersionCache.clear();
 	}
 
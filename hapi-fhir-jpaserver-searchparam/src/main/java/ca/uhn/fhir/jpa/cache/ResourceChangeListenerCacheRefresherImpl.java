@@ -20,6 +20,7 @@ package ca.uhn.fhir.jpa.cache;
  * #L%
  */
 
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.model.sched.HapiJob;
 import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
@@ -37,7 +38,9 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -49,6 +52,12 @@ import java.util.List;
  * Every time a chair passes the bottom it checks to see if it's time to refresh that seat.  If so,
  * the Ferris Wheel stops, removes the riders, and loads a fresh cache for that chair, and calls the listener
  * if any entries in the new cache are different from the last time that cache was loaded.
+ *
+ * Once a cache has been loaded, most refreshes are incremental: only resources whose last updated time is
+ * after the start of the previous refresh (less a safety overlap) are read. Because an incremental refresh can
+ * miss changes that are committed late or resources that are physically removed (e.g. by $expunge), a full
+ * refresh is still performed every {@link #setFullRefreshIntervalMs(long) full refresh interval}, and whenever
+ * a refresh is forced.
  */
 @Service
 public class ResourceChangeListenerCacheRefresherImpl implements IResourceChangeListenerCacheRefresher, IHasScheduledJobs {
@@ -59,11 +68,23 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 	 */
 	static long LOCAL_REFRESH_INTERVAL_MS = 10 * DateUtils.MILLIS_PER_SECOND;
 
+	/**
+	 * By default, a cache reads its full version map at this interval, and only reads changed resources in between
+	 */
+	public static final long DEFAULT_FULL_REFRESH_INTERVAL_MS = 10 * DateUtils.MILLIS_PER_MINUTE;
+
+	/**
+	 * Incremental refreshes read resources updated since this long before the start of the previous refresh, to allow
+	 * for transactions that commit some time after their timestamp and for clock differences between servers
+	 */
+	static final long INCREMENTAL_REFRESH_OVERLAP_MS = DateUtils.MILLIS_PER_MINUTE;
+
 	@Autowired
 	private IResourceVersionSvc myResourceVersionSvc;
 	@Autowired
 	private ResourceChangeListenerRegistryImpl myResourceChangeListenerRegistry;
 	private boolean myStopping = false;
+	private long myFullRefreshIntervalMs = DEFAULT_FULL_REFRESH_INTERVAL_MS;
 
 	@Override
 	public void scheduleJobs(ISchedulerService theSchedulerService) {
@@ -116,6 +137,16 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 	}
 
 
+	/**
+	 * Sets the interval at which caches read their full version map. In between, only resources that have changed
+	 * since the previous refresh are read. Set to <code>0</code> to always read the full version map.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setFullRefreshIntervalMs(long theFullRefreshIntervalMs) {
+		myFullRefreshIntervalMs = theFullRefreshIntervalMs;
+	}
+
 	@EventListener(ContextRefreshedEvent.class)
 	public void start() {
 		myStopping = false;
@@ -141,13 +172,38 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 			ourLog.warn("Requesting cache refresh for unregistered listener {}.  Aborting.", theCache);
 			return retVal;
 		}
+		ResourceChangeListenerCache cache = (ResourceChangeListenerCache) theCache;
 		SearchParameterMap searchParamMap = theCache.getSearchParameterMap();
-		ResourceVersionMap newResourceVersionMap = myResourceVersionSvc.getVersionMap(theCache.getResourceName(), searchParamMap);
-		retVal = retVal.plus(notifyListener(theCache, newResourceVersionMap));
+		Instant refreshStartTime = Instant.now();
+
+		ResourceVersionDelta delta = null;
+		if (isIncrementalRefreshPossible(cache, refreshStartTime)) {
+			Date updatedSince = Date.from(cache.getLastRefreshStartTime().minusMillis(INCREMENTAL_REFRESH_OVERLAP_MS));
+			delta = myResourceVersionSvc.getVersionMapDelta(RequestPartitionId.allPartitions(), theCache.getResourceName(), searchParamMap, updatedSince);
+		}
+
+		if (delta != null) {
+			retVal = retVal.plus(notifyListenerOfDelta(cache, delta));
+		} else {
+			ResourceVersionMap newResourceVersionMap = myResourceVersionSvc.getVersionMap(theCache.getResourceName(), searchParamMap);
+			retVal = retVal.plus(notifyListener(theCache, newResourceVersionMap));
+		}
+		cache.markRefreshed(refreshStartTime, delta == null);
 
 		return retVal;
 	}
 
+	private boolean isIncrementalRefreshPossible(ResourceChangeListenerCache theCache, Instant theRefreshStartTime) {
+		if (myFullRefreshIntervalMs <= 0 || !theCache.isInitialized() || theCache.isFullRefreshRequested()) {
+			return false;
+		}
+		Instant lastFullRefreshTime = theCache.getLastFullRefreshTime();
+		if (lastFullRefreshTime == null || theCache.getLastRefreshStartTime() == null) {
+			return false;
+		}
+		return lastFullRefreshTime.plusMillis(myFullRefreshIntervalMs).isAfter(theRefreshStartTime);
+	}
+
 	/**
 	 * Notify a listener with all matching resources if it hasn't been initialized yet, otherwise only notify it if
 	 * any resources have changed
@@ -170,6 +226,28 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 		return retval;
 	}
 
+	/**
+	 * Notify an initialized listener of the resources that have been created, updated or deleted according to an
+	 * incremental refresh
+	 * @param theCache
+	 * @param theDelta the resources that changed since the previous refresh
+	 * @return the list of created, updated and deleted ids
+	 */
+	ResourceChangeResult notifyListenerOfDelta(ResourceChangeListenerCache theCache, ResourceVersionDelta theDelta) {
+		ResourceVersionCache oldResourceVersionCache = theCache.getResourceVersionCache();
+		ResourceVersionMap matchingResources = theDelta.getMatchingResources();
+
+		// If a changed resource no longer matches (or was deleted) and we had it - delete it
+		List<IIdType> deletedIds = new ArrayList<>();
+		for (IIdType id : theDelta.getChangedResources().keySet()) {
+			if (!matchingResources.containsKey(id) && oldResourceVersionCache.removeResourceId(id) != null) {
+				deletedIds.add(id);
+			}
+		}
+
+		return putNewVersionsAndNotifyListener(theCache.getResourceChangeListener(), oldResourceVersionCache, matchingResources, deletedIds);
+	}
+
 	private ResourceChangeResult compareLastVersionMapToNewVersionMapAndNotifyListenerOfChanges(IResourceChangeListener theListener, ResourceVersionCache theOldResourceVersionCache, ResourceVersionMap theNewResourceVersionMap) {
 		// If the new ResourceVersionMap does not have the old key - delete it
 		List<IIdType> deletedIds = new ArrayList<>();
@@ -181,6 +259,10 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 			});
 		deletedIds.forEach(theOldResourceVersionCache::removeResourceId);
 
+		return putNewVersionsAndNotifyListener(theListener, theOldResourceVersionCache, theNewResourceVersionMap, deletedIds);
+	}
+
+	private ResourceChangeResult putNewVersionsAndNotifyListener(IResourceChangeListener theListener, ResourceVersionCache theOldResourceVersionCache, ResourceVersionMap theNewResourceVersionMap, List<IIdType> theDeletedIds) {
 		List<IIdType> createdIds = new ArrayList<>();
 		List<IIdType> updatedIds = new ArrayList<>();
 
@@ -194,7 +276,7 @@ public class ResourceChangeListenerCacheRefresherImpl implements IResourceChange
 			}
 		}
 
-		IResourceChangeEvent resourceChangeEvent = ResourceChangeEvent.fromCreatedUpdatedDeletedResourceIds(createdIds, updatedIds, deletedIds);
+		IResourceChangeEvent resourceChangeEvent = ResourceChangeEvent.fromCreatedUpdatedDeletedResourceIds(createdIds, updatedIds, theDeletedIds);
 		if (!resourceChangeEvent.isEmpty()) {
 			theListener.handleChange(resourceChangeEvent);
 		}
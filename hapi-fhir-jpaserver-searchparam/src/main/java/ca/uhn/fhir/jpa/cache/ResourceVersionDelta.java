@@ -0,0 +1,57 @@
+package ca.uhn.fhir.jpa.cache;
+
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+
+import java.util.Date;
+
+/**
+ * The resources of a given type that have changed since a point in time, as returned by
+ * {@link IResourceVersionSvc#getVersionMapDelta(RequestPartitionId, String, SearchParameterMap, Date)}.
+ *
+ * @since 6.6.0
+ */
+public class ResourceVersionDelta {
+	private final ResourceVersionMap myChangedResources;
+	private final ResourceVersionMap myMatchingResources;
+
+	public ResourceVersionDelta(ResourceVersionMap theChangedResources, ResourceVersionMap theMatchingResources) {
+		myChangedResources = theChangedResources;
+		myMatchingResources = theMatchingResources;
+	}
+
+	/**
+	 * Every resource that was created, updated or deleted in the period, whether or not it matches the search parameter map
+	 */
+	public ResourceVersionMap getChangedResources() {
+		return myChangedResources;
+	}
+
+	/**
+	 * The subset of {@link #getChangedResources() the changed resources} that currently exist and match the search
+	 * parameter map. Any changed resource that is not in this map has been deleted or no longer matches.
+	 */
+	public ResourceVersionMap getMatchingResources() {
+		return myMatchingResources;
+	}
+}
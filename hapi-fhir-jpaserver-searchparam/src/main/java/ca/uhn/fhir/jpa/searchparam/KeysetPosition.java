@@ -0,0 +1,87 @@
+package ca.uhn.fhir.jpa.searchparam;
+
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Describes the position of a keyset (seek) paginated search. When a {@link SearchParameterMap}
+ * carries a keyset position, only results sorting after the given position are returned, and the
+ * results are always ordered by the resource PID (after the <code>_lastUpdated</code> value if the
+ * search is sorted by <code>_lastUpdated</code>).
+ *
+ * @since 6.6.0
+ */
+public class KeysetPosition implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Date myLastUpdated;
+	private final Long myResourcePid;
+
+	/**
+	 * Constructor for the first page of a keyset paginated search
+	 */
+	public KeysetPosition() {
+		this(null, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theLastUpdated The <code>_lastUpdated</code> value of the last result on the previous page. Only used if the search is sorted by <code>_lastUpdated</code>.
+	 * @param theResourcePid The PID of the last result on the previous page, or <code>null</code> for the first page
+	 */
+	public KeysetPosition(@Nullable Date theLastUpdated, @Nullable Long theResourcePid) {
+		myLastUpdated = theLastUpdated;
+		myResourcePid = theResourcePid;
+	}
+
+	@Nullable
+	public Date getLastUpdated() {
+		return myLastUpdated;
+	}
+
+	@Nullable
+	public Long getResourcePid() {
+		return myResourcePid;
+	}
+
+	/**
+	 * Returns <code>true</code> if this is the position of the first page (i.e. there is no previous result)
+	 */
+	public boolean isFirstPage() {
+		return myResourcePid == null;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("lastUpdated", myLastUpdated)
+			.append("resourcePid", myResourcePid)
+			.toString();
+	}
+}
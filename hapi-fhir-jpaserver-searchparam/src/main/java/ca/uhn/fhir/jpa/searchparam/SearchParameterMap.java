@@ -85,6 +85,7 @@ public class SearchParameterMap implements Serializable {
 	private Integer myLastNMax;
 	private boolean myDeleteExpunge;
 	private SearchContainedModeEnum mySearchContainedMode = SearchContainedModeEnum.FALSE;
+	private KeysetPosition myKeysetPosition;
 
 	/**
 	 * Constructor
@@ -123,6 +124,7 @@ public class SearchParameterMap implements Serializable {
 		map.setLoadSynchronousUpTo(getLoadSynchronousUpTo());
 		map.setOffset(getOffset());
 		map.setSearchContainedMode(getSearchContainedMode());
+		map.setKeysetPosition(getKeysetPosition());
 
 		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : mySearchParameterMap.entrySet()) {
 			List<List<IQueryParameterType>> andParams = entry.getValue();
@@ -278,6 +280,28 @@ public class SearchParameterMap implements Serializable {
 		myOffset = theOffset;
 	}
 
+	/**
+	 * If set, the search is executed using keyset (seek) pagination and only returns
+	 * results that sort after the given position. This is not part of the
+	 * {@link #toNormalizedQueryString(FhirContext) normalized query string}.
+	 *
+	 * @since 6.6.0
+	 */
+	public KeysetPosition getKeysetPosition() {
+		return myKeysetPosition;
+	}
+
+	/**
+	 * If set, the search is executed using keyset (seek) pagination and only returns
+	 * results that sort after the given position. This is not part of the
+	 * {@link #toNormalizedQueryString(FhirContext) normalized query string}.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setKeysetPosition(KeysetPosition theKeysetPosition) {
+		myKeysetPosition = theKeysetPosition;
+	}
+
 	public EverythingModeEnum getEverythingMode() {
 		return myEverythingMode;
 	}
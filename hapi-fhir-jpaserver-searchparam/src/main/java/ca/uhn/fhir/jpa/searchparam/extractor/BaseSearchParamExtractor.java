@@ -75,8 +75,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -1342,6 +1344,93 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 	}
 
 
+	/**
+	 * Extracts every index type for the resource, caching the values of each path. Each
+	 * extractor is created once, contained resource cleanup happens once, and a path that is
+	 * used by several search parameters (e.g. a string and a token parameter on the same
+	 * element) is evaluated only once. Paths which merely share a prefix (e.g.
+	 * <code>Patient.name.family</code> and <code>Patient.name.given</code>) are still
+	 * evaluated separately, and each alternative of a <code>|</code>-separated path is
+	 * cached separately.
+	 *
+	 * @see #extractSearchParams(IBaseResource, IExtractor, RestSearchParameterTypeEnum, boolean) for
+	 * an explanation of why paths starting with <code>Resource.</code> are skipped
+	 */
+	@Override
+	public ExtractedSearchParams extractSearchParamsWithPathCache(IBaseResource theResource) {
+		ExtractedSearchParams retVal = new ExtractedSearchParams();
+
+		Collection<RuntimeSearchParam> searchParams = getSearchParams(theResource);
+
+		cleanUpContainedResourceReferences(theResource, null, searchParams);
+
+		String resourceTypeName = toRootTypeName(theResource);
+		IExtractor<ResourceIndexedSearchParamString> stringExtractor = createStringExtractor(theResource);
+		IExtractor<ResourceIndexedSearchParamNumber> numberExtractor = createNumberExtractor(theResource);
+		IExtractor<ResourceIndexedSearchParamQuantity> quantityExtractor = createQuantityUnnormalizedExtractor(theResource);
+		IExtractor<ResourceIndexedSearchParamQuantityNormalized> quantityNormalizedExtractor = null;
+		if (myStorageSettings.getNormalizedQuantitySearchLevel().storageOrSearchSupported()) {
+			quantityNormalizedExtractor = createQuantityNormalizedExtractor(theResource);
+		}
+		IExtractor<ResourceIndexedSearchParamDate> dateExtractor = createDateExtractor(theResource);
+		IExtractor<ResourceIndexedSearchParamUri> uriExtractor = createUriExtractor(theResource);
+		IExtractor<BaseResourceIndexedSearchParam> tokenExtractor = createTokenExtractor(theResource);
+		IExtractor<BaseResourceIndexedSearchParam> specialExtractor = createSpecialExtractor(resourceTypeName);
+		IExtractor<ResourceIndexedSearchParamComposite> compositeExtractor = null;
+		// DSTU2 composites use paths like value[x], which we don't support
+		if (myContext.getVersion().getVersion().isEqualOrNewerThan(FhirVersionEnum.DSTU3)) {
+			compositeExtractor = createCompositeExtractor(theResource);
+		}
+
+		Map<String, List<IBase>> pathToValues = new HashMap<>();
+
+		for (RuntimeSearchParam nextSpDef : searchParams) {
+
+			// See the javadoc for extractSearchParams for an explanation of this
+			if (startsWith(nextSpDef.getPath(), "Resource.")) {
+				continue;
+			}
+
+			String path = nextSpDef.getPath();
+			switch (nextSpDef.getParamType()) {
+				case STRING:
+					extractSearchParam(nextSpDef, path, theResource, stringExtractor, retVal.getStrings(), false, pathToValues);
+					break;
+				case NUMBER:
+					extractSearchParam(nextSpDef, path, theResource, numberExtractor, retVal.getNumbers(), false, pathToValues);
+					break;
+				case QUANTITY:
+					extractSearchParam(nextSpDef, path, theResource, quantityExtractor, retVal.getQuantities(), false, pathToValues);
+					if (quantityNormalizedExtractor != null) {
+						extractSearchParam(nextSpDef, path, theResource, quantityNormalizedExtractor, retVal.getQuantitiesNormalized(), false, pathToValues);
+					}
+					break;
+				case DATE:
+					extractSearchParam(nextSpDef, path, theResource, dateExtractor, retVal.getDates(), false, pathToValues);
+					break;
+				case URI:
+					extractSearchParam(nextSpDef, path, theResource, uriExtractor, retVal.getUris(), false, pathToValues);
+					break;
+				case TOKEN:
+					extractSearchParam(nextSpDef, path, theResource, tokenExtractor, retVal.getTokens(), false, pathToValues);
+					break;
+				case SPECIAL:
+					extractSearchParam(nextSpDef, path, theResource, specialExtractor, retVal.getSpecials(), false, pathToValues);
+					break;
+				case COMPOSITE:
+					if (compositeExtractor != null) {
+						extractSearchParam(nextSpDef, path, theResource, compositeExtractor, retVal.getComposites(), false, pathToValues);
+					}
+					break;
+				case REFERENCE:
+				case HAS:
+					break;
+			}
+		}
+
+		return retVal;
+	}
+
 	/**
 	 * Helper function to determine if a set of SPs for a resource uses a resolve as part of its fhir path.
 	 */
@@ -1388,6 +1477,15 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 	 * Allows composite SPs to use sub-paths.
 	 */
 	private <T> void extractSearchParam(RuntimeSearchParam theSearchParameterDef, String thePathExpression, IBase theResource, IExtractor<T> theExtractor, SearchParamSet<T> theSetToPopulate, boolean theWantLocalReferences) {
+		extractSearchParam(theSearchParameterDef, thePathExpression, theResource, theExtractor, theSetToPopulate, theWantLocalReferences, null);
+	}
+
+	/**
+	 * @param thePathToValues If not null, values already extracted for a given path are reused from (and newly
+	 *                        extracted values are stored in) this map. It must only ever be used with a single
+	 *                        <code>theResource</code>.
+	 */
+	private <T> void extractSearchParam(RuntimeSearchParam theSearchParameterDef, String thePathExpression, IBase theResource, IExtractor<T> theExtractor, SearchParamSet<T> theSetToPopulate, boolean theWantLocalReferences, @Nullable Map<String, List<IBase>> thePathToValues) {
 		if (isBlank(thePathExpression)) {
 			return;
 		}
@@ -1395,7 +1493,13 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 		String[] splitPaths = split(thePathExpression);
 		for (String nextPath : splitPaths) {
 			nextPath = trim(nextPath);
-			for (IBase nextObject : extractValues(nextPath, theResource)) {
+			List<IBase> values;
+			if (thePathToValues != null) {
+				values = thePathToValues.computeIfAbsent(nextPath, t -> extractValues(t, theResource));
+			} else {
+				values = extractValues(nextPath, theResource);
+			}
+			for (IBase nextObject : values) {
 				if (nextObject != null) {
 					String typeName = toRootTypeName(nextObject);
 					if (!myIgnoredForSearchDatatypes.contains(typeName)) {
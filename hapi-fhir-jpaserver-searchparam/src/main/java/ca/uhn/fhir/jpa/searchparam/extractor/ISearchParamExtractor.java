@@ -70,6 +70,34 @@ public interface ISearchParamExtractor {
 
 	SearchParamSet<ResourceIndexedSearchParamUri> extractSearchParamUri(IBaseResource theResource);
 
+	/**
+	 * Extracts the string, number, quantity, date, URI, token, special and composite index
+	 * values for a resource. The result is equivalent to calling each of the individual
+	 * {@literal extractSearchParam*} methods, but implementations may cache the values of
+	 * each path so that a path which is used by more than one search parameter is only
+	 * evaluated once.
+	 * <p>
+	 * Implementations may leave the normalized quantities empty if normalized quantity
+	 * storage is not enabled, and the composites empty for FHIR versions that do not
+	 * support composite indexing.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	default ExtractedSearchParams extractSearchParamsWithPathCache(IBaseResource theResource) {
+		ExtractedSearchParams retVal = new ExtractedSearchParams();
+		retVal.getStrings().addAll(extractSearchParamStrings(theResource));
+		retVal.getNumbers().addAll(extractSearchParamNumber(theResource));
+		retVal.getQuantities().addAll(extractSearchParamQuantity(theResource));
+		retVal.getQuantitiesNormalized().addAll(extractSearchParamQuantityNormalized(theResource));
+		retVal.getDates().addAll(extractSearchParamDates(theResource));
+		retVal.getUris().addAll(extractSearchParamUri(theResource));
+		retVal.getTokens().addAll(extractSearchParamTokens(theResource));
+		retVal.getSpecials().addAll(extractSearchParamSpecial(theResource));
+		retVal.getComposites().addAll(extractSearchParamComposites(theResource));
+		return retVal;
+	}
+
 	SearchParamSet<PathAndRef> extractResourceLinks(IBaseResource theResource, boolean theWantLocalReferences);
 
 	String[] split(String theExpression);
@@ -116,5 +144,64 @@ public interface ISearchParamExtractor {
 
 	}
 
+	/**
+	 * Holder for the results of {@link #extractSearchParamsWithPathCache(IBaseResource)}
+	 *
+	 * @since 6.6.0
+	 */
+	class ExtractedSearchParams {
+
+		private final SearchParamSet<ResourceIndexedSearchParamString> myStrings = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamNumber> myNumbers = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamQuantity> myQuantities = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamQuantityNormalized> myQuantitiesNormalized = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamDate> myDates = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamUri> myUris = new SearchParamSet<>();
+		private final SearchParamSet<BaseResourceIndexedSearchParam> myTokens = new SearchParamSet<>();
+		private final SearchParamSet<BaseResourceIndexedSearchParam> mySpecials = new SearchParamSet<>();
+		private final SearchParamSet<ResourceIndexedSearchParamComposite> myComposites = new SearchParamSet<>();
+
+		public SearchParamSet<ResourceIndexedSearchParamString> getStrings() {
+			return myStrings;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamNumber> getNumbers() {
+			return myNumbers;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamQuantity> getQuantities() {
+			return myQuantities;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamQuantityNormalized> getQuantitiesNormalized() {
+			return myQuantitiesNormalized;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamDate> getDates() {
+			return myDates;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamUri> getUris() {
+			return myUris;
+		}
+
+		/**
+		 * Token extraction can also produce {@link ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString}
+		 * (display text) and {@link ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamCoords} entries
+		 */
+		public SearchParamSet<BaseResourceIndexedSearchParam> getTokens() {
+			return myTokens;
+		}
+
+		public SearchParamSet<BaseResourceIndexedSearchParam> getSpecials() {
+			return mySpecials;
+		}
+
+		public SearchParamSet<ResourceIndexedSearchParamComposite> getComposites() {
+			return myComposites;
+		}
+
+	}
+
 
 }
@@ -3,7 +3,9 @@ package ca.uhn.fhir.jpa.cache;
 import ca.uhn.fhir.jpa.cache.config.RegisteredResourceListenerFactoryConfig;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.model.primitive.IdDt;
 import org.apache.commons.lang3.time.DateUtils;
+import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,11 +16,16 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.Collections;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -83,4 +90,78 @@ class ResourceChangeListenerCacheRefresherImplTest {
 		verify(myResourceVersionSvc, times(0)).getVersionMap(any(), any());
 	}
 
+	@Test
+	public void testIncrementalRefreshAfterFullRefresh() {
+		IResourceChangeListener listener = mock(IResourceChangeListener.class);
+		ResourceChangeListenerCache cache = new ResourceChangeListenerCache(PATIENT_RESOURCE_NAME, listener, ourMap, TEST_REFRESH_INTERVAL_MS);
+		when(myResourceChangeListenerRegistry.contains(cache)).thenReturn(true);
+
+		Patient patient1 = new Patient();
+		patient1.setId("Patient/1/_history/1");
+		Patient patient2 = new Patient();
+		patient2.setId("Patient/2/_history/1");
+		when(myResourceVersionSvc.getVersionMap(any(), any())).thenReturn(ResourceVersionMap.fromResources(List.of(patient1, patient2)));
+		ResourceChangeResult result = myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+		assertEquals(2, result.created);
+		assertNotNull(cache.getLastFullRefreshTime());
+
+		// Patient/1 is updated, Patient/2 no longer matches, and Patient/3 is created
+		Patient patient1v2 = new Patient();
+		patient1v2.setId("Patient/1/_history/2");
+		Patient patient2v2 = new Patient();
+		patient2v2.setId("Patient/2/_history/2");
+		Patient patient3 = new Patient();
+		patient3.setId("Patient/3/_history/1");
+		ResourceVersionDelta delta = new ResourceVersionDelta(
+			ResourceVersionMap.fromResources(List.of(patient1v2, patient2v2, patient3)),
+			ResourceVersionMap.fromResources(List.of(patient1v2, patient3)));
+		when(myResourceVersionSvc.getVersionMapDelta(any(), any(), any(), any())).thenReturn(delta);
+
+		result = myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+		assertEquals(1, result.created);
+		assertEquals(1, result.updated);
+		assertEquals(1, result.deleted);
+		verify(myResourceVersionSvc, times(1)).getVersionMap(any(), any());
+		assertEquals(2L, cache.getResourceVersionCache().getVersionForResourceId(new IdDt("Patient/1")));
+		assertNull(cache.getResourceVersionCache().getVersionForResourceId(new IdDt("Patient/2")));
+		assertEquals(1L, cache.getResourceVersionCache().getVersionForResourceId(new IdDt("Patient/3")));
+
+		// Deletions of resources we never had are ignored
+		result = myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+		assertEquals(0, result.deleted);
+	}
+
+	@Test
+	public void testFullRefreshWhenIncrementalNotSupported() {
+		IResourceChangeListener listener = mock(IResourceChangeListener.class);
+		ResourceChangeListenerCache cache = new ResourceChangeListenerCache(PATIENT_RESOURCE_NAME, listener, ourMap, TEST_REFRESH_INTERVAL_MS);
+		when(myResourceChangeListenerRegistry.contains(cache)).thenReturn(true);
+		when(myResourceVersionSvc.getVersionMap(any(), any())).thenReturn(ResourceVersionMap.empty());
+
+		myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+		myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+
+		verify(myResourceVersionSvc, times(1)).getVersionMapDelta(any(), any(), any(), any());
+		verify(myResourceVersionSvc, times(2)).getVersionMap(any(), any());
+	}
+
+	@Test
+	public void testFullRefreshWhenIncrementalDisabled() {
+		IResourceChangeListener listener = mock(IResourceChangeListener.class);
+		ResourceChangeListenerCache cache = new ResourceChangeListenerCache(PATIENT_RESOURCE_NAME, listener, ourMap, TEST_REFRESH_INTERVAL_MS);
+		when(myResourceChangeListenerRegistry.contains(cache)).thenReturn(true);
+		when(myResourceVersionSvc.getVersionMap(any(), any())).thenReturn(ResourceVersionMap.empty());
+
+		myResourceChangeListenerCacheRefresher.setFullRefreshIntervalMs(0);
+		try {
+			myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+			myResourceChangeListenerCacheRefresher.refreshCacheAndNotifyListener(cache);
+		} finally {
+			myResourceChangeListenerCacheRefresher.setFullRefreshIntervalMs(ResourceChangeListenerCacheRefresherImpl.DEFAULT_FULL_REFRESH_INTERVAL_MS);
+		}
+
+		verify(myResourceVersionSvc, never()).getVersionMapDelta(any(), any(), any(), any());
+		verify(myResourceVersionSvc, times(2)).getVersionMap(any(), any());
+	}
+
 }
@@ -38,6 +38,7 @@ import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchin
 import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionRegisteringSubscriber;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionLoader;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionRegistry;
+import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionTokenDiscriminatorSvc;
 import ca.uhn.fhir.jpa.subscription.model.config.SubscriptionModelConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -76,6 +77,11 @@ public class SubscriptionProcessorConfig {
 		return new SubscriptionRegistry();
 	}
 
+	@Bean
+	public SubscriptionTokenDiscriminatorSvc subscriptionTokenDiscriminatorSvc() {
+		return new SubscriptionTokenDiscriminatorSvc();
+	}
+
 	@Bean
 	public SubscriptionDeliveryChannelNamer subscriptionDeliveryChannelNamer() {
 		return new SubscriptionDeliveryChannelNamer();
@@ -28,6 +28,7 @@ import org.springframework.messaging.MessagingException;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
+import java.util.Collections;
 
 import static ca.uhn.fhir.rest.server.messaging.BaseResourceMessage.OperationTypeEnum.DELETE;
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
@@ -119,7 +120,14 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 	private void doMatchActiveSubscriptionsAndDeliver(ResourceModifiedMessage theMsg) {
 		IIdType resourceId = theMsg.getPayloadId(myFhirContext);
 
-		Collection<ActiveSubscription> subscriptions = mySubscriptionRegistry.getAll();
+		Collection<ActiveSubscription> subscriptions;
+		if (isNotBlank(theMsg.getSubscriptionId())) {
+			// Targeted message (e.g. from $trigger-subscription), so only the one subscription is a candidate
+			ActiveSubscription activeSubscription = mySubscriptionRegistry.get(theMsg.getSubscriptionId());
+			subscriptions = activeSubscription != null ? Collections.singletonList(activeSubscription) : Collections.emptyList();
+		} else {
+			subscriptions = mySubscriptionRegistry.getCandidateSubscriptions(resourceId.getResourceType(), theMsg.getPartitionId(), theMsg.getNewPayload(myFhirContext));
+		}
 
 		ourLog.trace("Testing {} subscriptions for applicability", subscriptions.size());
 		boolean anySubscriptionsMatchedResource = false;
@@ -152,7 +160,6 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 
 		if (isNotBlank(theMsg.getSubscriptionId())) {
 			if (!theMsg.getSubscriptionId().equals(nextSubscriptionId)) {
-				// TODO KHS we should use a hash to look it up instead of this full table scan
 				ourLog.debug("Ignoring subscription {} because it is not {}", nextSubscriptionId, theMsg.getSubscriptionId());
 				return false;
 			}
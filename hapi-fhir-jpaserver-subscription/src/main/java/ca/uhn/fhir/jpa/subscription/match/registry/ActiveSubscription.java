@@ -28,6 +28,7 @@ import ca.uhn.fhir.jpa.subscription.model.ChannelRetryConfiguration;
 public class ActiveSubscription {
 
 	private SubscriptionCriteriaParser.SubscriptionCriteria myCriteria;
+	private SubscriptionTokenDiscriminator myTokenDiscriminator;
 
 	private final String myChannelName;
 	private final String myId;
@@ -53,6 +54,21 @@ public class ActiveSubscription {
 	public final void setSubscription(CanonicalSubscription theSubscription) {
 		mySubscription = theSubscription;
 		myCriteria = SubscriptionCriteriaParser.parse(theSubscription.getCriteriaString());
+		myTokenDiscriminator = null;
+	}
+
+	/**
+	 * @return The token discriminator for the current criteria, or <code>null</code> if there is none
+	 */
+	public SubscriptionTokenDiscriminator getTokenDiscriminator() {
+		return myTokenDiscriminator;
+	}
+
+	/**
+	 * This is cleared whenever {@link #setSubscription(CanonicalSubscription)} is called, since it depends on the criteria
+	 */
+	public void setTokenDiscriminator(SubscriptionTokenDiscriminator theTokenDiscriminator) {
+		myTokenDiscriminator = theTokenDiscriminator;
 	}
 
 	public String getChannelName() {
@@ -20,17 +20,35 @@ package ca.uhn.fhir.jpa.subscription.match.registry;
  * #L%
  */
 
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 class ActiveSubscriptionCache {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscriptionCache.class);
 
+	private static final String STAR_TYPE_KEY = "*";
+	private static final String CROSS_PARTITION_KEY = "*";
+	private static final String DEFAULT_PARTITION_KEY = "default";
 	private final Map<String, ActiveSubscription> myCache = new ConcurrentHashMap<>();
+	/**
+	 * Resource type (or {@literal *} for star-type criteria), then partition (or {@literal *} for cross-partition
+	 * subscriptions), to the subscriptions that could match a resource of that type in that partition
+	 */
+	private final Map<String, Map<String, CandidateBucket>> myIndex = new ConcurrentHashMap<>();
+	/**
+	 * Subscription ID to the index keys it is currently indexed under, so that the index can be
+	 * cleaned up even if the subscription criteria were changed in place
+	 */
+	private final Map<String, Set<IndexKey>> mySubscriptionIdToIndexKeys = new ConcurrentHashMap<>();
 
 	public ActiveSubscription get(String theIdPart) {
 		return myCache.get(theIdPart);
@@ -40,12 +58,156 @@ class ActiveSubscriptionCache {
 		return Collections.unmodifiableCollection(myCache.values());
 	}
 
+	/**
+	 * Returns the active subscriptions whose criteria could possibly apply to a resource of the given type, in
+	 * any partition, without narrowing by token discriminator.
+	 */
+	public List<ActiveSubscription> getAllForResourceType(String theResourceType) {
+		return getCandidates(theResourceType, null, t -> null);
+	}
+
+	/**
+	 * Returns the active subscriptions that could possibly match a resource, using the resource type, partition and
+	 * token discriminator indexes so that callers do not need to test every registered subscription.
+	 *
+	 * @param theResourceType  The type of the modified resource
+	 * @param thePartitionId   The partition of the modified resource, or <code>null</code> to include every partition
+	 * @param theCodesForParam Returns the normalized codes the resource has for a given token parameter name, or
+	 *                         <code>null</code> if they can't be determined, in which case every subscription
+	 *                         discriminated by that parameter remains a candidate
+	 */
+	public List<ActiveSubscription> getCandidates(String theResourceType, @Nullable RequestPartitionId thePartitionId, Function<String, Set<String>> theCodesForParam) {
+		Map<String, Optional<Set<String>>> codesForParam = new HashMap<>();
+		Function<String, Set<String>> memoizedCodesForParam = t -> codesForParam.computeIfAbsent(t, p -> Optional.ofNullable(theCodesForParam.apply(p))).orElse(null);
+
+		Set<String> subscriptionIds = new LinkedHashSet<>();
+		addCandidates(theResourceType, thePartitionId, memoizedCodesForParam, subscriptionIds);
+		if (!"Subscription".equals(theResourceType)) {
+			addCandidates(STAR_TYPE_KEY, thePartitionId, memoizedCodesForParam, subscriptionIds);
+		}
+
+		List<ActiveSubscription> retVal = new ArrayList<>(subscriptionIds.size());
+		for (String next : subscriptionIds) {
+			ActiveSubscription activeSubscription = myCache.get(next);
+			if (activeSubscription != null) {
+				retVal.add(activeSubscription);
+			}
+		}
+		return retVal;
+	}
+
+	private void addCandidates(String theTypeKey, @Nullable RequestPartitionId thePartitionId, Function<String, Set<String>> theCodesForParam, Set<String> theSubscriptionIds) {
+		Map<String, CandidateBucket> partitionBuckets = myIndex.get(theTypeKey);
+		if (partitionBuckets == null) {
+			return;
+		}
+
+		if (thePartitionId == null || !thePartitionId.hasPartitionIds()) {
+			for (CandidateBucket next : partitionBuckets.values()) {
+				next.addCandidates(theCodesForParam, theSubscriptionIds);
+			}
+			return;
+		}
+
+		addCandidates(partitionBuckets.get(CROSS_PARTITION_KEY), theCodesForParam, theSubscriptionIds);
+		for (Integer next : thePartitionId.getPartitionIds()) {
+			addCandidates(partitionBuckets.get(toPartitionKey(next)), theCodesForParam, theSubscriptionIds);
+		}
+	}
+
+	private static void addCandidates(@Nullable CandidateBucket theBucket, Function<String, Set<String>> theCodesForParam, Set<String> theSubscriptionIds) {
+		if (theBucket != null) {
+			theBucket.addCandidates(theCodesForParam, theSubscriptionIds);
+		}
+	}
+
 	public int size() {
 		return myCache.size();
 	}
 
-	public void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
+	public synchronized void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
 		myCache.put(theSubscriptionId, theActiveSubscription);
+		reindex(theSubscriptionId, theActiveSubscription);
+	}
+
+	/**
+	 * Must be called if the criteria, partition or token discriminator of an already cached subscription are changed
+	 */
+	public synchronized void reindex(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
+		removeFromIndex(theSubscriptionId);
+
+		Set<IndexKey> indexKeys = toIndexKeys(theActiveSubscription);
+		for (IndexKey next : indexKeys) {
+			myIndex
+				.computeIfAbsent(next.myTypeKey, t -> new ConcurrentHashMap<>())
+				.computeIfAbsent(next.myPartitionKey, t -> new CandidateBucket())
+				.add(next, theSubscriptionId);
+		}
+		mySubscriptionIdToIndexKeys.put(theSubscriptionId, indexKeys);
+	}
+
+	private void removeFromIndex(String theSubscriptionId) {
+		Set<IndexKey> indexKeys = mySubscriptionIdToIndexKeys.remove(theSubscriptionId);
+		if (indexKeys != null) {
+			for (IndexKey next : indexKeys) {
+				Map<String, CandidateBucket> partitionBuckets = myIndex.get(next.myTypeKey);
+				if (partitionBuckets == null) {
+					continue;
+				}
+				CandidateBucket bucket = partitionBuckets.get(next.myPartitionKey);
+				if (bucket != null && bucket.remove(next, theSubscriptionId)) {
+					partitionBuckets.remove(next.myPartitionKey);
+					if (partitionBuckets.isEmpty()) {
+						myIndex.remove(next.myTypeKey);
+					}
+				}
+			}
+		}
+	}
+
+	private static Set<IndexKey> toIndexKeys(ActiveSubscription theActiveSubscription) {
+		SubscriptionCriteriaParser.SubscriptionCriteria criteria = theActiveSubscription.getCriteria();
+		if (criteria == null) {
+			// A subscription with no criteria never matches anything
+			return Collections.emptySet();
+		}
+
+		Set<String> typeKeys;
+		switch (criteria.getType()) {
+			case STARTYPE_EXPRESSION:
+				typeKeys = Collections.singleton(STAR_TYPE_KEY);
+				break;
+			case SEARCH_EXPRESSION:
+			case MULTITYPE_EXPRESSION:
+			default:
+				typeKeys = criteria.getApplicableResourceTypes();
+				break;
+		}
+
+		CanonicalSubscription subscription = theActiveSubscription.getSubscription();
+		String partitionKey;
+		if (subscription.getCrossPartitionEnabled()) {
+			partitionKey = CROSS_PARTITION_KEY;
+		} else {
+			partitionKey = toPartitionKey(subscription.getRequestPartitionId());
+		}
+
+		SubscriptionTokenDiscriminator discriminator = theActiveSubscription.getTokenDiscriminator();
+		Set<IndexKey> retVal = new HashSet<>();
+		for (String nextTypeKey : typeKeys) {
+			if (discriminator == null) {
+				retVal.add(new IndexKey(nextTypeKey, partitionKey, null, null));
+			} else {
+				for (String nextCode : discriminator.getCodes()) {
+					retVal.add(new IndexKey(nextTypeKey, partitionKey, discriminator.getParamName(), nextCode));
+				}
+			}
+		}
+		return retVal;
+	}
+
+	private static String toPartitionKey(@Nullable Integer thePartitionId) {
+		return thePartitionId != null ? thePartitionId.toString() : DEFAULT_PARTITION_KEY;
 	}
 
 	public synchronized ActiveSubscription remove(String theSubscriptionId) {
@@ -57,6 +219,7 @@ class ActiveSubscriptionCache {
 		}
 
 		myCache.remove(theSubscriptionId);
+		removeFromIndex(theSubscriptionId);
 		return activeSubscription;
 	}
 
@@ -78,4 +241,101 @@ class ActiveSubscriptionCache {
 		}
 		return retval;
 	}
+
+	private static class IndexKey {
+
+		private final String myTypeKey;
+		private final String myPartitionKey;
+		private final String myTokenParamName;
+		private final String myTokenCode;
+
+		private IndexKey(String theTypeKey, String thePartitionKey, @Nullable String theTokenParamName, @Nullable String theTokenCode) {
+			myTypeKey = theTypeKey;
+			myPartitionKey = thePartitionKey;
+			myTokenParamName = theTokenParamName;
+			myTokenCode = theTokenCode;
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (this == theO) {
+				return true;
+			}
+			if (!(theO instanceof IndexKey)) {
+				return false;
+			}
+			IndexKey that = (IndexKey) theO;
+			return myTypeKey.equals(that.myTypeKey) &&
+				myPartitionKey.equals(that.myPartitionKey) &&
+				Objects.equals(myTokenParamName, that.myTokenParamName) &&
+				Objects.equals(myTokenCode, that.myTokenCode);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(myTypeKey, myPartitionKey, myTokenParamName, myTokenCode);
+		}
+	}
+
+	/**
+	 * The subscriptions for one resource type and partition, split into those with no token discriminator
+	 * (always candidates) and those keyed by the discriminating parameter and code
+	 */
+	private static class CandidateBucket {
+
+		private final Set<String> myUndiscriminatedSubscriptionIds = ConcurrentHashMap.newKeySet();
+		private final Map<String, Map<String, Set<String>>> myTokenParamToCodeToSubscriptionIds = new ConcurrentHashMap<>();
+
+		void add(IndexKey theIndexKey, String theSubscriptionId) {
+			if (theIndexKey.myTokenParamName == null) {
+				myUndiscriminatedSubscriptionIds.add(theSubscriptionId);
+			} else {
+				myTokenParamToCodeToSubscriptionIds
+					.computeIfAbsent(theIndexKey.myTokenParamName, t -> new ConcurrentHashMap<>())
+					.computeIfAbsent(theIndexKey.myTokenCode, t -> ConcurrentHashMap.newKeySet())
+					.add(theSubscriptionId);
+			}
+		}
+
+		/**
+		 * @return Returns <code>true</code> if the bucket is now empty
+		 */
+		boolean remove(IndexKey theIndexKey, String theSubscriptionId) {
+			if (theIndexKey.myTokenParamName == null) {
+				myUndiscriminatedSubscriptionIds.remove(theSubscriptionId);
+			} else {
+				Map<String, Set<String>> codeToSubscriptionIds = myTokenParamToCodeToSubscriptionIds.get(theIndexKey.myTokenParamName);
+				if (codeToSubscriptionIds != null) {
+					Set<String> subscriptionIds = codeToSubscriptionIds.get(theIndexKey.myTokenCode);
+					if (subscriptionIds != null) {
+						subscriptionIds.remove(theSubscriptionId);
+						if (subscriptionIds.isEmpty()) {
+							codeToSubscriptionIds.remove(theIndexKey.myTokenCode);
+						}
+					}
+					if (codeToSubscriptionIds.isEmpty()) {
+						myTokenParamToCodeToSubscriptionIds.remove(theIndexKey.myTokenParamName);
+					}
+				}
+			}
+			return myUndiscriminatedSubscriptionIds.isEmpty() && myTokenParamToCodeToSubscriptionIds.isEmpty();
+		}
+
+		void addCandidates(Function<String, Set<String>> theCodesForParam, Set<String> theSubscriptionIds) {
+			theSubscriptionIds.addAll(myUndiscriminatedSubscriptionIds);
+			for (Map.Entry<String, Map<String, Set<String>>> nextEntry : myTokenParamToCodeToSubscriptionIds.entrySet()) {
+				Set<String> codes = theCodesForParam.apply(nextEntry.getKey());
+				if (codes == null) {
+					nextEntry.getValue().values().forEach(theSubscriptionIds::addAll);
+				} else {
+					for (String nextCode : codes) {
+						Set<String> subscriptionIds = nextEntry.getValue().get(nextCode);
+						if (subscriptionIds != null) {
+							theSubscriptionIds.addAll(subscriptionIds);
+						}
+					}
+				}
+			}
+		}
+	}
 }
@@ -23,6 +23,7 @@ package ca.uhn.fhir.jpa.subscription.match.registry;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.ISubscriptionDeliveryChannelNamer;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
@@ -36,11 +37,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Cache of active subscriptions.  When a new subscription is added to the cache, a new Spring Channel is created
@@ -59,6 +63,8 @@ public class SubscriptionRegistry {
 	private SubscriptionChannelRegistry mySubscriptionChannelRegistry;
 	@Autowired
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
+	@Autowired(required = false)
+	private SubscriptionTokenDiscriminatorSvc mySubscriptionTokenDiscriminatorSvc;
 
 	/**
 	 * Constructor
@@ -75,6 +81,32 @@ public class SubscriptionRegistry {
 		return myActiveSubscriptionCache.getAll();
 	}
 
+	/**
+	 * Returns only the active subscriptions whose criteria could apply to a resource of the
+	 * given type, using an index rather than scanning every registered subscription.
+	 */
+	public synchronized List<ActiveSubscription> getAllForResourceType(String theResourceType) {
+		return myActiveSubscriptionCache.getAllForResourceType(theResourceType);
+	}
+
+	/**
+	 * Returns only the active subscriptions that could match the given resource: those for its type, in its
+	 * partition (or cross-partition), and whose token discriminator (if any) accepts one of the resource's codes.
+	 * Every returned subscription must still be tested against the resource.
+	 *
+	 * @param theResource The modified resource, or <code>null</code> if it is not available, in which case
+	 *                    subscriptions are not narrowed by token discriminator
+	 */
+	public synchronized List<ActiveSubscription> getCandidateSubscriptions(String theResourceType, @Nullable RequestPartitionId thePartitionId, @Nullable IBaseResource theResource) {
+		Function<String, Set<String>> codesForParam;
+		if (theResource != null && mySubscriptionTokenDiscriminatorSvc != null) {
+			codesForParam = t -> mySubscriptionTokenDiscriminatorSvc.extractCodes(theResource, t);
+		} else {
+			codesForParam = t -> null;
+		}
+		return myActiveSubscriptionCache.getCandidates(theResourceType, thePartitionId, codesForParam);
+	}
+
 	private Optional<CanonicalSubscription> hasSubscription(IIdType theId) {
 		Validate.notNull(theId);
 		Validate.notBlank(theId.getIdPart());
@@ -119,6 +151,7 @@ public class SubscriptionRegistry {
 
 		ActiveSubscription activeSubscription = new ActiveSubscription(theCanonicalSubscription, channelName);
 		activeSubscription.setRetryConfiguration(configuration);
+		updateTokenDiscriminator(activeSubscription);
 
 		// add to our registries
 		mySubscriptionChannelRegistry.add(activeSubscription);
@@ -196,6 +229,8 @@ public class SubscriptionRegistry {
 		Validate.notNull(activeSubscription);
 		CanonicalSubscription canonicalized = mySubscriptionCanonicalizer.canonicalize(theSubscription);
 		activeSubscription.setSubscription(canonicalized);
+		updateTokenDiscriminator(activeSubscription);
+		myActiveSubscriptionCache.reindex(theId.getIdPart(), activeSubscription);
 
 		// Interceptor call: SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED
 		HookParams params = new HookParams()
@@ -203,6 +238,12 @@ public class SubscriptionRegistry {
 		myInterceptorBroadcaster.callHooks(Pointcut.SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED, params);
 	}
 
+	private void updateTokenDiscriminator(ActiveSubscription theActiveSubscription) {
+		if (mySubscriptionTokenDiscriminatorSvc != null) {
+			theActiveSubscription.setTokenDiscriminator(mySubscriptionTokenDiscriminatorSvc.buildDiscriminator(theActiveSubscription));
+		}
+	}
+
 	private boolean channelTypeSame(CanonicalSubscription theExistingSubscription, CanonicalSubscription theNewSubscription) {
 		return theExistingSubscription.getChannelType().equals(theNewSubscription.getChannelType());
 	}
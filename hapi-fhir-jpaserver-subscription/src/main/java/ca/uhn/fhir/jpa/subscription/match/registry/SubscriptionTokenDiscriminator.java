@@ -0,0 +1,74 @@
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A token search parameter from a subscription's criteria, together with the codes it accepts. A resource can only
+ * match the subscription if it has a value for this parameter with one of these codes, so the subscription is only
+ * tested against resources that do.
+ * <p>
+ * Codes are compared ignoring their system and case, since the matchers ignore the case of the code. This means the
+ * discriminator can admit resources that the subscription will not match, but it never excludes one that would.
+ * </p>
+ */
+public class SubscriptionTokenDiscriminator {
+
+	private final String myParamName;
+	private final Set<String> myCodes;
+
+	public SubscriptionTokenDiscriminator(String theParamName, Set<String> theCodes) {
+		Validate.notBlank(theParamName);
+		Validate.notEmpty(theCodes);
+		myParamName = theParamName;
+		myCodes = Collections.unmodifiableSet(theCodes);
+	}
+
+	public String getParamName() {
+		return myParamName;
+	}
+
+	/**
+	 * @return The accepted codes, normalized using {@link #normalizeCode(String)}
+	 */
+	public Set<String> getCodes() {
+		return myCodes;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("paramName", myParamName)
+			.append("codes", myCodes)
+			.toString();
+	}
+
+	public static String normalizeCode(String theCode) {
+		return theCode.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,148 @@
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Builds the {@link SubscriptionTokenDiscriminator} for a subscription when it is registered, and extracts the codes
+ * a resource has for a discriminating parameter when a resource modified message is matched.
+ */
+public class SubscriptionTokenDiscriminatorSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionTokenDiscriminatorSvc.class);
+
+	@Autowired
+	private FhirContext myFhirContext;
+	@Autowired
+	private MatchUrlService myMatchUrlService;
+	@Autowired
+	private ISearchParamRegistry mySearchParamRegistry;
+	@Autowired
+	private ISearchParamExtractor mySearchParamExtractor;
+
+	/**
+	 * Returns a discriminator for the given subscription, or <code>null</code> if its criteria do not contain a plain
+	 * token parameter (no modifiers, and a code for every value) that every matching resource must have.
+	 */
+	@Nullable
+	public SubscriptionTokenDiscriminator buildDiscriminator(ActiveSubscription theActiveSubscription) {
+		SubscriptionCriteriaParser.SubscriptionCriteria criteria = theActiveSubscription.getCriteria();
+		if (criteria == null || criteria.getType() != SubscriptionCriteriaParser.TypeEnum.SEARCH_EXPRESSION) {
+			return null;
+		}
+
+		String resourceType = criteria.getApplicableResourceTypes().iterator().next();
+		SearchParameterMap searchParameterMap;
+		try {
+			RuntimeResourceDefinition resourceDefinition = myFhirContext.getResourceDefinition(resourceType);
+			searchParameterMap = myMatchUrlService.translateMatchUrl(criteria.getCriteria(), resourceDefinition);
+		} catch (RuntimeException e) {
+			ourLog.debug("Not indexing subscription {} by token, criteria could not be parsed: {}", theActiveSubscription.getId(), e.toString());
+			return null;
+		}
+
+		for (Map.Entry<String, List<List<IQueryParameterType>>> nextEntry : searchParameterMap.entrySet()) {
+			String paramName = nextEntry.getKey();
+			if (paramName.startsWith("_")) {
+				continue;
+			}
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(resourceType, paramName);
+			if (searchParam == null || searchParam.getParamType() != RestSearchParameterTypeEnum.TOKEN) {
+				continue;
+			}
+
+			// Each entry in the outer list is ANDed, so any one of the OR lists must be satisfied on its own
+			for (List<IQueryParameterType> nextOrList : nextEntry.getValue()) {
+				Set<String> codes = toCodes(nextOrList);
+				if (codes != null) {
+					return new SubscriptionTokenDiscriminator(paramName, codes);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	@Nullable
+	private static Set<String> toCodes(List<IQueryParameterType> theOrList) {
+		Set<String> retVal = new HashSet<>();
+		for (IQueryParameterType next : theOrList) {
+			if (!(next instanceof TokenParam)) {
+				return null;
+			}
+			TokenParam token = (TokenParam) next;
+			if (token.getModifier() != null || token.getMissing() != null || isBlank(token.getValue())) {
+				return null;
+			}
+			retVal.add(SubscriptionTokenDiscriminator.normalizeCode(token.getValue()));
+		}
+		return retVal.isEmpty() ? null : retVal;
+	}
+
+	/**
+	 * Returns the normalized codes the given resource has for the given token search parameter, or
+	 * <code>null</code> if the parameter is not known for this resource type.
+	 */
+	@Nullable
+	public Set<String> extractCodes(IBaseResource theResource, String theParamName) {
+		String resourceType = myFhirContext.getResourceType(theResource);
+		RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(resourceType, theParamName);
+		if (searchParam == null) {
+			return null;
+		}
+
+		Set<String> retVal = new HashSet<>();
+		for (BaseResourceIndexedSearchParam next : mySearchParamExtractor.extractSearchParamTokens(theResource, searchParam)) {
+			if (next instanceof ResourceIndexedSearchParamToken) {
+				String value = ((ResourceIndexedSearchParamToken) next).getValue();
+				if (isNotBlank(value)) {
+					retVal.add(SubscriptionTokenDiscriminator.normalizeCode(value));
+				}
+			}
+		}
+		return retVal;
+	}
+}
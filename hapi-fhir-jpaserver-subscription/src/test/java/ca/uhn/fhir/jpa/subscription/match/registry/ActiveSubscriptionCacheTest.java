@@ -1,13 +1,16 @@
 package ca.uhn.fhir.jpa.subscription.match.registry;
 
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.model.primitive.IdDt;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -17,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class ActiveSubscriptionCacheTest {
 	static final String ID1 = "id1";
 	static final String ID2 = "id2";
+	static final String ID3 = "id3";
 
 	@Test
 	public void twoPhaseDelete() {
@@ -103,4 +107,91 @@ public class ActiveSubscriptionCacheTest {
 		assertFalse(activeSub2.isFlagForDeletion());
 	}
 
+	@Test
+	public void getAllForResourceTypeUsesIndex() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		ActiveSubscription patientSub = buildActiveSubscription(ID1, "Patient?name=smith");
+		ActiveSubscription multiTypeSub = buildActiveSubscription(ID2, "[Observation,Patient]");
+		ActiveSubscription starSub = buildActiveSubscription(ID3, "[*]");
+		activeSubscriptionCache.put(ID1, patientSub);
+		activeSubscriptionCache.put(ID2, multiTypeSub);
+		activeSubscriptionCache.put(ID3, starSub);
+
+		assertThat(activeSubscriptionCache.getAllForResourceType("Patient"), containsInAnyOrder(patientSub, multiTypeSub, starSub));
+		assertThat(activeSubscriptionCache.getAllForResourceType("Observation"), containsInAnyOrder(multiTypeSub, starSub));
+		assertThat(activeSubscriptionCache.getAllForResourceType("Encounter"), containsInAnyOrder(starSub));
+		assertThat(activeSubscriptionCache.getAllForResourceType("Subscription"), empty());
+
+		activeSubscriptionCache.remove(ID2);
+		assertThat(activeSubscriptionCache.getAllForResourceType("Observation"), containsInAnyOrder(starSub));
+	}
+
+	@Test
+	public void reindexAfterCriteriaChange() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		ActiveSubscription activeSub1 = buildActiveSubscription(ID1, "Patient?name=smith");
+		activeSubscriptionCache.put(ID1, activeSub1);
+		assertThat(activeSubscriptionCache.getAllForResourceType("Patient"), containsInAnyOrder(activeSub1));
+
+		CanonicalSubscription updated = new CanonicalSubscription();
+		updated.setIdElement(new IdDt(ID1));
+		updated.setCriteriaString("Observation?code=123");
+		activeSub1.setSubscription(updated);
+		activeSubscriptionCache.reindex(ID1, activeSub1);
+
+		assertThat(activeSubscriptionCache.getAllForResourceType("Patient"), empty());
+		assertThat(activeSubscriptionCache.getAllForResourceType("Observation"), containsInAnyOrder(activeSub1));
+	}
+
+	@Test
+	public void getCandidatesUsesPartitionIndex() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		ActiveSubscription defaultPartitionSub = buildActiveSubscription(ID1, "Patient?name=smith");
+		ActiveSubscription partition1Sub = buildActiveSubscription(ID2, "Patient?name=smith");
+		partition1Sub.getSubscription().setPartitionId(1);
+		ActiveSubscription crossPartitionSub = buildActiveSubscription(ID3, "Patient?name=smith");
+		crossPartitionSub.getSubscription().setPartitionId(2);
+		crossPartitionSub.getSubscription().setCrossPartitionEnabled(true);
+		activeSubscriptionCache.put(ID1, defaultPartitionSub);
+		activeSubscriptionCache.put(ID2, partition1Sub);
+		activeSubscriptionCache.put(ID3, crossPartitionSub);
+
+		assertThat(activeSubscriptionCache.getCandidates("Patient", RequestPartitionId.defaultPartition(), t -> null), containsInAnyOrder(defaultPartitionSub, crossPartitionSub));
+		assertThat(activeSubscriptionCache.getCandidates("Patient", RequestPartitionId.fromPartitionId(1), t -> null), containsInAnyOrder(partition1Sub, crossPartitionSub));
+		assertThat(activeSubscriptionCache.getCandidates("Patient", RequestPartitionId.fromPartitionIds(1, null), t -> null), containsInAnyOrder(defaultPartitionSub, partition1Sub, crossPartitionSub));
+		assertThat(activeSubscriptionCache.getCandidates("Patient", RequestPartitionId.fromPartitionId(3), t -> null), containsInAnyOrder(crossPartitionSub));
+		assertThat(activeSubscriptionCache.getCandidates("Patient", null, t -> null), containsInAnyOrder(defaultPartitionSub, partition1Sub, crossPartitionSub));
+
+		activeSubscriptionCache.remove(ID3);
+		assertThat(activeSubscriptionCache.getCandidates("Patient", RequestPartitionId.fromPartitionId(3), t -> null), empty());
+	}
+
+	@Test
+	public void getCandidatesUsesTokenDiscriminator() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		ActiveSubscription codeSub = buildActiveSubscription(ID1, "Observation?code=http://loinc.org|1234-5,http://loinc.org|6789-0");
+		codeSub.setTokenDiscriminator(new SubscriptionTokenDiscriminator("code", Set.of("1234-5", "6789-0")));
+		ActiveSubscription otherCodeSub = buildActiveSubscription(ID2, "Observation?code=abc");
+		otherCodeSub.setTokenDiscriminator(new SubscriptionTokenDiscriminator("code", Set.of("abc")));
+		ActiveSubscription undiscriminatedSub = buildActiveSubscription(ID3, "Observation?status=final");
+		activeSubscriptionCache.put(ID1, codeSub);
+		activeSubscriptionCache.put(ID2, otherCodeSub);
+		activeSubscriptionCache.put(ID3, undiscriminatedSub);
+
+		assertThat(activeSubscriptionCache.getCandidates("Observation", null, t -> Set.of("6789-0", "xyz")), containsInAnyOrder(codeSub, undiscriminatedSub));
+		assertThat(activeSubscriptionCache.getCandidates("Observation", null, t -> Set.of()), containsInAnyOrder(undiscriminatedSub));
+		// Codes that can't be determined leave every discriminated subscription as a candidate
+		assertThat(activeSubscriptionCache.getCandidates("Observation", null, t -> null), containsInAnyOrder(codeSub, otherCodeSub, undiscriminatedSub));
+
+		activeSubscriptionCache.remove(ID1);
+		assertThat(activeSubscriptionCache.getCandidates("Observation", null, t -> Set.of("6789-0")), containsInAnyOrder(undiscriminatedSub));
+	}
+
+	private ActiveSubscription buildActiveSubscription(String theId, String theCriteria) {
+		CanonicalSubscription canonicalSubscription = new CanonicalSubscription();
+		canonicalSubscription.setIdElement(new IdDt(theId));
+		canonicalSubscription.setCriteriaString(theCriteria);
+		return new ActiveSubscription(canonicalSubscription, null);
+	}
+
 }
@@ -7,6 +7,7 @@ import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.cache.IResourceChangeListenerRegistry;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.jpa.subscription.channel.config.SubscriptionChannelConfig;
@@ -64,6 +65,8 @@ public class WebsocketConnectionValidatorTest {
 	SubscriptionRegistry mySubscriptionRegistry;
 	@MockBean
 	ISearchParamRegistry mySearchParamRegistry;
+	@MockBean
+	ISearchParamExtractor mySearchParamExtractor;
 
 	@Autowired
 	WebsocketConnectionValidator myWebsocketConnectionValidator;
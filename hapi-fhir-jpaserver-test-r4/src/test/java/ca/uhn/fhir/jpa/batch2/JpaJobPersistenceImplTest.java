@@ -8,6 +8,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.MarkWorkChunkAsErrorRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.jpa.dao.data.IBatch2JobInstanceRepository;
 import ca.uhn.fhir.jpa.dao.data.IBatch2WorkChunkRepository;
 import ca.uhn.fhir.jpa.entity.Batch2JobInstanceEntity;
@@ -469,6 +470,55 @@ public class JpaJobPersistenceImplTest extends BaseJpaR4Test {
 		assertTrue(canAdvance);
 	}
 
+	@Test
+	public void testFetchWorkChunkStatusCounts() {
+		// Setup
+		JobInstance instance = createInstance();
+		String instanceId = mySvc.storeNewInstance(instance);
+		for (int i = 0; i < 3; i++) {
+			String chunkId = storeWorkChunk(DEF_CHUNK_ID, STEP_CHUNK_ID, instanceId, i, null);
+			mySvc.fetchWorkChunkSetStartTimeAndMarkInProgress(chunkId);
+			mySvc.markWorkChunkAsCompletedAndClearData(instanceId, chunkId, 10);
+		}
+		String erroredChunkId = storeWorkChunk(DEF_CHUNK_ID, STEP_CHUNK_ID, instanceId, 3, null);
+		mySvc.fetchWorkChunkSetStartTimeAndMarkInProgress(erroredChunkId);
+		mySvc.markWorkChunkAsErroredAndIncrementErrorCount(new MarkWorkChunkAsErrorRequest().setChunkId(erroredChunkId).setErrorMsg("This is an error message"));
+		storeWorkChunk(DEF_CHUNK_ID, TARGET_STEP_ID, instanceId, 4, CHUNK_DATA);
+		storeWorkChunk(DEF_CHUNK_ID, TARGET_STEP_ID, instanceId, 5, CHUNK_DATA);
+
+		// Test
+		List<WorkChunkStatusCount> counts = mySvc.fetchWorkChunkStatusCounts(instanceId);
+
+		// Verify
+		assertEquals(3, counts.size());
+
+		WorkChunkStatusCount completed = findStatusCount(counts, STEP_CHUNK_ID, StatusEnum.COMPLETED);
+		assertEquals(3, completed.getChunkCount());
+		assertEquals(30, completed.getRecordsProcessed());
+		assertEquals(0, completed.getErrorCount());
+		assertNotNull(completed.getEarliestStartTime());
+		assertNotNull(completed.getLatestEndTime());
+		assertNull(completed.getErrorMessage());
+
+		WorkChunkStatusCount errored = findStatusCount(counts, STEP_CHUNK_ID, StatusEnum.ERRORED);
+		assertEquals(1, errored.getChunkCount());
+		assertEquals(0, errored.getRecordsProcessed());
+		assertEquals(1, errored.getErrorCount());
+		assertEquals("This is an error message", errored.getErrorMessage());
+
+		WorkChunkStatusCount queued = findStatusCount(counts, TARGET_STEP_ID, StatusEnum.QUEUED);
+		assertEquals(2, queued.getChunkCount());
+		assertNull(queued.getLatestEndTime());
+	}
+
+	private WorkChunkStatusCount findStatusCount(List<WorkChunkStatusCount> theCounts, String theStepId, StatusEnum theStatus) {
+		return theCounts
+			.stream()
+			.filter(t -> t.getTargetStepId().equals(theStepId) && t.getStatus() == theStatus)
+			.findFirst()
+			.orElseThrow(() -> new AssertionError("No count for " + theStepId + "/" + theStatus + " in " + theCounts));
+	}
+
 	@Test
 	public void testMarkChunkAsCompleted_Error() {
 		JobInstance instance = createInstance();
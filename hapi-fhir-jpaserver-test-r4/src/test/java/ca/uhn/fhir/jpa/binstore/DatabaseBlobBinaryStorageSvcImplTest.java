@@ -2,10 +2,14 @@ package ca.uhn.fhir.jpa.binstore;
 
 import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
+import ca.uhn.fhir.jpa.model.entity.BinaryStorageChunkEntity;
 import ca.uhn.fhir.jpa.model.entity.BinaryStorageEntity;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
 import org.hl7.fhir.r4.model.IdType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -16,9 +20,18 @@ import org.springframework.test.context.ContextConfiguration;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -40,6 +53,17 @@ public class DatabaseBlobBinaryStorageSvcImplTest extends BaseJpaR4Test {
 	@Autowired
 	@Qualifier("databaseBlobBinaryStorageSvc")
 	private IBinaryStorageSvc mySvc;
+	@Autowired
+	@Qualifier("chunkedDatabaseBlobBinaryStorageSvc")
+	private IBinaryStorageSvc myChunkedSvc;
+
+	@AfterEach
+	public void after() {
+		runInTransaction(() -> {
+			myEntityManager.createQuery("DELETE FROM BinaryStorageEntity").executeUpdate();
+			myEntityManager.createQuery("DELETE FROM BinaryStorageChunkEntity").executeUpdate();
+		});
+	}
 
 	@Test
 	public void testStoreAndRetrieve() throws IOException {
@@ -140,6 +164,161 @@ public class DatabaseBlobBinaryStorageSvcImplTest extends BaseJpaR4Test {
 		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(resourceId, outcome.getBlobId()));
 	}
 
+	@Test
+	public void testStoreAndRetrieve_Chunked() throws IOException {
+		IdType resourceId = new IdType("Binary/123");
+		StoredDetails outcome = myChunkedSvc.storeBlob(resourceId, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		assertEquals(16, outcome.getBytes());
+		assertEquals("dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb", outcome.getHash());
+
+		// 16 bytes with a chunk size of 5
+		assertEquals(4, countChunks());
+
+		StoredDetails details = myChunkedSvc.fetchBlobDetails(resourceId, outcome.getBlobId());
+		assertEquals(16L, details.getBytes());
+		assertEquals("image/png", details.getContentType());
+		assertEquals("dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb", details.getHash());
+
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		assertTrue(myChunkedSvc.writeBlob(resourceId, outcome.getBlobId(), capture));
+		assertArrayEquals(SOME_BYTES, capture.toByteArray());
+		assertArrayEquals(SOME_BYTES, myChunkedSvc.fetchBlob(resourceId, outcome.getBlobId()));
+
+		// Blobs stored before chunking was enabled can still be read
+		StoredDetails unchunked = mySvc.storeBlob(resourceId, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		assertArrayEquals(SOME_BYTES, myChunkedSvc.fetchBlob(resourceId, unchunked.getBlobId()));
+	}
+
+	@Test
+	public void testStoreChunked_ChunksAreNotRetainedInPersistenceContext() {
+		IdType resourceId = new IdType("Binary/123");
+		AtomicLong maxRetainedChunks = new AtomicLong();
+		runInTransaction(() -> {
+			Session session = myEntityManager.unwrap(Session.class);
+			// Records how many chunks are in the persistence context each time the next chunk is read
+			InputStream inputStream = new FilterInputStream(new ByteArrayInputStream(SOME_BYTES)) {
+				@Override
+				public int read(byte[] theBuffer, int theOffset, int theLength) throws IOException {
+					long retainedChunks = session
+						.getStatistics()
+						.getEntityKeys()
+						.stream()
+						.filter(t -> ((EntityKey) t).getEntityName().equals(BinaryStorageChunkEntity.class.getName()))
+						.count();
+					maxRetainedChunks.accumulateAndGet(retainedChunks, Math::max);
+					return super.read(theBuffer, theOffset, theLength);
+				}
+			};
+			try {
+				myChunkedSvc.storeBlob(resourceId, null, "image/png", inputStream);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertEquals(4, countChunks());
+		assertEquals(0, maxRetainedChunks.get());
+	}
+
+	@Test
+	public void testStoreAndRetrieve_ChunkedEmpty() throws IOException {
+		IdType resourceId = new IdType("Binary/123");
+		StoredDetails outcome = myChunkedSvc.storeBlob(resourceId, null, "image/png", new ByteArrayInputStream(new byte[0]));
+		assertEquals(0, outcome.getBytes());
+		assertEquals(0, countChunks());
+
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		assertTrue(myChunkedSvc.writeBlob(resourceId, outcome.getBlobId(), capture));
+		assertEquals(0, capture.size());
+	}
+
+	@Test
+	public void testWriteRange() throws IOException {
+		IdType resourceId = new IdType("Binary/123");
+		StoredDetails chunked = myChunkedSvc.storeBlob(resourceId, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		StoredDetails unchunked = mySvc.storeBlob(resourceId, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		for (String blobId : Arrays.asList(chunked.getBlobId(), unchunked.getBlobId())) {
+			// Within a single chunk
+			assertArrayEquals(Arrays.copyOfRange(SOME_BYTES, 0, 5), writeRange(resourceId, blobId, 0, 5));
+			// Spanning several chunks
+			assertArrayEquals(Arrays.copyOfRange(SOME_BYTES, 3, 10), writeRange(resourceId, blobId, 3, 7));
+			// Past the end of the blob
+			assertArrayEquals(Arrays.copyOfRange(SOME_BYTES, 14, 16), writeRange(resourceId, blobId, 14, 100));
+			assertArrayEquals(new byte[0], writeRange(resourceId, blobId, 16, 5));
+		}
+
+		assertFalse(myChunkedSvc.writeBlob(new IdType("Patient/9999"), chunked.getBlobId(), 0, 5, new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testChunksAreSharedBetweenIdenticalBlobs() throws IOException {
+		IdType resourceId1 = new IdType("Binary/1");
+		IdType resourceId2 = new IdType("Binary/2");
+		StoredDetails outcome1 = myChunkedSvc.storeBlob(resourceId1, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		StoredDetails outcome2 = myChunkedSvc.storeBlob(resourceId2, null, "image/jpeg", new ByteArrayInputStream(SOME_BYTES));
+		assertEquals(4, countChunks());
+
+		// Different contents are not shared
+		StoredDetails outcome3 = myChunkedSvc.storeBlob(resourceId2, null, "image/png", new ByteArrayInputStream(new byte[]{1, 2, 3}));
+		assertEquals(5, countChunks());
+
+		// Chunks are kept while any blob still uses them
+		myChunkedSvc.expungeBlob(resourceId1, outcome1.getBlobId());
+		assertEquals(5, countChunks());
+		assertArrayEquals(SOME_BYTES, myChunkedSvc.fetchBlob(resourceId2, outcome2.getBlobId()));
+		assertEquals("image/jpeg", myChunkedSvc.fetchBlobDetails(resourceId2, outcome2.getBlobId()).getContentType());
+
+		myChunkedSvc.expungeBlob(resourceId2, outcome2.getBlobId());
+		assertEquals(1, countChunks());
+		myChunkedSvc.expungeBlob(resourceId2, outcome3.getBlobId());
+		assertEquals(0, countChunks());
+	}
+
+	@Test
+	public void testExpungeWaitsForBlobSharingItsChunks() throws Exception {
+		IdType resourceId1 = new IdType("Binary/1");
+		IdType resourceId2 = new IdType("Binary/2");
+		StoredDetails outcome1 = myChunkedSvc.storeBlob(resourceId1, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// Store an identical blob, but don't commit until the expunge below has started
+			CountDownLatch stored = new CountDownLatch(1);
+			CountDownLatch commit = new CountDownLatch(1);
+			Future<StoredDetails> storeFuture = executor.submit(() -> runInTransaction(() -> {
+				StoredDetails retVal = myChunkedSvc.storeBlob(resourceId2, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+				stored.countDown();
+				assertTrue(commit.await(10, TimeUnit.SECONDS));
+				return retVal;
+			}));
+			assertTrue(stored.await(10, TimeUnit.SECONDS));
+
+			// The expunge has to wait for the new blob, which shares its chunks
+			Future<?> expungeFuture = executor.submit(() -> myChunkedSvc.expungeBlob(resourceId1, outcome1.getBlobId()));
+			Thread.sleep(300);
+			assertFalse(expungeFuture.isDone());
+
+			commit.countDown();
+			StoredDetails outcome2 = storeFuture.get(10, TimeUnit.SECONDS);
+			expungeFuture.get(10, TimeUnit.SECONDS);
+
+			assertEquals(4, countChunks());
+			assertArrayEquals(SOME_BYTES, myChunkedSvc.fetchBlob(resourceId2, outcome2.getBlobId()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private byte[] writeRange(IdType theResourceId, String theBlobId, long theOffset, long theLength) throws IOException {
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		assertTrue(myChunkedSvc.writeBlob(theResourceId, theBlobId, theOffset, theLength, capture));
+		return capture.toByteArray();
+	}
+
+	private long countChunks() {
+		return runInTransaction(() -> myEntityManager.createQuery("SELECT COUNT(c) FROM BinaryStorageChunkEntity c", Long.class).getSingleResult());
+	}
+
 	@Test
 	public void testFetchBlobUnknown() throws IOException {
 		try {
@@ -242,5 +421,13 @@ public class DatabaseBlobBinaryStorageSvcImplTest extends BaseJpaR4Test {
 			return new DatabaseBlobBinaryStorageSvcImpl();
 		}
 
+		@Bean
+		public IBinaryStorageSvc chunkedDatabaseBlobBinaryStorageSvc() {
+			DatabaseBlobBinaryStorageSvcImpl retVal = new DatabaseBlobBinaryStorageSvcImpl();
+			retVal.setChunkedStorageEnabled(true);
+			retVal.setChunkSize(5);
+			return retVal;
+		}
+
 	}
 }
@@ -1,5 +1,6 @@
 package ca.uhn.fhir.jpa.binstore;
 
+import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.rest.server.exceptions.PayloadTooLargeException;
@@ -17,10 +18,24 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class FilesystemBinaryStorageSvcImplTest {
@@ -38,6 +53,7 @@ public class FilesystemBinaryStorageSvcImplTest {
 
 	@AfterEach
 	public void after() throws IOException {
+		mySvc.stop();
 		FileUtils.deleteDirectory(myPath);
 	}
 
@@ -121,6 +137,232 @@ public class FilesystemBinaryStorageSvcImplTest {
 		assertEquals(0, capture.size());
 	}
 
+	@Test
+	public void testWriteRange() throws IOException {
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		assertTrue(mySvc.writeBlob(id, outcome.getBlobId(), 3, 4, capture));
+		assertArrayEquals(new byte[]{5, 6, 7, 8}, capture.toByteArray());
+
+		capture = new ByteArrayOutputStream();
+		assertTrue(mySvc.writeBlob(id, outcome.getBlobId(), 14, 100, capture));
+		assertArrayEquals(new byte[]{2, 1}, capture.toByteArray());
+
+		assertFalse(mySvc.writeBlob(id, "1111111", 0, 4, new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testStoreAndRetrieve_ContentAddressed() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		StoredDetails details = mySvc.fetchBlobDetails(id, outcome.getBlobId());
+		assertEquals(16L, details.getBytes());
+		assertEquals(outcome.getBlobId(), details.getBlobId());
+		assertEquals("image/png", details.getContentType());
+		assertEquals("dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb", details.getHash());
+		assertNotNull(details.getPublished());
+
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		assertTrue(mySvc.writeBlob(id, outcome.getBlobId(), capture));
+		assertArrayEquals(SOME_BYTES, capture.toByteArray());
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id, outcome.getBlobId()));
+
+		capture = new ByteArrayOutputStream();
+		assertTrue(mySvc.writeBlob(id, outcome.getBlobId(), 3, 4, capture));
+		assertArrayEquals(new byte[]{5, 6, 7, 8}, capture.toByteArray());
+
+		// Stored by hash, and with no per-blob descriptor file
+		assertTrue(new File(myPath, "content/dc/71/dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb").exists());
+		assertEquals(1, listFiles().size());
+
+		// Blobs for other resources aren't visible
+		assertNull(mySvc.fetchBlobDetails(new IdType("Patient/999"), outcome.getBlobId()));
+		assertFalse(mySvc.writeBlob(new IdType("Patient/999"), outcome.getBlobId(), new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testContentAddressed_IdenticalContentsStoredOnce() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id1 = new IdType("Patient/1");
+		IIdType id2 = new IdType("Patient/2");
+		StoredDetails outcome1 = mySvc.storeBlob(id1, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		StoredDetails outcome2 = mySvc.storeBlob(id2, null, "image/jpeg", new ByteArrayInputStream(SOME_BYTES));
+		assertEquals(1, listFiles().size());
+
+		mySvc.expungeBlob(id1, outcome1.getBlobId());
+		assertNull(mySvc.fetchBlobDetails(id1, outcome1.getBlobId()));
+		assertEquals(1, listFiles().size());
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id2, outcome2.getBlobId()));
+
+		mySvc.expungeBlob(id2, outcome2.getBlobId());
+		assertEquals(0, listFiles().size());
+	}
+
+	@Test
+	public void testContentAddressed_IndexIsReloadedAndCompacted() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome1 = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		StoredDetails outcome2 = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(new byte[]{1, 2, 3}));
+		mySvc.expungeBlob(id, outcome1.getBlobId());
+		mySvc.stop();
+
+		File indexFile = new File(myPath, "blob-index.ndjson");
+		assertEquals(3, Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8).size());
+
+		mySvc = new FilesystemBinaryStorageSvcImpl(myPath.getAbsolutePath());
+		mySvc.setContentAddressedStorageEnabled(true);
+		assertNull(mySvc.fetchBlobDetails(id, outcome1.getBlobId()));
+		StoredDetails details = mySvc.fetchBlobDetails(id, outcome2.getBlobId());
+		assertEquals(3L, details.getBytes());
+		assertEquals(outcome2.getHash(), details.getHash());
+		assertArrayEquals(new byte[]{1, 2, 3}, mySvc.fetchBlob(id, outcome2.getBlobId()));
+		assertEquals(1, Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8).size());
+
+		// Reference counts are rebuilt from the index
+		mySvc.expungeBlob(id, outcome2.getBlobId());
+		assertEquals(0, listFiles().size());
+	}
+
+	@Test
+	public void testContentAddressed_UnreferencedContentsDeletedWhenIndexLoaded() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+		mySvc.stop();
+
+		// Simulate a crash after the contents were moved into place but before the index was updated
+		String orphanHash = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+		File orphan = new File(myPath, "content/01/23/" + orphanHash);
+		FileUtils.writeByteArrayToFile(orphan, new byte[]{1, 2, 3});
+		assertEquals(2, listFiles().size());
+
+		mySvc = new FilesystemBinaryStorageSvcImpl(myPath.getAbsolutePath());
+		mySvc.setContentAddressedStorageEnabled(true);
+		mySvc.start();
+		assertFalse(orphan.exists());
+		assertEquals(1, listFiles().size());
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id, outcome.getBlobId()));
+	}
+
+	@Test
+	public void testContentAddressed_ConcurrentStoresAndExpunges() throws Exception {
+		mySvc.setContentAddressedStorageEnabled(true);
+		mySvc.start();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				IIdType id = new IdType("Patient/" + i);
+				byte[] bytes = new byte[]{(byte) (i % 5)};
+				futures.add(executor.submit(() -> {
+					StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(bytes));
+					assertArrayEquals(bytes, mySvc.fetchBlob(id, outcome.getBlobId()));
+					if (id.getIdPartAsLong() % 2 == 0) {
+						mySvc.expungeBlob(id, outcome.getBlobId());
+						assertNull(mySvc.fetchBlobDetails(id, outcome.getBlobId()));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> next : futures) {
+				next.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		// Every odd-numbered patient still holds a reference to one of the five distinct contents
+		assertEquals(5, listFiles().size());
+		mySvc.stop();
+		File indexFile = new File(myPath, "blob-index.ndjson");
+		assertEquals(150, Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8).size());
+	}
+
+	@Test
+	public void testContentAddressed_IndexCanOnlyBeUsedByOneInstance() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+		mySvc.start();
+
+		FilesystemBinaryStorageSvcImpl other = new FilesystemBinaryStorageSvcImpl(myPath.getAbsolutePath());
+		other.setContentAddressedStorageEnabled(true);
+		try {
+			other.start();
+			fail();
+		} catch (ConfigurationException e) {
+			assertThat(e.getMessage(), startsWith(Msg.code(2310) + "Binary storage index in "));
+		}
+
+		mySvc.stop();
+		other.start();
+		other.stop();
+	}
+
+	@Test
+	public void testContentAddressed_ContentsDeletedAfterLookup() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		// Simulate an expunge by another thread between the index lookup and opening the file
+		for (File next : listFiles()) {
+			Files.delete(next.toPath());
+		}
+
+		assertFalse(mySvc.writeBlob(id, outcome.getBlobId(), new ByteArrayOutputStream()));
+		try {
+			mySvc.fetchBlob(id, outcome.getBlobId());
+			fail();
+		} catch (ResourceNotFoundException e) {
+			assertEquals(Msg.code(1327) + "Unknown blob ID: " + outcome.getBlobId() + " for resource ID Patient/123", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testContentAddressed_ReadsExistingBlobs() throws IOException {
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+
+		mySvc.setContentAddressedStorageEnabled(true);
+		assertEquals(16L, mySvc.fetchBlobDetails(id, outcome.getBlobId()).getBytes());
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id, outcome.getBlobId()));
+
+		mySvc.expungeBlob(id, outcome.getBlobId());
+		assertNull(mySvc.fetchBlobDetails(id, outcome.getBlobId()));
+	}
+
+	@Test
+	public void testContentAddressed_RejectOversized() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+		mySvc.setMaximumBinarySize(5);
+
+		try {
+			mySvc.storeBlob(new IdType("Patient/123"), null, "image/png", new ByteArrayInputStream(SOME_BYTES));
+			fail();
+		} catch (PayloadTooLargeException e) {
+			assertEquals(Msg.code(1343) + "Binary size exceeds maximum: 5", e.getMessage());
+		}
+		assertEquals(0, listFiles().size());
+	}
+
+	private Collection<File> listFiles() {
+		File contentDirectory = new File(myPath, "content");
+		if (!contentDirectory.exists()) {
+			return Collections.emptyList();
+		}
+		return FileUtils.listFiles(contentDirectory, null, true);
+	}
+
 	@Test
 	public void testRejectOversized() throws IOException {
 		mySvc.setMinimumBinarySize(0);
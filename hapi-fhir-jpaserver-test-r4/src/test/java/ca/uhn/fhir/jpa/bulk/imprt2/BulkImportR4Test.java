@@ -124,6 +124,50 @@ public class BulkImportR4Test extends BaseJpaR4Test {
 		});
 	}
 
+	@Test
+	public void testRunBulkImport_ChunkByReference() {
+		// Setup
+
+		int fileCount = 10;
+		List<String> indexes = addFiles(fileCount);
+
+		BulkImportJobParameters parameters = new BulkImportJobParameters();
+		parameters.setChunkByReference(true);
+		for (String next : indexes) {
+			String url = myHttpServletExtension.getBaseUrl() + "/download?index=" + next;
+			parameters.addNdJsonUrl(url);
+		}
+
+		JobInstanceStartRequest request = new JobInstanceStartRequest();
+		request.setJobDefinitionId(BulkImportAppCtx.JOB_BULK_IMPORT_PULL);
+		request.setParameters(parameters);
+
+		// Execute
+
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(request);
+		String instanceId = startResponse.getInstanceId();
+		assertThat(instanceId, not(blankOrNullString()));
+
+		// Verify
+
+		await().atMost(120, TimeUnit.SECONDS).until(() -> {
+			myJobCleanerService.runMaintenancePass();
+			JobInstance instance = myJobCoordinator.getInstance(instanceId);
+			return instance.getStatus();
+		}, equalTo(StatusEnum.COMPLETED));
+
+		runInTransaction(() -> {
+			assertEquals(20, myResourceTableDao.count());
+
+			List<Batch2WorkChunkEntity> chunks = myWorkChunkRepository.fetchChunks(Pageable.ofSize(1000), instanceId);
+			for (Batch2WorkChunkEntity next : chunks) {
+				if (next.getSerializedData() != null) {
+					assertThat(next.getSerializedData(), not(containsString("resourceType")));
+				}
+			}
+		});
+	}
+
 	@Test
 	public void testRunBulkImport_StorageFailure() {
 		// Setup
@@ -20,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.List;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -89,6 +91,35 @@ public class ResourceChangeListenerRegistryImplIT extends BaseJpaR4Test {
 		assertEquals(0, myResourceChangeListenerRegistry.getResourceVersionCacheSizeForUnitTest());
 	}
 
+	@Test
+	public void testIncrementalRefresh() throws InterruptedException {
+		ResourceChangeListenerCache cache = (ResourceChangeListenerCache) myResourceChangeListenerRegistry.registerResourceResourceChangeListener(RESOURCE_NAME, createSearchParameterMap(Enumerations.AdministrativeGender.MALE), myMaleTestCallback, TEST_REFRESH_INTERVAL);
+
+		Patient patient = createPatientWithInitLatch(Enumerations.AdministrativeGender.MALE, myMaleTestCallback);
+		Instant lastFullRefreshTime = cache.getLastFullRefreshTime();
+		assertNotNull(lastFullRefreshTime);
+
+		// The first patient no longer matches, and a second one is created
+		patient.setGender(Enumerations.AdministrativeGender.FEMALE);
+		myPatientDao.update(patient);
+		Patient patient2 = new Patient();
+		patient2.setGender(Enumerations.AdministrativeGender.MALE);
+		IIdType patientId2 = myPatientDao.create(patient2).getId();
+
+		myMaleTestCallback.setExpectedCount(1);
+		ResourceChangeResult result = cache.refreshCacheWithRetry();
+		myMaleTestCallback.awaitExpected();
+		assertResult(result, 1, 0, 1);
+		assertEquals(lastFullRefreshTime, cache.getLastFullRefreshTime());
+		assertEquals(patient.getIdElement().toUnqualifiedVersionless().getValue(), myMaleTestCallback.getDeletedResourceId().getValue());
+		assertEquals(patientId2.getValue(), myMaleTestCallback.getResourceChangeEvent().getCreatedResourceIds().get(0).getValue());
+
+		// Forcing a refresh always reads the full version map
+		result = cache.forceRefresh();
+		assertEmptyResult(result);
+		assertNotEquals(lastFullRefreshTime, cache.getLastFullRefreshTime());
+	}
+
 	@Test
 	public void testNonInMemorySearchParamCannotBeRegistered() {
 		try {
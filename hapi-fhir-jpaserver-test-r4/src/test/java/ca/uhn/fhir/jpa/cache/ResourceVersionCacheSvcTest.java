@@ -1,14 +1,27 @@
 package ca.uhn.fhir.jpa.cache;
 
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ResourceVersionCacheSvcTest extends BaseJpaR4Test {
 	@Autowired
@@ -29,4 +42,69 @@ public class ResourceVersionCacheSvcTest extends BaseJpaR4Test {
 		assertEquals(1, versionMap.size());
 		assertEquals(2L, versionMap.getVersion(patientId));
 	}
+
+	@Test
+	public void testGetVersionMapDelta() {
+		Patient male = new Patient();
+		male.setGender(Enumerations.AdministrativeGender.MALE);
+		IIdType maleId = myPatientDao.create(male).getId().toUnqualifiedVersionless();
+		Patient female = new Patient();
+		female.setGender(Enumerations.AdministrativeGender.FEMALE);
+		IIdType femaleId = myPatientDao.create(female).getId().toUnqualifiedVersionless();
+		Patient deleted = new Patient();
+		deleted.setGender(Enumerations.AdministrativeGender.MALE);
+		IIdType deletedId = myPatientDao.create(deleted).getId().toUnqualifiedVersionless();
+		myPatientDao.delete(deletedId);
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous(Patient.SP_GENDER, new TokenParam("male"));
+		ResourceVersionDelta delta = myResourceVersionCacheSvc.getVersionMapDelta(RequestPartitionId.allPartitions(), "Patient", map, new Date(0));
+		assertNotNull(delta);
+		assertEquals(3, delta.getChangedResources().size());
+		assertEquals(2L, delta.getChangedResources().getVersion(deletedId));
+		assertEquals(1, delta.getMatchingResources().size());
+		assertEquals(1L, delta.getMatchingResources().getVersion(maleId));
+		assertFalse(delta.getMatchingResources().containsKey(femaleId));
+
+		// Nothing has changed since now
+		delta = myResourceVersionCacheSvc.getVersionMapDelta(RequestPartitionId.allPartitions(), "Patient", map, DateUtils.addMinutes(new Date(), 1));
+		assertNotNull(delta);
+		assertTrue(delta.getChangedResources().isEmpty());
+	}
+
+	@Test
+	public void testGetVersionMapDelta_ResourceCreatedDuringSearchIsNotReportedAsDeleted() throws Exception {
+		Patient male = new Patient();
+		male.setGender(Enumerations.AdministrativeGender.MALE);
+		IIdType maleId = myPatientDao.create(male).getId().toUnqualifiedVersionless();
+
+		// Create another matching patient in its own transaction while the delta's search is running
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		AtomicReference<IIdType> createdId = new AtomicReference<>();
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> {
+			if (createdId.get() == null) {
+				Patient created = new Patient();
+				created.setGender(Enumerations.AdministrativeGender.MALE);
+				try {
+					createdId.set(executor.submit(() -> myPatientDao.create(created, mySrd).getId().toUnqualifiedVersionless()).get());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		myInterceptorRegistry.registerAnonymousInterceptor(Pointcut.JPA_PERFTRACE_SEARCH_FIRST_RESULT_LOADED, interceptor);
+		ResourceVersionDelta delta;
+		try {
+			SearchParameterMap map = SearchParameterMap.newSynchronous(Patient.SP_GENDER, new TokenParam("male"));
+			delta = myResourceVersionCacheSvc.getVersionMapDelta(RequestPartitionId.allPartitions(), "Patient", map, new Date(0));
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(interceptor);
+			executor.shutdown();
+		}
+
+		assertNotNull(delta);
+		assertNotNull(createdId.get());
+		assertEquals(1L, delta.getMatchingResources().getVersion(maleId));
+		// The new patient is left for the next refresh rather than being reported as changed but not matching
+		assertFalse(delta.getChangedResources().containsKey(createdId.get()));
+	}
 }
@@ -0,0 +1,205 @@
+package ca.uhn.fhir.jpa.config.util;
+
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.model.dialect.HapiFhirH2Dialect;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.annotation.Propagation;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadReplicaRoutingDataSourceTest {
+
+	private static final String SELECT_DATABASE_NAME = "SELECT NAME FROM DB_INFO ORDER BY NAME FETCH FIRST 1 ROWS ONLY";
+
+	private BasicDataSource myPrimaryDataSource;
+	private BasicDataSource myReplicaDataSource;
+	private ReadReplicaRoutingDataSource myRoutingDataSource;
+	private HapiTransactionService myTxService;
+	private JdbcTemplate myJdbcTemplate;
+
+	@BeforeEach
+	public void before() {
+		myPrimaryDataSource = createDatabase("primary");
+		myReplicaDataSource = createDatabase("replica");
+
+		myRoutingDataSource = new ReadReplicaRoutingDataSource(myPrimaryDataSource, myReplicaDataSource);
+
+		myTxService = new HapiTransactionService();
+		myTxService.setTransactionManager(new DataSourceTransactionManager(myRoutingDataSource));
+		myTxService.setInterceptorBroadcaster(new InterceptorService());
+
+		myJdbcTemplate = new JdbcTemplate(myRoutingDataSource);
+	}
+
+	@AfterEach
+	public void after() throws SQLException {
+		new JdbcTemplate(myPrimaryDataSource).execute("SHUTDOWN");
+		new JdbcTemplate(myReplicaDataSource).execute("SHUTDOWN");
+		myPrimaryDataSource.close();
+		myReplicaDataSource.close();
+	}
+
+	@Test
+	public void testReadReplicaExecutionUsesReplica() {
+		String name = myTxService.withRequest(null).allowReadReplica().execute(this::readDatabaseName);
+		assertEquals("replica", name);
+	}
+
+	@Test
+	public void testReadOnlyExecutionUsesPrimary() {
+		String name = myTxService.withRequest(null).readOnly().execute(this::readDatabaseName);
+		assertEquals("primary", name);
+	}
+
+	@Test
+	public void testReadReplicaExecutionWithJpaTransactionManager() {
+		LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+		entityManagerFactoryBean.setDataSource(myRoutingDataSource);
+		entityManagerFactoryBean.setPackagesToScan(ReadReplicaRoutingDataSourceTest.class.getPackageName());
+		entityManagerFactoryBean.setPersistenceProviderClass(HibernatePersistenceProvider.class);
+		Properties jpaProperties = new Properties();
+		jpaProperties.put("hibernate.dialect", HapiFhirH2Dialect.class.getName());
+		jpaProperties.put("hibernate.hbm2ddl.auto", "none");
+		entityManagerFactoryBean.setJpaProperties(jpaProperties);
+		entityManagerFactoryBean.afterPropertiesSet();
+		EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+		assertNotNull(entityManagerFactory);
+
+		try {
+			myTxService.setTransactionManager(new JpaTransactionManager(entityManagerFactory));
+			EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+			Callable<Object> readDatabaseName = () -> entityManager.createNativeQuery(SELECT_DATABASE_NAME).getSingleResult();
+
+			assertEquals("replica", myTxService.withRequest(null).allowReadReplica().execute(readDatabaseName));
+			assertEquals("primary", myTxService.withRequest(null).readOnly().execute(readDatabaseName));
+			assertEquals("primary", myTxService.withRequest(null).execute(readDatabaseName));
+		} finally {
+			entityManagerFactoryBean.destroy();
+		}
+	}
+
+	@Test
+	public void testReadReplicaAllowedOnlyForClientSearches() {
+		assertFalse(ReadReplicaRoutingDataSource.isReadReplicaAllowed(null));
+		assertFalse(ReadReplicaRoutingDataSource.isReadReplicaAllowed(new SystemRequestDetails()));
+
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.SEARCH_TYPE);
+		assertTrue(ReadReplicaRoutingDataSource.isReadReplicaAllowed(request));
+		request.setRestOperationType(RestOperationTypeEnum.GET_PAGE);
+		assertTrue(ReadReplicaRoutingDataSource.isReadReplicaAllowed(request));
+		request.setRestOperationType(RestOperationTypeEnum.CREATE);
+		assertFalse(ReadReplicaRoutingDataSource.isReadReplicaAllowed(request));
+		request.setRestOperationType(RestOperationTypeEnum.TRANSACTION);
+		assertFalse(ReadReplicaRoutingDataSource.isReadReplicaAllowed(request));
+	}
+
+	@Test
+	public void testReadWriteExecutionUsesPrimary() {
+		String name = myTxService.withRequest(null).execute(this::readDatabaseName);
+		assertEquals("primary", name);
+	}
+
+	@Test
+	public void testConnectionOutsideTransactionUsesPrimary() {
+		assertEquals("primary", readDatabaseName());
+	}
+
+	@Test
+	public void testReadReplicaExecutionJoiningReadWriteTransactionUsesPrimary() {
+		String name = myTxService.withRequest(null).execute(() ->
+			myTxService.withRequest(null).allowReadReplica().execute(this::readDatabaseName));
+		assertEquals("primary", name);
+	}
+
+	@Test
+	public void testNewReadWriteTransactionWithinReadReplicaExecutionUsesPrimary() {
+		String name = myTxService.withRequest(null).allowReadReplica().execute(() -> {
+			assertEquals("replica", readDatabaseName());
+			return myTxService
+				.withRequest(null)
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.execute(() -> {
+					myJdbcTemplate.update("INSERT INTO DB_INFO (NAME) VALUES ('written')");
+					return readDatabaseName();
+				});
+		});
+		assertEquals("primary", name);
+		assertEquals(2, countRows(myPrimaryDataSource));
+		assertEquals(1, countRows(myReplicaDataSource));
+	}
+
+	@Test
+	public void testStalenessWindow() {
+		myRoutingDataSource.setReplicaStalenessWindowMillis(1000);
+
+		// No writes yet
+		assertEquals("replica", myTxService.withRequest(null).allowReadReplica().execute(this::readDatabaseName));
+
+		// Immediately after a write, read from the primary
+		myTxService.withRequest(null).execute(() -> {
+			myJdbcTemplate.update("INSERT INTO DB_INFO (NAME) VALUES ('written')");
+		});
+		assertEquals("primary", myTxService.withRequest(null).allowReadReplica().execute(this::readDatabaseName));
+
+		// Once the window has passed, go back to the replica
+		await()
+			.atMost(10, TimeUnit.SECONDS)
+			.until(() -> myTxService.withRequest(null).allowReadReplica().execute(this::readDatabaseName), equalTo("replica"));
+	}
+
+	@Test
+	public void testStalenessWindowMustNotBeNegative() {
+		assertThrows(IllegalArgumentException.class, () -> myRoutingDataSource.setReplicaStalenessWindowMillis(-1));
+	}
+
+	private String readDatabaseName() {
+		return myJdbcTemplate.queryForObject(SELECT_DATABASE_NAME, String.class);
+	}
+
+	private int countRows(BasicDataSource theDataSource) {
+		Integer count = new JdbcTemplate(theDataSource).queryForObject("SELECT COUNT(*) FROM DB_INFO", Integer.class);
+		return count != null ? count : 0;
+	}
+
+	private static BasicDataSource createDatabase(String theName) {
+		BasicDataSource retVal = new BasicDataSource();
+		retVal.setDriver(new org.h2.Driver());
+		retVal.setUrl("jdbc:h2:mem:" + theName + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+		retVal.setUsername("SA");
+		retVal.setPassword("SA");
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(retVal);
+		jdbcTemplate.execute("CREATE TABLE DB_INFO (NAME VARCHAR(100))");
+		jdbcTemplate.update("INSERT INTO DB_INFO (NAME) VALUES (?)", theName);
+		return retVal;
+	}
+
+}
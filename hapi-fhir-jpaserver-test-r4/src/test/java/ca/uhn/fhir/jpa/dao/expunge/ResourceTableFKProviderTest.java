@@ -64,6 +64,7 @@ class ResourceTableFKProviderTest extends BaseJpaR4Test {
 
 		// Add the extra FKs that are not available in the CROSS_REFERENCES table
 		expected.add(new ResourceForeignKey("HFJ_HISTORY_TAG", "RES_ID"));
+		expected.add(new ResourceForeignKey("MPI_BLOCKING_KEY", "RES_ID"));
 
 		// If this assertion fails, it means hapi-fhir has added a new foreign-key dependency to HFJ_RESOURCE.  To fix
 		// the test, add the missing key to myResourceTableFKProvider.getResourceForeignKeys()
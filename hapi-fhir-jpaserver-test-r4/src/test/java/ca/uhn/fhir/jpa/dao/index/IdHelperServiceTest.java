@@ -6,6 +6,7 @@ import ca.uhn.fhir.jpa.dao.data.IForcedIdDao;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Assertions;
@@ -129,7 +130,7 @@ public class IdHelperServiceTest {
 		JpaPid blue = JpaPid.fromIdAndVersion(456L, 456L);
 
 		// we will pretend the lookup value is in the cache
-		when(myMemoryCacheService.getThenPutAfterCommit(any(MemoryCacheService.CacheEnum.class),
+		when(myMemoryCacheService.getThenPutAfterCommit(any(MemoryCacheEnum.class),
 			Mockito.anyString(),
 			any(Function.class)))
 			.thenReturn(red)
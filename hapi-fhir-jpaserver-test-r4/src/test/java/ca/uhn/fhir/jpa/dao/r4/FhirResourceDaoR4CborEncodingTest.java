@@ -0,0 +1,99 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FhirResourceDaoR4CborEncodingTest extends BaseJpaR4Test {
+
+	@AfterEach
+	public void afterResetDao() {
+		myStorageSettings.setResourceEncoding(new JpaStorageSettings().getResourceEncoding());
+	}
+
+	@Test
+	public void testCreateAndReadCbor() {
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.CBOR);
+
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+		obs.getValueQuantity().setValue(new BigDecimal("1.50")).setUnit("mg");
+		IIdType id = myObservationDao.create(obs, mySrd).getId();
+
+		runInTransaction(() -> {
+			ResourceHistoryTable history = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(id.getIdPartAsLong(), 1);
+			assertEquals(ResourceEncodingEnum.CBOR, history.getEncoding());
+		});
+
+		obs = myObservationDao.read(id.toUnqualifiedVersionless(), mySrd);
+		assertEquals("1.50", obs.getValueQuantity().getValueElement().getValueAsString());
+		assertEquals("http://loinc.org", obs.getCode().getCodingFirstRep().getSystem());
+
+		obs = (Observation) myObservationDao.search(SearchParameterMap.newSynchronous(), mySrd).getAllResources().get(0);
+		assertEquals("mg", obs.getValueQuantity().getUnit());
+	}
+
+	@Test
+	public void testNopOnUnchangedUpdate() {
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.CBOR);
+
+		Patient patient = new Patient();
+		patient.setActive(true);
+		IIdType id = myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+
+		patient = new Patient();
+		patient.setId(id);
+		patient.setActive(true);
+		DaoMethodOutcome outcome = myPatientDao.update(patient, mySrd);
+		assertTrue(outcome.isNop());
+	}
+
+	@Test
+	public void testConvertResourceEncoding() {
+		Patient patient = new Patient();
+		patient.setActive(true);
+		IIdType id = myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+		patient.setId(id);
+		patient.setActive(false);
+		myPatientDao.update(patient, mySrd);
+		Long pid = id.getIdPartAsLong();
+
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.CBOR);
+		runInTransaction(() -> myPatientDao.convertResourceEncoding(JpaPid.fromId(pid)));
+
+		runInTransaction(() -> {
+			for (ResourceHistoryTable next : myResourceHistoryTableDao.findAllVersionsForResourceIdInOrder(pid)) {
+				assertEquals(ResourceEncodingEnum.CBOR, next.getEncoding());
+			}
+		});
+
+		patient = myPatientDao.read(id, mySrd);
+		assertEquals("2", patient.getIdElement().getVersionIdPart());
+		assertFalse(patient.getActive());
+		patient = myPatientDao.read(id.withVersion("1"), mySrd);
+		assertTrue(patient.getActive());
+
+		// Converting doesn't make an unchanged update look like a change
+		patient = new Patient();
+		patient.setId(id);
+		patient.setActive(false);
+		assertTrue(myPatientDao.update(patient, mySrd).isNop());
+	}
+
+}
@@ -14,6 +14,7 @@ import ca.uhn.fhir.jpa.model.util.UcumServiceUtil;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.test.config.TestR4Config;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.QuantityParam;
@@ -71,6 +72,8 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -86,6 +89,7 @@ public class FhirResourceDaoR4CreateTest extends BaseJpaR4Test {
 		myStorageSettings.setIndexOnContainedResources(new JpaStorageSettings().isIndexOnContainedResources());
 		myStorageSettings.setIndexOnContainedResourcesRecursively(new JpaStorageSettings().isIndexOnContainedResourcesRecursively());
 		myStorageSettings.setInlineResourceTextBelowSize(new JpaStorageSettings().getInlineResourceTextBelowSize());
+		myStorageSettings.setMatchUrlCacheEnabled(new JpaStorageSettings().isMatchUrlCacheEnabled());
 	}
 
 	@Test
@@ -353,6 +357,27 @@ public class FhirResourceDaoR4CreateTest extends BaseJpaR4Test {
 		assertFalse(outcome.getCreated());
 	}
 
+	@Test
+	public void testConditionalCreateAfterDelete_MatchUrlCacheEnabled() {
+		myStorageSettings.setMatchUrlCacheEnabled(true);
+
+		Patient patient = new Patient();
+		patient.addIdentifier().setSystem("http://foo").setValue("123");
+		IIdType id = myPatientDao.create(patient, "Patient?identifier=http://foo|123", mySrd).getId().toUnqualifiedVersionless();
+
+		DaoMethodOutcome outcome = myPatientDao.create(patient, "Patient?identifier=http://foo|123", mySrd);
+		assertFalse(outcome.getCreated());
+		assertEquals(id.getValue(), outcome.getId().toUnqualifiedVersionless().getValue());
+		assertNotNull(myMemoryCacheService.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=http://foo|123"));
+
+		myPatientDao.delete(id, mySrd);
+		assertEquals(0, myMemoryCacheService.getEstimatedSize(MemoryCacheEnum.MATCH_URL));
+
+		outcome = myPatientDao.create(patient, "Patient?identifier=http://foo|123", mySrd);
+		assertTrue(outcome.getCreated());
+		assertNotEquals(id.getValue(), outcome.getId().toUnqualifiedVersionless().getValue());
+	}
+
 	/**
 	 * Simulate a client error: Identifier has a "+" but URL has an escaped space character
 	 */
@@ -69,6 +69,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
@@ -98,6 +99,7 @@ public class FhirResourceDaoR4QueryCountTest extends BaseResourceProviderR4Test
 		myStorageSettings.setPopulateIdentifierInAutoCreatedPlaceholderReferenceTargets(new JpaStorageSettings().isPopulateIdentifierInAutoCreatedPlaceholderReferenceTargets());
 		myStorageSettings.setResourceClientIdStrategy(new JpaStorageSettings().getResourceClientIdStrategy());
 		myStorageSettings.setTagStorageMode(new JpaStorageSettings().getTagStorageMode());
+		myStorageSettings.setIndexSynchronizationBatchModeEnabled(new JpaStorageSettings().isIndexSynchronizationBatchModeEnabled());
 
 		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(false);
 	}
@@ -162,6 +164,55 @@ public class FhirResourceDaoR4QueryCountTest extends BaseResourceProviderR4Test
 		assertEquals(0, myCaptureQueriesListener.getDeleteQueriesForCurrentThread().size());
 	}
 
+	@Test
+	public void testUpdateWithChanges_IndexSynchronizationBatchMode() {
+		myStorageSettings.setIndexSynchronizationBatchModeEnabled(true);
+
+		IIdType id = runInTransaction(() -> {
+			Patient p = new Patient();
+			for (int i = 0; i < 5; i++) {
+				p.addIdentifier().setSystem("urn:system").setValue("old" + i);
+			}
+			return myPatientDao.create(p).getId().toUnqualified();
+		});
+
+		myCaptureQueriesListener.clear();
+		runInTransaction(() -> {
+			Patient p = new Patient();
+			p.setId(id.getIdPart());
+			for (int i = 0; i < 5; i++) {
+				p.addIdentifier().setSystem("urn:system").setValue("new" + i);
+			}
+			myPatientDao.update(p).getResource();
+		});
+
+		// All removed token rows are deleted with a single statement
+		myCaptureQueriesListener.logDeleteQueriesForCurrentThread();
+		List<SqlQuery> deleteQueries = myCaptureQueriesListener.getDeleteQueriesForCurrentThread();
+		assertEquals(1, deleteQueries.size());
+		String deleteSql = deleteQueries.get(0).getSql(true, false).toLowerCase();
+		assertThat(deleteSql, containsString("hfj_spidx_token"));
+		assertThat(deleteSql, containsString(" in "));
+
+		// Existing rows are never reused, so only HFJ_RESOURCE is updated
+		myCaptureQueriesListener.logUpdateQueriesForCurrentThread();
+		List<SqlQuery> updateQueries = myCaptureQueriesListener.getUpdateQueriesForCurrentThread();
+		assertEquals(1, updateQueries.size());
+		assertThat(updateQueries.get(0).getSql(true, false).toLowerCase(), containsString("hfj_resource"));
+
+		runInTransaction(() -> {
+			List<String> values = myResourceIndexedSearchParamTokenDao
+				.findAll()
+				.stream()
+				.filter(t -> t.getResourcePid().equals(id.getIdPartAsLong()))
+				.filter(t -> t.getParamName().equals("identifier"))
+				.map(t -> t.getValue())
+				.sorted()
+				.collect(Collectors.toList());
+			assertThat(values, contains("new0", "new1", "new2", "new3", "new4"));
+		});
+	}
+
 	@Test
 	public void testUpdateGroup_withAddedReferences_willSucceed() {
 		int initialPatientsCount = 30;
@@ -1839,6 +1890,63 @@ public class FhirResourceDaoR4QueryCountTest extends BaseResourceProviderR4Test
 	}
 
 
+	@Test
+	public void testTransactionWithManyConditionalCreates() {
+		for (int i = 0; i < 10; i++) {
+			Patient pt = new Patient();
+			pt.addIdentifier().setSystem("http://foo").setValue(Integer.toString(i));
+			myPatientDao.create(pt, mySrd);
+		}
+
+		BundleBuilder bb = new BundleBuilder(myFhirContext);
+		for (int i = 0; i < 20; i++) {
+			Patient pt = new Patient();
+			pt.addIdentifier().setSystem("http://foo").setValue(Integer.toString(i));
+			bb.addTransactionCreateEntry(pt).conditional("Patient?identifier=http://foo|" + i);
+		}
+
+		myCaptureQueriesListener.clear();
+		Bundle outcome = mySystemDao.transaction(mySrd, (Bundle) bb.getBundle());
+		myCaptureQueriesListener.logSelectQueries();
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i < 10 ? "200 OK" : "201 Created", outcome.getEntry().get(i).getResponse().getStatus());
+		}
+
+		// All of the match URLs are resolved by a single query against the token index
+		List<String> matchUrlQueries = myCaptureQueriesListener
+			.getSelectQueries()
+			.stream()
+			.map(t -> t.getSql(true, false))
+			.filter(t -> t.contains("HASH_SYS_AND_VALUE in") || t.contains("HASH_SYS_AND_VALUE="))
+			.collect(Collectors.toList());
+		assertEquals(1, matchUrlQueries.size());
+		assertThat(matchUrlQueries.get(0), containsString("HASH_SYS_AND_VALUE in ("));
+	}
+
+	@Test
+	public void testTransactionWithManyConditionalCreates_MultipleMatches() {
+		for (int i = 0; i < 2; i++) {
+			Patient pt = new Patient();
+			pt.addIdentifier().setSystem("http://foo").setValue("dup");
+			myPatientDao.create(pt, mySrd);
+		}
+
+		BundleBuilder bb = new BundleBuilder(myFhirContext);
+		Patient pt = new Patient();
+		pt.addIdentifier().setSystem("http://foo").setValue("1");
+		bb.addTransactionCreateEntry(pt).conditional("Patient?identifier=http://foo|1");
+		pt = new Patient();
+		pt.addIdentifier().setSystem("http://foo").setValue("dup");
+		bb.addTransactionCreateEntry(pt).conditional("Patient?identifier=http://foo|dup");
+
+		try {
+			mySystemDao.transaction(mySrd, (Bundle) bb.getBundle());
+			fail();
+		} catch (PreconditionFailedException e) {
+			assertThat(e.getMessage(), containsString("Patient?identifier=http://foo|dup"));
+		}
+	}
+
 	@Test
 	public void testTransactionWithConditionalCreate_MatchUrlCacheEnabled() {
 		myStorageSettings.setMatchUrlCacheEnabled(true);
@@ -1,6 +1,10 @@
 package ca.uhn.fhir.jpa.dao.r4;
 
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
+import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
 import ca.uhn.fhir.jpa.search.PersistedJpaSearchFirstPageBundleProvider;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
@@ -23,14 +27,19 @@ import org.hl7.fhir.r4.model.SearchParameter;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -41,6 +50,7 @@ public class FhirResourceDaoR4SearchIncludeTest extends BaseJpaR4Test {
 	@AfterEach
 	public void afterEach() {
 		myStorageSettings.setMaximumIncludesToLoadPerPage(JpaStorageSettings.DEFAULT_MAXIMUM_INCLUDES_TO_LOAD_PER_PAGE);
+		myStorageSettings.setSearchIncludeThreadCount(new JpaStorageSettings().getSearchIncludeThreadCount());
 	}
 
 	@Test
@@ -231,6 +241,67 @@ public class FhirResourceDaoR4SearchIncludeTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testIncludesLoadedConcurrently() {
+		myStorageSettings.setSearchIncludeThreadCount(4);
+		createOrganizationWithReferencingEpisodesOfCare(3);
+
+		AtomicReference<SearchRuntimeDetails> searchRuntimeDetails = new AtomicReference<>();
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> searchRuntimeDetails.set(theArgs.get(SearchRuntimeDetails.class));
+		myInterceptorRegistry.registerAnonymousInterceptor(Pointcut.JPA_PERFTRACE_SEARCH_SELECT_COMPLETE, interceptor);
+		try {
+			SearchParameterMap map = SearchParameterMap.newSynchronous()
+				.add("_id", new TokenParam("ORG-0"))
+				.addInclude(Organization.INCLUDE_PARTOF)
+				.addInclude(Organization.INCLUDE_ENDPOINT)
+				.addRevInclude(EpisodeOfCare.INCLUDE_ORGANIZATION)
+				.addRevInclude(Patient.INCLUDE_ORGANIZATION);
+			IBundleProvider results = myOrganizationDao.search(map, mySrd);
+			List<String> ids = toUnqualifiedVersionlessIdValues(results);
+			assertThat(ids.toString(), ids, containsInAnyOrder(
+				"EpisodeOfCare/EOC-0",
+				"EpisodeOfCare/EOC-1",
+				"EpisodeOfCare/EOC-2",
+				"Organization/ORG-0",
+				"Organization/ORG-P"
+			));
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(interceptor);
+		}
+
+		assertThat(searchRuntimeDetails.get().getIncludeQueryMillis().keySet(), containsInAnyOrder(
+			"_include=Organization:partof",
+			"_include=Organization:endpoint",
+			"_revinclude=EpisodeOfCare:organization",
+			"_revinclude=Patient:organization"
+		));
+	}
+
+	@Test
+	public void testIncludeTimingsReportedForPagedSearch() {
+		createOrganizationWithReferencingEpisodesOfCare(3);
+
+		List<String> messages = new ArrayList<>();
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> messages.add(theArgs.get(StorageProcessingMessage.class).getMessage());
+		myInterceptorRegistry.registerAnonymousInterceptor(Pointcut.JPA_PERFTRACE_INFO, interceptor);
+		try {
+			SearchParameterMap map = new SearchParameterMap()
+				.add("_id", new TokenParam("ORG-0"))
+				.addInclude(Organization.INCLUDE_PARTOF)
+				.addRevInclude(EpisodeOfCare.INCLUDE_ORGANIZATION);
+			IBundleProvider results = myOrganizationDao.search(map, mySrd);
+			assertEquals(5, toUnqualifiedVersionlessIdValues(results).size());
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(interceptor);
+		}
+
+		assertThat(messages.toString(), messages, hasItem(allOf(
+			containsString("_include=Organization:partof in "),
+			containsString("ms for search ")
+		)));
+		assertThat(messages.toString(), messages, hasItem(containsString("_revinclude=EpisodeOfCare:organization in ")));
+	}
+
 	private void createOrganizationWithReferencingEpisodesOfCare(int theEocCount) {
 		Organization org = new Organization();
 		org.setId("Organization/ORG-P");
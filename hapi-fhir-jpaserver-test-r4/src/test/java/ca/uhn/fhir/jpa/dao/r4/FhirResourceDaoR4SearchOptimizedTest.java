@@ -103,6 +103,7 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 		mySearchCoordinatorSvcImpl.setLoadingThrottleForUnitTests(null);
 		mySearchCoordinatorSvcImpl.setSyncSizeForUnitTests(QueryParameterUtils.DEFAULT_SYNC_SIZE);
 		myStorageSettings.setSearchPreFetchThresholds(new JpaStorageSettings().getSearchPreFetchThresholds());
+		myStorageSettings.setAsyncSearchReadOnlyQueryEnabled(new JpaStorageSettings().isAsyncSearchReadOnlyQueryEnabled());
 		myCaptureQueriesListener.setCaptureQueryStackTrace(false);
 		myStorageSettings.setIndexMissingFields(new JpaStorageSettings().getIndexMissingFields());
 	}
@@ -521,6 +522,54 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testFetchOnlySmallBatches_ReadOnlyQuery() {
+		myStorageSettings.setAsyncSearchReadOnlyQueryEnabled(true);
+		create200Patients();
+
+		myStorageSettings.setSearchPreFetchThresholds(Arrays.asList(20, 50, -1));
+
+		SearchParameterMap params = new SearchParameterMap();
+		params.setSort(new SortSpec(Patient.SP_NAME));
+		IBundleProvider results = myPatientDao.search(params);
+		String uuid = results.getUuid();
+		List<String> ids = toUnqualifiedVersionlessIdValues(results, 0, 10, true);
+		assertEquals("Patient/PT00000", ids.get(0));
+		assertEquals("Patient/PT00009", ids.get(9));
+
+		await().until(() -> runInTransaction(() -> mySearchEntityDao
+			.findByUuidAndFetchIncludes(uuid)
+			.orElseThrow(() -> new InternalErrorException(""))
+			.getStatus() == SearchStatusEnum.PASSCMPLET));
+
+		runInTransaction(() -> {
+			Search search = mySearchEntityDao.findByUuidAndFetchIncludes(uuid).orElseThrow(() -> new InternalErrorException(""));
+			assertEquals(20, search.getNumFound());
+			assertEquals(search.getNumFound(), mySearchResultDao.count());
+		});
+
+		/*
+		 * Crossing the thresholds triggers the next passes, which also store their
+		 * results in separate read-write transactions
+		 */
+		ids = toUnqualifiedVersionlessIdValues(results, 15, 25, false);
+		assertEquals("Patient/PT00015", ids.get(0));
+		assertEquals("Patient/PT00024", ids.get(9));
+
+		ids = toUnqualifiedVersionlessIdValues(results, 190, 200, false);
+		assertEquals(10, ids.size());
+		assertEquals("Patient/PT00190", ids.get(0));
+		assertEquals("Patient/PT00199", ids.get(9));
+
+		runInTransaction(() -> {
+			Search search = mySearchEntityDao.findByUuidAndFetchIncludes(uuid).orElseThrow(() -> new InternalErrorException(""));
+			assertEquals(SearchStatusEnum.FINISHED, search.getStatus());
+			assertEquals(200, search.getNumFound());
+			assertEquals(200, search.getTotalCount().intValue());
+			assertEquals(search.getNumFound(), mySearchResultDao.count());
+		});
+	}
+
 	@Test
 	public void testFetchMoreThanFirstPageSizeInFirstPage() {
 		create200Patients();
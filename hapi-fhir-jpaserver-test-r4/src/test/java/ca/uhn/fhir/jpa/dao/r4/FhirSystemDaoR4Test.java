@@ -134,6 +134,7 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 		myStorageSettings.setBundleBatchMaxPoolSize(new JpaStorageSettings().getBundleBatchMaxPoolSize());
 		myStorageSettings.setAutoCreatePlaceholderReferenceTargets(new JpaStorageSettings().isAutoCreatePlaceholderReferenceTargets());
 		myStorageSettings.setAutoVersionReferenceAtPaths(new JpaStorageSettings().getAutoVersionReferenceAtPaths());
+		myStorageSettings.setBundleTransactionParallelMatchUrlResolutionEnabled(new JpaStorageSettings().isBundleTransactionParallelMatchUrlResolutionEnabled());
 		myFhirContext.getParserOptions().setAutoContainReferenceTargetsWithNoId(true);
 	}
 
@@ -971,6 +972,63 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 	}
 
 
+	@Test
+	public void testTransactionWithConditionalCreates_ParallelMatchUrlResolution() {
+		myStorageSettings.setBundleTransactionParallelMatchUrlResolutionEnabled(true);
+		myStorageSettings.setBundleBatchPoolSize(2);
+		myStorageSettings.setBundleBatchMaxPoolSize(2);
+
+		Patient existing = new Patient();
+		existing.addIdentifier().setSystem("foo").setValue("1");
+		existing.addName().setFamily("SMITH");
+		IIdType existingId = myPatientDao.create(existing, mySrd).getId().toUnqualifiedVersionless();
+
+		myCaptureQueriesListener.clear();
+		Bundle outcome = mySystemDao.transaction(mySrd, createInputTransactionWithMultiParameterMatchUrls());
+		assertEquals("200 OK", outcome.getEntry().get(0).getResponse().getStatus());
+		assertThat(outcome.getEntry().get(0).getResponse().getLocation(), startsWith(existingId.getValue() + "/_history/1"));
+		assertEquals("201 Created", outcome.getEntry().get(1).getResponse().getStatus());
+		assertEquals("201 Created", outcome.getEntry().get(2).getResponse().getStatus());
+		assertEquals("201 Created", outcome.getEntry().get(3).getResponse().getStatus());
+		assertTrue(myCaptureQueriesListener.getSelectQueries().stream().anyMatch(t -> t.getThreadName().startsWith("bundle-batch-")));
+
+		// Take 2
+
+		Bundle outcome2 = mySystemDao.transaction(mySrd, createInputTransactionWithMultiParameterMatchUrls());
+		for (int i = 0; i < 4; i++) {
+			assertEquals("200 OK", outcome2.getEntry().get(i).getResponse().getStatus());
+			assertEquals(outcome.getEntry().get(i).getResponse().getLocation(), outcome2.getEntry().get(i).getResponse().getLocation());
+		}
+	}
+
+	private Bundle createInputTransactionWithMultiParameterMatchUrls() {
+		BundleBuilder bb = new BundleBuilder(myFhirContext);
+
+		Patient pt = new Patient();
+		pt.addIdentifier().setSystem("foo").setValue("1");
+		pt.addName().setFamily("SMITH");
+		bb.addTransactionCreateEntry(pt).conditional("Patient?identifier=foo|1&family=SMITH");
+
+		Patient pt2 = new Patient();
+		pt2.setId(IdType.newRandomUuid());
+		pt2.addIdentifier().setSystem("foo").setValue("2");
+		pt2.addName().setFamily("JONES");
+		bb.addTransactionCreateEntry(pt2).conditional("Patient?identifier=foo|2&family=JONES");
+
+		Observation obs = new Observation();
+		obs.addIdentifier().setSystem("foo").setValue("3");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		bb.addTransactionUpdateEntry(obs).conditional("Observation?identifier=foo|3&status=final");
+
+		// This one depends on the placeholder ID of the patient created above
+		Observation obs2 = new Observation();
+		obs2.addIdentifier().setSystem("foo").setValue("4");
+		obs2.setSubject(new Reference(pt2.getIdElement()));
+		bb.addTransactionCreateEntry(obs2).conditional("Observation?identifier=foo|4&subject=" + pt2.getIdElement().getValue());
+
+		return (Bundle) bb.getBundle();
+	}
+
 	@Test
 	public void testTransactionWithConditionalCreate_NoResourceTypeInUrl() {
 		BundleBuilder bb = new BundleBuilder(myFhirContext);
@@ -1911,7 +1969,7 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 			mySystemDao.transaction(mySrd, request);
 			fail();
 		} catch (PreconditionFailedException e) {
-			assertThat(e.getMessage(), containsString("Multiple resources match this search"));
+			assertThat(e.getMessage(), containsString("with match URL \"Patient"));
 		}
 	}
 
@@ -21,12 +21,15 @@ import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
 import ca.uhn.fhir.test.utilities.ITestDataBuilder;
 import ca.uhn.fhir.util.HapiExtensions;
 import com.google.common.collect.Sets;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Consent;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DateType;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.HumanName;
@@ -44,8 +47,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -384,6 +389,68 @@ public class SearchParamExtractorR4Test implements ITestDataBuilder {
 
 	}
 
+	@Test
+	public void testExtractWithPathCache_MatchesIndividualExtraction() {
+		StorageSettings storageSettings = new StorageSettings();
+		storageSettings.setNormalizedQuantitySearchLevel(NormalizedQuantitySearchLevel.NORMALIZED_QUANTITY_SEARCH_SUPPORTED);
+		SearchParamExtractorR4 extractor = new SearchParamExtractorR4(storageSettings, new PartitionSettings(), ourCtx, mySearchParamRegistry);
+
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("8867-4").setDisplay("Heart rate");
+		obs.setSubject(new Reference("Patient/123"));
+		obs.setEffective(new DateTimeType("2023-03-01T10:00:00Z"));
+		obs.setValue(new Quantity().setSystem(UcumServiceUtil.UCUM_CODESYSTEM_URL).setCode("cm").setValue(200));
+		obs.addComponent()
+			.setCode(new CodeableConcept().addCoding(new Coding().setSystem("http://foo").setCode("code1")))
+			.setValue(new Quantity().setSystem("http://bar").setCode("code1").setValue(100));
+
+		ISearchParamExtractor.ExtractedSearchParams extracted = extractor.extractSearchParamsWithPathCache(obs);
+
+		assertEquals(extractor.extractSearchParamStrings(obs), extracted.getStrings());
+		assertEquals(extractor.extractSearchParamNumber(obs), extracted.getNumbers());
+		assertEquals(extractor.extractSearchParamQuantity(obs), extracted.getQuantities());
+		assertEquals(extractor.extractSearchParamQuantityNormalized(obs), extracted.getQuantitiesNormalized());
+		assertEquals(extractor.extractSearchParamDates(obs), extracted.getDates());
+		assertEquals(extractor.extractSearchParamUri(obs), extracted.getUris());
+		assertEquals(extractor.extractSearchParamTokens(obs), extracted.getTokens());
+		assertEquals(extractor.extractSearchParamSpecial(obs), extracted.getSpecials());
+		assertEquals(extractor.extractSearchParamComposites(obs), extracted.getComposites());
+		assertThat(extracted.getTokens(), not(empty()));
+		assertThat(extracted.getQuantitiesNormalized(), not(empty()));
+		assertThat(extracted.getDates(), not(empty()));
+	}
+
+	@Test
+	public void testExtractWithPathCache_EvaluatesEachPathOnce() {
+		Patient patient = new Patient();
+		patient.addName().setFamily("Simpson").addGiven("Homer");
+		patient.addIdentifier().setSystem("http://foo").setValue("bar");
+		patient.setBirthDateElement(new DateType("1956-05-12"));
+
+		Map<String, Integer> pathCounts = new HashMap<>();
+		SearchParamExtractorR4 extractor = new SearchParamExtractorR4(new StorageSettings(), new PartitionSettings(), ourCtx, mySearchParamRegistry) {
+			@Override
+			public IValueExtractor getPathValueExtractor(IBase theResource, String theSinglePath) {
+				if (theResource == patient) {
+					pathCounts.merge(theSinglePath, 1, Integer::sum);
+				}
+				return super.getPathValueExtractor(theResource, theSinglePath);
+			}
+		};
+
+		// "name" and "phonetic" share the path Patient.name
+		extractor.extractSearchParamStrings(patient);
+		assertEquals(2, pathCounts.get("Patient.name"));
+
+		pathCounts.clear();
+		ISearchParamExtractor.ExtractedSearchParams extracted = extractor.extractSearchParamsWithPathCache(patient);
+		assertEquals(1, pathCounts.get("Patient.name"));
+		assertThat(pathCounts.toString(), pathCounts.values().stream().allMatch(t -> t == 1));
+		assertThat(extracted.getStrings(), hasItem(hasProperty("paramName", equalTo("phonetic"))));
+		assertThat(extracted.getStrings(), hasItem(hasProperty("paramName", equalTo("name"))));
+	}
+
 	@Nested
 	class CompositeSearchParameter {
 		SearchParamExtractorR4 myExtractor = new SearchParamExtractorR4(myStorageSettings, new PartitionSettings(), ourCtx, mySearchParamRegistry);
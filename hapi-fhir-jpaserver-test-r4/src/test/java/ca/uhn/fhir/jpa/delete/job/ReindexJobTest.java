@@ -8,13 +8,17 @@ import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.jpa.test.PatientReindexTestHelper;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -32,6 +36,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ReindexJobTest extends BaseJpaR4Test {
 
@@ -53,6 +59,7 @@ public class ReindexJobTest extends BaseJpaR4Test {
 	@AfterEach
 	public void after() {
 		myInterceptorRegistry.unregisterAllAnonymousInterceptors();
+		myStorageSettings.setResourceEncoding(new JpaStorageSettings().getResourceEncoding());
 	}
 
 	@Test
@@ -160,6 +167,66 @@ public class ReindexJobTest extends BaseJpaR4Test {
 	}
 
 
+	@Test
+	public void testReindex_ConvertResourceEncoding() {
+		// setup
+		IIdType id = createPatient(withActiveTrue()).toUnqualifiedVersionless();
+		Patient patient = myPatientDao.read(id, mySrd);
+		patient.setActive(false);
+		myPatientDao.update(patient, mySrd);
+		IIdType otherId = createPatient(withActiveTrue()).toUnqualifiedVersionless();
+
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.CBOR);
+
+		// execute
+		Batch2JobStartResponse startResponse = startConvertResourceEncodingJob();
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		// validate
+		assertEquals(3, countHistoryRowsWithEncoding(ResourceEncodingEnum.CBOR));
+		assertEquals(0, countHistoryRowsWithEncoding(ResourceEncodingEnum.JSONC));
+		assertFalse(myPatientDao.read(id, mySrd).getActive());
+		assertTrue(myPatientDao.read(id.withVersion("1"), mySrd).getActive());
+		assertTrue(myPatientDao.read(otherId, mySrd).getActive());
+	}
+
+	@Test
+	public void testReindex_ConvertResourceEncoding_CorruptRowIsSkipped() {
+		// setup
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.CBOR);
+		IIdType corruptId = createPatient(withActiveTrue());
+		IIdType id = createPatient(withActiveTrue()).toUnqualifiedVersionless();
+		runInTransaction(() -> {
+			ResourceHistoryTable history = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(corruptId.getIdPartAsLong(), 1);
+			history.setResource(new byte[]{(byte) 0xBF, (byte) 0x61});
+			myResourceHistoryTableDao.save(history);
+		});
+
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.JSONC);
+
+		// execute
+		Batch2JobStartResponse startResponse = startConvertResourceEncodingJob();
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		// validate
+		assertEquals(1, countHistoryRowsWithEncoding(ResourceEncodingEnum.CBOR));
+		assertEquals(1, countHistoryRowsWithEncoding(ResourceEncodingEnum.JSONC));
+		assertTrue(myPatientDao.read(id, mySrd).getActive());
+	}
+
+	private Batch2JobStartResponse startConvertResourceEncodingJob() {
+		ReindexJobParameters parameters = new ReindexJobParameters();
+		parameters.setConvertResourceEncoding(true);
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(ReindexAppCtx.JOB_REINDEX);
+		startRequest.setParameters(parameters);
+		return myJobCoordinator.startInstance(startRequest);
+	}
+
+	private long countHistoryRowsWithEncoding(ResourceEncodingEnum theEncoding) {
+		return runInTransaction(() -> myResourceHistoryTableDao.findAll().stream().filter(t -> t.getEncoding() == theEncoding).count());
+	}
+
 	@Test
 	public void testReindex_ExceptionThrownDuringWrite() {
 		// setup
@@ -16,6 +16,7 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
 import ca.uhn.fhir.util.HapiExtensions;
+import ca.uhn.fhir.util.UrlUtil;
 import ca.uhn.test.concurrency.PointcutLatch;
 import com.google.common.base.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -130,6 +131,101 @@ public class BinaryAccessProviderR4Test extends BaseResourceProviderR4Test {
 	}
 
 
+	@Test
+	public void testReadRange() throws IOException {
+		IIdType id = createDocumentReference(true);
+
+		HttpGet get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=2-5");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(206, resp.getStatusLine().getStatusCode());
+			assertEquals("bytes 2-5/15", resp.getFirstHeader(Constants.HEADER_CONTENT_RANGE).getValue());
+			assertEquals("bytes", resp.getFirstHeader(Constants.HEADER_ACCEPT_RANGES).getValue());
+			assertEquals(4, resp.getEntity().getContentLength());
+			assertArrayEquals(new byte[]{3, 4, 5, 6}, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+
+		// Suffix range
+		get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=-3");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(206, resp.getStatusLine().getStatusCode());
+			assertEquals("bytes 12-14/15", resp.getFirstHeader(Constants.HEADER_CONTENT_RANGE).getValue());
+			assertArrayEquals(new byte[]{3, 2, 1}, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+
+		// Open-ended range extending past the end
+		get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=13-100");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(206, resp.getStatusLine().getStatusCode());
+			assertEquals("bytes 13-14/15", resp.getFirstHeader(Constants.HEADER_CONTENT_RANGE).getValue());
+			assertArrayEquals(new byte[]{2, 1}, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+	}
+
+	@Test
+	public void testReadRange_NotSatisfiable() throws IOException {
+		IIdType id = createDocumentReference(true);
+
+		HttpGet get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=15-");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(416, resp.getStatusLine().getStatusCode());
+			assertEquals("bytes */15", resp.getFirstHeader(Constants.HEADER_CONTENT_RANGE).getValue());
+		}
+	}
+
+	@Test
+	public void testReadRange_IgnoredHeaders() throws IOException {
+		IIdType id = createDocumentReference(true);
+
+		// If-Range doesn't match the current ETag
+		HttpGet get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=2-5");
+		get.addHeader(Constants.HEADER_IF_RANGE, "\"foo\"");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(200, resp.getStatusLine().getStatusCode());
+			assertArrayEquals(SOME_BYTES, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+
+		// Multiple ranges are not supported
+		get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=0-1,4-5");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(200, resp.getStatusLine().getStatusCode());
+			assertArrayEquals(SOME_BYTES, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+
+		// Malformed
+		get = new HttpGet(createReadPath(id, "DocumentReference.content.attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=5-2");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(200, resp.getStatusLine().getStatusCode());
+			assertArrayEquals(SOME_BYTES, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+	}
+
+	@Test
+	public void testReadRange_InlineData() throws IOException {
+		IIdType id = createDocumentReference(true);
+
+		HttpGet get = new HttpGet(createReadPath(id, "DocumentReference.content[1].attachment"));
+		get.addHeader(Constants.HEADER_RANGE, "bytes=1-");
+		try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+			assertEquals(206, resp.getStatusLine().getStatusCode());
+			assertEquals("bytes 1-3/4", resp.getFirstHeader(Constants.HEADER_CONTENT_RANGE).getValue());
+			assertArrayEquals(new byte[]{5, 5, 6}, IOUtils.toByteArray(resp.getEntity().getContent()));
+		}
+	}
+
+	private String createReadPath(IIdType theId, String theAttachmentPath) {
+		return myServerBase +
+			"/DocumentReference/" + theId.getIdPart() + "/" +
+			JpaConstants.OPERATION_BINARY_ACCESS_READ +
+			"?path=" + UrlUtil.escapeUrlParam(theAttachmentPath);
+	}
+
 	@Test
 	public void testReadSecondInstance() throws IOException {
 		IIdType id = createDocumentReference(true);
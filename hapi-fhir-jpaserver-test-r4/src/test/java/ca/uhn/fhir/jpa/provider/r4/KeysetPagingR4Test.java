@@ -0,0 +1,130 @@
+package ca.uhn.fhir.jpa.provider.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeysetPagingR4Test extends BaseResourceProviderR4Test {
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		myStorageSettings.setKeysetPagingEnabled(true);
+	}
+
+	@Override
+	@AfterEach
+	public void after() throws Exception {
+		super.after();
+		myStorageSettings.setKeysetPagingEnabled(new JpaStorageSettings().isKeysetPagingEnabled());
+	}
+
+	@Test
+	public void testSearchUnsorted() {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			expected.add(createPatient(withFamily("KEYSET"), withId("P" + i)).toUnqualifiedVersionless().getValue());
+		}
+		createPatient(withFamily("OTHER"));
+
+		List<String> actual = searchAndFollowNextLinks("Patient?family=KEYSET&_count=10", 3);
+
+		assertEquals(expected, actual);
+		assertEquals(0, runInTransaction(() -> mySearchResultDao.count()));
+	}
+
+	@Test
+	public void testSearchSortedByLastUpdatedDescending() {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			expected.add(0, createPatient(withFamily("KEYSET")).toUnqualifiedVersionless().getValue());
+		}
+
+		List<String> actual = searchAndFollowNextLinks("Patient?family=KEYSET&_sort=-_lastUpdated&_count=5", 3);
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testPageIdOnlyIdentifiesStoredSearch() {
+		for (int i = 0; i < 3; i++) {
+			createPatient(withFamily("KEYSET"));
+		}
+		Bundle page = myClient.search().byUrl("Patient?family=KEYSET&_count=2").returnBundle(Bundle.class).execute();
+		String nextUrl = page.getLink(Constants.LINK_NEXT).getUrl();
+		String searchId = extractParam(nextUrl, Constants.PARAM_PAGINGACTION);
+		String pageId = extractParam(nextUrl, Constants.PARAM_PAGEID);
+
+		// The search itself is stored server side, not in the page ID
+		String cursorJson = new String(Base64.getUrlDecoder().decode(pageId), StandardCharsets.UTF_8);
+		assertThat(cursorJson, not(containsString("KEYSET")));
+		assertThat(cursorJson, not(containsString("Patient")));
+		assertTrue(runInTransaction(() -> mySearchEntityDao.findByUuidAndFetchIncludes(searchId).isPresent()));
+
+		// A forged page ID can't switch to another resource type or query
+		String forged = "{\"uuid\":\"" + searchId + "\",\"type\":\"Observation\",\"query\":\"?\"}";
+		String forgedPageId = Base64.getUrlEncoder().withoutPadding().encodeToString(forged.getBytes(StandardCharsets.UTF_8));
+		String forgedUrl = nextUrl.replace(pageId, forgedPageId);
+		assertThrows(InvalidRequestException.class, () -> myClient.loadPage().byUrl(forgedUrl).andReturnBundle(Bundle.class).execute());
+	}
+
+	@Test
+	public void testPageIdRejectedWhenKeysetPagingDisabled() {
+		for (int i = 0; i < 3; i++) {
+			createPatient(withFamily("KEYSET"));
+		}
+		Bundle page = myClient.search().byUrl("Patient?family=KEYSET&_count=2").returnBundle(Bundle.class).execute();
+		assertNotNull(page.getLink(Constants.LINK_NEXT));
+
+		myStorageSettings.setKeysetPagingEnabled(false);
+		assertThrows(ResourceGoneException.class, () -> myClient.loadPage().next(page).execute());
+	}
+
+	private static String extractParam(String theUrl, String theParamName) {
+		Matcher matcher = Pattern.compile("[?&]" + theParamName + "=([^&]+)").matcher(theUrl);
+		assertTrue(matcher.find());
+		return matcher.group(1);
+	}
+
+	private List<String> searchAndFollowNextLinks(String theUrl, int theExpectedPageCount) {
+		List<String> retVal = new ArrayList<>();
+		Bundle page = myClient.search().byUrl(theUrl).returnBundle(Bundle.class).execute();
+		int pageCount = 1;
+		while (true) {
+			assertNull(page.getTotalElement().getValue());
+			page.getEntry().forEach(t -> retVal.add(t.getResource().getIdElement().toUnqualifiedVersionless().getValue()));
+			if (page.getLink(Constants.LINK_NEXT) == null) {
+				break;
+			}
+			assertThat(page.getLink(Constants.LINK_NEXT).getUrl(), containsString(Constants.PARAM_PAGEID + "="));
+			page = myClient.loadPage().next(page).execute();
+			pageCount++;
+		}
+		assertEquals(theExpectedPageCount, pageCount);
+		return retVal;
+	}
+
+}
@@ -19,7 +19,9 @@ import ca.uhn.fhir.jpa.rp.r4.PractitionerResourceProvider;
 import ca.uhn.fhir.jpa.rp.r4.PractitionerRoleResourceProvider;
 import ca.uhn.fhir.jpa.rp.r4.ServiceRequestResourceProvider;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.rest.api.CacheControlDirective;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.EncodingEnum;
@@ -96,9 +98,12 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
@@ -276,6 +281,32 @@ public class SystemProviderR4Test extends BaseJpaR4Test {
 		}
 	}
 
+	@Test
+	public void testCacheStats() {
+		createPatient(withActiveTrue());
+		myMemoryCacheService.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=foo|bar");
+
+		Parameters response = myClient
+			.operation()
+			.onServer()
+			.named(JpaConstants.OPERATION_CACHE_STATS)
+			.withNoParameters(Parameters.class)
+			.useHttpGet()
+			.execute();
+		ourLog.debug(ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(response));
+
+		assertEquals(MemoryCacheEnum.values().length, response.getParameters("cache").size());
+		Parameters.ParametersParameterComponent matchUrl = response
+			.getParameters("cache")
+			.stream()
+			.filter(t -> t.getPart().get(0).getValue().primitiveValue().equals(MemoryCacheEnum.MATCH_URL.name()))
+			.findFirst()
+			.orElseThrow();
+		List<String> partNames = matchUrl.getPart().stream().map(Parameters.ParametersParameterComponent::getName).collect(Collectors.toList());
+		assertThat(partNames, contains("name", "hits", "misses", "evictions", "hitRatio", "estimatedSize", "maximumSize", "expireAfterWriteSeconds"));
+		assertThat(((DecimalType) matchUrl.getPart().get(2).getValue()).getValueAsInteger(), greaterThanOrEqualTo(1));
+	}
+
 	@Test
 	public void testGetOperationDefinition() {
 		OperationDefinition op = myClient.read(OperationDefinition.class, "-s-get-resource-counts");
@@ -0,0 +1,107 @@
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.TermCodeSystem;
+import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.term.api.ITermLoaderSvc;
+import ca.uhn.fhir.jpa.term.api.ITermReindexingSvc;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TerminologyLoaderSvcSnomedCtStreamingJpaTest extends BaseJpaR4Test {
+
+	@Autowired
+	private TermLoaderStagingSvcImpl myTermLoaderStagingSvc;
+	@Autowired
+	private ITermReindexingSvc myTermReindexingSvc;
+	private ZipCollectionBuilder myFiles;
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		myStorageSettings.setTerminologyStreamingLoadEnabled(true);
+		myFiles = new ZipCollectionBuilder();
+	}
+
+	@AfterEach
+	public void after() {
+		myStorageSettings.setTerminologyStreamingLoadEnabled(new JpaStorageSettings().isTerminologyStreamingLoadEnabled());
+		myTermLoaderStagingSvc.setPageSizeForUnitTest(TermLoaderStagingSvcImpl.DEFAULT_PAGE_SIZE);
+		TermReindexingSvcImpl.setForceSaveDeferredAlwaysForUnitTest(false);
+	}
+
+	@Test
+	public void testLoadSnomedCt() throws Exception {
+		// Use a tiny page size so that the keyset paging is exercised
+		myTermLoaderStagingSvc.setPageSizeForUnitTest(2);
+
+		myFiles.addFileZip("/sct/", "sct2_Concept_Full_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_Concept_Full-en_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_Description_Full-en_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_Identifier_Full_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_Relationship_Full_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_StatedRelationship_Full_INT_20160131.txt");
+		myFiles.addFileZip("/sct/", "sct2_TextDefinition_Full-en_INT_20160131.txt");
+
+		UploadStatistics stats = myTerminologyLoaderSvc.loadSnomedCt(myFiles.getFiles(), new SystemRequestDetails());
+		assertEquals(5, stats.getUpdatedConceptCount());
+
+		runInTransaction(() -> {
+			assertEquals(0L, myEntityManager.createQuery("SELECT COUNT(r) FROM TermLoadStagingRow r").getSingleResult());
+
+			TermCodeSystem codeSystem = myTermCodeSystemDao.findByCodeSystemUri(ITermLoaderSvc.SCT_URI);
+			Long versionPid = codeSystem.getCurrentVersion().getPid();
+			assertEquals(5, myTermConceptDao.countByCodeSystemVersion(versionPid));
+
+			// Active concepts with an active description
+			TermConcept root = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126813005").orElseThrow();
+			assertEquals("ROOT1", root.getDisplay());
+			TermConcept child = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126815003").orElseThrow();
+			TermConcept grandchild = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126817006").orElseThrow();
+			TermConcept inactivatedLink = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126816002").orElseThrow();
+			assertTrue(myTermConceptDao.findByCodeSystemAndCode(versionPid, "116680003").isPresent());
+
+			// Inactive concept, and concept without a concept row
+			assertFalse(myTermConceptDao.findByCodeSystemAndCode(versionPid, "207527008").isPresent());
+			assertFalse(myTermConceptDao.findByCodeSystemAndCode(versionPid, "126814004").isPresent());
+
+			// The link from 126815003 back to 126817006 is circular and gets dropped, and the
+			// most recent row for 126816002 inactivates its link
+			assertThat(myTermConceptParentChildLinkDao.findAllWithChild(root.getId()), empty());
+			assertThat(myTermConceptParentChildLinkDao.findAllWithChild(child.getId()), containsInAnyOrder(root.getId()));
+			assertThat(myTermConceptParentChildLinkDao.findAllWithChild(grandchild.getId()), containsInAnyOrder(child.getId()));
+			assertThat(myTermConceptParentChildLinkDao.findAllWithChild(inactivatedLink.getId()), empty());
+		});
+
+		// Concepts are left for the reindexer to index
+		TermReindexingSvcImpl.setForceSaveDeferredAlwaysForUnitTest(true);
+		myTermReindexingSvc.processReindexing();
+
+		runInTransaction(() -> {
+			TermCodeSystem codeSystem = myTermCodeSystemDao.findByCodeSystemUri(ITermLoaderSvc.SCT_URI);
+			Long versionPid = codeSystem.getCurrentVersion().getPid();
+			TermConcept root = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126813005").orElseThrow();
+			TermConcept child = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126815003").orElseThrow();
+			TermConcept grandchild = myTermConceptDao.findByCodeSystemAndCode(versionPid, "126817006").orElseThrow();
+
+			List<String> parentPids = Arrays.asList(grandchild.getParentPidsAsString().split(" "));
+			assertThat(parentPids, containsInAnyOrder(child.getId().toString(), root.getId().toString()));
+		});
+	}
+
+}
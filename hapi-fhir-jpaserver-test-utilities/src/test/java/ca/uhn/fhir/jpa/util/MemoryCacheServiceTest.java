@@ -1,8 +1,12 @@
 package ca.uhn.fhir.jpa.util;
 
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.cross.JpaResourceLookup;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.TagDefinition;
 import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelFactory;
+import ca.uhn.fhir.jpa.subscription.channel.impl.LinkedBlockingChannelFactory;
 import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
 import org.junit.jupiter.api.AfterEach;
@@ -12,9 +16,13 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -24,12 +32,21 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
 
 class MemoryCacheServiceTest {
 	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheServiceTest.class);
@@ -48,18 +65,215 @@ class MemoryCacheServiceTest {
 		TagTypeEnum type = TagTypeEnum.TAG;
 		String code = "t";
 
-		MemoryCacheService.TagDefinitionCacheKey cacheKey = new MemoryCacheService.TagDefinitionCacheKey(type, system, code);
+		TagDefinitionCacheKey cacheKey = new TagDefinitionCacheKey(type, system, code);
 
-		TagDefinition retVal = mySvc.getIfPresent(MemoryCacheService.CacheEnum.TAG_DEFINITION, cacheKey);
+		TagDefinition retVal = mySvc.getIfPresent(MemoryCacheEnum.TAG_DEFINITION, cacheKey);
 		assertThat(retVal, nullValue());
 
 		TagDefinition tagDef = new TagDefinition(type, system, code, "theLabel");
-		mySvc.put(MemoryCacheService.CacheEnum.TAG_DEFINITION, cacheKey, tagDef);
+		mySvc.put(MemoryCacheEnum.TAG_DEFINITION, cacheKey, tagDef);
 
-		retVal = mySvc.getIfPresent(MemoryCacheService.CacheEnum.TAG_DEFINITION, cacheKey);
+		retVal = mySvc.getIfPresent(MemoryCacheEnum.TAG_DEFINITION, cacheKey);
 		assertThat(retVal, equalTo(tagDef));
 	}
 
+	@Test
+	public void statisticsCountHitsAndMisses() {
+		mySvc.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1", 1L);
+
+		mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1");
+		mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|2");
+		mySvc.get(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|3", k -> 3L);
+		mySvc.get(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|3", k -> 3L);
+		mySvc.getAllPresent(MemoryCacheEnum.MATCH_URL, List.of("Patient?identifier=a|1", "Patient?identifier=a|4"));
+
+		MemoryCacheService.CacheStatistics stats = mySvc.getStatistics(MemoryCacheEnum.MATCH_URL);
+		assertEquals(3, stats.getHitCount());
+		assertEquals(3, stats.getMissCount());
+		assertEquals(0.5, stats.getHitRatio(), 0.001);
+		assertEquals(0, stats.getEvictionCount());
+		assertEquals(10000, stats.getMaximumSize());
+		assertEquals(60, stats.getExpireAfterWriteSeconds());
+	}
+
+	@Test
+	public void statisticsCountEvictions() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheMaximumSize(MemoryCacheEnum.MATCH_URL, 10);
+		mySvc = new MemoryCacheService(storageSettings);
+
+		for (long i = 0; i < 100; i++) {
+			mySvc.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|" + i, i);
+		}
+
+		await().until(() -> mySvc.getStatistics(MemoryCacheEnum.MATCH_URL).getEvictionCount() >= 90);
+		assertThat(mySvc.getEstimatedSize(MemoryCacheEnum.MATCH_URL), lessThanOrEqualTo(10L));
+	}
+
+	@Test
+	public void perCacheSettingsOverrideDefaults() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheMaximumSize(MemoryCacheEnum.FORCED_ID_TO_PID, 500);
+		storageSettings.setMemoryCacheExpireAfterWriteSeconds(MemoryCacheEnum.FORCED_ID_TO_PID, 3600L);
+		mySvc = new MemoryCacheService(storageSettings);
+
+		MemoryCacheService.CacheStatistics stats = mySvc.getStatistics(MemoryCacheEnum.FORCED_ID_TO_PID);
+		assertEquals(500, stats.getMaximumSize());
+		assertEquals(3600, stats.getExpireAfterWriteSeconds());
+		assertEquals(10000, mySvc.getStatistics(MemoryCacheEnum.PID_TO_FORCED_ID).getMaximumSize());
+	}
+
+	@Test
+	public void budgetIsRebalancedTowardsCachesWithHits() {
+		int cacheCount = MemoryCacheEnum.values().length;
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheTotalBudget(cacheCount * 1000);
+		mySvc = new MemoryCacheService(storageSettings);
+
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+			assertEquals(1000, mySvc.getStatistics(next).getMaximumSize());
+		}
+
+		mySvc.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1", 1L);
+		for (int i = 0; i < 10; i++) {
+			mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1");
+		}
+		mySvc.rebalanceCaches();
+
+		long matchUrlSize = mySvc.getStatistics(MemoryCacheEnum.MATCH_URL).getMaximumSize();
+		long tagSize = mySvc.getStatistics(MemoryCacheEnum.TAG_DEFINITION).getMaximumSize();
+		assertThat(matchUrlSize, greaterThan(1000L));
+		assertThat(tagSize, lessThan(1000L));
+		assertThat(tagSize, greaterThanOrEqualTo((long) MemoryCacheService.MINIMUM_BUDGETED_CACHE_SIZE));
+		assertThat(getTotalMaximumSize(), lessThanOrEqualTo((long) cacheCount * 1000));
+	}
+
+	@Test
+	public void budgetHoldsWhenSmallerThanMinimumSizes() {
+		int cacheCount = MemoryCacheEnum.values().length;
+		int totalBudget = cacheCount * MemoryCacheService.MINIMUM_BUDGETED_CACHE_SIZE / 2;
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheTotalBudget(totalBudget);
+		storageSettings.setMemoryCacheWeight(MemoryCacheEnum.MATCH_URL, 10);
+		mySvc = new MemoryCacheService(storageSettings);
+		assertThat(getTotalMaximumSize(), lessThanOrEqualTo((long) totalBudget));
+
+		mySvc.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1", 1L);
+		mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1");
+		mySvc.rebalanceCaches();
+		assertThat(getTotalMaximumSize(), lessThanOrEqualTo((long) totalBudget));
+		assertThat(mySvc.getStatistics(MemoryCacheEnum.TAG_DEFINITION).getMaximumSize(), greaterThan(0L));
+	}
+
+	private long getTotalMaximumSize() {
+		long retVal = 0;
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+			retVal += mySvc.getStatistics(next).getMaximumSize();
+		}
+		return retVal;
+	}
+
+	@Test
+	public void invalidationIsBroadcastToPeersAfterCommit() {
+		LinkedBlockingChannelFactory channelFactory = new LinkedBlockingChannelFactory((theName, theSettings) -> theName);
+		MemoryCacheService peerSvc = new MemoryCacheService(new JpaStorageSettings());
+		MemoryCacheInvalidationBroadcaster broadcaster = new MemoryCacheInvalidationBroadcaster(channelFactory, mySvc);
+		MemoryCacheInvalidationBroadcaster peerBroadcaster = new MemoryCacheInvalidationBroadcaster(channelFactory, peerSvc);
+		broadcaster.start();
+		peerBroadcaster.start();
+		try {
+			for (MemoryCacheService next : List.of(mySvc, peerSvc)) {
+				next.put(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L, "Patient/1/_history/1");
+				next.put(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 2L, "Patient/2/_history/1");
+			}
+
+			TransactionSynchronizationManager.initSynchronization();
+			try {
+				mySvc.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L);
+				assertEquals("Patient/1/_history/1", mySvc.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L));
+				TransactionSynchronizationUtils.triggerAfterCommit();
+				TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			} finally {
+				TransactionSynchronizationManager.clearSynchronization();
+			}
+
+			assertNull(mySvc.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L));
+			await().until(() -> peerSvc.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L) == null);
+			assertEquals("Patient/2/_history/1", peerSvc.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 2L));
+			assertNull(TransactionSynchronizationManager.getResource(mySvc));
+
+			mySvc.invalidateAllCaches();
+			await().until(() -> peerSvc.getEstimatedSize(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION) == 0);
+		} finally {
+			broadcaster.stop();
+			peerBroadcaster.stop();
+			channelFactory.stop();
+		}
+	}
+
+	@Test
+	public void resourcePidInvalidationIsBroadcastToPeersAfterCommit() {
+		LinkedBlockingChannelFactory channelFactory = new LinkedBlockingChannelFactory((theName, theSettings) -> theName);
+		MemoryCacheService peerSvc = new MemoryCacheService(new JpaStorageSettings());
+		MemoryCacheInvalidationBroadcaster broadcaster = new MemoryCacheInvalidationBroadcaster(channelFactory, mySvc);
+		MemoryCacheInvalidationBroadcaster peerBroadcaster = new MemoryCacheInvalidationBroadcaster(channelFactory, peerSvc);
+		broadcaster.start();
+		peerBroadcaster.start();
+		try {
+			for (MemoryCacheService next : List.of(mySvc, peerSvc)) {
+				next.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1", JpaPid.fromId(1L));
+				next.put(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|2", JpaPid.fromId(2L));
+				next.put(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/A", new JpaResourceLookup("Patient", 1L, null));
+				next.put(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/B", new JpaResourceLookup("Patient", 2L, null));
+			}
+			// Only cached on the peer, so it can't be invalidated by key
+			peerSvc.put(MemoryCacheEnum.MATCH_URL, "Patient?name=smith", JpaPid.fromId(1L));
+
+			TransactionSynchronizationManager.initSynchronization();
+			try {
+				mySvc.invalidateResourcePidsAfterCommit(MemoryCacheEnum.MATCH_URL, List.of(1L));
+				mySvc.invalidateResourcePidsAfterCommit(MemoryCacheEnum.RESOURCE_LOOKUP, List.of(1L));
+				assertEquals(JpaPid.fromId(1L), mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1"));
+				TransactionSynchronizationUtils.triggerAfterCommit();
+				TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			} finally {
+				TransactionSynchronizationManager.clearSynchronization();
+			}
+
+			assertNull(mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1"));
+			assertNull(mySvc.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/A"));
+			assertEquals(JpaPid.fromId(2L), mySvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|2"));
+			assertNotNull(mySvc.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/B"));
+
+			await().until(() -> peerSvc.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/A") == null);
+			await().until(() -> peerSvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?name=smith") == null);
+			assertNull(peerSvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|1"));
+			assertEquals(JpaPid.fromId(2L), peerSvc.getIfPresent(MemoryCacheEnum.MATCH_URL, "Patient?identifier=a|2"));
+			assertNotNull(peerSvc.getIfPresent(MemoryCacheEnum.RESOURCE_LOOKUP, "Patient/B"));
+		} finally {
+			broadcaster.stop();
+			peerBroadcaster.stop();
+			channelFactory.stop();
+		}
+	}
+
+	@Test
+	public void broadcasterWithoutChannelFactoryDoesNotPublish() {
+		MemoryCacheInvalidationBroadcaster broadcaster = new MemoryCacheInvalidationBroadcaster(null, mySvc);
+		broadcaster.start();
+		try {
+			mySvc.put(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L, "Patient/1/_history/1");
+			mySvc.invalidateAfterCommit(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L);
+			assertNull(mySvc.getIfPresent(MemoryCacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 1L));
+		} finally {
+			broadcaster.stop();
+		}
+
+		assertFalse(MemoryCacheInvalidationBroadcaster.isRemoteChannelFactory(null));
+		assertFalse(MemoryCacheInvalidationBroadcaster.isRemoteChannelFactory(new LinkedBlockingChannelFactory((theName, theSettings) -> theName)));
+		assertTrue(MemoryCacheInvalidationBroadcaster.isRemoteChannelFactory(mock(IChannelFactory.class)));
+	}
+
 	@Nested
 	public static class CaffeineAbuseTest {
 
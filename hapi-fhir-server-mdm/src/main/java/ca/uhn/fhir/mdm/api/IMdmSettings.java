@@ -20,9 +20,11 @@ package ca.uhn.fhir.mdm.api;
  * #L%
  */
 
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.mdm.dao.IMdmLinkImplFactory;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
 
+import javax.annotation.Nullable;
 import java.util.stream.Collectors;
 
 public interface IMdmSettings {
@@ -55,4 +57,27 @@ public interface IMdmSettings {
 	}
 
 	int getCandidateSearchLimit();
+
+	/**
+	 * If enabled, the normalized candidate search parameter values of every MDM source resource are stored in a
+	 * blocking key index when the resource is processed, and candidate searches are performed against that index
+	 * instead of running one resource search per candidate search parameter.
+	 *
+	 * @since 6.6.0
+	 */
+	default boolean isBlockingKeyIndexEnabled() {
+		return false;
+	}
+
+	/**
+	 * If set, the phonetic encoder used to encode the values of string candidate search parameters (e.g. names)
+	 * in the blocking key index. Encoded values are matched exactly, whereas values which are only normalized are
+	 * matched by prefix, like a string search. If not set, string values are only normalized.
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	default PhoneticEncoderEnum getBlockingKeyPhoneticEncoder() {
+		return null;
+	}
 }
@@ -0,0 +1,63 @@
+package ca.uhn.fhir.mdm.dao;
+
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.mdm.model.MdmBlockingKey;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage for the MDM blocking key index, which holds the normalized candidate search parameter values of every
+ * MDM source resource so that candidates can be found with a single indexed query.
+ *
+ * @since 6.6.0
+ */
+public interface IMdmBlockingKeyDao<P extends IResourcePersistentId> {
+
+	/**
+	 * Replaces the blocking keys stored for the given resource with the given keys
+	 */
+	void updateBlockingKeys(P theResourcePid, Collection<MdmBlockingKey> theBlockingKeys);
+
+	/**
+	 * Removes all blocking keys stored for the given resource
+	 */
+	void deleteBlockingKeys(P theResourcePid);
+
+	/**
+	 * Removes all blocking keys stored for the given resources
+	 */
+	void deleteBlockingKeysForPids(List<P> theResourcePids);
+
+	/**
+	 * Returns the non-deleted resources which have, for every distinct param hash in <code>theBlockingKeys</code>,
+	 * at least one of the given key hashes with that param hash.
+	 *
+	 * @param theBlockingKeys       The keys to search for. Must not be empty.
+	 * @param theRequestPartitionId The partitions to restrict the candidates to
+	 * @param theMaxResults         The maximum number of PIDs to return
+	 */
+	List<P> findResourcePidsMatchingAllParams(Collection<MdmBlockingKey> theBlockingKeys, RequestPartitionId theRequestPartitionId, int theMaxResults);
+
+}
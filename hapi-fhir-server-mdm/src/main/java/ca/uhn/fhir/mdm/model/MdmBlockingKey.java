@@ -0,0 +1,81 @@
+package ca.uhn.fhir.mdm.model;
+
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A single normalized blocking key for an MDM source resource. The param hash identifies the resource type and
+ * candidate search parameter the key was extracted for, and the key hash additionally covers the normalized value.
+ *
+ * @since 6.6.0
+ */
+public class MdmBlockingKey {
+	private final long myParamHash;
+	private final long myKeyHash;
+
+	public MdmBlockingKey(long theParamHash, long theKeyHash) {
+		myParamHash = theParamHash;
+		myKeyHash = theKeyHash;
+	}
+
+	public long getParamHash() {
+		return myParamHash;
+	}
+
+	public long getKeyHash() {
+		return myKeyHash;
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		if (this == theO) {
+			return true;
+		}
+		if (!(theO instanceof MdmBlockingKey)) {
+			return false;
+		}
+		MdmBlockingKey that = (MdmBlockingKey) theO;
+		return new EqualsBuilder()
+			.append(myParamHash, that.myParamHash)
+			.append(myKeyHash, that.myKeyHash)
+			.isEquals();
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder(17, 37)
+			.append(myParamHash)
+			.append(myKeyHash)
+			.toHashCode();
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("paramHash", myParamHash)
+			.append("keyHash", myKeyHash)
+			.toString();
+	}
+}
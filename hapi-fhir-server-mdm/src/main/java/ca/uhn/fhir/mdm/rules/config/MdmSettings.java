@@ -20,6 +20,7 @@ package ca.uhn.fhir.mdm.rules.config;
  * #L%
  */
 
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.mdm.api.IMdmLink;
 import ca.uhn.fhir.mdm.api.IMdmRuleValidator;
 import ca.uhn.fhir.mdm.api.IMdmSettings;
@@ -57,6 +58,9 @@ public class MdmSettings implements IMdmSettings {
 	 */
 	private int myCandidateSearchLimit = DEFAULT_CANDIDATE_SEARCH_LIMIT;
 
+	private boolean myBlockingKeyIndexEnabled;
+	private PhoneticEncoderEnum myBlockingKeyPhoneticEncoder;
+
 	@Autowired
 	public MdmSettings(IMdmRuleValidator theMdmRuleValidator) {
 		myMdmRuleValidator = theMdmRuleValidator;
@@ -139,4 +143,37 @@ public class MdmSettings implements IMdmSettings {
 	public void setCandidateSearchLimit(int theCandidateSearchLimit) {
 		myCandidateSearchLimit = theCandidateSearchLimit;
 	}
+
+	@Override
+	public boolean isBlockingKeyIndexEnabled() {
+		return myBlockingKeyIndexEnabled;
+	}
+
+	/**
+	 * If enabled, the normalized candidate search parameter values of every MDM source resource are stored in a
+	 * blocking key index when the resource is processed, and candidate searches are performed against that index
+	 * instead of running one resource search per candidate search parameter. Resources which were processed
+	 * before this setting was enabled need to be resubmitted to MDM in order to be found as candidates.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setBlockingKeyIndexEnabled(boolean theBlockingKeyIndexEnabled) {
+		myBlockingKeyIndexEnabled = theBlockingKeyIndexEnabled;
+	}
+
+	@Override
+	public PhoneticEncoderEnum getBlockingKeyPhoneticEncoder() {
+		return myBlockingKeyPhoneticEncoder;
+	}
+
+	/**
+	 * If set, the phonetic encoder used to encode the values of string candidate search parameters (e.g. names)
+	 * in the blocking key index. Encoded values are matched exactly, whereas values which are only normalized are
+	 * matched by prefix, like a string search. Changing this requires resources to be resubmitted to MDM.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setBlockingKeyPhoneticEncoder(PhoneticEncoderEnum theBlockingKeyPhoneticEncoder) {
+		myBlockingKeyPhoneticEncoder = theBlockingKeyPhoneticEncoder;
+	}
 }
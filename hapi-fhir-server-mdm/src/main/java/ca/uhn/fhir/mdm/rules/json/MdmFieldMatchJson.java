@@ -30,6 +30,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import org.hl7.fhir.instance.model.api.IBase;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Contains all business data for determining if a match exists on a particular field, given:
@@ -106,6 +107,28 @@ public class MdmFieldMatchJson implements IModelJson {
 		return this;
 	}
 
+	/**
+	 * Returns <code>true</code> if this field is compared using a matcher that
+	 * supports {@link #extractMatchKey(FhirContext, IBase) match keys}
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isMatchKeySupported() {
+		return myMatcher != null && myMatcher.isMatchKeySupported();
+	}
+
+	/**
+	 * Returns a key for the given value such that two values match if and only if their keys are
+	 * equal, or <code>null</code> if the value can not match any other value. Only valid if
+	 * {@link #isMatchKeySupported()} returns <code>true</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	public String extractMatchKey(FhirContext theFhirContext, IBase theValue) {
+		return myMatcher.extractMatchKey(theFhirContext, theValue);
+	}
+
 	public MdmMatchEvaluation match(FhirContext theFhirContext, IBase theLeftValue, IBase theRightValue) {
 		if (myMatcher != null) {
 			boolean result = myMatcher.match(theFhirContext, theLeftValue, theRightValue);
@@ -26,6 +26,8 @@ import ca.uhn.fhir.model.api.IModelJson;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.hl7.fhir.instance.model.api.IBase;
 
+import javax.annotation.Nullable;
+
 public class MdmMatcherJson implements IModelJson {
 	@JsonProperty(value = "algorithm", required = true)
 	MdmMatcherEnum myAlgorithm;
@@ -73,4 +75,13 @@ public class MdmMatcherJson implements IModelJson {
 	public boolean match(FhirContext theFhirContext, IBase theLeftValue, IBase theRightValue) {
 		return myAlgorithm.match(theFhirContext, theLeftValue, theRightValue, myExact, myIdentifierSystem);
 	}
+
+	public boolean isMatchKeySupported() {
+		return myAlgorithm.isMatchKeySupported();
+	}
+
+	@Nullable
+	public String extractMatchKey(FhirContext theFhirContext, IBase theValue) {
+		return myAlgorithm.extractMatchKey(theFhirContext, theValue, myExact);
+	}
 }
@@ -35,7 +35,7 @@ public class HapiStringMatcher extends BaseHapiStringMetric implements IMdmField
 	}
 
 	public HapiStringMatcher() {
-		myStringMatcher = String::equals;
+		myStringMatcher = (IMdmStringEncodingMatcher) theString -> theString;
 	}
 
 	@Override
@@ -48,4 +48,20 @@ public class HapiStringMatcher extends BaseHapiStringMetric implements IMdmField
 		}
 		return false;
 	}
+
+	@Override
+	public boolean isMatchKeySupported() {
+		return myStringMatcher instanceof IMdmStringEncodingMatcher;
+	}
+
+	@Override
+	public String extractMatchKey(FhirContext theFhirContext, IBase theBase, boolean theExact) {
+		if (theBase instanceof IPrimitiveType) {
+			String string = extractString((IPrimitiveType<?>) theBase, theExact);
+			if (string != null) {
+				return ((IMdmStringEncodingMatcher) myStringMatcher).encode(string);
+			}
+		}
+		return null;
+	}
 }
@@ -23,9 +23,32 @@ package ca.uhn.fhir.mdm.rules.matcher;
 import ca.uhn.fhir.context.FhirContext;
 import org.hl7.fhir.instance.model.api.IBase;
 
+import javax.annotation.Nullable;
+
 /**
  * Measure how similar two IBase (resource fields) are to one another.  1.0 means identical.  0.0 means completely different.
  */
 public interface IMdmFieldMatcher {
 	boolean matches(FhirContext theFhirContext, IBase theLeftBase, IBase theRightBase, boolean theExact, String theIdentifierSystem);
+
+	/**
+	 * Returns <code>true</code> if two values match exactly when their {@link #extractMatchKey(FhirContext, IBase, boolean) match keys}
+	 * are equal, meaning that the keys can be precomputed for each value instead of comparing every pair of values.
+	 *
+	 * @since 6.6.0
+	 */
+	default boolean isMatchKeySupported() {
+		return false;
+	}
+
+	/**
+	 * Returns the match key for the given value, or <code>null</code> if the value can not match any other value.
+	 * Only called if {@link #isMatchKeySupported()} returns <code>true</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	default String extractMatchKey(FhirContext theFhirContext, IBase theBase, boolean theExact) {
+		return null;
+	}
 }
@@ -0,0 +1,39 @@
+package ca.uhn.fhir.mdm.rules.matcher;
+
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A string matcher that considers two strings to match when they encode to the same value. Because the
+ * encoding of a string does not depend on the string it is compared to, it can be calculated once per
+ * value and reused as a match key.
+ *
+ * @since 6.6.0
+ */
+@FunctionalInterface
+public interface IMdmStringEncodingMatcher extends IMdmStringMatcher {
+
+	String encode(String theString);
+
+	@Override
+	default boolean matches(String theLeftString, String theRightString) {
+		return encode(theLeftString).equals(encode(theRightString));
+	}
+}
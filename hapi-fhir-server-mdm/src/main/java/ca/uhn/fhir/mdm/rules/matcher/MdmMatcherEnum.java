@@ -24,6 +24,8 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import org.hl7.fhir.instance.model.api.IBase;
 
+import javax.annotation.Nullable;
+
 /**
  * Enum for holding all the known FHIR Element matchers that we support in HAPI.  The string matchers first
  * encode the string using an Apache Encoder before comparing them.
@@ -75,6 +77,23 @@ public enum MdmMatcherEnum {
 		return myMdmFieldMatcher.matches(theFhirContext, theLeftBase, theRightBase, theExact, theIdentifierSystem);
 	}
 
+	/**
+	 * @see IMdmFieldMatcher#isMatchKeySupported()
+	 * @since 6.6.0
+	 */
+	public boolean isMatchKeySupported() {
+		return myMdmFieldMatcher.isMatchKeySupported();
+	}
+
+	/**
+	 * @see IMdmFieldMatcher#extractMatchKey(FhirContext, IBase, boolean)
+	 * @since 6.6.0
+	 */
+	@Nullable
+	public String extractMatchKey(FhirContext theFhirContext, IBase theBase, boolean theExact) {
+		return myMdmFieldMatcher.extractMatchKey(theFhirContext, theBase, theExact);
+	}
+
 	/**
 	 * Checks if this matcher supports checks on empty fields
 	 *
@@ -26,7 +26,7 @@ import ca.uhn.fhir.util.PhoneticEncoderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PhoneticEncoderMatcher implements IMdmStringMatcher {
+public class PhoneticEncoderMatcher implements IMdmStringEncodingMatcher {
 	private static final Logger ourLog = LoggerFactory.getLogger(PhoneticEncoderMatcher.class);
 
 	private final IPhoneticEncoder myStringEncoder;
@@ -36,7 +36,7 @@ public class PhoneticEncoderMatcher implements IMdmStringMatcher {
 	}
 
 	@Override
-	public boolean matches(String theLeftString, String theRightString) {
-		return myStringEncoder.encode(theLeftString).equals(myStringEncoder.encode(theRightString));
+	public String encode(String theString) {
+		return myStringEncoder.encode(theString);
 	}
 }
@@ -0,0 +1,71 @@
+package ca.uhn.fhir.mdm.rules.svc;
+
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the {@link MdmFieldFeature features} extracted from a single resource for each of the match fields
+ * configured in the MDM rules. Features are extracted the first time they are needed and then kept, so a
+ * feature vector can be compared against any number of other feature vectors without repeating the
+ * path evaluation and string normalization work.
+ * <p>
+ * Instances are created by {@link MdmResourceMatcherSvc#getFeatureVector(IBaseResource, String)} and are only valid
+ * for the MDM rules that were active when they were created.
+ * </p>
+ *
+ * @since 6.6.0
+ */
+public class MdmFeatureVector {
+
+	private final IBaseResource myResource;
+	private final String myResourceType;
+	private final AtomicReferenceArray<MdmFieldFeature> myFeatures;
+
+	MdmFeatureVector(IBaseResource theResource, String theResourceType, int theFieldCount) {
+		myResource = theResource;
+		myResourceType = theResourceType;
+		myFeatures = new AtomicReferenceArray<>(theFieldCount);
+	}
+
+	public IBaseResource getResource() {
+		return myResource;
+	}
+
+	public String getResourceType() {
+		return myResourceType;
+	}
+
+	int getFieldCount() {
+		return myFeatures.length();
+	}
+
+	MdmFieldFeature getFeature(int theIndex, MdmResourceFieldMatcher theFieldMatcher) {
+		MdmFieldFeature retVal = myFeatures.get(theIndex);
+		if (retVal == null) {
+			retVal = theFieldMatcher.extractFeature(myResource);
+			myFeatures.set(theIndex, retVal);
+		}
+		return retVal;
+	}
+}
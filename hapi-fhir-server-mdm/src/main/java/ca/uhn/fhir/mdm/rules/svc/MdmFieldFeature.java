@@ -0,0 +1,60 @@
+package ca.uhn.fhir.mdm.rules.svc;
+
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hl7.fhir.instance.model.api.IBase;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The values of a single MDM match field, extracted from a resource by a {@link MdmResourceFieldMatcher}.
+ * If the field's matcher supports match keys, the keys of all of the values are also precomputed here
+ * so that two features can be compared by looking for a common key.
+ *
+ * @since 6.6.0
+ */
+public class MdmFieldFeature {
+
+	private final List<IBase> myValues;
+	private final Set<String> myMatchKeys;
+
+	public MdmFieldFeature(@Nonnull List<IBase> theValues, @Nullable Set<String> theMatchKeys) {
+		myValues = theValues;
+		myMatchKeys = theMatchKeys;
+	}
+
+	@Nonnull
+	public List<IBase> getValues() {
+		return myValues;
+	}
+
+	/**
+	 * Returns the match keys for the values of this field, or <code>null</code> if the
+	 * field's matcher does not support match keys
+	 */
+	@Nullable
+	public Set<String> getMatchKeys() {
+		return myMatchKeys;
+	}
+}
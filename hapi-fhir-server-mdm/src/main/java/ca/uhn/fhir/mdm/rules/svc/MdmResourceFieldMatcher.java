@@ -30,7 +30,10 @@ import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.mdm.api.MdmConstants.ALL_RESOURCE_SEARCH_PARAM_TYPE;
@@ -71,24 +74,57 @@ public class MdmResourceFieldMatcher {
 	 * @param theRightResource the second {@link IBaseResource}
 	 * @return A boolean indicating whether they match.
 	 */
-	@SuppressWarnings("rawtypes")
 	public MdmMatchEvaluation match(IBaseResource theLeftResource, IBaseResource theRightResource) {
-		validate(theLeftResource);
-		validate(theRightResource);
+		return match(extractFeature(theLeftResource), extractFeature(theRightResource));
+	}
 
-		List<IBase> leftValues;
-		List<IBase> rightValues;
+	/**
+	 * Compares two {@link MdmFieldFeature}s that were previously extracted by {@link #extractFeature(IBaseResource)}.
+	 * If both features carry match keys, they match if they have at least one key in common. Otherwise every
+	 * pair of values is compared using the algorithm defined in this object's {@link MdmFieldMatchJson}.
+	 *
+	 * @since 6.6.0
+	 */
+	public MdmMatchEvaluation match(MdmFieldFeature theLeftFeature, MdmFieldFeature theRightFeature) {
+		Set<String> leftKeys = theLeftFeature.getMatchKeys();
+		Set<String> rightKeys = theRightFeature.getMatchKeys();
+		if (leftKeys != null && rightKeys != null) {
+			boolean result = !Collections.disjoint(leftKeys, rightKeys);
+			return new MdmMatchEvaluation(result, result ? 1.0 : 0.0);
+		}
+		return match(theLeftFeature.getValues(), theRightFeature.getValues());
+	}
 
+	/**
+	 * Extracts the values of this field from the given resource, along with their match keys if
+	 * the field's matcher supports them.
+	 *
+	 * @since 6.6.0
+	 */
+	@SuppressWarnings("rawtypes")
+	public MdmFieldFeature extractFeature(IBaseResource theResource) {
+		validate(theResource);
+
+		List<IBase> values;
 		if (myIsFhirPathExpression) {
 			IFhirPath fhirPath = myFhirContext.newFhirPath();
-			leftValues = fhirPath.evaluate(theLeftResource, myFhirPath, IBase.class);
-			rightValues = fhirPath.evaluate(theRightResource, myFhirPath, IBase.class);
+			values = fhirPath.evaluate(theResource, myFhirPath, IBase.class);
 		} else {
 			FhirTerser fhirTerser = myFhirContext.newTerser();
-			leftValues = fhirTerser.getValues(theLeftResource, myResourcePath, IBase.class);
-			rightValues = fhirTerser.getValues(theRightResource, myResourcePath, IBase.class);
+			values = fhirTerser.getValues(theResource, myResourcePath, IBase.class);
+		}
+
+		Set<String> matchKeys = null;
+		if (myMdmFieldMatchJson.isMatchKeySupported()) {
+			matchKeys = new HashSet<>();
+			for (IBase next : values) {
+				String matchKey = myMdmFieldMatchJson.extractMatchKey(myFhirContext, next);
+				if (matchKey != null) {
+					matchKeys.add(matchKey);
+				}
+			}
 		}
-		return match(leftValues, rightValues);
+		return new MdmFieldFeature(values, matchKeys);
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -31,10 +31,14 @@ import ca.uhn.fhir.mdm.api.MdmMatchResultEnum;
 import ca.uhn.fhir.mdm.log.Logs;
 import ca.uhn.fhir.mdm.rules.json.MdmFieldMatchJson;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,10 +51,13 @@ import java.util.List;
 @Service
 public class MdmResourceMatcherSvc {
 	private static final Logger ourLog = Logs.getMdmTroubleshootingLog();
+	private static final long FEATURE_VECTOR_CACHE_TIMEOUT_MILLIS = DateUtils.MILLIS_PER_MINUTE * 10;
+	private static final long FEATURE_VECTOR_CACHE_MAX_SIZE = 10000;
 
 	private final FhirContext myFhirContext;
 	private MdmRulesJson myMdmRulesJson;
 	private final List<MdmResourceFieldMatcher> myFieldMatchers = new ArrayList<>();
+	private final Cache<String, MdmFeatureVector> myFeatureVectorCache = CacheFactory.build(FEATURE_VECTOR_CACHE_TIMEOUT_MILLIS, FEATURE_VECTOR_CACHE_MAX_SIZE);
 
 	public MdmResourceMatcherSvc(FhirContext theFhirContext, IMdmSettings theMdmSettings) {
 		myFhirContext = theFhirContext;
@@ -69,11 +76,48 @@ public class MdmResourceMatcherSvc {
 			throw new ConfigurationException(Msg.code(1521) + "Failed to load MDM Rules.  If MDM is enabled, then MDM rules must be available in context.");
 		}
 		myFieldMatchers.clear();
+		myFeatureVectorCache.invalidateAll();
 		for (MdmFieldMatchJson matchFieldJson : myMdmRulesJson.getMatchFields()) {
 			myFieldMatchers.add(new MdmResourceFieldMatcher( myFhirContext, matchFieldJson, myMdmRulesJson));
 		}
 	}
 
+	/**
+	 * Returns a new, uncached {@link MdmFeatureVector} for the given resource.
+	 *
+	 * @since 6.6.0
+	 */
+	public MdmFeatureVector getFeatureVector(IBaseResource theResource) {
+		return newFeatureVector(theResource);
+	}
+
+	/**
+	 * Returns the {@link MdmFeatureVector} for a resource that was loaded from storage, caching it under
+	 * the given key so resources that are compared repeatedly (e.g. during a batch <code>$mdm-submit</code>)
+	 * only have their match field values extracted and normalized once per stored version.
+	 * <p>
+	 * The key must uniquely identify the stored resource version (e.g. its persistent ID and version), and must
+	 * never be derived from client-supplied data such as the resource ID of a request body, since a cached
+	 * vector is returned for any later resource presented under the same key. If the key is <code>null</code>,
+	 * a new, uncached feature vector is returned.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public MdmFeatureVector getFeatureVector(IBaseResource theResource, @Nullable String theStorageKey) {
+		if (theStorageKey != null) {
+			MdmFeatureVector retVal = myFeatureVectorCache.get(theStorageKey, t -> newFeatureVector(theResource));
+			if (retVal.getFieldCount() == myFieldMatchers.size()) {
+				return retVal;
+			}
+		}
+		return newFeatureVector(theResource);
+	}
+
+	private MdmFeatureVector newFeatureVector(IBaseResource theResource) {
+		return new MdmFeatureVector(theResource, myFhirContext.getResourceType(theResource), myFieldMatchers.size());
+	}
+
 	/**
 	 * Given two {@link IBaseResource}s, perform all comparisons on them to determine an {@link MdmMatchResultEnum}, indicating
 	 * to what level the two resources are considered to be matching.
@@ -87,12 +131,27 @@ public class MdmResourceMatcherSvc {
 		return match(theLeftResource, theRightResource);
 	}
 
+	/**
+	 * Given the {@link MdmFeatureVector}s of two resources, perform all comparisons on them to determine an
+	 * {@link MdmMatchResultEnum}. This produces the same outcome as {@link #getMatchResult(IBaseResource, IBaseResource)},
+	 * but reuses any features that have already been extracted.
+	 *
+	 * @since 6.6.0
+	 */
+	public MdmMatchOutcome getMatchResult(MdmFeatureVector theLeftFeatureVector, MdmFeatureVector theRightFeatureVector) {
+		return match(theLeftFeatureVector, theRightFeatureVector);
+	}
+
 	MdmMatchOutcome match(IBaseResource theLeftResource, IBaseResource theRightResource) {
-		MdmMatchOutcome matchResult = getMatchOutcome(theLeftResource, theRightResource);
+		return match(getFeatureVector(theLeftResource), getFeatureVector(theRightResource));
+	}
+
+	private MdmMatchOutcome match(MdmFeatureVector theLeftFeatureVector, MdmFeatureVector theRightFeatureVector) {
+		MdmMatchOutcome matchResult = getMatchOutcome(theLeftFeatureVector, theRightFeatureVector);
 		MdmMatchResultEnum matchResultEnum = myMdmRulesJson.getMatchResult(matchResult.getVector());
 		matchResult.setMatchResultEnum(matchResultEnum);
 		if (ourLog.isDebugEnabled()) {
-				ourLog.debug("{} {}: {}", matchResult.getMatchResultEnum(), theRightResource.getIdElement().toUnqualifiedVersionless(), matchResult);
+				ourLog.debug("{} {}: {}", matchResult.getMatchResultEnum(), theRightFeatureVector.getResource().getIdElement().toUnqualifiedVersionless(), matchResult);
 			 if (ourLog.isTraceEnabled()) {
 				ourLog.trace("Field matcher results:\n{}", myMdmRulesJson.getDetailedFieldMatchResultWithSuccessInformation(matchResult.getVector()));
 			}
@@ -115,13 +174,13 @@ public class MdmResourceMatcherSvc {
 	 * 0001|0010 = 0011
 	 * The binary string is now `0011`, which when you return it as a long becomes `3`.
 	 */
-	private MdmMatchOutcome getMatchOutcome(IBaseResource theLeftResource, IBaseResource theRightResource) {
+	private MdmMatchOutcome getMatchOutcome(MdmFeatureVector theLeftFeatureVector, MdmFeatureVector theRightFeatureVector) {
 		long vector = 0;
 		double score = 0.0;
 		int appliedRuleCount = 0;
 
 		//TODO GGG MDM: This grabs ALL comparators, not just the ones we care about (e.g. the ones for Medication)
-		String resourceType = myFhirContext.getResourceType(theLeftResource);
+		String resourceType = theLeftFeatureVector.getResourceType();
 
 		for (int i = 0; i < myFieldMatchers.size(); ++i) {
 			//any that are not for the resourceType in question.
@@ -131,7 +190,9 @@ public class MdmResourceMatcherSvc {
 				continue;
 			}
 			ourLog.trace("Matcher {} is valid for resource type: {}. Evaluating match.", fieldComparator.getName(), resourceType);
-			MdmMatchEvaluation matchEvaluation = fieldComparator.match(theLeftResource, theRightResource);
+			MdmFieldFeature leftFeature = theLeftFeatureVector.getFeature(i, fieldComparator);
+			MdmFieldFeature rightFeature = theRightFeatureVector.getFeature(i, fieldComparator);
+			MdmMatchEvaluation matchEvaluation = fieldComparator.match(leftFeature, rightFeature);
 			if (matchEvaluation.match) {
 				vector |= (1L << i);
 				ourLog.trace("Match: Successfully matched matcher {} with score {}. New vector: {}", fieldComparator.getName(), matchEvaluation.score, vector);
@@ -15,9 +15,11 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.StringStartsWith.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -94,4 +96,54 @@ public class MdmResourceFieldMatcherR4Test extends BaseMdmRulesR4Test {
 	public void testMatch() {
 		assertTrue(myComparator.match(myJohn, myJohny).match);
 	}
+
+	@Test
+	public void testMatchKeys() {
+		MdmFieldMatchJson soundexGivenField = new MdmFieldMatchJson()
+			.setName("given-soundex")
+			.setResourceType("Patient")
+			.setResourcePath("name.given")
+			.setMatcher(new MdmMatcherJson().setAlgorithm(MdmMatcherEnum.SOUNDEX));
+		myComparator = new MdmResourceFieldMatcher(ourFhirContext, soundexGivenField, myMdmRulesJson);
+
+		Patient jon = new Patient();
+		jon.addName().addGiven("Jon").addGiven("Paul");
+		MdmFieldFeature johnFeature = myComparator.extractFeature(myJohn);
+		MdmFieldFeature jonFeature = myComparator.extractFeature(jon);
+		assertThat(johnFeature.getMatchKeys(), containsInAnyOrder("J500"));
+		assertThat(jonFeature.getMatchKeys(), containsInAnyOrder("J500", "P400"));
+		assertTrue(myComparator.match(johnFeature, jonFeature).match);
+		assertEquals(1.0, myComparator.match(johnFeature, jonFeature).score);
+
+		Patient paul = new Patient();
+		paul.addName().addGiven("Paul");
+		assertFalse(myComparator.match(johnFeature, myComparator.extractFeature(paul)).match);
+		assertFalse(myComparator.match(johnFeature, myComparator.extractFeature(new Patient())).match);
+	}
+
+	@Test
+	public void testMatchKeys_StringIsNormalizedUnlessExact() {
+		MdmMatcherJson matcher = new MdmMatcherJson().setAlgorithm(MdmMatcherEnum.STRING);
+		MdmFieldMatchJson stringGivenField = new MdmFieldMatchJson()
+			.setName("given-string")
+			.setResourceType("Patient")
+			.setResourcePath("name.given")
+			.setMatcher(matcher);
+		myComparator = new MdmResourceFieldMatcher(ourFhirContext, stringGivenField, myMdmRulesJson);
+
+		Patient john = new Patient();
+		john.addName().addGiven("JOHN");
+		assertTrue(myComparator.match(myJohn, john).match);
+
+		matcher.setExact(true);
+		assertThat(myComparator.extractFeature(john).getMatchKeys(), containsInAnyOrder("JOHN"));
+		assertFalse(myComparator.match(myJohn, john).match);
+	}
+
+	@Test
+	public void testNoMatchKeysForSimilarity() {
+		MdmFieldFeature feature = myComparator.extractFeature(myJohn);
+		assertNull(feature.getMatchKeys());
+		assertEquals(1, feature.getValues().size());
+	}
 }
@@ -7,6 +7,8 @@ import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -58,4 +60,31 @@ public class MdmResourceMatcherSvcR4Test extends BaseMdmRulesR4Test {
 		patient3.addName().addGiven("Henry");
 		assertMatchResult(MdmMatchResultEnum.NO_MATCH, 0L, 0.0, false, false, myMdmResourceMatcherSvc.getMatchResult(myJohn, patient3));
 	}
+
+	@Test
+	public void testFeatureVectorIsCachedOnlyByStorageKey() {
+		myJohn.setId("Patient/1/_history/1");
+		MdmFeatureVector johnVector = myMdmResourceMatcherSvc.getFeatureVector(myJohn, "1/1");
+		assertSame(johnVector, myMdmResourceMatcherSvc.getFeatureVector(myJohn, "1/1"));
+		assertNotSame(johnVector, myMdmResourceMatcherSvc.getFeatureVector(myJohn, "1/2"));
+
+		// The resource ID alone never selects a cached vector
+		Patient johnCopy = myJohn.copy();
+		assertNotSame(johnVector, myMdmResourceMatcherSvc.getFeatureVector(johnCopy));
+		assertNotSame(myMdmResourceMatcherSvc.getFeatureVector(myJohn), myMdmResourceMatcherSvc.getFeatureVector(myJohn));
+		assertNotSame(myMdmResourceMatcherSvc.getFeatureVector(myJohn, null), myMdmResourceMatcherSvc.getFeatureVector(myJohn, null));
+	}
+
+	@Test
+	public void testMatchResultFromFeatureVectors() {
+		myJohn.setId("Patient/1/_history/1");
+		myJohn.addName().setFamily("Smith");
+		myJohny.addName().setFamily("Smith");
+
+		MdmFeatureVector johnVector = myMdmResourceMatcherSvc.getFeatureVector(myJohn);
+		MdmFeatureVector johnyVector = myMdmResourceMatcherSvc.getFeatureVector(myJohny);
+		assertMatchResult(MdmMatchResultEnum.MATCH, 3L, 1.816, false, false, myMdmResourceMatcherSvc.getMatchResult(johnVector, johnyVector));
+		// Reusing the vectors gives the same result
+		assertMatchResult(MdmMatchResultEnum.MATCH, 3L, 1.816, false, false, myMdmResourceMatcherSvc.getMatchResult(johnVector, johnyVector));
+	}
 }
@@ -0,0 +1,480 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Response handed to the {@link RestfulServer#setAsyncRequestExecutor(java.util.concurrent.Executor) async request executor}.
+ * Once the asynchronous request has completed, e.g. because it timed out or the container reported an error,
+ * anything the executor thread reads from the {@link #guardRequest(HttpServletRequest) guarded request} or writes
+ * to this response is rejected instead of reaching objects which the container may already have recycled for
+ * another request.
+ * <p>
+ * Completion and every read or write are serialized on a single lock, so the request can not complete while
+ * a read or write is in progress. This means that the container thread reporting a timeout waits for at most
+ * one in-flight read or write to finish before completing the request.
+ * </p>
+ */
+class AsyncRequestResponseWrapper extends HttpServletResponseWrapper {
+
+	private static final String COMPLETED_MESSAGE = "Asynchronous request has already completed";
+	private final Object myLock = new Object();
+	private boolean myCompleted;
+	private ServletOutputStream myOutputStream;
+	private PrintWriter myWriter;
+	private ServletInputStream myInputStream;
+	private BufferedReader myReader;
+
+	AsyncRequestResponseWrapper(HttpServletResponse theResponse) {
+		super(theResponse);
+	}
+
+	/**
+	 * Marks the request as completed. If a read or write is in progress, this method waits for it to finish.
+	 *
+	 * @return <code>true</code> if the caller is the first to do so, and is therefore responsible for completing the async context
+	 */
+	boolean markCompleted() {
+		synchronized (myLock) {
+			if (myCompleted) {
+				return false;
+			}
+			myCompleted = true;
+			return true;
+		}
+	}
+
+	boolean isCompleted() {
+		synchronized (myLock) {
+			return myCompleted;
+		}
+	}
+
+	/**
+	 * Must be called while holding {@link #myLock}
+	 */
+	private void checkNotCompleted() throws IOException {
+		if (myCompleted) {
+			throw new IOException(COMPLETED_MESSAGE);
+		}
+	}
+
+	/**
+	 * Must be called while holding {@link #myLock}
+	 */
+	private void checkNotCompletedUnchecked() {
+		if (myCompleted) {
+			throw new IllegalStateException(COMPLETED_MESSAGE);
+		}
+	}
+
+	/**
+	 * Sends an error response unless the request has already completed or the response has already been committed
+	 */
+	void sendErrorIfPossible(int theStatusCode) throws IOException {
+		synchronized (myLock) {
+			if (!myCompleted && !super.isCommitted()) {
+				super.sendError(theStatusCode);
+			}
+		}
+	}
+
+	/**
+	 * Returns a view of the given request which rejects every call, with an {@link IllegalStateException},
+	 * once the request has completed
+	 */
+	HttpServletRequest guardRequest(HttpServletRequest theRequest) {
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (theProxy, theMethod, theArgs) -> {
+			if (theMethod.getDeclaringClass() == Object.class) {
+				return invokeObjectMethod(theProxy, theRequest, theMethod, theArgs);
+			}
+			synchronized (myLock) {
+				checkNotCompletedUnchecked();
+				Object retVal = invoke(theRequest, theMethod, theArgs);
+				if (retVal instanceof ServletInputStream) {
+					if (myInputStream == null) {
+						myInputStream = new GuardedInputStream((ServletInputStream) retVal);
+					}
+					return myInputStream;
+				}
+				if (retVal instanceof BufferedReader) {
+					if (myReader == null) {
+						myReader = new BufferedReader(new GuardedReader((BufferedReader) retVal));
+					}
+					return myReader;
+				}
+				return retVal;
+			}
+		});
+	}
+
+	private static Object invokeObjectMethod(Object theProxy, Object theDelegate, Method theMethod, Object[] theArgs) throws Throwable {
+		switch (theMethod.getName()) {
+			case "equals":
+				return theProxy == theArgs[0];
+			case "hashCode":
+				return System.identityHashCode(theProxy);
+			default:
+				return invoke(theDelegate, theMethod, theArgs);
+		}
+	}
+
+	private static Object invoke(Object theDelegate, Method theMethod, Object[] theArgs) throws Throwable {
+		try {
+			return theMethod.invoke(theDelegate, theArgs);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			if (myOutputStream == null) {
+				myOutputStream = new GuardedOutputStream(super.getOutputStream());
+			}
+			return myOutputStream;
+		}
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			if (myWriter == null) {
+				myWriter = new PrintWriter(new GuardedWriter(super.getWriter()));
+			}
+			return myWriter;
+		}
+	}
+
+	@Override
+	public void sendError(int theStatusCode) throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			super.sendError(theStatusCode);
+		}
+	}
+
+	@Override
+	public void sendError(int theStatusCode, String theMessage) throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			super.sendError(theStatusCode, theMessage);
+		}
+	}
+
+	@Override
+	public void sendRedirect(String theLocation) throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			super.sendRedirect(theLocation);
+		}
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		synchronized (myLock) {
+			checkNotCompleted();
+			super.flushBuffer();
+		}
+	}
+
+	@Override
+	public void setStatus(int theStatusCode) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setStatus(theStatusCode);
+		}
+	}
+
+	@Override
+	public void setHeader(String theName, String theValue) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setHeader(theName, theValue);
+		}
+	}
+
+	@Override
+	public void addHeader(String theName, String theValue) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.addHeader(theName, theValue);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String theName, int theValue) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setIntHeader(theName, theValue);
+		}
+	}
+
+	@Override
+	public void setDateHeader(String theName, long theValue) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setDateHeader(theName, theValue);
+		}
+	}
+
+	@Override
+	public void setContentType(String theContentType) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setContentType(theContentType);
+		}
+	}
+
+	@Override
+	public void setCharacterEncoding(String theCharacterEncoding) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setCharacterEncoding(theCharacterEncoding);
+		}
+	}
+
+	@Override
+	public void setContentLength(int theContentLength) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setContentLength(theContentLength);
+		}
+	}
+
+	@Override
+	public void setContentLengthLong(long theContentLength) {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.setContentLengthLong(theContentLength);
+		}
+	}
+
+	@Override
+	public void reset() {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.reset();
+		}
+	}
+
+	@Override
+	public void resetBuffer() {
+		synchronized (myLock) {
+			checkNotCompletedUnchecked();
+			super.resetBuffer();
+		}
+	}
+
+	private class GuardedInputStream extends ServletInputStream {
+
+		private final ServletInputStream myDelegate;
+
+		GuardedInputStream(ServletInputStream theDelegate) {
+			myDelegate = theDelegate;
+		}
+
+		@Override
+		public boolean isFinished() {
+			synchronized (myLock) {
+				return myCompleted || myDelegate.isFinished();
+			}
+		}
+
+		@Override
+		public boolean isReady() {
+			synchronized (myLock) {
+				return !myCompleted && myDelegate.isReady();
+			}
+		}
+
+		@Override
+		public void setReadListener(ReadListener theReadListener) {
+			myDelegate.setReadListener(theReadListener);
+		}
+
+		@Override
+		public int read() throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				return myDelegate.read();
+			}
+		}
+
+		@Override
+		public int read(byte[] theBytes, int theOffset, int theLength) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				return myDelegate.read(theBytes, theOffset, theLength);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (myLock) {
+				if (!myCompleted) {
+					myDelegate.close();
+				}
+			}
+		}
+	}
+
+	private class GuardedReader extends Reader {
+
+		private final Reader myDelegate;
+
+		GuardedReader(Reader theDelegate) {
+			myDelegate = theDelegate;
+		}
+
+		@Override
+		public int read(char[] theChars, int theOffset, int theLength) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				return myDelegate.read(theChars, theOffset, theLength);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (myLock) {
+				if (!myCompleted) {
+					myDelegate.close();
+				}
+			}
+		}
+	}
+
+	private class GuardedOutputStream extends ServletOutputStream {
+
+		private final ServletOutputStream myDelegate;
+
+		GuardedOutputStream(ServletOutputStream theDelegate) {
+			myDelegate = theDelegate;
+		}
+
+		@Override
+		public boolean isReady() {
+			synchronized (myLock) {
+				return !myCompleted && myDelegate.isReady();
+			}
+		}
+
+		@Override
+		public void setWriteListener(WriteListener theWriteListener) {
+			myDelegate.setWriteListener(theWriteListener);
+		}
+
+		@Override
+		public void write(int theByte) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.write(theByte);
+			}
+		}
+
+		@Override
+		public void write(byte[] theBytes, int theOffset, int theLength) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.write(theBytes, theOffset, theLength);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (myLock) {
+				if (!myCompleted) {
+					myDelegate.close();
+				}
+			}
+		}
+	}
+
+	private class GuardedWriter extends Writer {
+
+		private final Writer myDelegate;
+
+		GuardedWriter(Writer theDelegate) {
+			myDelegate = theDelegate;
+		}
+
+		@Override
+		public void write(char[] theChars, int theOffset, int theLength) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.write(theChars, theOffset, theLength);
+			}
+		}
+
+		@Override
+		public void write(String theString, int theOffset, int theLength) throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.write(theString, theOffset, theLength);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (myLock) {
+				checkNotCompleted();
+				myDelegate.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (myLock) {
+				if (!myCompleted) {
+					myDelegate.close();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * An in-memory paging provider which, unlike {@link FifoMemoryPagingProvider}, does not serialize requests
+ * through a single lock and bounds the retained result lists by their estimated size in bytes instead of by
+ * their number.
+ * <p>
+ * Result lists are held in a {@link ConcurrentHashMap} and evicted in the order they were stored once the total
+ * estimated weight exceeds the configured maximum, or once they are older than the configured time-to-live.
+ * The weight of a result list is calculated by a {@link #setWeigher(ToLongFunction) weigher}. By default this is
+ * the number of resources in the list multiplied by {@link #setEstimatedBytesPerResource(long) an estimated
+ * size per resource}, or the estimated size of a single resource if the list does not know its size.
+ * </p>
+ * <p>
+ * Hit, miss, eviction and expiry counts are available for monitoring.
+ * </p>
+ *
+ * @since 6.6.0
+ */
+public class ConcurrentMemoryPagingProvider extends BasePagingProvider {
+
+	public static final long DEFAULT_ESTIMATED_BYTES_PER_RESOURCE = 4 * 1024;
+	public static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS = 60 * 60 * 1000L;
+
+	private final Map<String, Entry> myEntries = new ConcurrentHashMap<>();
+	private final Queue<String> myInsertionOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicLong myRetainedWeight = new AtomicLong();
+	private final LongAdder myHitCount = new LongAdder();
+	private final LongAdder myMissCount = new LongAdder();
+	private final LongAdder myEvictionCount = new LongAdder();
+	private final LongAdder myExpiryCount = new LongAdder();
+	private final long myMaximumWeight;
+	private long myExpireAfterWriteMillis = DEFAULT_EXPIRE_AFTER_WRITE_MILLIS;
+	private long myEstimatedBytesPerResource = DEFAULT_ESTIMATED_BYTES_PER_RESOURCE;
+	private ToLongFunction<IBundleProvider> myWeigher = this::estimateWeight;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theMaximumWeight The maximum total weight (by default, the estimated number of bytes) of the retained result lists
+	 */
+	public ConcurrentMemoryPagingProvider(long theMaximumWeight) {
+		Validate.isTrue(theMaximumWeight > 0, "theMaximumWeight must be greater than 0");
+		myMaximumWeight = theMaximumWeight;
+	}
+
+	@Override
+	public IBundleProvider retrieveResultList(RequestDetails theRequest, @Nonnull String theId) {
+		Entry entry = myEntries.get(theId);
+		if (entry == null) {
+			myMissCount.increment();
+			return null;
+		}
+		if (entry.isExpired(now(), myExpireAfterWriteMillis)) {
+			if (remove(theId, entry)) {
+				myExpiryCount.increment();
+			}
+			myMissCount.increment();
+			return null;
+		}
+		myHitCount.increment();
+		return entry.myBundleProvider;
+	}
+
+	@Override
+	public String storeResultList(RequestDetails theRequestDetails, IBundleProvider theList) {
+		String key = UUID.randomUUID().toString();
+		long weight = Math.max(1, myWeigher.applyAsLong(theList));
+
+		myEntries.put(key, new Entry(theList, weight, now()));
+		myInsertionOrder.add(key);
+		myRetainedWeight.addAndGet(weight);
+
+		evict();
+		return key;
+	}
+
+	/**
+	 * Removes expired result lists, and then the oldest result lists until the retained weight is within the maximum.
+	 * The most recently stored result list is always retained, even if it exceeds the maximum weight on its own.
+	 */
+	private void evict() {
+		long now = now();
+		String nextKey;
+		while ((nextKey = myInsertionOrder.peek()) != null) {
+			Entry entry = myEntries.get(nextKey);
+			boolean expired = entry != null && entry.isExpired(now, myExpireAfterWriteMillis);
+			boolean overweight = myRetainedWeight.get() > myMaximumWeight && myEntries.size() > 1;
+			if (entry != null && !expired && !overweight) {
+				break;
+			}
+			if (!myInsertionOrder.remove(nextKey)) {
+				// Another thread is evicting the same entry
+				continue;
+			}
+			if (entry != null && remove(nextKey, entry)) {
+				if (expired) {
+					myExpiryCount.increment();
+				} else {
+					myEvictionCount.increment();
+				}
+			}
+		}
+	}
+
+	private boolean remove(String theKey, Entry theEntry) {
+		if (myEntries.remove(theKey, theEntry)) {
+			myRetainedWeight.addAndGet(-theEntry.myWeight);
+			return true;
+		}
+		return false;
+	}
+
+	private long estimateWeight(IBundleProvider theBundleProvider) {
+		Integer size = theBundleProvider.size();
+		return Math.max(1, size != null ? size : 1) * myEstimatedBytesPerResource;
+	}
+
+	/**
+	 * Sets the time after which a stored result list is discarded. Defaults to {@link #DEFAULT_EXPIRE_AFTER_WRITE_MILLIS}.
+	 */
+	public ConcurrentMemoryPagingProvider setExpireAfterWriteMillis(long theExpireAfterWriteMillis) {
+		Validate.isTrue(theExpireAfterWriteMillis > 0, "theExpireAfterWriteMillis must be greater than 0");
+		myExpireAfterWriteMillis = theExpireAfterWriteMillis;
+		return this;
+	}
+
+	/**
+	 * Sets the estimated number of bytes retained for each resource in a result list, which is used by the
+	 * default weigher. Defaults to {@link #DEFAULT_ESTIMATED_BYTES_PER_RESOURCE}.
+	 */
+	public ConcurrentMemoryPagingProvider setEstimatedBytesPerResource(long theEstimatedBytesPerResource) {
+		Validate.isTrue(theEstimatedBytesPerResource > 0, "theEstimatedBytesPerResource must be greater than 0");
+		myEstimatedBytesPerResource = theEstimatedBytesPerResource;
+		return this;
+	}
+
+	/**
+	 * Replaces the function used to calculate the weight of a stored result list, in the same
+	 * units as the maximum weight passed to the constructor
+	 */
+	public ConcurrentMemoryPagingProvider setWeigher(@Nonnull ToLongFunction<IBundleProvider> theWeigher) {
+		Validate.notNull(theWeigher, "theWeigher must not be null");
+		myWeigher = theWeigher;
+		return this;
+	}
+
+	public long getMaximumWeight() {
+		return myMaximumWeight;
+	}
+
+	/**
+	 * Returns the total weight of the result lists currently retained
+	 */
+	public long getRetainedWeight() {
+		return myRetainedWeight.get();
+	}
+
+	/**
+	 * Returns the number of result lists currently retained
+	 */
+	public int size() {
+		return myEntries.size();
+	}
+
+	/**
+	 * Returns the number of times a stored result list was found
+	 */
+	public long getHitCount() {
+		return myHitCount.sum();
+	}
+
+	/**
+	 * Returns the number of times a result list was not found, because it was never stored, was evicted, or had expired
+	 */
+	public long getMissCount() {
+		return myMissCount.sum();
+	}
+
+	/**
+	 * Returns the number of result lists removed to keep the retained weight within the maximum
+	 */
+	public long getEvictionCount() {
+		return myEvictionCount.sum();
+	}
+
+	/**
+	 * Returns the number of result lists removed because they had expired
+	 */
+	public long getExpiryCount() {
+		return myExpiryCount.sum();
+	}
+
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	private static class Entry {
+		private final IBundleProvider myBundleProvider;
+		private final long myWeight;
+		private final long myStoredTime;
+
+		private Entry(IBundleProvider theBundleProvider, long theWeight, long theStoredTime) {
+			myBundleProvider = theBundleProvider;
+			myWeight = theWeight;
+			myStoredTime = theStoredTime;
+		}
+
+		private boolean isExpired(long theNow, long theExpireAfterWriteMillis) {
+			return theNow - myStoredTime >= theExpireAfterWriteMillis;
+		}
+	}
+
+}
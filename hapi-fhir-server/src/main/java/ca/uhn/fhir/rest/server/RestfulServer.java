@@ -79,6 +79,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.UnavailableException;
 import javax.servlet.http.HttpServlet;
@@ -105,6 +108,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.jar.Manifest;
@@ -176,6 +181,8 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private ITenantIdentificationStrategy myTenantIdentificationStrategy;
 	private PreferReturnEnum myDefaultPreferReturn = DEFAULT_PREFER_RETURN;
 	private ElementsSupportEnum myElementsSupport = ElementsSupportEnum.EXTENDED;
+	private transient Executor myAsyncRequestExecutor;
+	private long myAsyncRequestTimeoutMillis = 0;
 
 	/**
 	 * Constructor. Note that if no {@link FhirContext} is passed in to the server (either through the constructor, or
@@ -1862,7 +1869,95 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 			return;
 		}
 
-		switch (method) {
+		if (myAsyncRequestExecutor != null && theReq.isAsyncSupported()) {
+			serviceAsync(method, theReq, theResp);
+			return;
+		}
+
+		dispatchRequest(method, theReq, theResp);
+	}
+
+	/**
+	 * Hands the request to the {@link #setAsyncRequestExecutor(Executor) async request executor} so that
+	 * the container thread is released while the request is processed and the response is encoded and written.
+	 * Whichever of the executor thread and the container (timeout or error) finishes the request first completes
+	 * the async context, and the executor thread may no longer read from the request or write to the response after that.
+	 * <p>
+	 * Note that the response is still written using blocking I/O on the executor thread, i.e. no
+	 * {@link javax.servlet.WriteListener} is used.
+	 * </p>
+	 */
+	private void serviceAsync(RequestTypeEnum theMethod, HttpServletRequest theReq, HttpServletResponse theResp) {
+		AsyncContext asyncContext = theReq.startAsync(theReq, theResp);
+		asyncContext.setTimeout(myAsyncRequestTimeoutMillis);
+		AsyncRequestResponseWrapper response = new AsyncRequestResponseWrapper(theResp);
+		HttpServletRequest request = response.guardRequest(theReq);
+
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onComplete(AsyncEvent theEvent) {
+				response.markCompleted();
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent theEvent) throws IOException {
+				if (response.markCompleted()) {
+					ourLog.warn("Asynchronous request timed out after {}ms: {}", myAsyncRequestTimeoutMillis, theReq.getRequestURI());
+					try {
+						if (!theResp.isCommitted()) {
+							theResp.sendError(Constants.STATUS_HTTP_503_SERVICE_UNAVAILABLE);
+						}
+					} finally {
+						asyncContext.complete();
+					}
+				}
+			}
+
+			@Override
+			public void onError(AsyncEvent theEvent) {
+				if (response.markCompleted()) {
+					ourLog.warn("Failure in asynchronous request: {}", theReq.getRequestURI(), theEvent.getThrowable());
+					asyncContext.complete();
+				}
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent theEvent) {
+				// nothing
+			}
+		});
+
+		Runnable task = () -> {
+			try {
+				dispatchRequest(theMethod, request, response);
+			} catch (Throwable t) {
+				if (response.isCompleted()) {
+					ourLog.debug("Asynchronous request completed before processing finished", t);
+					return;
+				}
+				ourLog.error("Failure processing asynchronous request", t);
+				try {
+					response.sendErrorIfPossible(Constants.STATUS_HTTP_500_INTERNAL_ERROR);
+				} catch (IOException e) {
+					ourLog.debug("Failed to send error response", e);
+				}
+			} finally {
+				if (response.markCompleted()) {
+					asyncContext.complete();
+				}
+			}
+		};
+
+		try {
+			myAsyncRequestExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			ourLog.warn("Asynchronous request executor rejected request, processing it on the container thread");
+			task.run();
+		}
+	}
+
+	private void dispatchRequest(RequestTypeEnum theMethod, HttpServletRequest theReq, HttpServletResponse theResp) throws ServletException, IOException {
+		switch (theMethod) {
 			case DELETE:
 				doDelete(theReq, theResp);
 				break;
@@ -1884,11 +1979,70 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 			case HEAD:
 			case CONNECT:
 			default:
-				handleRequest(method, theReq, theResp);
+				handleRequest(theMethod, theReq, theResp);
 				break;
 		}
 	}
 
+	/**
+	 * Returns the executor used to process requests asynchronously, or <code>null</code> (the default)
+	 * if requests are processed on the servlet container's request thread.
+	 *
+	 * @see #setAsyncRequestExecutor(Executor)
+	 * @since 6.6.0
+	 */
+	public Executor getAsyncRequestExecutor() {
+		return myAsyncRequestExecutor;
+	}
+
+	/**
+	 * If provided (default is <code>null</code>), requests are put into Servlet asynchronous mode and processed
+	 * by this executor, including invoking the method binding and encoding, compressing and writing the response.
+	 * This frees the servlet container's request threads while slow clients are being served, so that a container
+	 * thread pool of a given size can accept many more concurrent connections. The number of requests processed at
+	 * the same time is then governed by this executor. On a JVM that supports them, an executor which starts a
+	 * virtual thread per task is a good fit.
+	 * <p>
+	 * Requests are only processed asynchronously if the servlet and every filter in front of it are declared as
+	 * supporting async (e.g. <code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code>). Otherwise, and if
+	 * the executor rejects a request, the request is processed on the container thread.
+	 * </p>
+	 * <p>
+	 * Note that thread-local state set up on the container thread, e.g. by a servlet filter, is not carried over
+	 * to the executor. This includes the Spring Security <code>SecurityContextHolder</code> and SLF4J MDC values.
+	 * Interceptors are invoked on the executor thread, so they may populate such state themselves. Otherwise the
+	 * supplied executor must propagate it, e.g. by wrapping each task.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setAsyncRequestExecutor(Executor theAsyncRequestExecutor) {
+		myAsyncRequestExecutor = theAsyncRequestExecutor;
+	}
+
+	/**
+	 * Returns the timeout applied to requests processed by the {@link #setAsyncRequestExecutor(Executor) async request executor}
+	 *
+	 * @since 6.6.0
+	 */
+	public long getAsyncRequestTimeoutMillis() {
+		return myAsyncRequestTimeoutMillis;
+	}
+
+	/**
+	 * Sets the timeout applied to requests processed by the {@link #setAsyncRequestExecutor(Executor) async request executor}.
+	 * The default is <code>0</code>, meaning that requests never time out, which matches the behaviour of requests
+	 * processed on the container thread. If a request times out before the executor has finished it, an HTTP 503
+	 * is returned (unless the response was already committed) and anything the executor subsequently tries to
+	 * write is discarded.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setAsyncRequestTimeoutMillis(long theAsyncRequestTimeoutMillis) {
+		Validate.isTrue(theAsyncRequestTimeoutMillis >= 0, "theAsyncRequestTimeoutMillis must not be negative");
+		myAsyncRequestTimeoutMillis = theAsyncRequestTimeoutMillis;
+	}
+
 	/**
 	 * Sets the non-resource specific providers which implement method calls on this server
 	 *
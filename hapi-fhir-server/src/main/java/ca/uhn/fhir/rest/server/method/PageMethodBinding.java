@@ -165,6 +165,10 @@ public class PageMethodBinding extends BaseResourceReturningMethodBinding {
 		}
 
 		Integer count = RestfulServerUtils.extractCountParameter(theRequest);
+		if (count == null && pageId != null) {
+			// Named page links don't carry a _count, so let the provider tell us its page size
+			count = bundleProvider.preferredPageSize();
+		}
 		if (count == null) {
 			count = pagingProvider.getDefaultPageSize();
 		} else if (count > pagingProvider.getMaximumPageSize()) {
@@ -183,6 +183,13 @@ public class ProviderConstants {
 	 */
 	public static final String OPERATION_REINDEX_PARAM_EVERYTHING = "everything";
 
+	/**
+	 * Whether stored resource bodies should be rewritten using the currently configured resource encoding
+	 *
+	 * @since 6.6.0
+	 */
+	public static final String OPERATION_REINDEX_PARAM_CONVERT_RESOURCE_ENCODING = "convertResourceEncoding";
+
 	/**
 	 * The Spring Batch job id of the delete expunge job created by a $delete-expunge operation
 	 */
@@ -0,0 +1,131 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentMemoryPagingProviderTest {
+
+	private long myNow = 1000;
+
+	@Test
+	public void testStoreAndRetrieve() {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(100_000);
+		IBundleProvider list = new SimpleBundleProvider(10);
+
+		String id = provider.storeResultList(null, list);
+		assertSame(list, provider.retrieveResultList(null, id));
+		assertNull(provider.retrieveResultList(null, "FOO"));
+
+		assertEquals(10 * ConcurrentMemoryPagingProvider.DEFAULT_ESTIMATED_BYTES_PER_RESOURCE, provider.getRetainedWeight());
+		assertEquals(1, provider.getHitCount());
+		assertEquals(1, provider.getMissCount());
+	}
+
+	@Test
+	public void testOldestEvictedByWeight() {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(25)
+			.setEstimatedBytesPerResource(1);
+
+		String id1 = provider.storeResultList(null, new SimpleBundleProvider(10));
+		String id2 = provider.storeResultList(null, new SimpleBundleProvider(10));
+		assertEquals(20, provider.getRetainedWeight());
+
+		String id3 = provider.storeResultList(null, new SimpleBundleProvider(10));
+		assertNull(provider.retrieveResultList(null, id1));
+		assertTrue(provider.retrieveResultList(null, id2) != null);
+		assertTrue(provider.retrieveResultList(null, id3) != null);
+		assertEquals(20, provider.getRetainedWeight());
+		assertEquals(1, provider.getEvictionCount());
+
+		// A result list heavier than the maximum replaces everything else, but is itself retained
+		String id4 = provider.storeResultList(null, new SimpleBundleProvider(100));
+		assertEquals(1, provider.size());
+		assertEquals(100, provider.getRetainedWeight());
+		assertTrue(provider.retrieveResultList(null, id4) != null);
+		assertEquals(3, provider.getEvictionCount());
+	}
+
+	@Test
+	public void testCustomWeigher() {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(1000)
+			.setWeigher(t -> 600);
+
+		String id1 = provider.storeResultList(null, new SimpleBundleProvider());
+		provider.storeResultList(null, new SimpleBundleProvider());
+		assertNull(provider.retrieveResultList(null, id1));
+		assertEquals(600, provider.getRetainedWeight());
+	}
+
+	@Test
+	public void testExpiry() {
+		ConcurrentMemoryPagingProvider provider = newProviderWithClock()
+			.setExpireAfterWriteMillis(100);
+
+		String id1 = provider.storeResultList(null, new SimpleBundleProvider(1));
+		myNow += 50;
+		String id2 = provider.storeResultList(null, new SimpleBundleProvider(1));
+		assertTrue(provider.retrieveResultList(null, id1) != null);
+
+		myNow += 60;
+		assertNull(provider.retrieveResultList(null, id1));
+		assertTrue(provider.retrieveResultList(null, id2) != null);
+		assertEquals(1, provider.getExpiryCount());
+
+		// Expired entries are also purged when new entries are stored
+		myNow += 100;
+		provider.storeResultList(null, new SimpleBundleProvider(1));
+		assertEquals(1, provider.size());
+		assertEquals(2, provider.getExpiryCount());
+		assertEquals(ConcurrentMemoryPagingProvider.DEFAULT_ESTIMATED_BYTES_PER_RESOURCE, provider.getRetainedWeight());
+	}
+
+	@Test
+	public void testConcurrentStoreAndRetrieve() throws Exception {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(50)
+			.setEstimatedBytesPerResource(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 1000; j++) {
+						String id = provider.storeResultList(null, new SimpleBundleProvider(5));
+						provider.retrieveResultList(null, id);
+					}
+				}));
+			}
+			for (Future<?> next : futures) {
+				next.get(1, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(provider.getRetainedWeight() <= 50 + 8 * 5, "Retained weight: " + provider.getRetainedWeight());
+		assertEquals(provider.size() * 5L, provider.getRetainedWeight());
+		assertEquals(8000, provider.getHitCount() + provider.getMissCount());
+	}
+
+	private ConcurrentMemoryPagingProvider newProviderWithClock() {
+		return new ConcurrentMemoryPagingProvider(100_000) {
+			@Override
+			long now() {
+				return myNow;
+			}
+		};
+	}
+
+}
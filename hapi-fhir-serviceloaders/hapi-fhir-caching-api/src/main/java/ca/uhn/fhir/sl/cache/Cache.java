@@ -22,6 +22,7 @@ package ca.uhn.fhir.sl.cache;
 
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 
 /**
@@ -51,4 +52,29 @@ public interface Cache<K, V> {
     long estimatedSize();
 
     void cleanUp();
+
+    /**
+     * Changes the maximum number of entries the cache may hold. Implementations
+     * which are not able to resize an existing cache may ignore this call.
+     */
+    default void setMaximumSize(long maximumSize) {
+        // nothing by default
+    }
+
+    /**
+     * Removes every entry which matches the given predicate. Implementations which are
+     * not able to iterate over their entries may instead remove every entry.
+     */
+    default void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        invalidateAll();
+    }
+
+    /**
+     * Returns the statistics recorded for this cache, or <code>null</code> if the cache was not
+     * created with statistics recording enabled (see {@link CacheFactory#buildWithStats(long, long)})
+     * or the implementation does not record them.
+     */
+    default CacheStats stats() {
+        return null;
+    }
 }
@@ -55,6 +55,14 @@ public class CacheFactory {
 		return cacheProvider.create(theTimeoutMillis, theMaximumSize);
 	}
 
+	/**
+	 * Builds a cache which records hit, miss and eviction counts, available through {@link Cache#stats()}
+	 */
+	public static <K, V> Cache<K, V> buildWithStats(long theTimeoutMillis, long theMaximumSize) {
+		CacheProvider<Object, Object> cacheProvider = getCacheProvider();
+		return cacheProvider.createWithStats(theTimeoutMillis, theMaximumSize);
+	}
+
 	public static  <K, V> LoadingCache<K, V> build(long theTimeoutMillis, long theMaximumSize, CacheLoader<K, V> cacheLoader) {
 		CacheProvider<K, V> cacheProvider = getCacheProvider();
 		return cacheProvider.create(theTimeoutMillis, theMaximumSize, cacheLoader);
@@ -25,6 +25,14 @@ public interface CacheProvider<K,V> {
 
     Cache create(long timeoutMillis, long maximumSize);
 
+    /**
+     * Creates a cache which records hit, miss and eviction counts (see {@link Cache#stats()}).
+     * Providers which are not able to record statistics may return a cache without them.
+     */
+    default Cache createWithStats(long timeoutMillis, long maximumSize) {
+        return create(timeoutMillis, maximumSize);
+    }
+
     LoadingCache create(long timeoutMillis, CacheLoader<K,V> cacheLoader);
 
     LoadingCache create(long timeoutMillis, long maximumSize, CacheLoader<K,V> cacheLoader);
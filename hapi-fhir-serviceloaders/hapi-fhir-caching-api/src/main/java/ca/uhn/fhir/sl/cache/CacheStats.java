@@ -0,0 +1,54 @@
+package ca.uhn.fhir.sl.cache;
+
+/*-
+ * #%L
+ * HAPI FHIR - ServiceLoaders - Caching API
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A snapshot of the statistics recorded by a {@link Cache} which was created with
+ * statistics recording enabled. All counts are cumulative since the cache was created.
+ */
+public class CacheStats {
+
+	private final long myHitCount;
+	private final long myMissCount;
+	private final long myEvictionCount;
+
+	public CacheStats(long theHitCount, long theMissCount, long theEvictionCount) {
+		myHitCount = theHitCount;
+		myMissCount = theMissCount;
+		myEvictionCount = theEvictionCount;
+	}
+
+	public long getHitCount() {
+		return myHitCount;
+	}
+
+	public long getMissCount() {
+		return myMissCount;
+	}
+
+	/**
+	 * The number of entries removed because the cache was full or the entry expired. Explicit
+	 * invalidations are not counted.
+	 */
+	public long getEvictionCount() {
+		return myEvictionCount;
+	}
+}
@@ -20,7 +20,10 @@ package ca.uhn.fhir.sl.cache.caffeine;
  * #L%
  */
 
+import ca.uhn.fhir.sl.cache.CacheStats;
+
 import java.util.Map;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 
 public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
@@ -76,4 +79,23 @@ public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
 	public void cleanUp(){
 		cache.cleanUp();
 	}
+
+	@Override
+	public void setMaximumSize(long maximumSize) {
+		cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maximumSize));
+	}
+
+	@Override
+	public void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+		cache.asMap().entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+	}
+
+	@Override
+	public CacheStats stats() {
+		if (!cache.policy().isRecordingStats()) {
+			return null;
+		}
+		com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+		return new CacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount());
+	}
 }
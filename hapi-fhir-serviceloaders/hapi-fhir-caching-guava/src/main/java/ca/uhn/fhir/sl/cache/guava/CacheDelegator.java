@@ -22,18 +22,29 @@ package ca.uhn.fhir.sl.cache.guava;
 
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.sl.cache.CacheStats;
 import com.google.common.cache.CacheLoader;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
 
 	com.google.common.cache.Cache<K, V> cache;
+	private final boolean recordingStats;
 
 	public CacheDelegator(com.google.common.cache.Cache<K, V> impl) {
+		this(impl, false);
+	}
+
+	/**
+	 * @param recordingStats Must be <code>true</code> if the cache was built with <code>recordStats()</code>, since Guava does not expose this
+	 */
+	public CacheDelegator(com.google.common.cache.Cache<K, V> impl, boolean recordingStats) {
 		this.cache = impl;
+		this.recordingStats = recordingStats;
 	}
 
 	@Override
@@ -95,4 +106,18 @@ public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
 	public void cleanUp(){
 		cache.cleanUp();
 	}
+
+	@Override
+	public void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+		cache.asMap().entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+	}
+
+	@Override
+	public CacheStats stats() {
+		if (!recordingStats) {
+			return null;
+		}
+		com.google.common.cache.CacheStats stats = cache.stats();
+		return new CacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount());
+	}
 }
@@ -59,6 +59,18 @@ public class CacheProvider<K,V> implements ca.uhn.fhir.sl.cache.CacheProvider<K,
 		);
 	}
 
+	@Override
+	public Cache<K,V> createWithStats(long timeoutMillis, long maximumSize) {
+		return new CacheDelegator<K,V>(
+			CacheBuilder.newBuilder()
+				.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build(),
+			true
+		);
+	}
+
 	public LoadingCache<K,V> create(long timeoutMillis, long maximumSize, CacheLoader<K,V> loading) {
 		return new LoadingCacheDelegator<K,V>(
 			CacheBuilder.newBuilder()
@@ -0,0 +1,297 @@
+package ca.uhn.fhir.batch2.jobs.export;
+
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.util.BinaryUtil;
+import ca.uhn.fhir.util.HapiExtensions;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.slf4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Writes resources of a single resource type as NDJSON files held by an {@link IBinaryStorageSvc}.
+ * <p>
+ * Each work chunk of a bulk export job stores its resources as a <i>part</i> (see
+ * {@link #storePart(IBinaryStorageSvc, IParser, IIdType, Collection)}), and the final reduction step
+ * uses a single writer per resource type to concatenate all of the parts into files, so that files
+ * roll over by size across the whole export rather than within a single work chunk.
+ * </p>
+ * <p>
+ * Output is written to a buffer for the current file (which is held in memory up to a small
+ * threshold, and in a temporary file beyond that), so the file content is never materialized as a
+ * collection of strings. When the current file reaches the maximum size, or when this writer is
+ * closed, a Binary resource is created to represent the file and the buffer is streamed into binary
+ * storage, attached to that Binary through an externalized binary ID extension.
+ * </p>
+ */
+public class BulkExportBinaryFileWriter implements Closeable {
+	private static final Logger ourLog = getLogger(BulkExportBinaryFileWriter.class);
+	private static final int IN_MEMORY_THRESHOLD_BYTES = (int) FileUtils.ONE_MB;
+
+	private final FhirContext myFhirContext;
+	private final IParser myParser;
+	private final IFhirResourceDao<IBaseBinary> myBinaryDao;
+	private final IBinaryStorageSvc myBinaryStorageSvc;
+	private final IHapiTransactionService myTransactionService;
+	private final String myResourceType;
+	private final long myMaximumFileBytes;
+	private final boolean myGzip;
+	private final List<String> myBinaryIds = new ArrayList<>();
+	private DeferredFileOutputStream myBuffer;
+	private CountingOutputStream myCountingStream;
+	private Writer myWriter;
+	private int myResourceCountInFile;
+	private int myResourceCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theMaximumFileBytes A new file is started once this many (uncompressed) bytes have been written to the current one
+	 * @param theGzip             Should the files be gzip compressed?
+	 */
+	public BulkExportBinaryFileWriter(@Nonnull FhirContext theFhirContext, @Nonnull IParser theParser, @Nonnull IFhirResourceDao<IBaseBinary> theBinaryDao, @Nonnull IBinaryStorageSvc theBinaryStorageSvc, @Nonnull IHapiTransactionService theTransactionService, @Nonnull String theResourceType, long theMaximumFileBytes, boolean theGzip) {
+		myFhirContext = theFhirContext;
+		myParser = theParser;
+		myBinaryDao = theBinaryDao;
+		myBinaryStorageSvc = theBinaryStorageSvc;
+		myTransactionService = theTransactionService;
+		myResourceType = theResourceType;
+		myMaximumFileBytes = theMaximumFileBytes;
+		myGzip = theGzip;
+	}
+
+	public void write(IBaseResource theResource) throws IOException {
+		if (myWriter == null) {
+			openFile();
+		}
+
+		myParser.encodeResourceToWriter(theResource, myWriter);
+		endLine();
+	}
+
+	/**
+	 * Appends the contents of a part previously stored using
+	 * {@link #storePart(IBinaryStorageSvc, IParser, IIdType, Collection)}
+	 *
+	 * @return Returns <code>false</code> if the part was not found
+	 */
+	public boolean writePart(IIdType thePartOwnerId, String thePartBlobId) throws IOException {
+		byte[] part;
+		try {
+			part = myBinaryStorageSvc.fetchBlob(thePartOwnerId, thePartBlobId);
+		} catch (ResourceNotFoundException e) {
+			part = null;
+		}
+		if (part == null) {
+			return false;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(part), Constants.CHARSET_UTF8))) {
+			String nextLine;
+			while ((nextLine = reader.readLine()) != null) {
+				if (nextLine.isEmpty()) {
+					continue;
+				}
+				if (myWriter == null) {
+					openFile();
+				}
+				myWriter.write(nextLine);
+				endLine();
+			}
+		}
+		return true;
+	}
+
+	private void endLine() throws IOException {
+		myWriter.append('\n');
+		myWriter.flush();
+		myResourceCountInFile++;
+		myResourceCount++;
+
+		if (myCountingStream.getByteCount() >= myMaximumFileBytes) {
+			closeFile();
+		}
+	}
+
+	/**
+	 * Returns the number of resources which have been written
+	 */
+	public int getResourceCount() {
+		return myResourceCount;
+	}
+
+	/**
+	 * Returns the IDs of the Binary resources for every file which has been completed
+	 */
+	public List<String> getBinaryIds() {
+		return myBinaryIds;
+	}
+
+	/**
+	 * Completes the current file, if any
+	 */
+	@Override
+	public void close() throws IOException {
+		if (myWriter != null) {
+			closeFile();
+		}
+	}
+
+	private void openFile() throws IOException {
+		myBuffer = new DeferredFileOutputStream(IN_MEMORY_THRESHOLD_BYTES, "hapi-bulk-export-", ".ndjson", null);
+		OutputStream outputStream = myBuffer;
+		if (myGzip) {
+			outputStream = new GZIPOutputStream(outputStream);
+		}
+		myCountingStream = new CountingOutputStream(outputStream);
+		myWriter = new OutputStreamWriter(myCountingStream, Constants.CHARSET_UTF8);
+		myResourceCountInFile = 0;
+	}
+
+	private void closeFile() throws IOException {
+		myWriter.close();
+		myWriter = null;
+
+		try {
+			String contentType = myGzip ? Constants.CT_APPLICATION_GZIP : Constants.CT_FHIR_NDJSON;
+			String blobId = myBinaryStorageSvc.newBlobId();
+
+			IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
+			binary.setContentType(contentType);
+			addExternalizedBinaryId(binary, blobId);
+
+			String binaryId = myTransactionService
+				.withRequest(null)
+				.execute(() -> {
+					SystemRequestDetails requestDetails = new SystemRequestDetails().setRequestPartitionId(RequestPartitionId.defaultPartition());
+					IIdType id = myBinaryDao.create(binary, requestDetails).getId();
+					try (InputStream inputStream = openBuffer()) {
+						myBinaryStorageSvc.storeBlob(id.toUnqualifiedVersionless(), blobId, contentType, inputStream);
+					}
+					return id.getValueAsString();
+				});
+			myBinaryIds.add(binaryId);
+
+			ourLog.info("Wrote {} resources of type {} ({} bytes) to bulk export file {}", myResourceCountInFile, myResourceType, myCountingStream.getByteCount(), binaryId);
+		} finally {
+			if (!myBuffer.isInMemory()) {
+				FileUtils.deleteQuietly(myBuffer.getFile());
+			}
+			myBuffer = null;
+			myCountingStream = null;
+		}
+	}
+
+	private InputStream openBuffer() throws IOException {
+		return openBuffer(myBuffer);
+	}
+
+	/**
+	 * Stores the given resources as an uncompressed NDJSON part in binary storage. Parts have
+	 * no Binary resource of their own, so they are owned by a placeholder ID (see
+	 * {@link #newPartOwnerId(FhirContext, String)}) and must be expunged once they have been
+	 * {@link #writePart(IIdType, String) written} to the output files.
+	 *
+	 * @return Returns the blob ID of the new part
+	 */
+	public static String storePart(@Nonnull IBinaryStorageSvc theBinaryStorageSvc, @Nonnull IParser theParser, @Nonnull IIdType thePartOwnerId, @Nonnull Collection<IBaseResource> theResources) throws IOException {
+		DeferredFileOutputStream buffer = new DeferredFileOutputStream(IN_MEMORY_THRESHOLD_BYTES, "hapi-bulk-export-part-", ".ndjson", null);
+		try {
+			try (Writer writer = new OutputStreamWriter(buffer, Constants.CHARSET_UTF8)) {
+				for (IBaseResource next : theResources) {
+					theParser.encodeResourceToWriter(next, writer);
+					writer.append('\n');
+				}
+			}
+
+			String blobId = theBinaryStorageSvc.newBlobId();
+			try (InputStream inputStream = openBuffer(buffer)) {
+				theBinaryStorageSvc.storeBlob(thePartOwnerId, blobId, Constants.CT_FHIR_NDJSON, inputStream);
+			}
+			return blobId;
+		} finally {
+			if (!buffer.isInMemory()) {
+				FileUtils.deleteQuietly(buffer.getFile());
+			}
+		}
+	}
+
+	/**
+	 * Returns the placeholder ID which owns the parts stored in binary storage for the given job instance
+	 */
+	public static IIdType newPartOwnerId(@Nonnull FhirContext theFhirContext, @Nonnull String theInstanceId) {
+		return theFhirContext.getVersion().newIdType().setParts(null, "Binary", "bulk-export-" + theInstanceId, null);
+	}
+
+	private static InputStream openBuffer(DeferredFileOutputStream theBuffer) throws IOException {
+		if (theBuffer.isInMemory()) {
+			return new ByteArrayInputStream(theBuffer.getData());
+		}
+		return new FileInputStream(theBuffer.getFile());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addExternalizedBinaryId(IBaseBinary theBinary, String theBlobId) {
+		IBaseHasExtensions data = (IBaseHasExtensions) BinaryUtil.getOrCreateData(myFhirContext, theBinary);
+		IBaseExtension<?, ?> ext = data.addExtension();
+		ext.setUrl(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+		ext.setUserData(JpaConstants.EXTENSION_EXT_SYSTEMDEFINED, Boolean.TRUE);
+		IPrimitiveType<String> blobIdString = (IPrimitiveType<String>) myFhirContext.getElementDefinition("string").newInstance();
+		blobIdString.setValueAsString(theBlobId);
+		ext.setValue(blobIdString);
+	}
+
+}
@@ -31,10 +31,21 @@ import ca.uhn.fhir.batch2.jobs.export.models.BulkExportBinaryFileId;
 import ca.uhn.fhir.batch2.jobs.export.models.BulkExportJobParameters;
 import ca.uhn.fhir.batch2.model.ChunkOutcome;
 import ca.uhn.fhir.batch2.model.JobInstance;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.BulkExportJobResults;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -45,7 +56,23 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class BulkExportCreateReportStep implements IReductionStepWorker<BulkExportJobParameters, BulkExportBinaryFileId, BulkExportJobResults> {
 	private static final Logger ourLog = getLogger(BulkExportCreateReportStep.class);
 
+	@Autowired
+	private FhirContext myFhirContext;
+
+	@Autowired
+	private DaoRegistry myDaoRegistry;
+
+	@Autowired
+	private StorageSettings myStorageSettings;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	private Map<String, List<String>> myResourceToBinaryIds;
+	private Map<String, List<String>> myResourceToPartBlobIds;
 
 	@Nonnull
 	@Override
@@ -56,6 +83,11 @@ public class BulkExportCreateReportStep implements IReductionStepWorker<BulkExpo
 		String requestUrl = getOriginatingRequestUrl(theStepExecutionDetails, results);
 		results.setOriginalRequestUrl(requestUrl);
 
+		if (myResourceToPartBlobIds != null) {
+			writePartsToBinaryStorage(theStepExecutionDetails.getInstance().getInstanceId());
+			myResourceToPartBlobIds = null;
+		}
+
 		if (myResourceToBinaryIds != null) {
 			ourLog.info("Bulk Export Report creation step for instance: {}", theStepExecutionDetails.getInstance().getInstanceId());
 
@@ -79,6 +111,14 @@ public class BulkExportCreateReportStep implements IReductionStepWorker<BulkExpo
 	public ChunkOutcome consume(ChunkExecutionDetails<BulkExportJobParameters,
 		BulkExportBinaryFileId> theChunkDetails) {
 		BulkExportBinaryFileId fileId = theChunkDetails.getData();
+		if (fileId.getPartBlobId() != null) {
+			if (myResourceToPartBlobIds == null) {
+				myResourceToPartBlobIds = new HashMap<>();
+			}
+			myResourceToPartBlobIds.computeIfAbsent(fileId.getResourceType(), t -> new ArrayList<>()).add(fileId.getPartBlobId());
+			return ChunkOutcome.SUCCESS();
+		}
+
 		if (myResourceToBinaryIds == null) {
 			myResourceToBinaryIds = new HashMap<>();
 		}
@@ -90,6 +130,49 @@ public class BulkExportCreateReportStep implements IReductionStepWorker<BulkExpo
 		return ChunkOutcome.SUCCESS();
 	}
 
+	/**
+	 * Combines the parts which were stored by {@link ExpandResourcesStep} into the output files. A single
+	 * writer is used for each resource type, so files are only rolled over once they reach
+	 * {@link StorageSettings#getBulkExportMaximumFileBytes()}, no matter how many work chunks they span.
+	 */
+	private void writePartsToBinaryStorage(String theInstanceId) {
+		if (myBinaryStorageSvc == null) {
+			throw new JobExecutionFailedException(Msg.code(2311) + "Bulk export is configured to stream to binary storage, but no binary storage service is available");
+		}
+
+		@SuppressWarnings("unchecked")
+		IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
+		IIdType partOwnerId = BulkExportBinaryFileWriter.newPartOwnerId(myFhirContext, theInstanceId);
+
+		if (myResourceToBinaryIds == null) {
+			myResourceToBinaryIds = new HashMap<>();
+		}
+
+		for (Map.Entry<String, List<String>> nextEntry : myResourceToPartBlobIds.entrySet()) {
+			String resourceType = nextEntry.getKey();
+			BulkExportBinaryFileWriter writer = new BulkExportBinaryFileWriter(myFhirContext, myFhirContext.newJsonParser(), binaryDao, myBinaryStorageSvc, myTransactionService, resourceType, myStorageSettings.getBulkExportMaximumFileBytes(), myStorageSettings.isBulkExportGzipFiles());
+			try (writer) {
+				for (String nextPartBlobId : nextEntry.getValue()) {
+					if (!writer.writePart(partOwnerId, nextPartBlobId)) {
+						throw new JobExecutionFailedException(Msg.code(2312) + "Bulk export part " + nextPartBlobId + " for resource type " + resourceType + " was not found in binary storage");
+					}
+				}
+			} catch (IOException e) {
+				throw new JobExecutionFailedException(Msg.code(2313) + "Failed to write bulk export file for resource type " + resourceType + ": " + e.getMessage(), e);
+			}
+
+			myResourceToBinaryIds.computeIfAbsent(resourceType, t -> new ArrayList<>()).addAll(writer.getBinaryIds());
+			ourLog.info("Wrote {} resources of type {} from {} part(s) to {} bulk export file(s)", writer.getResourceCount(), resourceType, nextEntry.getValue().size(), writer.getBinaryIds().size());
+		}
+
+		// The parts are only needed once all of the files have been written
+		for (List<String> nextPartBlobIds : myResourceToPartBlobIds.values()) {
+			for (String nextPartBlobId : nextPartBlobIds) {
+				myBinaryStorageSvc.expungeBlob(partOwnerId, nextPartBlobId);
+			}
+		}
+	}
+
 	private static String getOriginatingRequestUrl(@Nonnull StepExecutionDetails<BulkExportJobParameters, BulkExportBinaryFileId> theStepExecutionDetails, BulkExportJobResults results) {
 		IJobInstance instance = theStepExecutionDetails.getInstance();
 		String url = "";
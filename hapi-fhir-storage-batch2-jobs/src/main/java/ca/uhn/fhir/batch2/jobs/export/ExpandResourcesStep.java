@@ -29,10 +29,12 @@ import ca.uhn.fhir.batch2.jobs.export.models.BulkExportJobParameters;
 import ca.uhn.fhir.batch2.jobs.export.models.ExpandedResourcesList;
 import ca.uhn.fhir.batch2.jobs.export.models.ResourceIdList;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
@@ -46,11 +48,13 @@ import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -84,6 +88,9 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 	@Autowired
 	private IHapiTransactionService myTransactionService;
 
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	private volatile ResponseTerminologyTranslationSvc myResponseTerminologyTranslationSvc;
 
 	@Nonnull
@@ -115,6 +122,11 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 			terminologyTranslationSvc.processResourcesForTerminologyTranslation(allResources);
 		}
 
+		if (myStorageSettings.isBulkExportStreamToBinaryStorage()) {
+			writeToBinaryStorage(allResources, jobParameters, theStepExecutionDetails.getInstance().getInstanceId(), theDataSink);
+			return RunOutcome.SUCCESS;
+		}
+
 		// encode them - Key is resource type, Value is a collection of serialized resources of that type
 		ListMultimap<String, String> resources = encodeToString(allResources, jobParameters);
 
@@ -183,6 +195,47 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 		return resources;
 	}
 
+	/**
+	 * Encodes the resources straight into files held by the binary storage service, and passes only
+	 * the IDs of the Binary resources representing those files on to the next step
+	 */
+	/**
+	 * Stores the resources of each type as a part in binary storage. The parts are only combined into
+	 * the output files (and rolled over by size) by {@link BulkExportCreateReportStep}, since that is the
+	 * only step which sees the output of every work chunk.
+	 */
+	private void writeToBinaryStorage(List<IBaseResource> theResources, BulkExportJobParameters theParameters, String theInstanceId, IJobDataSink<ExpandedResourcesList> theDataSink) {
+		if (myBinaryStorageSvc == null) {
+			throw new JobExecutionFailedException(Msg.code(2276) + "Bulk export is configured to stream to binary storage, but no binary storage service is available");
+		}
+
+		ListMultimap<String, IBaseResource> typeToResources = ArrayListMultimap.create();
+		for (IBaseResource next : theResources) {
+			typeToResources.put(myFhirContext.getResourceType(next), next);
+		}
+
+		IParser parser = getParser(theParameters);
+		IIdType partOwnerId = BulkExportBinaryFileWriter.newPartOwnerId(myFhirContext, theInstanceId);
+
+		for (String nextResourceType : typeToResources.keySet()) {
+			List<IBaseResource> resources = typeToResources.get(nextResourceType);
+			String partBlobId;
+			try {
+				partBlobId = BulkExportBinaryFileWriter.storePart(myBinaryStorageSvc, parser, partOwnerId, resources);
+			} catch (IOException e) {
+				throw new JobExecutionFailedException(Msg.code(2277) + "Failed to write bulk export file for resource type " + nextResourceType + ": " + e.getMessage(), e);
+			}
+
+			ExpandedResourcesList output = new ExpandedResourcesList();
+			output.setResourceType(nextResourceType);
+			output.setPartBlobId(partBlobId);
+			output.setResourceCount(resources.size());
+			theDataSink.accept(output);
+
+			ourLog.info("Wrote {} resources of type {} to bulk export part {}", resources.size(), nextResourceType, partBlobId);
+		}
+	}
+
 	/**
 	 * @return A map - Key is resource type, Value is a collection of serialized resources of that type
 	 */
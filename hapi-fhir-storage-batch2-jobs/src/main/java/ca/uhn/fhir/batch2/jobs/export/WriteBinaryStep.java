@@ -64,6 +64,17 @@ public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters,
 								 @Nonnull IJobDataSink<BulkExportBinaryFileId> theDataSink) throws JobExecutionFailedException {
 
 		ExpandedResourcesList expandedResources = theStepExecutionDetails.getData();
+
+		// The previous step already wrote the resources to a part in binary storage, which
+		// the report step will combine with the other parts into the output files
+		if (expandedResources.getPartBlobId() != null) {
+			BulkExportBinaryFileId bulkExportBinaryFileId = new BulkExportBinaryFileId();
+			bulkExportBinaryFileId.setPartBlobId(expandedResources.getPartBlobId());
+			bulkExportBinaryFileId.setResourceType(expandedResources.getResourceType());
+			theDataSink.accept(bulkExportBinaryFileId);
+			return new RunOutcome(expandedResources.getResourceCount());
+		}
+
 		final int numResourcesProcessed = expandedResources.getStringifiedResources().size();
 
 		ourLog.info("Write binary step of Job Export");
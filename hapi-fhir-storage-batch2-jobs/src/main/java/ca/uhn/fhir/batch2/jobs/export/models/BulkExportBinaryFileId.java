@@ -30,6 +30,14 @@ public class BulkExportBinaryFileId extends BulkExportJobBase {
 	@JsonProperty("resourceType")
 	private String myResourceType;
 
+	/**
+	 * If set, the resources have been written to a part in binary storage
+	 * which still needs to be combined into the output files, and
+	 * {@link #getBinaryId()} is not used.
+	 */
+	@JsonProperty("partBlobId")
+	private String myPartBlobId;
+
 	public BulkExportBinaryFileId() {
 	}
 
@@ -48,4 +56,12 @@ public class BulkExportBinaryFileId extends BulkExportJobBase {
 	public void setResourceType(String theResourceType) {
 		myResourceType = theResourceType;
 	}
+
+	public String getPartBlobId() {
+		return myPartBlobId;
+	}
+
+	public void setPartBlobId(String thePartBlobId) {
+		myPartBlobId = thePartBlobId;
+	}
 }
@@ -39,6 +39,20 @@ public class ExpandedResourcesList extends BulkExportJobBase {
 	@JsonProperty("resourceType")
 	private String myResourceType;
 
+	/**
+	 * Blob ID of the part in binary storage which the resources have
+	 * already been written to. If this is populated,
+	 * {@link #getStringifiedResources()} is not used.
+	 */
+	@JsonProperty("partBlobId")
+	private String myPartBlobId;
+
+	/**
+	 * Number of resources in the part
+	 */
+	@JsonProperty("resourceCount")
+	private int myResourceCount;
+
 	public List<String> getStringifiedResources() {
 		return myStringifiedResources;
 	}
@@ -54,4 +68,20 @@ public class ExpandedResourcesList extends BulkExportJobBase {
 	public void setResourceType(String theResourceType) {
 		myResourceType = theResourceType;
 	}
+
+	public String getPartBlobId() {
+		return myPartBlobId;
+	}
+
+	public void setPartBlobId(String thePartBlobId) {
+		myPartBlobId = thePartBlobId;
+	}
+
+	public int getResourceCount() {
+		return myResourceCount;
+	}
+
+	public void setResourceCount(int theResourceCount) {
+		myResourceCount = theResourceCount;
+	}
 }
@@ -52,6 +52,10 @@ public class BulkImportJobParameters implements IModelJson {
 	@Nullable
 	private Integer myMaxBatchResourceCount;
 
+	@JsonProperty(value = "chunkByReference", required = false)
+	@Nullable
+	private Boolean myChunkByReference;
+
 	public List<String> getNdJsonUrls() {
 		if (myNdJsonUrls == null) {
 			myNdJsonUrls = new ArrayList<>();
@@ -78,6 +82,22 @@ public class BulkImportJobParameters implements IModelJson {
 		return this;
 	}
 
+	/**
+	 * If set to <code>true</code>, the work chunks produced by the fetch step will only contain
+	 * a reference to a byte range within the source URL instead of the NDJSON text itself, and the
+	 * consume step will stream that range directly from the source. This keeps the file contents
+	 * out of the work chunk table, at the expense of each URL being read more than once.
+	 * Default is <code>false</code>.
+	 */
+	public boolean isChunkByReference() {
+		return Boolean.TRUE.equals(myChunkByReference);
+	}
+
+	public BulkImportJobParameters setChunkByReference(boolean theChunkByReference) {
+		myChunkByReference = theChunkByReference;
+		return this;
+	}
+
 	public BulkImportJobParameters addNdJsonUrl(String theUrl) {
 		Validate.notBlank(theUrl, "theUrl must not be blank or null");
 		getNdJsonUrls().add(theUrl);
@@ -34,15 +34,22 @@ import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
@@ -50,7 +57,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -76,11 +88,61 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 	@Override
 	public RunOutcome run(@Nonnull StepExecutionDetails<BulkImportJobParameters, NdJsonFileJson> theStepExecutionDetails, @Nonnull IJobDataSink<VoidModel> theDataSink) {
 
-		String ndjson = theStepExecutionDetails.getData().getNdJsonText();
-		String sourceName = theStepExecutionDetails.getData().getSourceName();
+		NdJsonFileJson data = theStepExecutionDetails.getData();
+		String ndjson = data.getNdJsonText();
+		String sourceName = data.getSourceName();
 
+		List<IBaseResource> resources;
+		if (ndjson != null) {
+			resources = parseResources(new StringReader(ndjson));
+		} else {
+			resources = fetchAndParseResources(theStepExecutionDetails.getParameters(), data);
+		}
+
+		ourLog.info("Bulk loading {} resources from source {}", resources.size(), sourceName);
+
+		storeResources(resources);
+
+		return new RunOutcome(resources.size());
+	}
+
+	/**
+	 * Streams the referenced byte range directly from the source URL. A ranged request is
+	 * used, but if the server ignores the range and returns the whole file we simply skip
+	 * ahead to the chunk offset.
+	 */
+	private List<IBaseResource> fetchAndParseResources(BulkImportJobParameters theParameters, NdJsonFileJson theData) {
+		String url = theData.getSourceName();
+		long offset = theData.getByteOffset();
+		long length = theData.getByteLength();
+
+		HttpGet get = new HttpGet(url);
+		get.addHeader(Constants.HEADER_RANGE, "bytes=" + offset + "-" + (offset + length - 1));
+		get.addHeader(Constants.HEADER_ACCEPT_ENCODING, "identity");
+
+		try (CloseableHttpClient httpClient = FetchFilesStep.newHttpClient(theParameters)) {
+			try (CloseableHttpResponse response = httpClient.execute(get)) {
+				int statusCode = response.getStatusLine().getStatusCode();
+				if (statusCode >= 400) {
+					throw new JobExecutionFailedException(Msg.code(2273) + "Received HTTP " + statusCode + " from URL: " + url);
+				}
+
+				try (InputStream inputStream = response.getEntity().getContent()) {
+					if (statusCode != Constants.STATUS_HTTP_206_PARTIAL_CONTENT) {
+						IOUtils.skipFully(inputStream, offset);
+					}
+					BoundedInputStream chunkStream = new BoundedInputStream(inputStream, length);
+					return parseResources(new InputStreamReader(chunkStream, StandardCharsets.UTF_8));
+				}
+			}
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2274) + "Failed to read NDJSON from URL " + url + ": " + e.getMessage(), e);
+		}
+	}
+
+	private List<IBaseResource> parseResources(Reader theReader) {
 		IParser jsonParser = myCtx.newJsonParser();
-		LineIterator lineIter = new LineIterator(new StringReader(ndjson));
+		LineIterator lineIter = new LineIterator(theReader);
 		List<IBaseResource> resources = new ArrayList<>();
 		while (lineIter.hasNext()) {
 			String next = lineIter.next();
@@ -94,12 +156,7 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 				resources.add(parsed);
 			}
 		}
-
-		ourLog.info("Bulk loading {} resources from source {}", resources.size(), sourceName);
-
-		storeResources(resources);
-
-		return new RunOutcome(resources.size());
+		return resources;
 	}
 
 	public void storeResources(List<IBaseResource> resources) {
@@ -57,6 +57,7 @@ public class FetchFilesStep implements IFirstJobStepWorker<BulkImportJobParamete
 	private static final Logger ourLog = LoggerFactory.getLogger(FetchFilesStep.class);
 	private static final List<String> ourValidContentTypes = Arrays.asList(Constants.CT_APP_NDJSON,  Constants.CT_FHIR_NDJSON, Constants.CT_FHIR_JSON, Constants.CT_FHIR_JSON_NEW, Constants.CT_JSON, Constants.CT_TEXT);
 	private static final List<String> ourValidNonNdJsonContentTypes = Arrays.asList(Constants.CT_FHIR_JSON, Constants.CT_FHIR_JSON_NEW, Constants.CT_JSON, Constants.CT_TEXT);
+	private static final int BATCH_SIZE_BYTES = (int) (20 * FileUtils.ONE_MB);
 
 	@Nonnull
 	@Override
@@ -69,7 +70,7 @@ public class FetchFilesStep implements IFirstJobStepWorker<BulkImportJobParamete
 			maxBatchResourceCount = BulkImportAppCtx.PARAM_MAXIMUM_BATCH_SIZE_DEFAULT;
 		}
 
-		try (CloseableHttpClient httpClient = newHttpClient(theStepExecutionDetails)) {
+		try (CloseableHttpClient httpClient = newHttpClient(theStepExecutionDetails.getParameters())) {
 
 			StopWatch outerSw = new StopWatch();
 			List<String> urls = theStepExecutionDetails.getParameters().getNdJsonUrls();
@@ -92,57 +93,107 @@ public class FetchFilesStep implements IFirstJobStepWorker<BulkImportJobParamete
 					}
 
 					try (InputStream inputStream = response.getEntity().getContent()) {
-						try (LineIterator lineIterator = new LineIterator(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+						if (theStepExecutionDetails.getParameters().isChunkByReference()) {
+							splitIntoReferenceChunks(nextUrl, inputStream, maxBatchResourceCount, theDataSink);
+						} else {
+							splitIntoTextChunks(nextUrl, inputStream, maxBatchResourceCount, theDataSink);
+						}
+					}
+				}
+
+				ourLog.info("Loaded and processed URL in {}", urlSw);
 
-							int chunkCount = 0;
-							int lineCount = 0;
-							StringBuilder builder = new StringBuilder();
+			}
 
-							while (lineIterator.hasNext()) {
+			ourLog.info("Loaded and processed {} URLs in {}", urls.size(), outerSw);
 
-								String nextLine = lineIterator.nextLine();
-								builder.append(nextLine).append('\n');
+			return new RunOutcome(0);
 
-								lineCount++;
-								int charCount = builder.length();
-								int batchSizeChars = (int) (20 * FileUtils.ONE_MB);
-								if (lineCount >= maxBatchResourceCount || charCount >= batchSizeChars || !lineIterator.hasNext()) {
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2054) + e.getMessage(), e);
+		}
+	}
 
-									ourLog.info("Loaded chunk {} of {} NDJSON file with {} resources from URL: {}", chunkCount, FileUtil.formatFileSize(charCount), lineCount, nextUrl);
+	private void splitIntoTextChunks(String theUrl, InputStream theInputStream, int theMaxBatchResourceCount, IJobDataSink<NdJsonFileJson> theDataSink) throws IOException {
+		try (LineIterator lineIterator = new LineIterator(new InputStreamReader(theInputStream, StandardCharsets.UTF_8))) {
 
-									NdJsonFileJson data = new NdJsonFileJson();
-									data.setNdJsonText(builder.toString());
-									data.setSourceName(nextUrl);
-									theDataSink.accept(data);
+			int chunkCount = 0;
+			int lineCount = 0;
+			StringBuilder builder = new StringBuilder();
 
-									builder.setLength(0);
-									lineCount = 0;
-									chunkCount++;
-								}
+			while (lineIterator.hasNext()) {
 
-							}
+				String nextLine = lineIterator.nextLine();
+				builder.append(nextLine).append('\n');
 
-						}
-					}
-				}
+				lineCount++;
+				int charCount = builder.length();
+				if (lineCount >= theMaxBatchResourceCount || charCount >= BATCH_SIZE_BYTES || !lineIterator.hasNext()) {
 
-				ourLog.info("Loaded and processed URL in {}", urlSw);
+					ourLog.info("Loaded chunk {} of {} NDJSON file with {} resources from URL: {}", chunkCount, FileUtil.formatFileSize(charCount), lineCount, theUrl);
+
+					NdJsonFileJson data = new NdJsonFileJson();
+					data.setNdJsonText(builder.toString());
+					data.setSourceName(theUrl);
+					theDataSink.accept(data);
+
+					builder.setLength(0);
+					lineCount = 0;
+					chunkCount++;
+				}
 
 			}
 
-			ourLog.info("Loaded and processed {} URLs in {}", urls.size(), outerSw);
+		}
+	}
 
-			return new RunOutcome(0);
+	/**
+	 * Scans the stream for line boundaries and emits chunks which only describe a byte range
+	 * of the source URL. The NDJSON text itself is never buffered or stored.
+	 */
+	private void splitIntoReferenceChunks(String theUrl, InputStream theInputStream, int theMaxBatchResourceCount, IJobDataSink<NdJsonFileJson> theDataSink) throws IOException {
+		byte[] buffer = new byte[(int) (64 * FileUtils.ONE_KB)];
+		long chunkStart = 0;
+		long position = 0;
+		int lineCount = 0;
+		int chunkCount = 0;
+
+		int bytesRead;
+		while ((bytesRead = theInputStream.read(buffer)) != -1) {
+			for (int i = 0; i < bytesRead; i++) {
+				position++;
+				if (buffer[i] == '\n') {
+					lineCount++;
+					if (lineCount >= theMaxBatchResourceCount || position - chunkStart >= BATCH_SIZE_BYTES) {
+						acceptReferenceChunk(theUrl, chunkStart, position - chunkStart, lineCount, chunkCount, theDataSink);
+						chunkStart = position;
+						lineCount = 0;
+						chunkCount++;
+					}
+				}
+			}
+		}
 
-		} catch (IOException e) {
-			throw new InternalErrorException(Msg.code(2054) + e.getMessage(), e);
+		if (position > chunkStart) {
+			// Final line may not be terminated by a newline
+			acceptReferenceChunk(theUrl, chunkStart, position - chunkStart, lineCount + 1, chunkCount, theDataSink);
 		}
 	}
 
-	private CloseableHttpClient newHttpClient(StepExecutionDetails<BulkImportJobParameters, ?> theStepExecutionDetails) {
+	private void acceptReferenceChunk(String theUrl, long theOffset, long theLength, int theLineCount, int theChunkCount, IJobDataSink<NdJsonFileJson> theDataSink) {
+		ourLog.info("Referenced chunk {} of {} NDJSON file with {} resources from URL: {}", theChunkCount, FileUtil.formatFileSize(theLength), theLineCount, theUrl);
+
+		NdJsonFileJson data = new NdJsonFileJson();
+		data.setSourceName(theUrl);
+		data.setByteOffset(theOffset);
+		data.setByteLength(theLength);
+		theDataSink.accept(data);
+	}
+
+	static CloseableHttpClient newHttpClient(BulkImportJobParameters theParameters) {
 		HttpClientBuilder builder = HttpClientBuilder.create();
 
-		String httpBasicCredentials = theStepExecutionDetails.getParameters().getHttpBasicCredentials();
+		String httpBasicCredentials = theParameters.getHttpBasicCredentials();
 		if (isNotBlank(httpBasicCredentials)) {
 			int colonIdx = httpBasicCredentials.indexOf(':');
 			if (colonIdx == -1) {
@@ -29,6 +29,10 @@ public class NdJsonFileJson implements IModelJson {
 	private String myNdJsonText;
 	@JsonProperty("sourceName")
 	private String mySourceName;
+	@JsonProperty("byteOffset")
+	private Long myByteOffset;
+	@JsonProperty("byteLength")
+	private Long myByteLength;
 
 	public String getNdJsonText() {
 		return myNdJsonText;
@@ -46,4 +50,30 @@ public class NdJsonFileJson implements IModelJson {
 	public void setSourceName(String theSourceName) {
 		mySourceName = theSourceName;
 	}
+
+	/**
+	 * When the chunk is a reference (i.e. {@link #getNdJsonText()} is <code>null</code>) this is the offset
+	 * of the first byte of the chunk within {@link #getSourceName() the source URL}
+	 */
+	public Long getByteOffset() {
+		return myByteOffset;
+	}
+
+	public NdJsonFileJson setByteOffset(Long theByteOffset) {
+		myByteOffset = theByteOffset;
+		return this;
+	}
+
+	/**
+	 * When the chunk is a reference (i.e. {@link #getNdJsonText()} is <code>null</code>) this is the number
+	 * of bytes in the chunk
+	 */
+	public Long getByteLength() {
+		return myByteLength;
+	}
+
+	public NdJsonFileJson setByteLength(Long theByteLength) {
+		myByteLength = theByteLength;
+		return this;
+	}
 }
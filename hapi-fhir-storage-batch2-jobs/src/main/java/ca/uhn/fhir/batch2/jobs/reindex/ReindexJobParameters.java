@@ -21,7 +21,31 @@ package ca.uhn.fhir.batch2.jobs.reindex;
  */
 
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrlListJobParameters;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class ReindexJobParameters extends PartitionedUrlListJobParameters {
 
+	@JsonProperty(value = "convertResourceEncoding", required = false)
+	private Boolean myConvertResourceEncoding;
+
+	/**
+	 * If <code>true</code>, stored resource bodies that do not use the currently configured
+	 * resource encoding are rewritten using it as they are reindexed.
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isConvertResourceEncoding() {
+		return Boolean.TRUE.equals(myConvertResourceEncoding);
+	}
+
+	/**
+	 * If <code>true</code>, stored resource bodies that do not use the currently configured
+	 * resource encoding are rewritten using it as they are reindexed.
+	 *
+	 * @since 6.6.0
+	 */
+	public ReindexJobParameters setConvertResourceEncoding(boolean theConvertResourceEncoding) {
+		myConvertResourceEncoding = theConvertResourceEncoding;
+		return this;
+	}
 }
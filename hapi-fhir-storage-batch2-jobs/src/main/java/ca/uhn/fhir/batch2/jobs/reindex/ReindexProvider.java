@@ -59,10 +59,14 @@ public class ReindexProvider {
 	@Operation(name = ProviderConstants.OPERATION_REINDEX, idempotent = false)
 	public IBaseParameters Reindex(
 		@OperationParam(name = ProviderConstants.OPERATION_REINDEX_PARAM_URL, typeName = "string", min = 0, max = OperationParam.MAX_UNLIMITED) List<IPrimitiveType<String>> theUrlsToReindex,
+		@OperationParam(name = ProviderConstants.OPERATION_REINDEX_PARAM_CONVERT_RESOURCE_ENCODING, typeName = "boolean", min = 0, max = 1) IPrimitiveType<Boolean> theConvertResourceEncoding,
 		RequestDetails theRequestDetails
 	) {
 
 		ReindexJobParameters params = new ReindexJobParameters();
+		if (theConvertResourceEncoding != null && theConvertResourceEncoding.getValue() != null) {
+			params.setConvertResourceEncoding(theConvertResourceEncoding.getValue());
+		}
 		if (theUrlsToReindex != null) {
 			theUrlsToReindex.stream()
 				.map(IPrimitiveType::getValue)
@@ -0,0 +1,161 @@
+package ca.uhn.fhir.batch2.jobs.export;
+
+import ca.uhn.fhir.batch2.api.ChunkExecutionDetails;
+import ca.uhn.fhir.batch2.api.IJobDataSink;
+import ca.uhn.fhir.batch2.api.RunOutcome;
+import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.jobs.export.models.BulkExportBinaryFileId;
+import ca.uhn.fhir.batch2.jobs.export.models.BulkExportJobParameters;
+import ca.uhn.fhir.batch2.model.JobInstance;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.api.model.BulkExportJobResults;
+import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
+import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.util.HapiExtensions;
+import org.apache.commons.io.IOUtils;
+import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Binary;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkExportCreateReportStepTest {
+
+	@Spy
+	private FhirContext myFhirContext = FhirContext.forR4Cached();
+
+	@Mock
+	private DaoRegistry myDaoRegistry;
+
+	@Spy
+	private StorageSettings myStorageSettings = new StorageSettings();
+
+	@Spy
+	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
+
+	@Spy
+	private MemoryBinaryStorageSvcImpl myBinaryStorageSvc = new MemoryBinaryStorageSvcImpl();
+
+	@InjectMocks
+	private BulkExportCreateReportStep myReportStep;
+
+	@Test
+	public void run_withParts_combinesPartsIntoFilesWithRollover() throws IOException {
+		// setup
+		myStorageSettings.setBulkExportGzipFiles(true);
+		myStorageSettings.setBulkExportMaximumFileBytes(1000);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		BulkExportJobParameters parameters = new BulkExportJobParameters();
+		parameters.setStartDate(new Date());
+		parameters.setResourceTypes(Arrays.asList("Patient"));
+		instance.setParameters(parameters);
+
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		when(myDaoRegistry.getResourceDao(eq("Binary"))).thenReturn((IFhirResourceDao) binaryDao);
+		AtomicInteger binaryCounter = new AtomicInteger();
+		when(binaryDao.create(any(IBaseBinary.class), any(RequestDetails.class))).thenAnswer(t -> {
+			DaoMethodOutcome outcome = new DaoMethodOutcome();
+			outcome.setId(new IdType("Binary/" + binaryCounter.incrementAndGet() + "/_history/1"));
+			return outcome;
+		});
+
+		// Each work chunk stores a part which is about 500 bytes, so every
+		// file spans parts from more than one chunk
+		IIdType partOwnerId = BulkExportBinaryFileWriter.newPartOwnerId(myFhirContext, "1");
+		List<String> partBlobIds = new ArrayList<>();
+		int resourceCount = 0;
+		for (int chunk = 0; chunk < 3; chunk++) {
+			List<IBaseResource> resources = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				Patient patient = new Patient();
+				patient.setId(String.valueOf(resourceCount++));
+				patient.setActive(true);
+				resources.add(patient);
+			}
+			String partBlobId = BulkExportBinaryFileWriter.storePart(myBinaryStorageSvc, myFhirContext.newJsonParser(), partOwnerId, resources);
+			partBlobIds.add(partBlobId);
+
+			BulkExportBinaryFileId fileId = new BulkExportBinaryFileId();
+			fileId.setResourceType("Patient");
+			fileId.setPartBlobId(partBlobId);
+			myReportStep.consume(new ChunkExecutionDetails<>(fileId, parameters, "1", "chunk" + chunk));
+		}
+
+		IJobDataSink<BulkExportJobResults> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, BulkExportBinaryFileId> input = new StepExecutionDetails<>(parameters, null, instance, "REDUCTION");
+
+		// test
+		RunOutcome outcome = myReportStep.run(input, sink);
+
+		// verify
+		assertEquals(RunOutcome.SUCCESS, outcome);
+
+		ArgumentCaptor<BulkExportJobResults> resultsCaptor = ArgumentCaptor.forClass(BulkExportJobResults.class);
+		verify(sink).accept(resultsCaptor.capture());
+		List<String> binaryIds = resultsCaptor.getValue().getResourceTypeToBinaryIds().get("Patient");
+		assertEquals(2, binaryIds.size());
+
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao, times(2)).create(binaryCaptor.capture(), any(RequestDetails.class));
+
+		int lineCount = 0;
+		for (int i = 0; i < binaryIds.size(); i++) {
+			IBaseBinary binary = binaryCaptor.getAllValues().get(i);
+			assertEquals(Constants.CT_APPLICATION_GZIP, binary.getContentType());
+			assertNull(binary.getContent());
+			String blobId = ((Binary) binary).getDataElement().getExtensionByUrl(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID).getValueAsPrimitive().getValueAsString();
+
+			byte[] blob = myBinaryStorageSvc.fetchBlob(new IdType(binaryIds.get(i)), blobId);
+			String ndjson = IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(blob)), StandardCharsets.UTF_8);
+			for (String nextLine : ndjson.split("\n")) {
+				Patient patient = myFhirContext.newJsonParser().parseResource(Patient.class, nextLine);
+				assertEquals(String.valueOf(lineCount), patient.getIdElement().getIdPart());
+				lineCount++;
+			}
+		}
+		assertEquals(resourceCount, lineCount);
+
+		// The parts are expunged once the files have been written
+		for (String nextPartBlobId : partBlobIds) {
+			assertNull(myBinaryStorageSvc.fetchBlob(partOwnerId, nextPartBlobId));
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
@@ -25,6 +26,7 @@ import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,6 +36,8 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -44,9 +48,12 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -74,6 +81,9 @@ public class ExpandResourcesStepTest {
 	@Spy
 	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
 
+	@Spy
+	private MemoryBinaryStorageSvcImpl myBinaryStorageSvc = new MemoryBinaryStorageSvcImpl();
+
 	@InjectMocks
 	private ExpandResourcesStep mySecondStep;
 
@@ -165,4 +175,74 @@ public class ExpandResourcesStepTest {
 		assertFalse(stringifiedElement.contains("\n"));
 		assertFalse(stringifiedElement.contains(" "));
 	}
+
+	@Test
+	public void jobComplete_streamToBinaryStorage_storesPart() throws IOException {
+		//setup
+		myStorageSettings.setBulkExportStreamToBinaryStorage(true);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		IJobDataSink<ExpandedResourcesList> sink = mock(IJobDataSink.class);
+		IFhirResourceDao<?> patientDao = mockOutDaoRegistry();
+
+		ResourceIdList idList = new ResourceIdList();
+		idList.setResourceType("Patient");
+		ArrayList<IBaseResource> resources = new ArrayList<>();
+		ArrayList<BatchResourceId> batchResourceIds = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			String stringId = String.valueOf(i);
+			BatchResourceId batchResourceId = new BatchResourceId();
+			batchResourceId.setResourceType("Patient");
+			batchResourceId.setId(stringId);
+			batchResourceIds.add(batchResourceId);
+
+			Patient patient = new Patient();
+			patient.setId(stringId);
+			patient.setActive(true);
+			resources.add(patient);
+		}
+		idList.setIds(batchResourceIds);
+
+		StepExecutionDetails<BulkExportJobParameters, ResourceIdList> input = createInput(
+			idList,
+			createParameters(),
+			instance
+		);
+		when(patientDao.search(any(), any())).thenReturn(new SimpleBundleProvider(resources));
+		when(myIdHelperService.newPidFromStringIdAndResourceName(anyString(), anyString())).thenAnswer(t -> JpaPid.fromId(Long.parseLong(t.getArgument(0, String.class))));
+		when(myIdHelperService.translatePidsToForcedIds(any())).thenAnswer(t -> {
+			Set<IResourcePersistentId<?>> inputSet = t.getArgument(0, Set.class);
+			Map<IResourcePersistentId<?>, Optional<String>> map = new HashMap<>();
+			for (var next : inputSet) {
+				map.put(next, Optional.empty());
+			}
+			return new PersistentIdToForcedIdMap<>(map);
+		});
+
+		// test
+		RunOutcome outcome = mySecondStep.run(input, sink);
+
+		// verify
+		assertEquals(RunOutcome.SUCCESS, outcome);
+
+		ArgumentCaptor<ExpandedResourcesList> expandedCaptor = ArgumentCaptor.forClass(ExpandedResourcesList.class);
+		verify(sink).accept(expandedCaptor.capture());
+		ExpandedResourcesList expandedResources = expandedCaptor.getValue();
+		assertNull(expandedResources.getStringifiedResources());
+		assertEquals("Patient", expandedResources.getResourceType());
+		assertEquals(resources.size(), expandedResources.getResourceCount());
+
+		// The part is only combined into files by the report step, so no Binary is created yet
+		verify(myDaoRegistry, never()).getResourceDao(eq("Binary"));
+
+		IIdType partOwnerId = BulkExportBinaryFileWriter.newPartOwnerId(myFhirContext, "1");
+		byte[] part = myBinaryStorageSvc.fetchBlob(partOwnerId, expandedResources.getPartBlobId());
+		String[] lines = new String(part, StandardCharsets.UTF_8).split("\n");
+		assertEquals(resources.size(), lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			Patient patient = myFhirContext.newJsonParser().parseResource(Patient.class, lines[i]);
+			assertEquals(String.valueOf(i), patient.getIdElement().getIdPart());
+		}
+	}
 }
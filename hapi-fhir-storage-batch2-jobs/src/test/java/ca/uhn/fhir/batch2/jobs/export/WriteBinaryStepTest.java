@@ -156,6 +156,32 @@ public class WriteBinaryStepTest {
 		assertEquals(binaryId.getValueAsString(), fileIdArgumentCaptor.getValue().getBinaryId());
 	}
 
+	@Test
+	public void run_withPartInBinaryStorage_passesPartThrough() {
+		// setup
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		expandedResources.setResourceType("Patient");
+		expandedResources.setPartBlobId("PART-1");
+		expandedResources.setResourceCount(25);
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance);
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(25, outcome.getRecordsProcessed());
+		verify(myDaoRegistry, never()).getResourceDao(anyString());
+
+		ArgumentCaptor<BulkExportBinaryFileId> fileIdArgumentCaptor = ArgumentCaptor.forClass(BulkExportBinaryFileId.class);
+		verify(sink)
+			.accept(fileIdArgumentCaptor.capture());
+		assertEquals("PART-1", fileIdArgumentCaptor.getValue().getPartBlobId());
+		assertEquals("Patient", fileIdArgumentCaptor.getValue().getResourceType());
+	}
+
 	@Test
 	public void run_withIOException_throws() throws IOException {
 		// setup
@@ -11,11 +11,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.util.Base64Utils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 
 import static ca.uhn.fhir.rest.api.Constants.CT_APP_NDJSON;
@@ -27,6 +29,7 @@ import static ca.uhn.fhir.rest.api.Constants.CT_TEXT;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
@@ -100,6 +103,45 @@ public class FetchFilesStepTest {
 
 	}
 
+	@Test
+	public void testFetch_ChunkByReference() {
+
+		// Setup
+
+		String line = "{\"resourceType\":\"Patient\"}\n";
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			b.append(line);
+		}
+		String index = myBulkImportFileServlet.registerFileByContents(b.toString());
+
+		String url = myHttpServletExtension.getBaseUrl() + "/download?index=" + index;
+		BulkImportJobParameters parameters = new BulkImportJobParameters()
+			.addNdJsonUrl(url)
+			.setMaxBatchResourceCount(3)
+			.setChunkByReference(true);
+		StepExecutionDetails<BulkImportJobParameters, VoidModel> details = new StepExecutionDetails<>(parameters, null, ourTestInstance, CHUNK_ID);
+
+		// Test
+
+		mySvc.run(details, myJobDataSink);
+
+		// Verify
+
+		ArgumentCaptor<NdJsonFileJson> captor = ArgumentCaptor.forClass(NdJsonFileJson.class);
+		verify(myJobDataSink, times(4)).accept(captor.capture());
+		List<NdJsonFileJson> chunks = captor.getAllValues();
+		long lineLength = line.getBytes(StandardCharsets.UTF_8).length;
+		for (int i = 0; i < chunks.size(); i++) {
+			NdJsonFileJson chunk = chunks.get(i);
+			assertNull(chunk.getNdJsonText());
+			assertEquals(url, chunk.getSourceName());
+			assertEquals(i * 3 * lineLength, chunk.getByteOffset());
+		}
+		assertEquals(3 * lineLength, chunks.get(0).getByteLength());
+		assertEquals(lineLength, chunks.get(3).getByteLength());
+	}
+
 	@Test
 	public void testFetchWithBasicAuth_InvalidCredential() {
 
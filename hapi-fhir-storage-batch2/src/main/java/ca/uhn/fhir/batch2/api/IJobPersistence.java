@@ -26,6 +26,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.MarkWorkChunkAsErrorRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import ca.uhn.fhir.i18n.Msg;
 import org.springframework.data.domain.Page;
@@ -196,6 +197,20 @@ public interface IJobPersistence {
 		 */
 	Iterator<WorkChunk> fetchAllWorkChunksIterator(String theInstanceId, boolean theWithData);
 
+	/**
+	 * Fetch aggregate statistics for all chunks belonging to a given instance, grouped by
+	 * target step and status. The maintenance pass uses this to calculate instance progress,
+	 * so implementations should avoid loading the individual chunks where possible. The
+	 * default implementation iterates over {@link #fetchAllWorkChunksIterator(String, boolean)}.
+	 *
+	 * @param theInstanceId - instance id
+	 * @return - one entry per combination of target step and status which has at least one chunk
+	 * @since 6.6.0
+	 */
+	default List<WorkChunkStatusCount> fetchWorkChunkStatusCounts(String theInstanceId) {
+		return WorkChunkStatusCount.fromWorkChunks(fetchAllWorkChunksIterator(theInstanceId, false));
+	}
+
 	/**
 	 * Deprecated, use {@link ca.uhn.fhir.batch2.api.IJobPersistence#fetchAllWorkChunksForStepStream(String, String)}
 	 * Fetch all chunks with data for a given instance for a given step id
@@ -27,6 +27,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.MarkWorkChunkAsErrorRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -149,6 +150,11 @@ public class SynchronizedJobPersistenceWrapper implements IJobPersistence {
 		return myWrap.fetchAllWorkChunksIterator(theInstanceId, theWithData);
 	}
 
+	@Override
+	public synchronized List<WorkChunkStatusCount> fetchWorkChunkStatusCounts(String theInstanceId) {
+		return myWrap.fetchWorkChunkStatusCounts(theInstanceId);
+	}
+
 	@Override
 	public Iterator<WorkChunk> fetchAllWorkChunksForStepIterator(String theInstanceId, String theStepId) {
 		return myWrap.fetchAllWorkChunksForStepIterator(theInstanceId, theStepId);
@@ -160,6 +160,14 @@ public class JobInstanceProcessor {
 
 		String instanceId = theInstance.getInstanceId();
 		String currentStepId = jobWorkCursor.getCurrentStepId();
+		if (myProgressAccumulator.hasChunkCounts(instanceId) && myProgressAccumulator.countChunksWithStatus(instanceId, currentStepId, StatusEnum.getIncompleteStatuses()) > 0) {
+			// The chunk counts collected earlier in this pass show that the step can't be finished yet,
+			// so there is no need to ask the database
+			ourLog.debug("Not ready to advance gated execution of instance {} from step {} to {}.",
+				instanceId, currentStepId, jobWorkCursor.nextStep.getStepId());
+			return;
+		}
+
 		boolean shouldAdvance = myJobPersistence.canAdvanceInstanceToNextStep(instanceId, currentStepId);
 		if (shouldAdvance) {
 			String nextStepId = jobWorkCursor.nextStep.getStepId();
@@ -180,10 +188,10 @@ public class JobInstanceProcessor {
 
 	private void processChunksForNextSteps(JobInstance theInstance, String nextStepId) {
 		String instanceId = theInstance.getInstanceId();
-		List<String> queuedChunksForNextStep = myProgressAccumulator.getChunkIdsWithStatus(instanceId, nextStepId, StatusEnum.QUEUED);
+		int queuedChunksForNextStep = myProgressAccumulator.countChunksWithStatus(instanceId, nextStepId, StatusEnum.QUEUED);
 		int totalChunksForNextStep = myProgressAccumulator.getTotalChunkCountForInstanceAndStep(instanceId, nextStepId);
-		if (totalChunksForNextStep != queuedChunksForNextStep.size()) {
-			ourLog.debug("Total ProgressAccumulator QUEUED chunk count does not match QUEUED chunk size! [instanceId={}, stepId={}, totalChunks={}, queuedChunks={}]", instanceId, nextStepId, totalChunksForNextStep, queuedChunksForNextStep.size());
+		if (totalChunksForNextStep != queuedChunksForNextStep) {
+			ourLog.debug("Total ProgressAccumulator QUEUED chunk count does not match QUEUED chunk size! [instanceId={}, stepId={}, totalChunks={}, queuedChunks={}]", instanceId, nextStepId, totalChunksForNextStep, queuedChunksForNextStep);
 		}
 		List<String> chunksToSubmit = myJobPersistence.fetchallchunkidsforstepWithStatus(instanceId, nextStepId, StatusEnum.QUEUED);
 		for (String nextChunkId : chunksToSubmit) {
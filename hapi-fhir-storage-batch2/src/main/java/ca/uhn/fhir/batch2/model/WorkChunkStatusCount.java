@@ -0,0 +1,156 @@
+package ca.uhn.fhir.batch2.model;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate statistics for all of the work chunks belonging to a single job instance
+ * which share a target step and a status. These are used by the maintenance pass to
+ * calculate instance progress without loading every individual work chunk.
+ *
+ * @since 6.6.0
+ */
+public class WorkChunkStatusCount {
+
+	private final String myTargetStepId;
+	private final StatusEnum myStatus;
+	private int myChunkCount;
+	private long myRecordsProcessed;
+	private long myErrorCount;
+	private Date myEarliestStartTime;
+	private Date myLatestEndTime;
+	private String myErrorMessage;
+
+	/**
+	 * Constructor
+	 */
+	public WorkChunkStatusCount(String theTargetStepId, StatusEnum theStatus) {
+		myTargetStepId = theTargetStepId;
+		myStatus = theStatus;
+	}
+
+	/**
+	 * Constructor
+	 */
+	public WorkChunkStatusCount(String theTargetStepId, StatusEnum theStatus, int theChunkCount, long theRecordsProcessed, long theErrorCount, Date theEarliestStartTime, Date theLatestEndTime) {
+		this(theTargetStepId, theStatus);
+		myChunkCount = theChunkCount;
+		myRecordsProcessed = theRecordsProcessed;
+		myErrorCount = theErrorCount;
+		myEarliestStartTime = theEarliestStartTime;
+		myLatestEndTime = theLatestEndTime;
+	}
+
+	public String getTargetStepId() {
+		return myTargetStepId;
+	}
+
+	public StatusEnum getStatus() {
+		return myStatus;
+	}
+
+	public int getChunkCount() {
+		return myChunkCount;
+	}
+
+	public long getRecordsProcessed() {
+		return myRecordsProcessed;
+	}
+
+	public long getErrorCount() {
+		return myErrorCount;
+	}
+
+	public Date getEarliestStartTime() {
+		return myEarliestStartTime;
+	}
+
+	public Date getLatestEndTime() {
+		return myLatestEndTime;
+	}
+
+	/**
+	 * The error message of the first chunk (by sequence) in this group, if any
+	 */
+	public String getErrorMessage() {
+		return myErrorMessage;
+	}
+
+	public WorkChunkStatusCount setErrorMessage(String theErrorMessage) {
+		myErrorMessage = theErrorMessage;
+		return this;
+	}
+
+	/**
+	 * Adds an individual work chunk to this group. The chunk must have the same
+	 * target step and status as this group.
+	 */
+	public void addChunk(WorkChunk theChunk) {
+		myChunkCount++;
+		if (theChunk.getRecordsProcessed() != null) {
+			myRecordsProcessed += theChunk.getRecordsProcessed();
+		}
+		myErrorCount += theChunk.getErrorCount();
+		if (theChunk.getStartTime() != null && (myEarliestStartTime == null || myEarliestStartTime.after(theChunk.getStartTime()))) {
+			myEarliestStartTime = theChunk.getStartTime();
+		}
+		if (theChunk.getEndTime() != null && (myLatestEndTime == null || myLatestEndTime.before(theChunk.getEndTime()))) {
+			myLatestEndTime = theChunk.getEndTime();
+		}
+		if (myErrorMessage == null) {
+			myErrorMessage = theChunk.getErrorMessage();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+			.append("targetStepId", myTargetStepId)
+			.append("status", myStatus)
+			.append("chunkCount", myChunkCount)
+			.append("recordsProcessed", myRecordsProcessed)
+			.append("errorCount", myErrorCount)
+			.toString();
+	}
+
+	/**
+	 * Groups the given work chunks by target step and status. This is intended for
+	 * persistence implementations which are not able to aggregate chunks natively.
+	 */
+	public static List<WorkChunkStatusCount> fromWorkChunks(Iterator<WorkChunk> theWorkChunks) {
+		Map<String, WorkChunkStatusCount> counts = new LinkedHashMap<>();
+		while (theWorkChunks.hasNext()) {
+			WorkChunk next = theWorkChunks.next();
+			String key = next.getTargetStepId() + " " + next.getStatus();
+			counts.computeIfAbsent(key, t -> new WorkChunkStatusCount(next.getTargetStepId(), next.getStatus())).addChunk(next);
+		}
+		return new ArrayList<>(counts.values());
+	}
+
+}
@@ -22,7 +22,7 @@ package ca.uhn.fhir.batch2.progress;
 
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.StatusEnum;
-import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.util.Logs;
 import ca.uhn.fhir.util.StopWatch;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -49,64 +49,64 @@ class InstanceProgress {
 	private StatusEnum myNewStatus = null;
 	private Map<String, Map<StatusEnum, Integer>> myStepToStatusCountMap = new HashMap<>();
 
-	public void addChunk(WorkChunk theChunk) {
-		myErrorCountForAllStatuses += theChunk.getErrorCount();
+	public void addStatusCount(WorkChunkStatusCount theStatusCount) {
+		myErrorCountForAllStatuses += theStatusCount.getErrorCount();
 
-		updateRecordsProcessed(theChunk);
-		updateEarliestTime(theChunk);
-		updateLatestEndTime(theChunk);
-		updateCompletionStatus(theChunk);
+		updateRecordsProcessed(theStatusCount);
+		updateEarliestTime(theStatusCount);
+		updateLatestEndTime(theStatusCount);
+		updateCompletionStatus(theStatusCount);
 	}
 
-	private void updateCompletionStatus(WorkChunk theChunk) {
+	private void updateCompletionStatus(WorkChunkStatusCount theStatusCount) {
+		int chunkCount = theStatusCount.getChunkCount();
+
 		//Update the status map first.
-		Map<StatusEnum, Integer> statusToCountMap = myStepToStatusCountMap.getOrDefault(theChunk.getTargetStepId(), new HashMap<>());
-		statusToCountMap.put(theChunk.getStatus(), statusToCountMap.getOrDefault(theChunk.getStatus(), 0) + 1);
+		Map<StatusEnum, Integer> statusToCountMap = myStepToStatusCountMap.computeIfAbsent(theStatusCount.getTargetStepId(), t -> new HashMap<>());
+		statusToCountMap.merge(theStatusCount.getStatus(), chunkCount, Integer::sum);
 
-		switch (theChunk.getStatus()) {
+		switch (theStatusCount.getStatus()) {
 			case QUEUED:
 			case IN_PROGRESS:
-				myIncompleteChunkCount++;
+				myIncompleteChunkCount += chunkCount;
 				break;
 			case COMPLETED:
-				myCompleteChunkCount++;
+				myCompleteChunkCount += chunkCount;
 				break;
 			case ERRORED:
-				myErroredChunkCount++;
+				myErroredChunkCount += chunkCount;
 				if (myErrormessage == null) {
-					myErrormessage = theChunk.getErrorMessage();
+					myErrormessage = theStatusCount.getErrorMessage();
 				}
 				break;
 			case FAILED:
-				myFailedChunkCount++;
-				myErrormessage = theChunk.getErrorMessage();
+				myFailedChunkCount += chunkCount;
+				myErrormessage = theStatusCount.getErrorMessage();
 				break;
 			case CANCELLED:
 				break;
 		}
-		ourLog.trace("Chunk has status {} with errored chunk count {}", theChunk.getStatus(), myErroredChunkCount);
+		ourLog.trace("{} chunks have status {} with errored chunk count {}", chunkCount, theStatusCount.getStatus(), myErroredChunkCount);
 	}
 
-	private void updateLatestEndTime(WorkChunk theChunk) {
-		if (theChunk.getEndTime() != null) {
-			if (myLatestEndTime == null || myLatestEndTime < theChunk.getEndTime().getTime()) {
-				myLatestEndTime = theChunk.getEndTime().getTime();
+	private void updateLatestEndTime(WorkChunkStatusCount theStatusCount) {
+		if (theStatusCount.getLatestEndTime() != null) {
+			if (myLatestEndTime == null || myLatestEndTime < theStatusCount.getLatestEndTime().getTime()) {
+				myLatestEndTime = theStatusCount.getLatestEndTime().getTime();
 			}
 		}
 	}
 
-	private void updateEarliestTime(WorkChunk theChunk) {
-		if (theChunk.getStartTime() != null) {
-			if (myEarliestStartTime == null || myEarliestStartTime > theChunk.getStartTime().getTime()) {
-				myEarliestStartTime = theChunk.getStartTime().getTime();
+	private void updateEarliestTime(WorkChunkStatusCount theStatusCount) {
+		if (theStatusCount.getEarliestStartTime() != null) {
+			if (myEarliestStartTime == null || myEarliestStartTime > theStatusCount.getEarliestStartTime().getTime()) {
+				myEarliestStartTime = theStatusCount.getEarliestStartTime().getTime();
 			}
 		}
 	}
 
-	private void updateRecordsProcessed(WorkChunk theChunk) {
-		if (theChunk.getRecordsProcessed() != null) {
-			myRecordsProcessed += theChunk.getRecordsProcessed();
-		}
+	private void updateRecordsProcessed(WorkChunkStatusCount theStatusCount) {
+		myRecordsProcessed += theStatusCount.getRecordsProcessed();
 	}
 
 	public void updateInstance(JobInstance theInstance) {
@@ -25,12 +25,12 @@ import ca.uhn.fhir.batch2.coordinator.JobDefinitionRegistry;
 import ca.uhn.fhir.batch2.maintenance.JobChunkProgressAccumulator;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.StatusEnum;
-import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.util.Logs;
 import org.slf4j.Logger;
 
 import javax.annotation.Nonnull;
-import java.util.Iterator;
+import java.util.List;
 
 public class JobInstanceProgressCalculator {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
@@ -81,12 +81,11 @@ public class JobInstanceProgressCalculator {
 	@Nonnull
 	private InstanceProgress calculateInstanceProgress(String instanceId) {
 		InstanceProgress instanceProgress = new InstanceProgress();
-		Iterator<WorkChunk> workChunkIterator = myJobPersistence.fetchAllWorkChunksIterator(instanceId, false);
+		List<WorkChunkStatusCount> statusCounts = myJobPersistence.fetchWorkChunkStatusCounts(instanceId);
+		myProgressAccumulator.setStatusCounts(instanceId, statusCounts);
 
-		while (workChunkIterator.hasNext()) {
-			WorkChunk next = workChunkIterator.next();
-			myProgressAccumulator.addChunk(next);
-			instanceProgress.addChunk(next);
+		for (WorkChunkStatusCount next : statusCounts) {
+			instanceProgress.addStatusCount(next);
 		}
 		return instanceProgress;
 	}
@@ -28,7 +28,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -96,7 +95,7 @@ public class ReductionStepDataSinkTest {
 		// when
 		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID)))
 			.thenReturn(Optional.of(JobInstance.fromInstanceId(INSTANCE_ID)));
-		when(myJobPersistence.fetchAllWorkChunksIterator(any(), anyBoolean())).thenReturn(Collections.emptyIterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(any())).thenReturn(Collections.emptyList());
 
 		// test
 		myDataSink.accept(chunkData);
@@ -122,7 +121,7 @@ public class ReductionStepDataSinkTest {
 		// when
 		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID)))
 			.thenReturn(Optional.of(JobInstance.fromInstanceId(INSTANCE_ID)));
-		when(myJobPersistence.fetchAllWorkChunksIterator(any(), anyBoolean())).thenReturn(Collections.emptyIterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(any())).thenReturn(Collections.emptyList());
 
 		// test
 		myDataSink.accept(firstData);
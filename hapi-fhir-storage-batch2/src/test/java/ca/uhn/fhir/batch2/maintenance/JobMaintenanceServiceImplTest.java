@@ -15,6 +15,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.JobWorkNotification;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCount;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
@@ -51,7 +52,6 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -126,8 +126,8 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		myJobDefinitionRegistry.addJobDefinition(createJobDefinition());
 		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID))).thenReturn(Optional.of(createInstance()));
 		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(createInstance()));
-		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false)))
-			.thenReturn(chunks.iterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID)))
+			.thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 
 		mySvc.runMaintenancePass();
 
@@ -161,8 +161,8 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		instance1.setErrorMessage("This is an error message");
 		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID))).thenReturn(Optional.of(createInstance()));
 		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(instance1));
-		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false)))
-			.thenReturn(chunks.iterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID)))
+			.thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 
 		// Execute
 		mySvc.runMaintenancePass();
@@ -190,8 +190,8 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		when (myJobPersistence.canAdvanceInstanceToNextStep(any(), any())).thenReturn(true);
 		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(JobDefinition.Builder::gatedExecution));
 
-		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false)))
-			.thenReturn(chunks.iterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID)))
+			.thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 
 		when(myJobPersistence.fetchallchunkidsforstepWithStatus(eq(INSTANCE_ID), eq(STEP_2), eq(StatusEnum.QUEUED)))
 			.thenReturn(chunks.stream().map(chunk -> chunk.getId()).collect(Collectors.toList()));
@@ -257,7 +257,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.completionHandler(myCompletionHandler)));
 		JobInstance instance1 = createInstance();
 		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(instance1));
-		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), anyBoolean())).thenAnswer(t->chunks.iterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 		when(myJobPersistence.updateInstance(any())).thenReturn(true);
 		when(myJobPersistence.fetchInstance(INSTANCE_ID)).thenReturn(Optional.of(instance1));
 
@@ -310,8 +310,8 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		myJobDefinitionRegistry.addJobDefinition(createJobDefinition());
 		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID))).thenReturn(Optional.of(createInstance()));
 		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(createInstance()));
-		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), anyBoolean()))
-			.thenAnswer(t->chunks.iterator());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID)))
+			.thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 
 		mySvc.runMaintenancePass();
 
@@ -345,7 +345,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 				JobCoordinatorImplTest.createWorkChunkStep2().setStatus(StatusEnum.QUEUED).setId(CHUNK_ID_2)
 			);
 			myJobDefinitionRegistry.addJobDefinition(createJobDefinition(JobDefinition.Builder::gatedExecution));
-			when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), anyBoolean())).thenAnswer(t->chunks.iterator());
+			when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 			JobInstance instance1 = createInstance();
 			instance1.setCurrentGatedStepId(STEP_1);
 			when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(instance1));
@@ -375,7 +375,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 				JobCoordinatorImplTest.createWorkChunkStep2().setStatus(StatusEnum.QUEUED).setId(CHUNK_ID_2)
 			);
 			myJobDefinitionRegistry.addJobDefinition(createJobDefinition(JobDefinition.Builder::gatedExecution));
-			when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), anyBoolean())).thenAnswer(t->chunks.iterator());
+			when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenAnswer(t -> WorkChunkStatusCount.fromWorkChunks(chunks.iterator()));
 			JobInstance instance1 = createInstance();
 			instance1.setCurrentGatedStepId(STEP_1);
 			when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(instance1));
@@ -36,6 +36,7 @@ import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.delete.DeleteConflictUtil;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
 import ca.uhn.fhir.mdm.dao.IMdmLinkDao;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
@@ -67,6 +68,8 @@ public class MdmClearStep implements IJobStepWorker<MdmClearJobParameters, Resou
 	FhirContext myFhirContext;
 	@Autowired
 	IMdmLinkDao myMdmLinkSvc;
+	@Autowired
+	IMdmBlockingKeyDao myMdmBlockingKeyDao;
 
 	@Nonnull
 	@Override
@@ -112,6 +115,7 @@ public class MdmClearStep implements IJobStepWorker<MdmClearJobParameters, Resou
 			StopWatch sw = new StopWatch();
 
 			myMdmLinkSvc.deleteLinksWithAnyReferenceToPids(persistentIds);
+			myMdmBlockingKeyDao.deleteBlockingKeysForPids(persistentIds);
 
 			// We know the list is not empty, and that all resource types are the same, so just use the first one
 			String resourceName  = myData.getResourceType(0);
@@ -4,6 +4,7 @@ import ca.uhn.fhir.jpa.api.model.HistoryCountModeEnum;
 import ca.uhn.fhir.jpa.api.model.WarmCacheEntry;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.system.HapiSystemProperties;
 import ca.uhn.fhir.util.HapiExtensions;
@@ -22,7 +23,9 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -311,6 +314,37 @@ public class JpaStorageSettings extends StorageSettings {
 	 * Since 6.4.0
 	 */
 	private boolean myJobFastTrackingEnabled = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private final Map<MemoryCacheEnum, Integer> myMemoryCacheMaximumSizes = new EnumMap<>(MemoryCacheEnum.class);
+	private final Map<MemoryCacheEnum, Long> myMemoryCacheExpireAfterWriteSeconds = new EnumMap<>(MemoryCacheEnum.class);
+	private final Map<MemoryCacheEnum, Integer> myMemoryCacheWeights = new EnumMap<>(MemoryCacheEnum.class);
+	private Integer myMemoryCacheTotalBudget;
+	/**
+	 * Since 6.6.0
+	 */
+	private int mySearchIncludeThreadCount = 1;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myKeysetPagingEnabled = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myTerminologyStreamingLoadEnabled = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myBundleTransactionParallelMatchUrlResolutionEnabled = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myAsyncSearchReadOnlyQueryEnabled = false;
+	/**
+	 * Since 6.6.0
+	 */
+	private boolean myIndexSynchronizationBatchModeEnabled = false;
 
 	/**
 	 * Constructor
@@ -997,6 +1031,13 @@ public class JpaStorageSettings extends StorageSettings {
 		return myResourceEncoding;
 	}
 
+	/**
+	 * Sets the encoding used to store new resource versions. The default is {@link ResourceEncodingEnum#JSONC}
+	 * (gzip compressed JSON). {@link ResourceEncodingEnum#CBOR} trades a slightly larger row for
+	 * resources that can be loaded without decompressing and tokenizing JSON. Existing rows keep their
+	 * encoding until they are rewritten, e.g. by a <code>$reindex</code> job with
+	 * <code>convertResourceEncoding</code> enabled.
+	 */
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -2332,6 +2373,332 @@ public class JpaStorageSettings extends StorageSettings {
 		myJobFastTrackingEnabled = theJobFastTrackingEnabled;
 	}
 
+	/**
+	 * Returns the configured maximum number of entries for the given memory cache, or
+	 * <code>null</code> if the built-in default should be used.
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	public Integer getMemoryCacheMaximumSize(MemoryCacheEnum theCache) {
+		return myMemoryCacheMaximumSizes.get(theCache);
+	}
+
+	/**
+	 * Overrides the maximum number of entries for the given memory cache. Set to
+	 * <code>null</code> to use the built-in default (10000, or 100000 in
+	 * {@link #setMassIngestionMode(boolean) mass ingestion mode}). This setting is ignored if a
+	 * {@link #setMemoryCacheTotalBudget(Integer) total budget} is configured.
+	 * <p>
+	 * This setting is only read at startup.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setMemoryCacheMaximumSize(MemoryCacheEnum theCache, @Nullable Integer theMaximumSize) {
+		Validate.isTrue(theMaximumSize == null || theMaximumSize > 0, "theMaximumSize must be positive");
+		if (theMaximumSize == null) {
+			myMemoryCacheMaximumSizes.remove(theCache);
+		} else {
+			myMemoryCacheMaximumSizes.put(theCache, theMaximumSize);
+		}
+	}
+
+	/**
+	 * Returns the configured expiry (in seconds after write) for the given memory cache,
+	 * or <code>null</code> if the built-in default should be used.
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	public Long getMemoryCacheExpireAfterWriteSeconds(MemoryCacheEnum theCache) {
+		return myMemoryCacheExpireAfterWriteSeconds.get(theCache);
+	}
+
+	/**
+	 * Overrides the expiry (in seconds after write) for the given memory cache. Set to
+	 * <code>null</code> to use the built-in default (1 minute for most caches, or 50 minutes in
+	 * {@link #setMassIngestionMode(boolean) mass ingestion mode}).
+	 * <p>
+	 * This setting is only read at startup.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setMemoryCacheExpireAfterWriteSeconds(MemoryCacheEnum theCache, @Nullable Long theExpireAfterWriteSeconds) {
+		Validate.isTrue(theExpireAfterWriteSeconds == null || theExpireAfterWriteSeconds > 0, "theExpireAfterWriteSeconds must be positive");
+		if (theExpireAfterWriteSeconds == null) {
+			myMemoryCacheExpireAfterWriteSeconds.remove(theCache);
+		} else {
+			myMemoryCacheExpireAfterWriteSeconds.put(theCache, theExpireAfterWriteSeconds);
+		}
+	}
+
+	/**
+	 * Returns the relative weight of the given memory cache when sharing a
+	 * {@link #setMemoryCacheTotalBudget(Integer) total budget}. Default is <code>1</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	public int getMemoryCacheWeight(MemoryCacheEnum theCache) {
+		return myMemoryCacheWeights.getOrDefault(theCache, 1);
+	}
+
+	/**
+	 * Sets the relative weight of the given memory cache when sharing a
+	 * {@link #setMemoryCacheTotalBudget(Integer) total budget}. A cache with a weight of 2 will
+	 * receive twice the share of a cache with a weight of 1 and the same hit ratio. Default is <code>1</code>.
+	 *
+	 * @since 6.6.0
+	 */
+	public void setMemoryCacheWeight(MemoryCacheEnum theCache, int theWeight) {
+		Validate.isTrue(theWeight > 0, "theWeight must be positive");
+		myMemoryCacheWeights.put(theCache, theWeight);
+	}
+
+	/**
+	 * If set, the memory caches share this total number of entries instead of
+	 * each being sized individually, and a scheduled job periodically rebalances the capacity of
+	 * each cache according to its {@link #setMemoryCacheWeight(MemoryCacheEnum, int) weight}
+	 * and observed hit ratio. Default is <code>null</code> (disabled).
+	 *
+	 * @since 6.6.0
+	 */
+	@Nullable
+	public Integer getMemoryCacheTotalBudget() {
+		return myMemoryCacheTotalBudget;
+	}
+
+	/**
+	 * If set, the memory caches share this total number of entries instead of
+	 * each being sized individually, and a scheduled job periodically rebalances the capacity of
+	 * each cache according to its {@link #setMemoryCacheWeight(MemoryCacheEnum, int) weight}
+	 * and observed hit ratio. Default is <code>null</code> (disabled).
+	 * <p>
+	 * This setting is only read at startup.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setMemoryCacheTotalBudget(@Nullable Integer theMemoryCacheTotalBudget) {
+		Validate.isTrue(theMemoryCacheTotalBudget == null || theMemoryCacheTotalBudget > 0, "theMemoryCacheTotalBudget must be positive");
+		myMemoryCacheTotalBudget = theMemoryCacheTotalBudget;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the independent <code>_include</code> and
+	 * <code>_revinclude</code> queries issued within a single include round are executed concurrently
+	 * on a bounded pool of this many threads. Each query runs in its own read-only transaction, so it
+	 * uses a separate database connection. Default is <code>1</code> (includes are loaded sequentially
+	 * in the calling transaction).
+	 *
+	 * @since 6.6.0
+	 */
+	public int getSearchIncludeThreadCount() {
+		return mySearchIncludeThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the independent <code>_include</code> and
+	 * <code>_revinclude</code> queries issued within a single include round are executed concurrently
+	 * on a bounded pool of this many threads. Each query runs in its own read-only transaction, so it
+	 * uses a separate database connection. Default is <code>1</code> (includes are loaded sequentially
+	 * in the calling transaction).
+	 * <p>
+	 * Because the concurrent queries do not share the calling transaction, they will not see
+	 * uncommitted changes made by that transaction. Make sure the connection pool is large enough
+	 * to accommodate the additional connections.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setSearchIncludeThreadCount(int theSearchIncludeThreadCount) {
+		Validate.isTrue(theSearchIncludeThreadCount > 0, "theSearchIncludeThreadCount must be positive");
+		mySearchIncludeThreadCount = theSearchIncludeThreadCount;
+	}
+
+	/**
+	 * If enabled, searches that would otherwise be executed asynchronously and have their results
+	 * stored in the search result cache are instead paged using keyset (seek) pagination, as long as
+	 * they are unsorted or sorted only by <code>_lastUpdated</code>. Each page is fetched by a fresh
+	 * query that only returns results sorting after the last result of the previous page. The
+	 * search itself is stored in the search cache so that later pages run exactly the same query,
+	 * but no search results are persisted. The page ID in the paging links only carries the
+	 * search ID and the sort keys of the last result on the previous page.
+	 * <p>
+	 * Keyset paginated searches do not report a total, do not support previous page links, and
+	 * are not reused from the search cache. Like other cached searches, they can no longer be
+	 * paged once they expire (see {@link #setExpireSearchResultsAfterMillis(long)}). Default
+	 * is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isKeysetPagingEnabled() {
+		return myKeysetPagingEnabled;
+	}
+
+	/**
+	 * If enabled, searches that would otherwise be executed asynchronously and have their results
+	 * stored in the search result cache are instead paged using keyset (seek) pagination, as long as
+	 * they are unsorted or sorted only by <code>_lastUpdated</code>. Each page is fetched by a fresh
+	 * query that only returns results sorting after the last result of the previous page. The
+	 * search itself is stored in the search cache so that later pages run exactly the same query,
+	 * but no search results are persisted. The page ID in the paging links only carries the
+	 * search ID and the sort keys of the last result on the previous page.
+	 * <p>
+	 * Keyset paginated searches do not report a total, do not support previous page links, and
+	 * are not reused from the search cache. Like other cached searches, they can no longer be
+	 * paged once they expire (see {@link #setExpireSearchResultsAfterMillis(long)}). Default
+	 * is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setKeysetPagingEnabled(boolean theKeysetPagingEnabled) {
+		myKeysetPagingEnabled = theKeysetPagingEnabled;
+	}
+
+	/**
+	 * If enabled, SNOMED CT distributions uploaded through the terminology loader are not assembled into
+	 * an in-memory concept graph. Instead, the rows of each distribution file are streamed into a staging
+	 * table using JDBC batch inserts, and the concepts and parent/child links are then resolved from the
+	 * staging table using set-based queries, so that the memory required by a load does not depend on
+	 * the size of the code system. Default is <code>false</code>.
+	 * <p>
+	 * Concepts loaded this way are indexed (and their ancestors calculated) by the regular terminology
+	 * reindexing job after the load completes.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isTerminologyStreamingLoadEnabled() {
+		return myTerminologyStreamingLoadEnabled;
+	}
+
+	/**
+	 * If enabled, SNOMED CT distributions uploaded through the terminology loader are not assembled into
+	 * an in-memory concept graph. Instead, the rows of each distribution file are streamed into a staging
+	 * table using JDBC batch inserts, and the concepts and parent/child links are then resolved from the
+	 * staging table using set-based queries, so that the memory required by a load does not depend on
+	 * the size of the code system. Default is <code>false</code>.
+	 * <p>
+	 * Concepts loaded this way are indexed (and their ancestors calculated) by the regular terminology
+	 * reindexing job after the load completes.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setTerminologyStreamingLoadEnabled(boolean theTerminologyStreamingLoadEnabled) {
+		myTerminologyStreamingLoadEnabled = theTerminologyStreamingLoadEnabled;
+	}
+
+	/**
+	 * If enabled, the conditional URLs of the entries in a FHIR transaction (i.e. the <code>ifNoneExist</code> of a
+	 * conditional create and the URL of a conditional update) are resolved in parallel before any of the entries are
+	 * written, using the thread pool configured by {@link #setBundleBatchPoolSize(Integer)}. Conditional URLs which
+	 * refer to a placeholder ID (e.g. <code>urn:uuid:...</code>) depend on the entry that the placeholder identifies,
+	 * so they are still resolved in order as the entries are written. Default is <code>false</code>.
+	 * <p>
+	 * Each thread resolves its URLs in a separate read-only database transaction, so enabling this setting
+	 * increases the number of database connections used by a transaction.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isBundleTransactionParallelMatchUrlResolutionEnabled() {
+		return myBundleTransactionParallelMatchUrlResolutionEnabled;
+	}
+
+	/**
+	 * If enabled, the conditional URLs of the entries in a FHIR transaction (i.e. the <code>ifNoneExist</code> of a
+	 * conditional create and the URL of a conditional update) are resolved in parallel before any of the entries are
+	 * written, using the thread pool configured by {@link #setBundleBatchPoolSize(Integer)}. Conditional URLs which
+	 * refer to a placeholder ID (e.g. <code>urn:uuid:...</code>) depend on the entry that the placeholder identifies,
+	 * so they are still resolved in order as the entries are written. Default is <code>false</code>.
+	 * <p>
+	 * Each thread resolves its URLs in a separate read-only database transaction, so enabling this setting
+	 * increases the number of database connections used by a transaction.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setBundleTransactionParallelMatchUrlResolutionEnabled(boolean theBundleTransactionParallelMatchUrlResolutionEnabled) {
+		myBundleTransactionParallelMatchUrlResolutionEnabled = theBundleTransactionParallelMatchUrlResolutionEnabled;
+	}
+
+	/**
+	 * If enabled, the database query for an asynchronous (paged) search runs in a read-only
+	 * transaction, and the results are written to the search cache in separate
+	 * transactions as they are loaded. Combined with a routing
+	 * {@link javax.sql.DataSource} (e.g. <code>ReadReplicaRoutingDataSource</code>), this allows
+	 * the query for a client search to be executed against a read replica. Default is <code>false</code>,
+	 * meaning that the query and the search cache writes share a single read-write transaction.
+	 * <p>
+	 * When enabled, a running search holds two database connections while it saves
+	 * results, so the connection pool may need to be sized accordingly.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isAsyncSearchReadOnlyQueryEnabled() {
+		return myAsyncSearchReadOnlyQueryEnabled;
+	}
+
+	/**
+	 * If enabled, the database query for an asynchronous (paged) search runs in a read-only
+	 * transaction, and the results are written to the search cache in separate
+	 * transactions as they are loaded. Combined with a routing
+	 * {@link javax.sql.DataSource} (e.g. <code>ReadReplicaRoutingDataSource</code>), this allows
+	 * the query for a client search to be executed against a read replica. Default is <code>false</code>,
+	 * meaning that the query and the search cache writes share a single read-write transaction.
+	 * <p>
+	 * When enabled, a running search holds two database connections while it saves
+	 * results, so the connection pool may need to be sized accordingly.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setAsyncSearchReadOnlyQueryEnabled(boolean theAsyncSearchReadOnlyQueryEnabled) {
+		myAsyncSearchReadOnlyQueryEnabled = theAsyncSearchReadOnlyQueryEnabled;
+	}
+
+	/**
+	 * If enabled, the search index rows for a resource being created, updated or reindexed are
+	 * synchronized with set-oriented writes. Rows which are no longer needed are deleted using a single
+	 * <code>DELETE ... WHERE SP_ID IN (...)</code> statement per index table instead of being removed one
+	 * by one (or reused for new rows, which requires an <code>UPDATE</code> per row), and new rows are
+	 * inserted using JDBC batching. Default is <code>false</code>.
+	 * <p>
+	 * The inserts are batched according to the Hibernate property <code>hibernate.jdbc.batch_size</code>,
+	 * which defaults to 30 when the entity manager factory is created by HAPI FHIR. If it is set to 1 or less,
+	 * the new rows are inserted one at a time.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isIndexSynchronizationBatchModeEnabled() {
+		return myIndexSynchronizationBatchModeEnabled;
+	}
+
+	/**
+	 * If enabled, the search index rows for a resource being created, updated or reindexed are
+	 * synchronized with set-oriented writes. Rows which are no longer needed are deleted using a single
+	 * <code>DELETE ... WHERE SP_ID IN (...)</code> statement per index table instead of being removed one
+	 * by one (or reused for new rows, which requires an <code>UPDATE</code> per row), and new rows are
+	 * inserted using JDBC batching. Default is <code>false</code>.
+	 * <p>
+	 * The inserts are batched according to the Hibernate property <code>hibernate.jdbc.batch_size</code>,
+	 * which defaults to 30 when the entity manager factory is created by HAPI FHIR. If it is set to 1 or less,
+	 * the new rows are inserted one at a time.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setIndexSynchronizationBatchModeEnabled(boolean theIndexSynchronizationBatchModeEnabled) {
+		myIndexSynchronizationBatchModeEnabled = theIndexSynchronizationBatchModeEnabled;
+	}
+
 	public enum StoreMetaSourceInformationEnum {
 		NONE(false, false),
 		SOURCE_URI(true, false),
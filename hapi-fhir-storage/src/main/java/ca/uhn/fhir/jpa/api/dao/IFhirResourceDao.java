@@ -349,4 +349,14 @@ public interface IFhirResourceDao<T extends IBaseResource> extends IDao {
 	 * @param theResourcePersistentId The ID
 	 */
 	void reindex(IResourcePersistentId theResourcePersistentId, RequestDetails theRequest, TransactionDetails theTransactionDetails);
+
+	/**
+	 * Rewrites the stored body of each version of the given resource which is not stored using the
+	 * currently configured resource encoding. The resource contents, versions and indexes are
+	 * not modified.
+	 *
+	 * @param theResourcePersistentId The ID
+	 * @since 6.6.0
+	 */
+	void convertResourceEncoding(IResourcePersistentId theResourcePersistentId);
 }
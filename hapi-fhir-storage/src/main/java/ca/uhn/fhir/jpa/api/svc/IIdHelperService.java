@@ -33,6 +33,7 @@ import org.hl7.fhir.instance.model.api.IIdType;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -141,6 +142,20 @@ public interface IIdHelperService<T extends IResourcePersistentId> {
 	 */
 	void addResolvedPidToForcedId(T theResourcePersistentId, @Nonnull RequestPartitionId theRequestPartitionId, String theResourceType, @Nullable String theForcedId, @Nullable Date theDeletedAt);
 
+	/**
+	 * Removes any cached lookup for the given resource once the current transaction commits. This
+	 * must be called whenever a resource is deleted or un-deleted, since cached lookups include
+	 * the deletion timestamp.
+	 */
+	void invalidateResourceLookupAfterCommit(T theResourcePersistentId, String theResourceType, String theResourceId);
+
+	/**
+	 * Removes any cached ID resolution which may refer to the given resources once the current
+	 * transaction commits. This must be called when resources are expunged, since their
+	 * forced IDs may then be reused by new resources.
+	 */
+	void invalidateExpungedIdsAfterCommit(Collection<T> theResourcePersistentIds);
+
 	@Nonnull
 	List<T> getPidsOrThrowException(RequestPartitionId theRequestPartitionId, List<IIdType> theIds);
 
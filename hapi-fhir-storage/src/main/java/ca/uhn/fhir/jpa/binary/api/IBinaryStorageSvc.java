@@ -20,6 +20,7 @@ package ca.uhn.fhir.jpa.binary.api;
  * #L%
  */
 
+import ca.uhn.fhir.jpa.binary.svc.ByteRangeOutputStream;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IIdType;
 
@@ -92,6 +93,20 @@ public interface IBinaryStorageSvc {
 	 */
 	boolean writeBlob(IIdType theResourceId, String theBlobId, OutputStream theOutputStream) throws IOException;
 
+	/**
+	 * Writes a single byte range of a blob. The default implementation writes the complete
+	 * blob and discards the bytes outside of the range, so implementations which are able to
+	 * seek within their storage should override this method.
+	 *
+	 * @param theOffset The position of the first byte to write
+	 * @param theLength The maximum number of bytes to write. Fewer bytes will be written if the blob ends before the range does.
+	 * @return Returns <code>true</code> if the blob was found and written, of <code>false</code> if the blob was not found (i.e. it was expunged or the ID was invalid)
+	 * @since 6.6.0
+	 */
+	default boolean writeBlob(IIdType theResourceId, String theBlobId, long theOffset, long theLength, OutputStream theOutputStream) throws IOException {
+		return writeBlob(theResourceId, theBlobId, new ByteRangeOutputStream(theOutputStream, theOffset, theLength));
+	}
+
 	void expungeBlob(IIdType theResourceId, String theBlobId);
 
 	/**
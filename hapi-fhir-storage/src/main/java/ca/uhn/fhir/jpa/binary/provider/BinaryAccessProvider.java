@@ -58,6 +58,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
@@ -66,11 +67,17 @@ import java.util.Optional;
 
 import static ca.uhn.fhir.util.UrlUtil.sanitizeUrlPart;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 /**
  * This plain provider class can be registered with a JPA RestfulServer
  * to provide the <code>$binary-access-read</code> and <code>$binary-access-write</code>
  * operations that can be used to access attachment data as a raw binary.
+ * <p>
+ * <code>$binary-access-read</code> supports HTTP range requests for a single
+ * byte range (e.g. <code>Range: bytes=0-1023</code>), which are answered with a
+ * <code>206 Partial Content</code> response.
+ * </p>
  */
 public class BinaryAccessProvider {
 
@@ -118,20 +125,32 @@ public class BinaryAccessProvider {
 				throw new InvalidRequestException(Msg.code(1331) + msg);
 			}
 
-			theServletResponse.setStatus(200);
+			long totalSize = blobDetails.getBytes();
+			String eTag = '"' + blobDetails.getHash() + '"';
+			ByteRange range = parseRangeHeader(theServletRequest, eTag, totalSize);
+			if (range != null && !range.isSatisfiable()) {
+				sendRangeNotSatisfiable(theRequestDetails, theServletResponse, totalSize);
+				return;
+			}
+
+			long contentLength = startResponse(theServletResponse, range, totalSize);
 			theServletResponse.setContentType(blobDetails.getContentType());
-			if (blobDetails.getBytes() <= Integer.MAX_VALUE) {
-				theServletResponse.setContentLength((int) blobDetails.getBytes());
+			if (contentLength <= Integer.MAX_VALUE) {
+				theServletResponse.setContentLength((int) contentLength);
 			}
 
 			RestfulServer server = theRequestDetails.getServer();
 			server.addHeadersToResponse(theServletResponse);
 
 			theServletResponse.addHeader(Constants.HEADER_CACHE_CONTROL, Constants.CACHE_CONTROL_PRIVATE);
-			theServletResponse.addHeader(Constants.HEADER_ETAG, '"' + blobDetails.getHash() + '"');
+			theServletResponse.addHeader(Constants.HEADER_ETAG, eTag);
 			theServletResponse.addHeader(Constants.HEADER_LAST_MODIFIED, DateUtils.formatDate(blobDetails.getPublished()));
 
-			myBinaryStorageSvc.writeBlob(theResourceId, blobId, theServletResponse.getOutputStream());
+			if (range != null) {
+				myBinaryStorageSvc.writeBlob(theResourceId, blobId, range.getStart(), range.getLength(), theServletResponse.getOutputStream());
+			} else {
+				myBinaryStorageSvc.writeBlob(theResourceId, blobId, theServletResponse.getOutputStream());
+			}
 			theServletResponse.getOutputStream().close();
 
 		} else {
@@ -144,19 +163,119 @@ public class BinaryAccessProvider {
 				throw new InvalidRequestException(Msg.code(1332) + msg);
 			}
 
-			theServletResponse.setStatus(200);
+			ByteRange range = parseRangeHeader(theServletRequest, null, data.length);
+			if (range != null && !range.isSatisfiable()) {
+				sendRangeNotSatisfiable(theRequestDetails, theServletResponse, data.length);
+				return;
+			}
+
+			long contentLength = startResponse(theServletResponse, range, data.length);
 			theServletResponse.setContentType(contentType);
-			theServletResponse.setContentLength(data.length);
+			theServletResponse.setContentLength((int) contentLength);
 
 			RestfulServer server = theRequestDetails.getServer();
 			server.addHeadersToResponse(theServletResponse);
 
-			theServletResponse.getOutputStream().write(data);
+			if (range != null) {
+				theServletResponse.getOutputStream().write(data, (int) range.getStart(), (int) range.getLength());
+			} else {
+				theServletResponse.getOutputStream().write(data);
+			}
 			theServletResponse.getOutputStream().close();
 
 		}
 	}
 
+	/**
+	 * Sets the status and range headers for a successful read
+	 *
+	 * @return Returns the number of bytes that will be sent
+	 */
+	private long startResponse(HttpServletResponse theServletResponse, @Nullable ByteRange theRange, long theTotalSize) {
+		theServletResponse.addHeader(Constants.HEADER_ACCEPT_RANGES, "bytes");
+		if (theRange == null) {
+			theServletResponse.setStatus(Constants.STATUS_HTTP_200_OK);
+			return theTotalSize;
+		}
+
+		theServletResponse.setStatus(Constants.STATUS_HTTP_206_PARTIAL_CONTENT);
+		theServletResponse.addHeader(Constants.HEADER_CONTENT_RANGE, "bytes " + theRange.getStart() + "-" + theRange.getEnd() + "/" + theTotalSize);
+		return theRange.getLength();
+	}
+
+	private void sendRangeNotSatisfiable(ServletRequestDetails theRequestDetails, HttpServletResponse theServletResponse, long theTotalSize) throws IOException {
+		theServletResponse.setStatus(Constants.STATUS_HTTP_416_RANGE_NOT_SATISFIABLE);
+		theServletResponse.addHeader(Constants.HEADER_CONTENT_RANGE, "bytes */" + theTotalSize);
+		theServletResponse.setContentLength(0);
+
+		RestfulServer server = theRequestDetails.getServer();
+		server.addHeadersToResponse(theServletResponse);
+
+		theServletResponse.getOutputStream().close();
+	}
+
+	/**
+	 * Parses the <code>Range</code> header of the request, if any.
+	 *
+	 * @param theETagOrNull The ETag of the current contents, which an <code>If-Range</code> header must match for the range to be used
+	 * @return Returns <code>null</code> if the complete contents should be sent. Headers that are malformed, or that
+	 * request more than one range, are ignored as permitted by RFC 7233.
+	 */
+	@Nullable
+	static ByteRange parseRangeHeader(HttpServletRequest theServletRequest, @Nullable String theETagOrNull, long theTotalSize) {
+		String rangeHeader = theServletRequest.getHeader(Constants.HEADER_RANGE);
+		if (isBlank(rangeHeader)) {
+			return null;
+		}
+		String ifRange = theServletRequest.getHeader(Constants.HEADER_IF_RANGE);
+		if (isNotBlank(ifRange) && !ifRange.trim().equals(theETagOrNull)) {
+			return null;
+		}
+
+		String spec = rangeHeader.trim();
+		if (!spec.startsWith("bytes=") || spec.contains(",")) {
+			return null;
+		}
+		spec = spec.substring("bytes=".length()).trim();
+		int dashIdx = spec.indexOf('-');
+		if (dashIdx == -1) {
+			return null;
+		}
+
+		String first = spec.substring(0, dashIdx).trim();
+		String last = spec.substring(dashIdx + 1).trim();
+		long start;
+		long end;
+		try {
+			if (first.isEmpty()) {
+				// Suffix range, e.g. "bytes=-500" for the last 500 bytes
+				long suffixLength = Long.parseLong(last);
+				if (suffixLength <= 0 || theTotalSize == 0) {
+					return ByteRange.NOT_SATISFIABLE;
+				}
+				start = Math.max(0, theTotalSize - suffixLength);
+				end = theTotalSize - 1;
+			} else {
+				start = Long.parseLong(first);
+				end = theTotalSize - 1;
+				if (!last.isEmpty()) {
+					long requestedEnd = Long.parseLong(last);
+					if (requestedEnd < start) {
+						return null;
+					}
+					end = Math.min(requestedEnd, end);
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		if (start < 0 || start >= theTotalSize) {
+			return ByteRange.NOT_SATISFIABLE;
+		}
+		return new ByteRange(start, end);
+	}
+
 	/**
 	 * $binary-access-write
 	 */
@@ -370,6 +489,38 @@ public class BinaryAccessProvider {
 	}
 
 
+	/**
+	 * A single byte range, with inclusive start and end positions
+	 */
+	static class ByteRange {
+
+		static final ByteRange NOT_SATISFIABLE = new ByteRange(-1, -1);
+
+		private final long myStart;
+		private final long myEnd;
+
+		ByteRange(long theStart, long theEnd) {
+			myStart = theStart;
+			myEnd = theEnd;
+		}
+
+		boolean isSatisfiable() {
+			return this != NOT_SATISFIABLE;
+		}
+
+		long getStart() {
+			return myStart;
+		}
+
+		long getEnd() {
+			return myEnd;
+		}
+
+		long getLength() {
+			return myEnd - myStart + 1;
+		}
+	}
+
 	@VisibleForTesting
 	public void setDaoRegistryForUnitTest(DaoRegistry theDaoRegistry) {
 		myDaoRegistry = theDaoRegistry;
@@ -0,0 +1,76 @@
+package ca.uhn.fhir.jpa.binary.svc;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} which only passes a single byte range of the data written
+ * to it through to the wrapped stream, and silently discards everything else. This
+ * can be used to serve a range of a blob using a storage service which can only
+ * write out the complete blob.
+ *
+ * @since 6.6.0
+ */
+public class ByteRangeOutputStream extends FilterOutputStream {
+
+	private final long myStart;
+	private final long myEnd;
+	private long myPosition;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theOutputStream The stream to write the range to
+	 * @param theOffset       The position of the first byte to pass through
+	 * @param theLength       The number of bytes to pass through
+	 */
+	public ByteRangeOutputStream(OutputStream theOutputStream, long theOffset, long theLength) {
+		super(theOutputStream);
+		Validate.isTrue(theOffset >= 0, "theOffset must not be negative");
+		Validate.isTrue(theLength >= 0, "theLength must not be negative");
+		myStart = theOffset;
+		myEnd = theLength > Long.MAX_VALUE - theOffset ? Long.MAX_VALUE : theOffset + theLength;
+	}
+
+	@Override
+	public void write(int theByte) throws IOException {
+		if (myPosition >= myStart && myPosition < myEnd) {
+			out.write(theByte);
+		}
+		myPosition++;
+	}
+
+	@Override
+	public void write(byte[] theBytes, int theOffset, int theLength) throws IOException {
+		long from = Math.max(myPosition, myStart);
+		long to = Math.min(myPosition + theLength, myEnd);
+		if (from < to) {
+			out.write(theBytes, theOffset + (int) (from - myPosition), (int) (to - from));
+		}
+		myPosition += theLength;
+	}
+
+}
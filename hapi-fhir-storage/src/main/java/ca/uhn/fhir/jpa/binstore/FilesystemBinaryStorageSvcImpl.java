@@ -24,8 +24,12 @@ import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.jpa.binary.svc.BaseBinaryStorageSvcImpl;
+import ca.uhn.fhir.model.api.IModelJson;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Charsets;
@@ -40,9 +44,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -50,13 +56,59 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 	private static final Logger ourLog = LoggerFactory.getLogger(FilesystemBinaryStorageSvcImpl.class);
+	private static final String CONTENT_DIRECTORY = "content";
+	private static final String INDEX_FILENAME = "blob-index.ndjson";
+	private static final String INDEX_LOCK_FILENAME = "blob-index.lock";
+	private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+	private static final Pattern CONTENT_HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
 	private final File myBasePath;
 	private final ObjectMapper myJsonSerializer;
+	private final ObjectMapper myIndexSerializer;
+	/**
+	 * Guards changes to the index, the reference counts and the index file. Lookups don't need it.
+	 */
+	private final Object myIndexLock = new Object();
+	/**
+	 * Guards syncing the index file. Never acquired while holding {@link #myIndexLock}.
+	 */
+	private final Object myIndexSyncLock = new Object();
+	private boolean myContentAddressedStorageEnabled;
+	private volatile Map<String, StoredDetails> myIndex;
+	private Map<String, Integer> myContentReferenceCounts;
+	private FileChannel myIndexChannel;
+	private FileChannel myIndexLockChannel;
+	private long myIndexWriteSequence;
+	private long myIndexSyncedSequence;
 
 	public FilesystemBinaryStorageSvcImpl(String theBasePath) {
 		Validate.notBlank(theBasePath);
@@ -67,9 +119,104 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		myJsonSerializer.setSerializationInclusion(JsonInclude.Include.NON_NULL);
 		myJsonSerializer.enable(SerializationFeature.INDENT_OUTPUT);
 
+		myIndexSerializer = new ObjectMapper();
+		myIndexSerializer.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
 		createBasePathDirectory();
 	}
 
+	/**
+	 * If enabled (default is <code>false</code>), new blobs are stored under the SHA-256 hash of their
+	 * contents in a sharded directory tree, so blobs with identical contents are stored only once.
+	 * Instead of writing a JSON descriptor file for each blob, blob details are recorded in a single
+	 * append-only index file, which is compacted when it is loaded. This keeps the number of files
+	 * (and inodes) proportional to the number of distinct blobs.
+	 * <p>
+	 * Blobs stored before this mode was enabled can still be read and expunged. Blobs stored while
+	 * this mode is enabled can only be read while it remains enabled.
+	 * </p>
+	 * <p>
+	 * This mode is <b>single-node only</b>. The index and the reference counts of the stored contents
+	 * are held in memory, so a base path in this mode may only be used by a single process (and a
+	 * single instance of this service), and must not be shared between the nodes of a cluster. This
+	 * is enforced with an exclusive OS file lock, and the service fails to start with error
+	 * <code>HAPI-2310</code> if another process already holds it. File locks are unreliable on some
+	 * network filesystems such as NFS, so this check can not be relied upon to detect a base path
+	 * which is shared between nodes on such a filesystem.
+	 * </p>
+	 * <p>
+	 * Stored contents which are not referenced by the index, e.g. because of a crash after the
+	 * contents were stored but before the index was updated, are deleted when the index is loaded.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public boolean isContentAddressedStorageEnabled() {
+		return myContentAddressedStorageEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), new blobs are stored under the SHA-256 hash of their
+	 * contents in a sharded directory tree, so blobs with identical contents are stored only once.
+	 * Instead of writing a JSON descriptor file for each blob, blob details are recorded in a single
+	 * append-only index file, which is compacted when it is loaded. This keeps the number of files
+	 * (and inodes) proportional to the number of distinct blobs.
+	 * <p>
+	 * Blobs stored before this mode was enabled can still be read and expunged. Blobs stored while
+	 * this mode is enabled can only be read while it remains enabled.
+	 * </p>
+	 * <p>
+	 * This mode is <b>single-node only</b>. The index and the reference counts of the stored contents
+	 * are held in memory, so a base path in this mode may only be used by a single process (and a
+	 * single instance of this service), and must not be shared between the nodes of a cluster. This
+	 * is enforced with an exclusive OS file lock, and the service fails to start with error
+	 * <code>HAPI-2310</code> if another process already holds it. File locks are unreliable on some
+	 * network filesystems such as NFS, so this check can not be relied upon to detect a base path
+	 * which is shared between nodes on such a filesystem.
+	 * </p>
+	 * <p>
+	 * Stored contents which are not referenced by the index, e.g. because of a crash after the
+	 * contents were stored but before the index was updated, are deleted when the index is loaded.
+	 * </p>
+	 *
+	 * @since 6.6.0
+	 */
+	public void setContentAddressedStorageEnabled(boolean theContentAddressedStorageEnabled) {
+		myContentAddressedStorageEnabled = theContentAddressedStorageEnabled;
+	}
+
+	/**
+	 * Loads the content-addressed storage index, if that mode is enabled, so that the service fails
+	 * at startup rather than on first use if the base path is in use by another process
+	 */
+	@PostConstruct
+	public void start() throws IOException {
+		if (myContentAddressedStorageEnabled) {
+			synchronized (myIndexLock) {
+				getIndex();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		synchronized (myIndexSyncLock) {
+			synchronized (myIndexLock) {
+				if (myIndexChannel != null) {
+					myIndexChannel.close();
+					myIndexChannel = null;
+				}
+				if (myIndexLockChannel != null) {
+					// Closing the channel releases the lock
+					myIndexLockChannel.close();
+					myIndexLockChannel = null;
+				}
+				myIndex = null;
+				myContentReferenceCounts = null;
+			}
+		}
+	}
+
 	private void createBasePathDirectory() {
 		ourLog.info("Starting binary storage service with base path: {}", myBasePath);
 
@@ -78,6 +225,10 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 	@Override
 	public StoredDetails storeBlob(IIdType theResourceId, String theBlobIdOrNull, String theContentType, InputStream theInputStream) throws IOException {
+		if (myContentAddressedStorageEnabled) {
+			return storeContentAddressedBlob(theResourceId, theBlobIdOrNull, theContentType, theInputStream);
+		}
+
 		String id = super.provideIdForNewBlob(theBlobIdOrNull);
 		File storagePath = getStoragePath(id, true);
 
@@ -104,8 +255,81 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		return details;
 	}
 
+	/**
+	 * The contents are written to a temporary file and synced before being moved into place, and the
+	 * index record is synced before this method returns. The resource referencing the blob is saved
+	 * as soon as this method returns, so it must never be possible for it to refer to a blob that
+	 * would be lost in a crash. The index file is synced after releasing {@link #myIndexLock}, so that
+	 * concurrent stores can share a single sync.
+	 */
+	private StoredDetails storeContentAddressedBlob(IIdType theResourceId, String theBlobIdOrNull, String theContentType, InputStream theInputStream) throws IOException {
+		String id = super.provideIdForNewBlob(theBlobIdOrNull);
+
+		File contentDirectory = new File(myBasePath, CONTENT_DIRECTORY);
+		mkdir(contentDirectory);
+		Path tempFile = Files.createTempFile(contentDirectory.toPath(), "upload-", ".tmp");
+		try {
+			CountingInputStream countingInputStream = createCountingInputStream(theInputStream);
+			HashingInputStream hashingInputStream = createHashingInputStream(countingInputStream);
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+				  ReadableByteChannel source = Channels.newChannel(hashingInputStream)) {
+				long position = 0;
+				long count;
+				while ((count = channel.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+					position += count;
+				}
+				channel.force(false);
+			}
+
+			StoredDetails details = new StoredDetails()
+				.setBlobId(id)
+				.setBytes(countingInputStream.getByteCount())
+				.setContentType(theContentType)
+				.setHash(hashingInputStream.hash().toString())
+				.setPublished(new Date());
+
+			String key = toIndexKey(theResourceId, id);
+			long sequence;
+			StoredDetails previous;
+			synchronized (myIndexLock) {
+				// Load the index first, since loading it deletes any contents that it doesn't reference
+				Map<String, StoredDetails> index = getIndex();
+
+				File contentFile = getContentFile(details.getHash());
+				if (!contentFile.exists()) {
+					mkdir(contentFile.getParentFile());
+					Files.move(tempFile, contentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				}
+
+				sequence = writeToIndex(Collections.singletonList(new IndexRecord(IndexRecord.OP_PUT, key, details)), myIndexChannel);
+				// Add the new reference before releasing any previous one in case they are for the same contents
+				myContentReferenceCounts.merge(details.getHash(), 1, Integer::sum);
+				previous = index.put(key, details);
+				if (previous != null) {
+					releaseReference(previous.getHash());
+				}
+			}
+			syncIndex(sequence);
+			if (previous != null) {
+				deleteContentIfUnreferenced(previous.getHash());
+			}
+
+			ourLog.info("Stored binary blob with {} bytes and ContentType {} for resource {}", details.getBytes(), theContentType, theResourceId);
+			return details;
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
 	@Override
 	public StoredDetails fetchBlobDetails(IIdType theResourceId, String theBlobId) throws IOException {
+		if (myContentAddressedStorageEnabled) {
+			StoredDetails details = getIndexEntry(theResourceId, theBlobId);
+			if (details != null) {
+				return details;
+			}
+		}
+
 		StoredDetails retVal = null;
 
 		File storagePath = getStoragePath(theBlobId, false);
@@ -125,35 +349,95 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 	@Override
 	public boolean writeBlob(IIdType theResourceId, String theBlobId, OutputStream theOutputStream) throws IOException {
-		InputStream inputStream = getInputStream(theResourceId, theBlobId);
+		boolean retVal = writeBlob(theResourceId, theBlobId, 0, Long.MAX_VALUE, theOutputStream);
+		if (retVal) {
+			theOutputStream.close();
+		}
+		return retVal;
+	}
 
-		if (inputStream != null) {
-			try {
-				IOUtils.copy(inputStream, theOutputStream);
-				theOutputStream.close();
-			} finally {
-				inputStream.close();
+	/**
+	 * Data is copied using {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which
+	 * avoids copying through the heap where the platform supports it and seeks directly to the
+	 * start of the range.
+	 */
+	@Override
+	public boolean writeBlob(IIdType theResourceId, String theBlobId, long theOffset, long theLength, OutputStream theOutputStream) throws IOException {
+		Validate.isTrue(theOffset >= 0, "theOffset must not be negative");
+		Validate.isTrue(theLength >= 0, "theLength must not be negative");
+
+		File file = getDataFile(theResourceId, theBlobId);
+		if (file == null) {
+			return false;
+		}
+
+		try (FileChannel channel = openForRead(file)) {
+			if (channel == null) {
+				return false;
+			}
+			WritableByteChannel target = Channels.newChannel(theOutputStream);
+			long end = Math.min(channel.size(), theLength > Long.MAX_VALUE - theOffset ? Long.MAX_VALUE : theOffset + theLength);
+			long position = theOffset;
+			while (position < end) {
+				long count = channel.transferTo(position, end - position, target);
+				if (count <= 0) {
+					break;
+				}
+				position += count;
 			}
 		}
 
-		return false;
+		return true;
 	}
 
+	/**
+	 * @return Returns a channel for reading the given file, or <code>null</code> if the file no longer exists
+	 * because the blob was expunged after it was looked up
+	 */
 	@Nullable
-	private InputStream getInputStream(IIdType theResourceId, String theBlobId) throws FileNotFoundException {
+	private FileChannel openForRead(File theFile) throws IOException {
+		try {
+			return FileChannel.open(theFile.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			ourLog.debug("File {} was deleted while it was being opened", theFile);
+			return null;
+		}
+	}
+
+	/**
+	 * @return Returns the file holding the contents of the given blob, or <code>null</code> if the blob doesn't exist
+	 */
+	@Nullable
+	private File getDataFile(IIdType theResourceId, String theBlobId) throws IOException {
+		if (myContentAddressedStorageEnabled) {
+			StoredDetails details = getIndexEntry(theResourceId, theBlobId);
+			if (details != null) {
+				return getContentFile(details.getHash());
+			}
+		}
+
 		File storagePath = getStoragePath(theBlobId, false);
-		InputStream inputStream = null;
 		if (storagePath != null) {
 			File file = getStorageFilename(storagePath, theResourceId, theBlobId);
 			if (file.exists()) {
-				inputStream = new FileInputStream(file);
+				return file;
 			}
 		}
-		return inputStream;
+		return null;
 	}
 
 	@Override
 	public void expungeBlob(IIdType theResourceId, String theBlobId) {
+		if (myContentAddressedStorageEnabled) {
+			try {
+				if (expungeIndexEntry(toIndexKey(theResourceId, theBlobId))) {
+					return;
+				}
+			} catch (IOException e) {
+				throw new InternalErrorException(Msg.code(2309) + "Failed to expunge blob " + theBlobId + ": " + e);
+			}
+		}
+
 		File storagePath = getStoragePath(theBlobId, false);
 		if (storagePath != null) {
 			File storageFile = getStorageFilename(storagePath, theResourceId, theBlobId);
@@ -169,16 +453,250 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 	@Override
 	public byte[] fetchBlob(IIdType theResourceId, String theBlobId) throws IOException {
-		StoredDetails details = fetchBlobDetails(theResourceId, theBlobId);
-		try (InputStream inputStream = getInputStream(theResourceId, theBlobId)) {
+		File file = getDataFile(theResourceId, theBlobId);
+		if (file != null) {
+			try {
+				return Files.readAllBytes(file.toPath());
+			} catch (NoSuchFileException e) {
+				ourLog.debug("Blob {} was expunged while it was being fetched", theBlobId);
+			}
+		}
 
-			if (inputStream != null) {
-				return IOUtils.toByteArray(inputStream, details.getBytes());
+		throw new ResourceNotFoundException(Msg.code(1327) + "Unknown blob ID: " + theBlobId + " for resource ID " + theResourceId);
+	}
+
+	@Nullable
+	private StoredDetails getIndexEntry(IIdType theResourceId, String theBlobId) throws IOException {
+		Map<String, StoredDetails> index = myIndex;
+		if (index == null) {
+			synchronized (myIndexLock) {
+				index = getIndex();
 			}
+		}
+		return index.get(toIndexKey(theResourceId, theBlobId));
+	}
 
+	/**
+	 * The contents are only deleted once the index record for the removal has been synced, so a
+	 * crash can never leave the index referring to contents which no longer exist
+	 *
+	 * @return Returns <code>false</code> if there was no entry with the given key
+	 */
+	private boolean expungeIndexEntry(String theKey) throws IOException {
+		long sequence;
+		StoredDetails removed;
+		synchronized (myIndexLock) {
+			Map<String, StoredDetails> index = getIndex();
+			if (!index.containsKey(theKey)) {
+				return false;
+			}
+
+			sequence = writeToIndex(Collections.singletonList(new IndexRecord(IndexRecord.OP_DELETE, theKey, null)), myIndexChannel);
+			removed = index.remove(theKey);
+			releaseReference(removed.getHash());
 		}
+		syncIndex(sequence);
+		deleteContentIfUnreferenced(removed.getHash());
+		return true;
+	}
 
-		throw new ResourceNotFoundException(Msg.code(1327) + "Unknown blob ID: " + theBlobId + " for resource ID " + theResourceId);
+	/**
+	 * Must be called while holding {@link #myIndexLock}
+	 */
+	private void releaseReference(String theHash) {
+		int remaining = myContentReferenceCounts.merge(theHash, -1, Integer::sum);
+		if (remaining <= 0) {
+			myContentReferenceCounts.remove(theHash);
+		}
+	}
+
+	/**
+	 * The contents may have been referenced again since their last reference was released, in which
+	 * case they are kept
+	 */
+	private void deleteContentIfUnreferenced(String theHash) throws IOException {
+		synchronized (myIndexLock) {
+			if (myContentReferenceCounts != null && !myContentReferenceCounts.containsKey(theHash)) {
+				Files.deleteIfExists(getContentFile(theHash).toPath());
+			}
+		}
+	}
+
+	/**
+	 * Syncs the index file up to at least the record with the given sequence number. A thread which
+	 * finds that another thread's sync already covered its record returns immediately, so concurrent
+	 * writers share a single sync (group commit).
+	 */
+	private void syncIndex(long theSequence) throws IOException {
+		synchronized (myIndexSyncLock) {
+			if (myIndexSyncedSequence >= theSequence) {
+				return;
+			}
+			long writtenSequence;
+			FileChannel channel;
+			synchronized (myIndexLock) {
+				writtenSequence = myIndexWriteSequence;
+				channel = myIndexChannel;
+			}
+			if (channel == null) {
+				throw new IOException("Binary storage index was closed before it could be synced");
+			}
+			channel.force(false);
+			myIndexSyncedSequence = writtenSequence;
+		}
+	}
+
+	/**
+	 * Must be called while holding {@link #myIndexLock}. The index is loaded by replaying the
+	 * index file, which is rewritten without the superseded records if there are any.
+	 */
+	private Map<String, StoredDetails> getIndex() throws IOException {
+		if (myIndex == null) {
+			lockIndex();
+
+			Path indexFile = new File(myBasePath, INDEX_FILENAME).toPath();
+			Map<String, StoredDetails> index = new ConcurrentHashMap<>();
+			int recordCount = 0;
+			if (Files.exists(indexFile)) {
+				try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (isBlank(line)) {
+							continue;
+						}
+						recordCount++;
+
+						IndexRecord record;
+						try {
+							record = myIndexSerializer.readValue(line, IndexRecord.class);
+						} catch (JsonProcessingException e) {
+							// e.g. a partially written record at the end of the file following a crash
+							ourLog.warn("Ignoring unreadable record in binary storage index {}: {}", indexFile, e.toString());
+							continue;
+						}
+
+						if (IndexRecord.OP_PUT.equals(record.getOperation())) {
+							index.put(record.getKey(), record.getDetails());
+						} else {
+							index.remove(record.getKey());
+						}
+					}
+				}
+			}
+
+			if (recordCount > index.size()) {
+				ourLog.info("Compacting binary storage index {} from {} to {} records", indexFile, recordCount, index.size());
+				Path tempFile = new File(myBasePath, INDEX_FILENAME + ".tmp").toPath();
+				try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					List<IndexRecord> records = index
+						.entrySet()
+						.stream()
+						.map(t -> new IndexRecord(IndexRecord.OP_PUT, t.getKey(), t.getValue()))
+						.collect(Collectors.toList());
+					writeToIndex(records, channel);
+					channel.force(false);
+				}
+				Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+
+			Map<String, Integer> referenceCounts = new HashMap<>();
+			for (StoredDetails next : index.values()) {
+				referenceCounts.merge(next.getHash(), 1, Integer::sum);
+			}
+			deleteUnreferencedContent(referenceCounts.keySet());
+
+			myIndexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			myContentReferenceCounts = referenceCounts;
+			myIndex = index;
+		}
+		return myIndex;
+	}
+
+	/**
+	 * Takes an exclusive OS lock on a file beside the index, which is held until {@link #stop()}. A
+	 * separate file is locked because the index file itself is replaced when it is compacted.
+	 */
+	private void lockIndex() throws IOException {
+		if (myIndexLockChannel != null) {
+			return;
+		}
+
+		Path lockFile = new File(myBasePath, INDEX_LOCK_FILENAME).toPath();
+		FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// Already held by another instance within this JVM
+			lock = null;
+		}
+		if (lock == null) {
+			channel.close();
+			throw new ConfigurationException(Msg.code(2310) + "Binary storage index in " + myBasePath + " is locked by another process. Content-addressed binary storage may only be used by a single process.");
+		}
+		myIndexLockChannel = channel;
+	}
+
+	/**
+	 * Must be called while holding {@link #myIndexLock}. Deletes stored contents which the index
+	 * doesn't reference, which are left behind if the process stops after contents are moved into
+	 * place but before their index record is written.
+	 */
+	private void deleteUnreferencedContent(Set<String> theReferencedHashes) throws IOException {
+		Path contentDirectory = new File(myBasePath, CONTENT_DIRECTORY).toPath();
+		if (!Files.isDirectory(contentDirectory)) {
+			return;
+		}
+
+		List<Path> unreferenced;
+		try (Stream<Path> files = Files.walk(contentDirectory, 3)) {
+			unreferenced = files
+				.filter(t -> CONTENT_HASH_PATTERN.matcher(t.getFileName().toString()).matches())
+				.filter(t -> !theReferencedHashes.contains(t.getFileName().toString()))
+				.filter(Files::isRegularFile)
+				.collect(Collectors.toList());
+		}
+		for (Path next : unreferenced) {
+			Files.deleteIfExists(next);
+		}
+		if (!unreferenced.isEmpty()) {
+			ourLog.info("Deleted {} unreferenced content files from binary storage in {}", unreferenced.size(), contentDirectory);
+		}
+	}
+
+	/**
+	 * Must be called while holding {@link #myIndexLock}. The records are not synced.
+	 *
+	 * @return Returns the sequence number of the last record written, for {@link #syncIndex(long)}
+	 */
+	private long writeToIndex(Collection<IndexRecord> theRecords, FileChannel theChannel) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (IndexRecord next : theRecords) {
+			lines.append(myIndexSerializer.writeValueAsString(next)).append('\n');
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			theChannel.write(buffer);
+		}
+		return ++myIndexWriteSequence;
+	}
+
+	private String toIndexKey(IIdType theResourceId, String theBlobId) {
+		Validate.notBlank(theResourceId.getResourceType());
+		Validate.notBlank(theResourceId.getIdPart());
+		return theResourceId.getResourceType() + "/" + theResourceId.getIdPart() + "|" + theBlobId;
+	}
+
+	/**
+	 * Contents are sharded into two levels of directories using the first four characters of their hash
+	 */
+	@Nonnull
+	private File getContentFile(String theHash) {
+		Validate.isTrue(CONTENT_HASH_PATTERN.matcher(theHash).matches(), "Invalid content hash: %s", theHash);
+		File path = new File(myBasePath, CONTENT_DIRECTORY);
+		path = new File(path, theHash.substring(0, 2));
+		path = new File(path, theHash.substring(2, 4));
+		return new File(path, theHash);
 	}
 
 	private void delete(File theStorageFile, String theBlobId) {
@@ -225,4 +743,50 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 			throw new ConfigurationException(Msg.code(1328) + "Unable to create path " + myBasePath + ": " + e.toString());
 		}
 	}
+
+	/**
+	 * A single line in the content-addressed storage index file
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	static class IndexRecord implements IModelJson {
+
+		static final String OP_PUT = "put";
+		static final String OP_DELETE = "delete";
+
+		@JsonProperty("op")
+		private String myOperation;
+		@JsonProperty("key")
+		private String myKey;
+		@JsonProperty("details")
+		private StoredDetails myDetails;
+
+		/**
+		 * Constructor
+		 */
+		@SuppressWarnings("unused")
+		IndexRecord() {
+			super();
+		}
+
+		/**
+		 * Constructor
+		 */
+		IndexRecord(String theOperation, String theKey, StoredDetails theDetails) {
+			myOperation = theOperation;
+			myKey = theKey;
+			myDetails = theDetails;
+		}
+
+		String getOperation() {
+			return myOperation;
+		}
+
+		String getKey() {
+			return myKey;
+		}
+
+		StoredDetails getDetails() {
+			return myDetails;
+		}
+	}
 }
@@ -181,7 +181,7 @@ public abstract class BaseTransactionProcessor {
 		myVersionAdapter = theVersionAdapter;
 	}
 
-	private TaskExecutor getTaskExecutor() {
+	protected TaskExecutor getTaskExecutor() {
 		if (myExecutor == null) {
 			myExecutor = myThreadPoolFactory.newThreadPool(myStorageSettings.getBundleBatchPoolSize(), myStorageSettings.getBundleBatchMaxPoolSize(), "bundle-batch-");
 		}
@@ -402,6 +402,10 @@ public abstract class BaseTransactionProcessor {
 		return response;
 	}
 
+	protected HapiTransactionService getHapiTransactionService() {
+		return myHapiTransactionService;
+	}
+
 	@VisibleForTesting
 	public void setHapiTransactionService(HapiTransactionService theHapiTransactionService) {
 		myHapiTransactionService = theHapiTransactionService;
@@ -31,6 +31,7 @@ import ca.uhn.fhir.rest.param.DateRangeParam;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import java.util.Collection;
 import java.util.List;
@@ -47,8 +48,17 @@ public interface ISearchBuilder<T extends IResourcePersistentId> {
 
 	void loadResourcesByPid(Collection<T> thePids, Collection<T> theIncludedPids, List<IBaseResource> theResourceListToPopulate, boolean theForHistoryOperation, RequestDetails theDetails);
 
+	default Set<T> loadIncludes(FhirContext theContext, EntityManager theEntityManager, Collection<T> theMatches, Collection<Include> theRevIncludes, boolean theReverseMode,
+										 DateRangeParam theLastUpdated, String theSearchIdOrDescription, RequestDetails theRequest, Integer theMaxCount) {
+		return loadIncludes(theContext, theEntityManager, theMatches, theRevIncludes, theReverseMode, theLastUpdated, theSearchIdOrDescription, theRequest, theMaxCount, null);
+	}
+
+	/**
+	 * @param theSearchRuntimeDetails If provided, the time spent querying for each include is added to these details
+	 * @since 6.6.0
+	 */
 	Set<T> loadIncludes(FhirContext theContext, EntityManager theEntityManager, Collection<T> theMatches, Collection<Include> theRevIncludes, boolean theReverseMode,
-														DateRangeParam theLastUpdated, String theSearchIdOrDescription, RequestDetails theRequest, Integer theMaxCount);
+							  DateRangeParam theLastUpdated, String theSearchIdOrDescription, RequestDetails theRequest, Integer theMaxCount, @Nullable SearchRuntimeDetails theSearchRuntimeDetails);
 
 	/**
 	 * How many results may be fetched at once
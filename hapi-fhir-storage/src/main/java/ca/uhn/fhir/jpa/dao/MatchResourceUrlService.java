@@ -32,6 +32,7 @@ import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.util.MemoryCacheEnum;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.IPreResourceShowDetails;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
@@ -50,6 +51,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -155,7 +157,7 @@ public class MatchResourceUrlService<T extends IResourcePersistentId> {
 			T pid = retVal.iterator().next();
 			theTransactionDetails.addResolvedMatchUrl(matchUrl, pid);
 			if (myStorageSettings.isMatchUrlCacheEnabled()) {
-				myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.MATCH_URL, matchUrl, pid);
+				myMemoryCacheService.putAfterCommit(MemoryCacheEnum.MATCH_URL, matchUrl, pid);
 			}
 		}
 
@@ -187,7 +189,7 @@ public class MatchResourceUrlService<T extends IResourcePersistentId> {
 		T existing = null;
 		if (myStorageSettings.isMatchUrlCacheEnabled()) {
 			String matchUrl = massageForStorage(theResourceType, theMatchUrl);
-			existing = myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, matchUrl);
+			existing = myMemoryCacheService.getIfPresent(MemoryCacheEnum.MATCH_URL, matchUrl);
 		}
 		return existing;
 	}
@@ -213,13 +215,31 @@ public class MatchResourceUrlService<T extends IResourcePersistentId> {
 	}
 
 
+	/**
+	 * Removes every cached match URL resolution which points to one of the given resources once
+	 * the current transaction commits. This is called when resources are deleted or expunged.
+	 * Updates to resources do not invalidate this cache (see
+	 * {@link JpaStorageSettings#setMatchUrlCacheEnabled(boolean)}).
+	 */
+	public void invalidateMatchUrlsAfterCommit(Collection<T> theResourcePersistentIds) {
+		if (myStorageSettings.isMatchUrlCacheEnabled()) {
+			List<Long> resourcePids = theResourcePersistentIds
+				.stream()
+				.map(IResourcePersistentId::getId)
+				.filter(Long.class::isInstance)
+				.map(Long.class::cast)
+				.collect(Collectors.toList());
+			myMemoryCacheService.invalidateResourcePidsAfterCommit(MemoryCacheEnum.MATCH_URL, resourcePids);
+		}
+	}
+
 	public void matchUrlResolved(TransactionDetails theTransactionDetails, String theResourceType, String theMatchUrl, T theResourcePersistentId) {
 		Validate.notBlank(theMatchUrl);
 		Validate.notNull(theResourcePersistentId);
 		String matchUrl = massageForStorage(theResourceType, theMatchUrl);
 		theTransactionDetails.addResolvedMatchUrl(matchUrl, theResourcePersistentId);
 		if (myStorageSettings.isMatchUrlCacheEnabled()) {
-			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.MATCH_URL, matchUrl, theResourcePersistentId);
+			myMemoryCacheService.putAfterCommit(MemoryCacheEnum.MATCH_URL, matchUrl, theResourcePersistentId);
 		}
 	}
 
@@ -47,6 +47,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
@@ -69,6 +70,7 @@ public class HapiTransactionService implements IHapiTransactionService {
 	public static final String XACT_USERDATA_KEY_EXISTING_SEARCH_PARAMS = HapiTransactionService.class.getName() + "_EXISTING_SEARCH_PARAMS";
 	private static final Logger ourLog = LoggerFactory.getLogger(HapiTransactionService.class);
 	private static final ThreadLocal<RequestPartitionId> ourRequestPartitionThreadLocal = new ThreadLocal<>();
+	private static final ThreadLocal<Boolean> ourStartingReadReplicaTransactionThreadLocal = new ThreadLocal<>();
 	@Autowired
 	protected IInterceptorBroadcaster myInterceptorBroadcaster;
 	@Autowired
@@ -298,7 +300,11 @@ public class HapiTransactionService implements IHapiTransactionService {
 	@Nullable
 	protected <T> T doExecuteCallback(ExecutionBuilder theExecutionBuilder, TransactionCallback<T> theCallback) {
 		try {
-			TransactionTemplate txTemplate = new TransactionTemplate(myTransactionManager);
+			PlatformTransactionManager transactionManager = myTransactionManager;
+			if (theExecutionBuilder.myReadReplicaAllowed) {
+				transactionManager = new ReadReplicaStartFlaggingTransactionManager(myTransactionManager);
+			}
+			TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
 
 			if (theExecutionBuilder.myPropagation != null) {
 				txTemplate.setPropagationBehavior(theExecutionBuilder.myPropagation.value());
@@ -328,6 +334,7 @@ public class HapiTransactionService implements IHapiTransactionService {
 		private Isolation myIsolation;
 		private Propagation myPropagation;
 		private boolean myReadOnly;
+		private boolean myReadReplicaAllowed;
 		private TransactionDetails myTransactionDetails;
 		private Runnable myOnRollback;
 		private RequestPartitionId myRequestPartitionId;
@@ -370,6 +377,13 @@ public class HapiTransactionService implements IHapiTransactionService {
 			return this;
 		}
 
+		@Override
+		public ExecutionBuilder allowReadReplica() {
+			myReadOnly = true;
+			myReadReplicaAllowed = true;
+			return this;
+		}
+
 		@Override
 		public ExecutionBuilder onRollback(Runnable theOnRollback) {
 			assert myOnRollback == null;
@@ -401,6 +415,41 @@ public class HapiTransactionService implements IHapiTransactionService {
 
 	}
 
+	/**
+	 * Flags the current thread for {@link #isStartingReadReplicaTransaction()} while
+	 * a transaction is being started
+	 */
+	private static class ReadReplicaStartFlaggingTransactionManager implements PlatformTransactionManager {
+
+		private final PlatformTransactionManager myDelegate;
+
+		private ReadReplicaStartFlaggingTransactionManager(PlatformTransactionManager theDelegate) {
+			myDelegate = theDelegate;
+		}
+
+		@Nonnull
+		@Override
+		public TransactionStatus getTransaction(@Nullable TransactionDefinition theDefinition) {
+			Boolean previous = ourStartingReadReplicaTransactionThreadLocal.get();
+			ourStartingReadReplicaTransactionThreadLocal.set(Boolean.TRUE);
+			try {
+				return myDelegate.getTransaction(theDefinition);
+			} finally {
+				ourStartingReadReplicaTransactionThreadLocal.set(previous);
+			}
+		}
+
+		@Override
+		public void commit(@Nonnull TransactionStatus theStatus) {
+			myDelegate.commit(theStatus);
+		}
+
+		@Override
+		public void rollback(@Nonnull TransactionStatus theStatus) {
+			myDelegate.rollback(theStatus);
+		}
+	}
+
 	/**
 	 * This is just an unchecked exception so that we can catch checked exceptions inside TransactionTemplate
 	 * and rethrow them outside of it
@@ -457,6 +506,20 @@ public class HapiTransactionService implements IHapiTransactionService {
 		return ourRequestPartitionThreadLocal.get();
 	}
 
+	/**
+	 * Returns <code>true</code> if the current thread is starting a new transaction for an
+	 * execution which {@link IExecutionBuilder#allowReadReplica() allows a read replica}. The transaction manager
+	 * obtains the database connection for a new transaction while it is being started, so
+	 * a routing {@link javax.sql.DataSource} can use this to send that work to a
+	 * read replica. Connections obtained once the transaction has started (e.g. for a
+	 * nested transaction with {@link Propagation#REQUIRES_NEW}) are not affected.
+	 *
+	 * @since 6.6.0
+	 */
+	public static boolean isStartingReadReplicaTransaction() {
+		return Boolean.TRUE.equals(ourStartingReadReplicaTransactionThreadLocal.get());
+	}
+
 	/**
 	 * Throws an {@link IllegalArgumentException} if a transaction is active
 	 */
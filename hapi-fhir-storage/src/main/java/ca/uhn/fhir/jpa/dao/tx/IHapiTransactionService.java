@@ -67,6 +67,18 @@ public interface IHapiTransactionService {
 
 		IExecutionBuilder readOnly();
 
+		/**
+		 * Runs this execution in a {@link #readOnly() read-only} transaction, and allows a routing
+		 * {@link javax.sql.DataSource} (e.g. <code>ReadReplicaRoutingDataSource</code>) to send it to
+		 * a read replica. A replica may lag behind the primary database, so this should only be used
+		 * for reads whose results are returned to a client, and never for reads which decide what
+		 * gets written (e.g. resolving a conditional URL). Plain {@link #readOnly()} executions
+		 * always use the primary database.
+		 *
+		 * @since 6.6.0
+		 */
+		IExecutionBuilder allowReadReplica();
+
 		IExecutionBuilder onRollback(Runnable theOnRollback);
 
 		void execute(Runnable theTask);
@@ -24,6 +24,9 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.util.StopWatch;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class contains a runtime in-memory description of a search operation,
@@ -38,6 +41,7 @@ public class SearchRuntimeDetails {
 	private String myQueryString;
 	private SearchStatusEnum mySearchStatus;
 	private int myFoundIndexMatchesCount;
+	private final Map<String, Long> myIncludeQueryMillis = new ConcurrentHashMap<>();
 
 	public SearchRuntimeDetails(RequestDetails theRequestDetails, String theSearchUuid) {
 		myRequestDetails = theRequestDetails;
@@ -100,4 +104,26 @@ public class SearchRuntimeDetails {
 	public void setSearchStatus(SearchStatusEnum theSearchStatus) {
 		mySearchStatus = theSearchStatus;
 	}
+
+	/**
+	 * Returns the total time in milliseconds spent querying for each <code>_include</code> and
+	 * <code>_revinclude</code> in this search, keyed by the include parameter (e.g.
+	 * <code>_include=Observation:subject</code>). Recursive includes accumulate the time spent
+	 * across all rounds.
+	 *
+	 * @since 6.6.0
+	 */
+	public Map<String, Long> getIncludeQueryMillis() {
+		return Collections.unmodifiableMap(myIncludeQueryMillis);
+	}
+
+	/**
+	 * Adds time spent querying for the given <code>_include</code> or <code>_revinclude</code>.
+	 * This method may be called from multiple threads.
+	 *
+	 * @since 6.6.0
+	 */
+	public void addIncludeQueryMillis(String theInclude, long theMillis) {
+		myIncludeQueryMillis.merge(theInclude, theMillis, Long::sum);
+	}
 }
@@ -0,0 +1,73 @@
+package ca.uhn.fhir.jpa.util;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import javax.annotation.Nonnull;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Key for the {@link MemoryCacheEnum#HISTORY_COUNT} cache
+ */
+public class HistoryCountKey {
+	private final String myTypeName;
+	private final Long myInstanceId;
+	private final int myHashCode;
+
+	private HistoryCountKey(String theTypeName, Long theInstanceId) {
+		myTypeName = theTypeName;
+		myInstanceId = theInstanceId;
+		myHashCode = new HashCodeBuilder().append(myTypeName).append(myInstanceId).toHashCode();
+	}
+
+	public static HistoryCountKey forSystem() {
+		return new HistoryCountKey(null, null);
+	}
+
+	public static HistoryCountKey forType(@Nonnull String theType) {
+		assert isNotBlank(theType);
+		return new HistoryCountKey(theType, null);
+	}
+
+	public static HistoryCountKey forInstance(@Nonnull Long theInstanceId) {
+		assert theInstanceId != null;
+		return new HistoryCountKey(null, theInstanceId);
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		boolean retVal = false;
+		if (theO instanceof HistoryCountKey) {
+			HistoryCountKey that = (HistoryCountKey) theO;
+			retVal = new EqualsBuilder().append(myTypeName, that.myTypeName).append(myInstanceId, that.myInstanceId).isEquals();
+		}
+		return retVal;
+	}
+
+	@Override
+	public int hashCode() {
+		return myHashCode;
+	}
+
+}
@@ -0,0 +1,53 @@
+package ca.uhn.fhir.jpa.util;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.api.model.TranslationQuery;
+
+/**
+ * The caches managed by {@link MemoryCacheService}
+ */
+public enum MemoryCacheEnum {
+
+	TAG_DEFINITION(TagDefinitionCacheKey.class),
+	RESOURCE_LOOKUP(String.class),
+	FORCED_ID_TO_PID(String.class),
+	/**
+	 * Key type: {@literal Long}
+	 * Value type: {@literal Optional<String>}
+	 */
+	PID_TO_FORCED_ID(Long.class),
+	CONCEPT_TRANSLATION(TranslationQuery.class),
+	MATCH_URL(String.class),
+	CONCEPT_TRANSLATION_REVERSE(TranslationQuery.class),
+	RESOURCE_CONDITIONAL_CREATE_VERSION(Long.class),
+	HISTORY_COUNT(HistoryCountKey.class);
+
+	public Class<?> getKeyType() {
+		return myKeyType;
+	}
+
+	private final Class<?> myKeyType;
+
+	MemoryCacheEnum(Class<?> theKeyType) {
+		myKeyType = theKeyType;
+	}
+}
@@ -0,0 +1,204 @@
+package ca.uhn.fhir.jpa.util;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelConsumerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelFactory;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelReceiver;
+import ca.uhn.fhir.jpa.subscription.channel.impl.LinkedBlockingChannelFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes {@link MemoryCacheService} invalidations to the other nodes of a cluster, and applies
+ * the invalidations published by those nodes to the local cache.
+ * <p>
+ * The transport is provided by an {@link IChannelFactory}. Deployments with several nodes should
+ * supply a channel factory backed by a broker which delivers each message to every node (i.e.
+ * publish/subscribe semantics). The default in-JVM
+ * {@link ca.uhn.fhir.jpa.subscription.channel.impl.LinkedBlockingChannelFactory} has no peers to
+ * deliver to, so the JPA server configuration does not supply a channel factory in that case (see
+ * {@link #isRemoteChannelFactory(IChannelFactory)}), and a broadcaster without a channel factory
+ * does not publish anything.
+ * </p>
+ * <p>
+ * Only caches with a {@link String} or {@link Long} key type can be invalidated key-by-key. For
+ * other caches, the whole cache is invalidated on the peer nodes.
+ * </p>
+ */
+public class MemoryCacheInvalidationBroadcaster implements MessageHandler {
+
+	public static final String CHANNEL_NAME = "memory-cache-invalidation";
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheInvalidationBroadcaster.class);
+
+	@Nullable
+	private final IChannelFactory myChannelFactory;
+	private final MemoryCacheService myMemoryCacheService;
+	private final String myNodeId = UUID.randomUUID().toString();
+	private IChannelProducer myProducer;
+	private IChannelReceiver myReceiver;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theChannelFactory The channel factory used to reach peer nodes, or <code>null</code> if there are no peers
+	 */
+	public MemoryCacheInvalidationBroadcaster(@Nullable IChannelFactory theChannelFactory, @Nonnull MemoryCacheService theMemoryCacheService) {
+		myChannelFactory = theChannelFactory;
+		myMemoryCacheService = theMemoryCacheService;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (myChannelFactory == null) {
+			ourLog.debug("No channel factory for peer nodes, memory cache invalidations will not be broadcast");
+			return;
+		}
+		myProducer = myChannelFactory.getOrCreateProducer(CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, new ChannelProducerSettings());
+		myReceiver = myChannelFactory.getOrCreateReceiver(CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, new ChannelConsumerSettings());
+		myReceiver.subscribe(this);
+		myMemoryCacheService.setInvalidationBroadcaster(this);
+	}
+
+	@PreDestroy
+	public void stop() {
+		myMemoryCacheService.setInvalidationBroadcaster(null);
+		if (myReceiver != null) {
+			myReceiver.unsubscribe(this);
+		}
+	}
+
+	/**
+	 * Publishes the given keys of the given cache to peer nodes. This is normally only
+	 * invoked by {@link MemoryCacheService} once the transaction which changed the keys
+	 * has committed.
+	 */
+	public void publishInvalidation(MemoryCacheEnum theCache, Collection<?> theKeys) {
+		MemoryCacheInvalidationJson payload = new MemoryCacheInvalidationJson()
+			.setOriginNodeId(myNodeId)
+			.setCache(theCache);
+		if (isKeyTypeSupported(theCache)) {
+			payload.setKeys(theKeys.stream().map(Object::toString).collect(Collectors.toList()));
+		} else {
+			payload.setInvalidateAll(true);
+		}
+		send(payload);
+	}
+
+	/**
+	 * Publishes an invalidation of the entries in the given cache which refer to the given
+	 * resource PIDs to peer nodes
+	 *
+	 * @see MemoryCacheService#invalidateResourcePidsAfterCommit(MemoryCacheEnum, Collection)
+	 */
+	public void publishResourcePidInvalidation(MemoryCacheEnum theCache, Collection<Long> theResourcePids) {
+		MemoryCacheInvalidationJson payload = new MemoryCacheInvalidationJson()
+			.setOriginNodeId(myNodeId)
+			.setCache(theCache)
+			.setResourcePids(new ArrayList<>(theResourcePids));
+		send(payload);
+	}
+
+	/**
+	 * Publishes an invalidation of every cache to peer nodes
+	 */
+	public void publishInvalidateAll() {
+		MemoryCacheInvalidationJson payload = new MemoryCacheInvalidationJson()
+			.setOriginNodeId(myNodeId)
+			.setInvalidateAll(true);
+		send(payload);
+	}
+
+	private void send(MemoryCacheInvalidationJson thePayload) {
+		ourLog.trace("Publishing memory cache invalidation: {}", thePayload);
+		try {
+			myProducer.send(new MemoryCacheInvalidationJsonMessage(thePayload));
+		} catch (RuntimeException e) {
+			// Peers will still expire the entries by TTL, so this should not fail the caller
+			ourLog.error("Failed to publish memory cache invalidation", e);
+		}
+	}
+
+	@Override
+	public void handleMessage(@Nonnull Message<?> theMessage) throws MessagingException {
+		if (!(theMessage instanceof MemoryCacheInvalidationJsonMessage)) {
+			ourLog.warn("Unexpected message payload type: {}", theMessage);
+			return;
+		}
+
+		MemoryCacheInvalidationJson payload = ((MemoryCacheInvalidationJsonMessage) theMessage).getPayload();
+		if (myNodeId.equals(payload.getOriginNodeId())) {
+			return;
+		}
+
+		ourLog.debug("Received memory cache invalidation: {}", payload);
+		MemoryCacheEnum cache = payload.getCache();
+		if (cache == null) {
+			myMemoryCacheService.invalidateAllCachesLocally();
+		} else if (payload.isInvalidateAll()) {
+			myMemoryCacheService.invalidateCacheLocally(cache);
+		} else if (!payload.getResourcePids().isEmpty()) {
+			myMemoryCacheService.invalidateResourcePidsLocally(cache, new HashSet<>(payload.getResourcePids()));
+		} else if (!isKeyTypeSupported(cache)) {
+			myMemoryCacheService.invalidateCacheLocally(cache);
+		} else {
+			List<Object> keys = payload
+				.getKeys()
+				.stream()
+				.map(t -> cache.getKeyType().equals(Long.class) ? (Object) Long.parseLong(t) : t)
+				.collect(Collectors.toList());
+			myMemoryCacheService.invalidateLocally(cache, keys);
+		}
+	}
+
+	public String getNodeId() {
+		return myNodeId;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given channel factory is able to deliver messages to other
+	 * nodes, i.e. it is not the in-JVM {@link LinkedBlockingChannelFactory}
+	 */
+	public static boolean isRemoteChannelFactory(@Nullable IChannelFactory theChannelFactory) {
+		return theChannelFactory != null && !(theChannelFactory instanceof LinkedBlockingChannelFactory);
+	}
+
+	private static boolean isKeyTypeSupported(MemoryCacheEnum theCache) {
+		return theCache.getKeyType().equals(String.class) || theCache.getKeyType().equals(Long.class);
+	}
+
+}
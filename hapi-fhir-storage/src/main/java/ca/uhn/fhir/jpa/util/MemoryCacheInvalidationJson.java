@@ -0,0 +1,118 @@
+package ca.uhn.fhir.jpa.util;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.model.api.IModelJson;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload for a {@link MemoryCacheInvalidationBroadcaster} message, describing the keys (or
+ * the resource PIDs) of one {@link MemoryCacheService} cache which should be evicted by peer nodes.
+ */
+public class MemoryCacheInvalidationJson implements IModelJson {
+
+	@JsonProperty("originNodeId")
+	private String myOriginNodeId;
+	@JsonProperty("cache")
+	private MemoryCacheEnum myCache;
+	@JsonProperty("invalidateAll")
+	private boolean myInvalidateAll;
+	@JsonProperty("keys")
+	private List<String> myKeys;
+	@JsonProperty("resourcePids")
+	private List<Long> myResourcePids;
+
+	public String getOriginNodeId() {
+		return myOriginNodeId;
+	}
+
+	public MemoryCacheInvalidationJson setOriginNodeId(String theOriginNodeId) {
+		myOriginNodeId = theOriginNodeId;
+		return this;
+	}
+
+	/**
+	 * Returns the cache to invalidate, or <code>null</code> if every cache should be invalidated
+	 */
+	public MemoryCacheEnum getCache() {
+		return myCache;
+	}
+
+	public MemoryCacheInvalidationJson setCache(MemoryCacheEnum theCache) {
+		myCache = theCache;
+		return this;
+	}
+
+	/**
+	 * If <code>true</code>, all entries of the {@link #getCache() cache} should be invalidated
+	 * and {@link #getKeys()} is ignored
+	 */
+	public boolean isInvalidateAll() {
+		return myInvalidateAll;
+	}
+
+	public MemoryCacheInvalidationJson setInvalidateAll(boolean theInvalidateAll) {
+		myInvalidateAll = theInvalidateAll;
+		return this;
+	}
+
+	public List<String> getKeys() {
+		if (myKeys == null) {
+			myKeys = new ArrayList<>();
+		}
+		return myKeys;
+	}
+
+	public MemoryCacheInvalidationJson setKeys(List<String> theKeys) {
+		myKeys = theKeys;
+		return this;
+	}
+
+	/**
+	 * Entries of the {@link #getCache() cache} whose value refers to one of these
+	 * resource PIDs should be invalidated
+	 */
+	public List<Long> getResourcePids() {
+		if (myResourcePids == null) {
+			myResourcePids = new ArrayList<>();
+		}
+		return myResourcePids;
+	}
+
+	public MemoryCacheInvalidationJson setResourcePids(List<Long> theResourcePids) {
+		myResourcePids = theResourcePids;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "MemoryCacheInvalidationJson{" +
+			"originNodeId='" + myOriginNodeId + '\'' +
+			", cache=" + myCache +
+			", invalidateAll=" + myInvalidateAll +
+			", keys=" + getKeys().size() +
+			", resourcePids=" + getResourcePids().size() +
+			'}';
+	}
+}
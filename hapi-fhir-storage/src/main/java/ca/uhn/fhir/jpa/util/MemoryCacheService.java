@@ -21,36 +21,70 @@ package ca.uhn.fhir.jpa.util;
  */
 
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
-import ca.uhn.fhir.jpa.api.model.TranslationQuery;
-import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import ca.uhn.fhir.sl.cache.CacheStats;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
-import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 /**
  * This class acts as a central spot for all of the many Caffeine caches we use in HAPI FHIR.
  * <p>
- * The API is super simplistic, and caches are all 1-minute, max 10000 entries for starters. We could definitely add nuance to this,
- * which will be much easier now that this is being centralized. Some logging/monitoring would be good too.
+ * The API is super simplistic, and caches are all 1-minute, max 10000 entries for starters. The size and
+ * expiry of each individual cache can be overridden in {@link JpaStorageSettings}, and hit, miss and
+ * eviction counts are recorded by each cache (see {@link #getStatistics(MemoryCacheEnum)}).
+ * <p>
+ * If a {@link JpaStorageSettings#setMemoryCacheTotalBudget(Integer) total budget} is configured, the
+ * caches are instead sized as a share of that budget, and a scheduled job periodically moves capacity
+ * towards the caches that are producing the most hits.
  */
 // TODO: JA2 extract an interface for this class and use it everywhere
-public class MemoryCacheService {
+public class MemoryCacheService implements IHasScheduledJobs {
+
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheService.class);
+	/**
+	 * No cache is ever shrunk below this size by budget rebalancing, unless the budget is too small
+	 * to give every cache this many entries
+	 */
+	static final int MINIMUM_BUDGETED_CACHE_SIZE = 100;
+	/**
+	 * Share of the budget given to a cache with no hits, relative to one with a 100% hit ratio,
+	 * so that idle caches are still able to warm up
+	 */
+	private static final double IDLE_CACHE_SCORE = 0.1;
 
 	private final JpaStorageSettings myStorageSettings;
-	private final EnumMap<CacheEnum, Cache<?, ?>> myCaches = new EnumMap<>(CacheEnum.class);
+	private final EnumMap<MemoryCacheEnum, Cache<?, ?>> myCaches = new EnumMap<>(MemoryCacheEnum.class);
+	private final EnumMap<MemoryCacheEnum, StatsMark> myStatsMarks = new EnumMap<>(MemoryCacheEnum.class);
+	private final EnumMap<MemoryCacheEnum, Long> myMaximumSizes = new EnumMap<>(MemoryCacheEnum.class);
+	private final EnumMap<MemoryCacheEnum, Long> myTimeoutSeconds = new EnumMap<>(MemoryCacheEnum.class);
+	private volatile MemoryCacheInvalidationBroadcaster myInvalidationBroadcaster;
 
 	public MemoryCacheService(JpaStorageSettings theStorageSettings) {
 		myStorageSettings = theStorageSettings;
@@ -59,10 +93,20 @@ public class MemoryCacheService {
 	}
 
 	private void populateCaches() {
-		for (CacheEnum next : CacheEnum.values()) {
+		Integer totalBudget = myStorageSettings.getMemoryCacheTotalBudget();
+		EnumMap<MemoryCacheEnum, Long> budgetedSizes = null;
+		if (totalBudget != null) {
+			EnumMap<MemoryCacheEnum, Double> weights = new EnumMap<>(MemoryCacheEnum.class);
+			for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+				weights.put(next, (double) myStorageSettings.getMemoryCacheWeight(next));
+			}
+			budgetedSizes = allocateBudget(totalBudget, weights);
+		}
+
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
 
 			long timeoutSeconds;
-			int maximumSize;
+			long maximumSize;
 
 			switch (next) {
 				case CONCEPT_TRANSLATION:
@@ -87,19 +131,35 @@ public class MemoryCacheService {
 					break;
 			}
 
-			Cache<Object, Object> nextCache = CacheFactory.build(SECONDS.toMillis(timeoutSeconds), maximumSize);
+			Long configuredTimeoutSeconds = myStorageSettings.getMemoryCacheExpireAfterWriteSeconds(next);
+			if (configuredTimeoutSeconds != null) {
+				timeoutSeconds = configuredTimeoutSeconds;
+			}
+
+			if (budgetedSizes != null) {
+				maximumSize = budgetedSizes.get(next);
+			} else {
+				Integer configuredMaximumSize = myStorageSettings.getMemoryCacheMaximumSize(next);
+				if (configuredMaximumSize != null) {
+					maximumSize = configuredMaximumSize;
+				}
+			}
+
+			Cache<Object, Object> nextCache = CacheFactory.buildWithStats(SECONDS.toMillis(timeoutSeconds), maximumSize);
 
 			myCaches.put(next, nextCache);
+			myStatsMarks.put(next, new StatsMark());
+			myMaximumSizes.put(next, maximumSize);
+			myTimeoutSeconds.put(next, timeoutSeconds);
 		}
 	}
 
-
-	public <K, T> T get(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
+	public <K, T> T get(MemoryCacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		return doGet(theCache, theKey, theSupplier);
 	}
 
-	protected <K, T> T doGet(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
+	protected <K, T> T doGet(MemoryCacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		Cache<K, T> cache = getCache(theCache);
 		return cache.get(theKey, theSupplier);
 	}
@@ -108,9 +168,9 @@ public class MemoryCacheService {
 	 * Fetch an item from the cache if it exists, and use the loading function to
 	 * obtain it otherwise.
 	 * <p>
-	 * This method will put the value into the cache using {@link #putAfterCommit(CacheEnum, Object, Object)}.
+	 * This method will put the value into the cache using {@link #putAfterCommit(MemoryCacheEnum, Object, Object)}.
 	 */
-	public <K, T> T getThenPutAfterCommit(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
+	public <K, T> T getThenPutAfterCommit(MemoryCacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		T retVal = getIfPresent(theCache, theKey);
 		if (retVal == null) {
@@ -120,21 +180,21 @@ public class MemoryCacheService {
 		return retVal;
 	}
 
-	public <K, V> V getIfPresent(CacheEnum theCache, K theKey) {
+	public <K, V> V getIfPresent(MemoryCacheEnum theCache, K theKey) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		return doGetIfPresent(theCache, theKey);
 	}
 
-	protected <K, V> V doGetIfPresent(CacheEnum theCache, K theKey) {
+	protected <K, V> V doGetIfPresent(MemoryCacheEnum theCache, K theKey) {
 		return (V) getCache(theCache).getIfPresent(theKey);
 	}
 
-	public <K, V> void put(CacheEnum theCache, K theKey, V theValue) {
+	public <K, V> void put(MemoryCacheEnum theCache, K theKey, V theValue) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		doPut(theCache, theKey, theValue);
 	}
 
-	protected <K, V> void doPut(CacheEnum theCache, K theKey, V theValue) {
+	protected <K, V> void doPut(MemoryCacheEnum theCache, K theKey, V theValue) {
 		getCache(theCache).put(theKey, theValue);
 	}
 
@@ -149,7 +209,7 @@ public class MemoryCacheService {
 	 * that this item will successfully save to the DB. Use this method in that case
 	 * in order to avoid cache poisoning.
 	 */
-	public <K, V> void putAfterCommit(CacheEnum theCache, K theKey, V theValue) {
+	public <K, V> void putAfterCommit(MemoryCacheEnum theCache, K theKey, V theValue) {
 		if (TransactionSynchronizationManager.isSynchronizationActive()) {
 			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
 				@Override
@@ -163,135 +223,367 @@ public class MemoryCacheService {
 	}
 
 	@SuppressWarnings("unchecked")
-	public <K, V> Map<K, V> getAllPresent(CacheEnum theCache, Collection<K> theKeys) {
+	public <K, V> Map<K, V> getAllPresent(MemoryCacheEnum theCache, Collection<K> theKeys) {
 		return doGetAllPresent(theCache, theKeys);
 	}
 
 	@SuppressWarnings("unchecked")
-	protected <K, V> Map<K, V> doGetAllPresent(CacheEnum theCache, Collection<K> theKeys) {
+	protected <K, V> Map<K, V> doGetAllPresent(MemoryCacheEnum theCache, Collection<K> theKeys) {
 		return (Map<K, V>) getCache(theCache).getAllPresent(theKeys);
 	}
 
+	/**
+	 * Invalidates every cache on this node, and on any peer nodes if an
+	 * {@link #setInvalidationBroadcaster(MemoryCacheInvalidationBroadcaster) invalidation broadcaster}
+	 * is registered.
+	 */
 	public void invalidateAllCaches() {
+		invalidateAllCachesLocally();
+		MemoryCacheInvalidationBroadcaster broadcaster = myInvalidationBroadcaster;
+		if (broadcaster != null) {
+			broadcaster.publishInvalidateAll();
+		}
+	}
+
+	/**
+	 * Invalidates every cache on this node only
+	 */
+	public void invalidateAllCachesLocally() {
 		myCaches.values().forEach(Cache::invalidateAll);
 	}
 
-	private <K, T> Cache<K, T> getCache(CacheEnum theCache) {
+	/**
+	 * Invalidates all entries in the given cache on this node only
+	 */
+	public void invalidateCacheLocally(MemoryCacheEnum theCache) {
+		getCache(theCache).invalidateAll();
+	}
+
+	/**
+	 * Invalidates the given keys in the given cache on this node only
+	 */
+	public <K> void invalidateLocally(MemoryCacheEnum theCache, Collection<K> theKeys) {
+		getCache(theCache).invalidateAll(theKeys);
+	}
+
+	/**
+	 * This method registers a transaction synchronization that removes an entry from the
+	 * cache if and when the current database transaction successfully commits, and publishes
+	 * the invalidation to peer nodes if an
+	 * {@link #setInvalidationBroadcaster(MemoryCacheInvalidationBroadcaster) invalidation broadcaster}
+	 * is registered. All keys invalidated within a single transaction are published together
+	 * as one message per cache.
+	 * <p>
+	 * If no transaction is active, the entry is invalidated immediately.
+	 */
+	public <K> void invalidateAfterCommit(MemoryCacheEnum theCache, K theKey) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			getOrCreatePendingInvalidations().add(theCache, theKey);
+		} else {
+			invalidateAndPublish(theCache, Collections.singletonList(theKey));
+		}
+	}
+
+	/**
+	 * This method registers a transaction synchronization that removes every entry whose value
+	 * refers to one of the given resources (i.e. is an {@link IResourcePersistentId} or an
+	 * {@link IResourceLookup} for one of those resources) from the given cache if and when the current
+	 * database transaction successfully commits, and publishes the invalidation to peer nodes if an
+	 * {@link #setInvalidationBroadcaster(MemoryCacheInvalidationBroadcaster) invalidation broadcaster}
+	 * is registered. This is intended for caches where the keys which resolve to a changed resource
+	 * can not be determined from the resource itself (e.g. match URLs). The matching entries are
+	 * found by scanning the cache once per transaction and cache.
+	 * <p>
+	 * If no transaction is active, the entries are invalidated immediately.
+	 */
+	public void invalidateResourcePidsAfterCommit(MemoryCacheEnum theCache, Collection<Long> theResourcePids) {
+		if (theResourcePids.isEmpty()) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			getOrCreatePendingInvalidations().addResourcePids(theCache, theResourcePids);
+		} else {
+			invalidateResourcePidsAndPublish(theCache, new HashSet<>(theResourcePids));
+		}
+	}
+
+	/**
+	 * Invalidates every entry whose value refers to one of the given resources, in the given cache
+	 * on this node only
+	 *
+	 * @see #invalidateResourcePidsAfterCommit(MemoryCacheEnum, Collection)
+	 */
+	public void invalidateResourcePidsLocally(MemoryCacheEnum theCache, Collection<Long> theResourcePids) {
+		getCache(theCache).invalidateIf((k, v) -> theResourcePids.contains(toResourcePid(v)));
+	}
+
+	private static Long toResourcePid(Object theValue) {
+		if (theValue instanceof IResourceLookup) {
+			return toResourcePid(((IResourceLookup<?>) theValue).getPersistentId());
+		}
+		if (theValue instanceof IResourcePersistentId) {
+			Object id = ((IResourcePersistentId<?>) theValue).getId();
+			if (id instanceof Long) {
+				return (Long) id;
+			}
+		}
+		return null;
+	}
+
+	private PendingInvalidations getOrCreatePendingInvalidations() {
+		PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+		if (pending == null) {
+			pending = new PendingInvalidations();
+			TransactionSynchronizationManager.bindResource(this, pending);
+			TransactionSynchronizationManager.registerSynchronization(pending);
+		}
+		return pending;
+	}
+
+	private void invalidateResourcePidsAndPublish(MemoryCacheEnum theCache, Collection<Long> theResourcePids) {
+		invalidateResourcePidsLocally(theCache, theResourcePids);
+		MemoryCacheInvalidationBroadcaster broadcaster = myInvalidationBroadcaster;
+		if (broadcaster != null) {
+			broadcaster.publishResourcePidInvalidation(theCache, theResourcePids);
+		}
+	}
+
+	private void invalidateAndPublish(MemoryCacheEnum theCache, Collection<?> theKeys) {
+		invalidateLocally(theCache, theKeys);
+		MemoryCacheInvalidationBroadcaster broadcaster = myInvalidationBroadcaster;
+		if (broadcaster != null) {
+			broadcaster.publishInvalidation(theCache, theKeys);
+		}
+	}
+
+	/**
+	 * Registers a broadcaster which will be used to publish invalidations to peer nodes,
+	 * or <code>null</code> to stop publishing
+	 */
+	public void setInvalidationBroadcaster(MemoryCacheInvalidationBroadcaster theInvalidationBroadcaster) {
+		myInvalidationBroadcaster = theInvalidationBroadcaster;
+	}
+
+	private <K, T> Cache<K, T> getCache(MemoryCacheEnum theCache) {
 		return (Cache<K, T>) myCaches.get(theCache);
 	}
 
-	public long getEstimatedSize(CacheEnum theCache) {
+	public long getEstimatedSize(MemoryCacheEnum theCache) {
 		return getCache(theCache).estimatedSize();
 	}
 
-	public enum CacheEnum {
+	/**
+	 * Returns a snapshot of the usage statistics for the given cache. Hit, miss and eviction counts are
+	 * cumulative since startup, and are reported as <code>0</code> if the cache provider does not record them.
+	 */
+	public CacheStatistics getStatistics(MemoryCacheEnum theCache) {
+		CacheStats stats = getStats(theCache);
+		return new CacheStatistics(theCache, stats.getHitCount(), stats.getMissCount(), stats.getEvictionCount(), getEstimatedSize(theCache), myMaximumSizes.get(theCache), myTimeoutSeconds.get(theCache));
+	}
 
-		TAG_DEFINITION(TagDefinitionCacheKey.class),
-		RESOURCE_LOOKUP(String.class),
-		FORCED_ID_TO_PID(String.class),
-		/**
-		 * Key type: {@literal Long}
-		 * Value type: {@literal Optional<String>}
-		 */
-		PID_TO_FORCED_ID(Long.class),
-		CONCEPT_TRANSLATION(TranslationQuery.class),
-		MATCH_URL(String.class),
-		CONCEPT_TRANSLATION_REVERSE(TranslationQuery.class),
-		RESOURCE_CONDITIONAL_CREATE_VERSION(Long.class),
-		HISTORY_COUNT(HistoryCountKey.class);
+	@Nonnull
+	private CacheStats getStats(MemoryCacheEnum theCache) {
+		CacheStats retVal = getCache(theCache).stats();
+		if (retVal == null) {
+			retVal = new CacheStats(0, 0, 0);
+		}
+		return retVal;
+	}
 
-		public Class<?> getKeyType() {
-			return myKeyType;
+	/**
+	 * If a {@link JpaStorageSettings#setMemoryCacheTotalBudget(Integer) total budget} is configured,
+	 * redistributes that budget between the caches. Each cache receives a share proportional to its
+	 * configured {@link JpaStorageSettings#setMemoryCacheWeight(MemoryCacheEnum, int) weight} multiplied by
+	 * its hit ratio since the previous rebalance. Caches which have not produced any hits still receive
+	 * a small share so that they are able to warm up.
+	 * <p>
+	 * This is normally invoked by a scheduled job, and does nothing if no budget is configured.
+	 */
+	public synchronized void rebalanceCaches() {
+		Integer totalBudget = myStorageSettings.getMemoryCacheTotalBudget();
+		if (totalBudget == null) {
+			return;
 		}
 
-		private final Class<?> myKeyType;
+		EnumMap<MemoryCacheEnum, Double> scores = new EnumMap<>(MemoryCacheEnum.class);
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+			double hitRatio = myStatsMarks.get(next).hitRatioSinceLastMark(getStats(next));
+			double score = myStorageSettings.getMemoryCacheWeight(next) * Math.max(IDLE_CACHE_SCORE, hitRatio);
+			scores.put(next, score);
+		}
 
-		CacheEnum(Class<?> theKeyType) {
-			myKeyType = theKeyType;
+		EnumMap<MemoryCacheEnum, Long> newMaximumSizes = allocateBudget(totalBudget, scores);
+		for (MemoryCacheEnum next : MemoryCacheEnum.values()) {
+			long newMaximumSize = newMaximumSizes.get(next);
+			long oldMaximumSize = myMaximumSizes.get(next);
+			if (newMaximumSize != oldMaximumSize) {
+				ourLog.debug("Resizing memory cache {} from {} to {} entries", next, oldMaximumSize, newMaximumSize);
+				getCache(next).setMaximumSize(newMaximumSize);
+				myMaximumSizes.put(next, newMaximumSize);
+			}
 		}
 	}
 
+	/**
+	 * Splits the budget between the caches in proportion to the given shares. Every cache first receives
+	 * {@link #MINIMUM_BUDGETED_CACHE_SIZE} entries (or an equal split of the budget if it is too small
+	 * for that), and only the remainder is split by share, so the total never exceeds the budget.
+	 */
+	static EnumMap<MemoryCacheEnum, Long> allocateBudget(long theTotalBudget, EnumMap<MemoryCacheEnum, Double> theShares) {
+		int cacheCount = theShares.size();
+		long minimumSize = Math.min(MINIMUM_BUDGETED_CACHE_SIZE, theTotalBudget / cacheCount);
+		long distributable = theTotalBudget - (minimumSize * cacheCount);
+		double totalShare = theShares.values().stream().mapToDouble(t -> t).sum();
+
+		EnumMap<MemoryCacheEnum, Long> retVal = new EnumMap<>(MemoryCacheEnum.class);
+		for (Map.Entry<MemoryCacheEnum, Double> next : theShares.entrySet()) {
+			long share = totalShare > 0 ? (long) (distributable * next.getValue() / totalShare) : distributable / cacheCount;
+			retVal.put(next.getKey(), minimumSize + share);
+		}
+		return retVal;
+	}
 
-	public static class TagDefinitionCacheKey {
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		if (myStorageSettings.getMemoryCacheTotalBudget() != null) {
+			ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+			jobDetail.setId(getClass().getName());
+			jobDetail.setJobClass(Job.class);
+			theSchedulerService.scheduleLocalJob(DateUtils.MILLIS_PER_MINUTE, jobDetail);
+		}
+	}
 
-		private final TagTypeEnum myType;
-		private final String mySystem;
-		private final String myCode;
-		private final int myHashCode;
+	public static class Job implements HapiJob {
+		@Autowired
+		private MemoryCacheService myTarget;
 
-		public TagDefinitionCacheKey(TagTypeEnum theType, String theSystem, String theCode) {
-			myType = theType;
-			mySystem = theSystem;
-			myCode = theCode;
-			myHashCode = new HashCodeBuilder(17, 37)
-				.append(myType)
-				.append(mySystem)
-				.append(myCode)
-				.toHashCode();
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.rebalanceCaches();
+		}
+	}
+
+	/**
+	 * Keys and resource PIDs invalidated during a single transaction, applied and published once it commits
+	 */
+	private class PendingInvalidations implements TransactionSynchronization {
+		private final EnumMap<MemoryCacheEnum, Set<Object>> myKeys = new EnumMap<>(MemoryCacheEnum.class);
+		private final EnumMap<MemoryCacheEnum, Set<Long>> myResourcePids = new EnumMap<>(MemoryCacheEnum.class);
+
+		void add(MemoryCacheEnum theCache, Object theKey) {
+			myKeys.computeIfAbsent(theCache, t -> new LinkedHashSet<>()).add(theKey);
+		}
+
+		void addResourcePids(MemoryCacheEnum theCache, Collection<Long> theResourcePids) {
+			myResourcePids.computeIfAbsent(theCache, t -> new HashSet<>()).addAll(theResourcePids);
 		}
 
 		@Override
-		public boolean equals(Object theO) {
-			boolean retVal = false;
-			if (theO instanceof TagDefinitionCacheKey) {
-				TagDefinitionCacheKey that = (TagDefinitionCacheKey) theO;
-
-				retVal = new EqualsBuilder()
-					.append(myType, that.myType)
-					.append(mySystem, that.mySystem)
-					.append(myCode, that.myCode)
-					.isEquals();
-			}
-			return retVal;
+		public void afterCommit() {
+			myKeys.forEach(MemoryCacheService.this::invalidateAndPublish);
+			myResourcePids.forEach(MemoryCacheService.this::invalidateResourcePidsAndPublish);
 		}
 
 		@Override
-		public int hashCode() {
-			return myHashCode;
+		public void afterCompletion(int theStatus) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(MemoryCacheService.this);
+		}
+	}
+
+	/**
+	 * The hit and miss counts of a cache at the previous rebalance
+	 */
+	private static class StatsMark {
+		private long myHitsAtLastMark;
+		private long myMissesAtLastMark;
+
+		/**
+		 * Returns the hit ratio since the previous invocation of this method, and resets the mark
+		 */
+		double hitRatioSinceLastMark(CacheStats theStats) {
+			long hits = theStats.getHitCount();
+			long misses = theStats.getMissCount();
+			long intervalHits = hits - myHitsAtLastMark;
+			long intervalRequests = intervalHits + (misses - myMissesAtLastMark);
+			myHitsAtLastMark = hits;
+			myMissesAtLastMark = misses;
+			if (intervalRequests == 0) {
+				return 0;
+			}
+			return (double) intervalHits / intervalRequests;
 		}
 	}
 
+	public static class CacheStatistics {
+		private final MemoryCacheEnum myCache;
+		private final long myHitCount;
+		private final long myMissCount;
+		private final long myEvictionCount;
+		private final long myEstimatedSize;
+		private final long myMaximumSize;
+		private final long myExpireAfterWriteSeconds;
+
+		CacheStatistics(MemoryCacheEnum theCache, long theHitCount, long theMissCount, long theEvictionCount, long theEstimatedSize, long theMaximumSize, long theExpireAfterWriteSeconds) {
+			myCache = theCache;
+			myHitCount = theHitCount;
+			myMissCount = theMissCount;
+			myEvictionCount = theEvictionCount;
+			myEstimatedSize = theEstimatedSize;
+			myMaximumSize = theMaximumSize;
+			myExpireAfterWriteSeconds = theExpireAfterWriteSeconds;
+		}
 
-	public static class HistoryCountKey {
-		private final String myTypeName;
-		private final Long myInstanceId;
-		private final int myHashCode;
+		public MemoryCacheEnum getCache() {
+			return myCache;
+		}
 
-		private HistoryCountKey(String theTypeName, Long theInstanceId) {
-			myTypeName = theTypeName;
-			myInstanceId = theInstanceId;
-			myHashCode = new HashCodeBuilder().append(myTypeName).append(myInstanceId).toHashCode();
+		public long getHitCount() {
+			return myHitCount;
 		}
 
-		public static HistoryCountKey forSystem() {
-			return new HistoryCountKey(null, null);
+		public long getMissCount() {
+			return myMissCount;
 		}
 
-		public static HistoryCountKey forType(@Nonnull String theType) {
-			assert isNotBlank(theType);
-			return new HistoryCountKey(theType, null);
+		/**
+		 * Returns the number of entries removed because the cache was full or the entry expired
+		 */
+		public long getEvictionCount() {
+			return myEvictionCount;
 		}
 
-		public static HistoryCountKey forInstance(@Nonnull Long theInstanceId) {
-			assert theInstanceId != null;
-			return new HistoryCountKey(null, theInstanceId);
+		/**
+		 * Returns the ratio of hits to total requests, or <code>0</code> if the cache has not been used
+		 */
+		public double getHitRatio() {
+			long requests = myHitCount + myMissCount;
+			return requests == 0 ? 0 : (double) myHitCount / requests;
 		}
 
-		@Override
-		public boolean equals(Object theO) {
-			boolean retVal = false;
-			if (theO instanceof HistoryCountKey) {
-				HistoryCountKey that = (HistoryCountKey) theO;
-				retVal = new EqualsBuilder().append(myTypeName, that.myTypeName).append(myInstanceId, that.myInstanceId).isEquals();
-			}
-			return retVal;
+		public long getEstimatedSize() {
+			return myEstimatedSize;
 		}
 
-		@Override
-		public int hashCode() {
-			return myHashCode;
+		public long getMaximumSize() {
+			return myMaximumSize;
 		}
 
+		public long getExpireAfterWriteSeconds() {
+			return myExpireAfterWriteSeconds;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("cache", myCache)
+				.append("hits", myHitCount)
+				.append("misses", myMissCount)
+				.append("evictions", myEvictionCount)
+				.append("estimatedSize", myEstimatedSize)
+				.append("maximumSize", myMaximumSize)
+				.toString();
+		}
 	}
 
 }
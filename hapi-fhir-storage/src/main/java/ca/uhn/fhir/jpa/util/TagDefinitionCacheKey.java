@@ -0,0 +1,67 @@
+package ca.uhn.fhir.jpa.util;
+
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Key for the {@link MemoryCacheEnum#TAG_DEFINITION} cache
+ */
+public class TagDefinitionCacheKey {
+
+	private final TagTypeEnum myType;
+	private final String mySystem;
+	private final String myCode;
+	private final int myHashCode;
+
+	public TagDefinitionCacheKey(TagTypeEnum theType, String theSystem, String theCode) {
+		myType = theType;
+		mySystem = theSystem;
+		myCode = theCode;
+		myHashCode = new HashCodeBuilder(17, 37)
+			.append(myType)
+			.append(mySystem)
+			.append(myCode)
+			.toHashCode();
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		boolean retVal = false;
+		if (theO instanceof TagDefinitionCacheKey) {
+			TagDefinitionCacheKey that = (TagDefinitionCacheKey) theO;
+
+			retVal = new EqualsBuilder()
+				.append(myType, that.myType)
+				.append(mySystem, that.mySystem)
+				.append(myCode, that.myCode)
+				.isEquals();
+		}
+		return retVal;
+	}
+
+	@Override
+	public int hashCode() {
+		return myHashCode;
+	}
+}
@@ -0,0 +1,51 @@
+package ca.uhn.fhir.jpa.binary.svc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ByteRangeOutputStreamTest {
+
+	private static final byte[] SOME_BYTES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+	@Test
+	public void testRangeAcrossWrites() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		try (ByteRangeOutputStream stream = new ByteRangeOutputStream(target, 3, 5)) {
+			stream.write(SOME_BYTES, 0, 4);
+			stream.write(SOME_BYTES, 4, 2);
+			stream.write(SOME_BYTES[6]);
+			stream.write(SOME_BYTES, 7, 3);
+		}
+		assertArrayEquals(new byte[]{3, 4, 5, 6, 7}, target.toByteArray());
+	}
+
+	@Test
+	public void testRangePastEnd() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		try (ByteRangeOutputStream stream = new ByteRangeOutputStream(target, 8, Long.MAX_VALUE)) {
+			stream.write(SOME_BYTES);
+		}
+		assertArrayEquals(new byte[]{8, 9}, target.toByteArray());
+	}
+
+	@Test
+	public void testRangeOutsideData() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		try (ByteRangeOutputStream stream = new ByteRangeOutputStream(target, 20, 5)) {
+			stream.write(SOME_BYTES);
+		}
+		assertArrayEquals(new byte[0], target.toByteArray());
+	}
+
+	@Test
+	public void testInvalidRange() {
+		assertThrows(IllegalArgumentException.class, () -> new ByteRangeOutputStream(new ByteArrayOutputStream(), -1, 5));
+		assertThrows(IllegalArgumentException.class, () -> new ByteRangeOutputStream(new ByteArrayOutputStream(), 0, -1));
+	}
+
+}
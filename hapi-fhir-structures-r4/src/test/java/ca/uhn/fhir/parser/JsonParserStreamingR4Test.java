@@ -0,0 +1,105 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonParserStreamingR4Test {
+
+	private static final FhirContext ourCtx = FhirContext.forR4();
+	private static final FhirContext ourStreamingCtx = FhirContext.forR4();
+
+	static {
+		ourStreamingCtx.getParserOptions().setUseStreamingJsonParser(true);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		// Primitive extensions, before and after their primitive, and without any primitive
+		"{\"resourceType\":\"Patient\",\"id\":\"A\",\"_gender\":{\"extension\":[{\"url\":\"http://foo\",\"valueString\":\"1\"}]},\"gender\":\"male\",\"active\":true,\"_active\":{\"id\":\"a1\"},\"_birthDate\":{\"extension\":[{\"url\":\"http://bar\",\"valueCode\":\"masked\"}]}}",
+		// Repeating primitives with a partially populated extension array
+		"{\"resourceType\":\"Patient\",\"name\":[{\"given\":[\"A\",\"B\",null],\"_given\":[null,{\"id\":\"b\"},{\"extension\":[{\"url\":\"http://foo\",\"valueBoolean\":false}]}],\"family\":\"F\"}]}",
+		// resourceType and url not first, nested and modifier extensions
+		"{\"id\":\"A\",\"resourceType\":\"Patient\",\"extension\":[{\"valueString\":\"v\",\"url\":\"http://a\"},{\"url\":\"http://b\",\"extension\":[{\"url\":\"c\",\"valueInteger\":3}]}],\"modifierExtension\":[{\"url\":\"http://m\",\"valueCode\":\"x\"}]}",
+		// Contained resources, including one where resourceType is not first
+		"{\"resourceType\":\"Observation\",\"contained\":[{\"resourceType\":\"Patient\",\"id\":\"p1\",\"active\":true},{\"id\":\"p2\",\"resourceType\":\"Patient\",\"gender\":\"female\"}],\"status\":\"final\",\"subject\":{\"reference\":\"#p1\"},\"performer\":[{\"reference\":\"#p2\"}]}",
+		// Decimal precision, integers and booleans
+		"{\"resourceType\":\"Observation\",\"status\":\"final\",\"valueQuantity\":{\"value\":1.500,\"unit\":\"mg\"},\"component\":[{\"code\":{\"text\":\"a\"},\"valueInteger\":-12},{\"code\":{\"text\":\"b\"},\"valueQuantity\":{\"value\":1E+2}}]}",
+		// Bundle with nested resources and fullUrl
+		"{\"resourceType\":\"Bundle\",\"type\":\"collection\",\"entry\":[{\"fullUrl\":\"http://example.com/Patient/1\",\"resource\":{\"resourceType\":\"Patient\",\"active\":true}},{\"resource\":{\"meta\":{\"versionId\":\"3\"},\"resourceType\":\"Patient\",\"id\":\"2\"},\"fullUrl\":\"http://example.com/Patient/2\"}]}",
+		// Narrative
+		"{\"resourceType\":\"Patient\",\"text\":{\"status\":\"generated\",\"div\":\"<div xmlns=\\\"http://www.w3.org/1999/xhtml\\\">Hello <b>World</b></div>\"}}"
+	})
+	public void testParseMatchesTreeParser(String theInput) {
+		assertParseMatches(theInput);
+	}
+
+	@Test
+	public void testParseLargeBundleMatchesTreeParser() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		for (int i = 0; i < 50; i++) {
+			Patient patient = new Patient();
+			patient.setId("Patient/" + i);
+			patient.addName().setFamily("Family" + i).addGiven("Given" + i);
+			patient.getBirthDateElement().setValueAsString("1970-01-0" + (i % 9 + 1));
+			patient.getBirthDateElement().addExtension("http://foo", new StringType("bar"));
+			bundle.addEntry().setFullUrl("http://example.com/" + patient.getId()).setResource(patient);
+
+			Observation obs = new Observation();
+			obs.setId("Observation/" + i);
+			obs.setStatus(Observation.ObservationStatus.FINAL);
+			obs.setSubject(new Reference(patient.getId()));
+			obs.setValue(new Quantity().setValue(new BigDecimal("12.30")).setUnit("mmol/L"));
+			obs.addExtension("http://decimal", new DecimalType("0.10"));
+			bundle.addEntry().setFullUrl("http://example.com/" + obs.getId()).setResource(obs);
+		}
+
+		String input = ourCtx.newJsonParser().encodeResourceToString(bundle);
+		assertParseMatches(input);
+	}
+
+	@Test
+	public void testParseInvalid() {
+		IParser parser = ourStreamingCtx.newJsonParser();
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> parser.parseResource("   "));
+		assertTrue(e.getMessage().contains("Did not find any content to parse"), e.getMessage());
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("[]"));
+		assertTrue(e.getMessage().contains("Content does not appear to be FHIR JSON"), e.getMessage());
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"active\":true}"));
+		assertTrue(e.getMessage().contains("missing required element: 'resourceType'"), e.getMessage());
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\":\"Patient\"} {}"));
+		assertTrue(e.getMessage().contains("Unexpected content found after the end of the resource"), e.getMessage());
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\":\"Patient\",\"active\":}"));
+		assertTrue(e.getMessage().contains("Failed to parse JSON encoded FHIR content"), e.getMessage());
+	}
+
+	private static void assertParseMatches(String theInput) {
+		IBaseResource expected = ourCtx.newJsonParser().parseResource(theInput);
+		IBaseResource actual = ourStreamingCtx.newJsonParser().parseResource(theInput);
+
+		IParser encoder = ourCtx.newJsonParser().setPrettyPrint(true);
+		assertEquals(encoder.encodeResourceToString(expected), encoder.encodeResourceToString(actual));
+	}
+
+}
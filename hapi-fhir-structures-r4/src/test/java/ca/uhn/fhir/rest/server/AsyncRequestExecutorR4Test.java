@@ -0,0 +1,219 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.Create;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.annotation.ResourceParam;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.test.utilities.JettyUtil;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AsyncRequestExecutorR4Test {
+
+	private static final String THREAD_NAME_PREFIX = "fhir-async-";
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static CloseableHttpClient ourClient;
+	private static Server ourServer;
+	private static RestfulServer ourServlet;
+	private static int ourPort;
+	private static String ourLastThreadName;
+	private static volatile boolean ourSlowReadFinished;
+	private static volatile Exception ourSlowReadRequestException;
+	private static volatile String ourLastCreatedFamily;
+	private ExecutorService myExecutor;
+
+	@BeforeEach
+	public void before() {
+		ourLastThreadName = null;
+		ourSlowReadFinished = false;
+		ourSlowReadRequestException = null;
+		ourLastCreatedFamily = null;
+		myExecutor = Executors.newFixedThreadPool(2, r -> new Thread(r, THREAD_NAME_PREFIX + r.hashCode()));
+		ourServlet.setAsyncRequestExecutor(myExecutor);
+	}
+
+	@AfterEach
+	public void after() {
+		ourServlet.setAsyncRequestExecutor(null);
+		ourServlet.setAsyncRequestTimeoutMillis(0);
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testReadIsProcessedByExecutor() throws Exception {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/123");
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("\"family\":\"FAMILY123\""));
+			assertThat(ourLastThreadName, startsWith(THREAD_NAME_PREFIX));
+		}
+	}
+
+	@Test
+	public void testCreateReadsBodyOnExecutor() throws Exception {
+		Patient patient = new Patient();
+		patient.addName().setFamily("CREATED");
+		HttpPost httpPost = new HttpPost("http://localhost:" + ourPort + "/Patient");
+		httpPost.setEntity(new StringEntity(ourCtx.newJsonParser().encodeResourceToString(patient), ContentType.create(Constants.CT_FHIR_JSON_NEW, StandardCharsets.UTF_8)));
+		try (CloseableHttpResponse status = ourClient.execute(httpPost)) {
+			assertEquals(201, status.getStatusLine().getStatusCode());
+			assertEquals("CREATED", ourLastCreatedFamily);
+			assertThat(ourLastThreadName, startsWith(THREAD_NAME_PREFIX));
+		}
+	}
+
+	@Test
+	public void testExceptionIsHandledByExecutor() throws Exception {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/999");
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+
+			assertEquals(404, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("OperationOutcome"));
+			assertThat(ourLastThreadName, startsWith(THREAD_NAME_PREFIX));
+		}
+	}
+
+	@Test
+	public void testRejectedRequestIsProcessedOnContainerThread() throws Exception {
+		ourServlet.setAsyncRequestExecutor(t -> {
+			throw new RejectedExecutionException();
+		});
+
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/123");
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("\"family\":\"FAMILY123\""));
+		}
+	}
+
+	@Test
+	public void testTimeoutReturnsServiceUnavailable() throws Exception {
+		ourServlet.setAsyncRequestTimeoutMillis(200);
+
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/SLOW");
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			assertEquals(503, status.getStatusLine().getStatusCode());
+		}
+
+		// The executor thread finishes later and must not read from the completed request or write into the completed response
+		await().until(() -> ourSlowReadFinished);
+		assertThat(ourSlowReadRequestException, instanceOf(IllegalStateException.class));
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/123");
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("\"family\":\"FAMILY123\""));
+		}
+	}
+
+	@AfterAll
+	public static void afterClass() throws Exception {
+		JettyUtil.closeServer(ourServer);
+		ourClient.close();
+	}
+
+	@BeforeAll
+	public static void beforeClass() throws Exception {
+		ourServer = new Server(0);
+
+		ServletHandler proxyHandler = new ServletHandler();
+		ourServlet = new RestfulServer(ourCtx);
+		ourServlet.setDefaultResponseEncoding(EncodingEnum.JSON);
+		ourServlet.setResourceProviders(new PatientProvider());
+		ServletHolder servletHolder = new ServletHolder(ourServlet);
+		servletHolder.setAsyncSupported(true);
+		proxyHandler.addServletWithMapping(servletHolder, "/*");
+		ourServer.setHandler(proxyHandler);
+		JettyUtil.startServer(ourServer);
+		ourPort = JettyUtil.getPortForStartedServer(ourServer);
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5000, TimeUnit.MILLISECONDS);
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setConnectionManager(connectionManager);
+		ourClient = builder.build();
+	}
+
+	public static class PatientProvider implements IResourceProvider {
+
+		@Override
+		public Class<Patient> getResourceType() {
+			return Patient.class;
+		}
+
+		@Create
+		public MethodOutcome create(@ResourceParam Patient thePatient) {
+			ourLastThreadName = Thread.currentThread().getName();
+			ourLastCreatedFamily = thePatient.getNameFirstRep().getFamily();
+			return new MethodOutcome(new IdType("Patient/1/_history/1"), true);
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId, HttpServletRequest theRequest) {
+			ourLastThreadName = Thread.currentThread().getName();
+			if ("999".equals(theId.getIdPart())) {
+				throw new ResourceNotFoundException(theId);
+			}
+			if ("SLOW".equals(theId.getIdPart())) {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				try {
+					theRequest.getHeader(Constants.HEADER_ACCEPT);
+				} catch (Exception e) {
+					ourSlowReadRequestException = e;
+				}
+				ourSlowReadFinished = true;
+			}
+			Patient patient = new Patient();
+			patient.setId(theId);
+			patient.addName().setFamily("FAMILY" + theId.getIdPart());
+			return patient;
+		}
+
+	}
+
+}